@@ -1,59 +1,202 @@
 import alarm.Alarm;
+import alarm.AlarmRollupResolution;
+import alarm.AlarmSeverity;
+import alarm.correlation.CorrelationEngine;
+import alarm.correlation.CorrelationPattern;
 import com.formdev.flatlaf.FlatDarkLaf;
+import core.EscalationScheduler;
+import core.HealthCheckPolicy;
+import core.RunMode;
 import core.SecurityHub;
 import devices.api.Device;
 import devices.api.HardwareLink;
+import devices.model.DeviceType;
 import frontend.LoginFrame;
 import infrastructure.factories.MotionDeviceFactory;
 import infrastructure.logger.*;
+import infrastructure.gateway.HeartbeatGateway;
+import infrastructure.monitoring.MonitoringServer;
+import infrastructure.scheduling.HashedWheelTimer;
+import infrastructure.scheduling.RateBudget;
+import infrastructure.replication.ReplicationPublisher;
+import infrastructure.replication.ReplicationReceiver;
 import infrastructure.repository.*;
 import infrastructure.subscribers.*;
+import infrastructure.timeseries.TelemetryStore;
+import infrastructure.trace.TraceRecorder;
+import infrastructure.trace.TraceReplayer;
+import rules.RuleEngine;
+import service.alarm.AlarmService;
+import service.device.BatteryAnalyticsService;
+import service.device.DeviceForecast;
+import service.system.RuntimeMetricsService;
 import service.system.SystemHealthService;
+import service.system.SystemSnapshot;
 import service.subscriber.notification.SubscriberNotificationService;
+import sim.AlarmLatencyHarness;
+import sim.AlarmLatencyReport;
+import sim.AlarmLatencyStage;
 import sim.SimulationEngine;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class SentinelApplication {
+    private static final String HEADLESS_FLAG = "--headless";
+    private static final String MONITOR_PORT_FLAG = "--monitor-port=";
+    private static final String REPLICATION_PORT_FLAG = "--replication-port=";
+    private static final String STANDBY_FLAG = "--standby=";
+    private static final String GATEWAY_PORT_FLAG = "--gateway-port=";
+    private static final String RULES_FLAG = "--rules=";
+    private static final String RECORD_TRACE_FLAG = "--record-trace=";
+    private static final String REPLAY_TRACE_FLAG = "--replay-trace=";
+    private static final String ALARM_LATENCY_FLAG = "--alarm-latency=";
+    private static final String DEFAULT_RULES_FILE = "alarm-rules.txt";
+    private static final int DEFAULT_MONITOR_PORT = 8085;
+    private static final long STANDBY_HEARTBEAT_TIMEOUT_MS = 3000;
+    private static final long DEVICE_FRESHNESS_MS = 30_000; // Three missed 10-second heartbeats
+    private static final long LIVENESS_CHECK_INTERVAL_MS = 10_000;
+    private static final long LIVENESS_RETRY_INTERVAL_MS = 2_000;
+    private static final long LIVENESS_MAX_INTERVAL_MS = 120_000; // Stable devices with full battery and strong signal
+    private static final int LIVENESS_PINGS_PER_SECOND = 1_000;
+    private static final long LIVENESS_BUDGET_SLOT_MS = 100;
+    private static final long ALARM_ESCALATION_MS = 5 * 60_000;
+    private static final long BATTERY_SMOOTHING_MS = 30 * 60_000;
+    private static final long MAINTENANCE_INTERVAL_MS = 7 * 24 * 3_600_000L;
+    private static final int AT_RISK_REPORTED = 10;
+    private static final int ALARM_HISTORY_HOURS = 24;
+    private static final long DEVICE_CHECKPOINT_MS = 5_000;
+    private static final long FIRE_WINDOW_MS = 60_000;
+    private static final long BREAK_IN_WINDOW_MS = 120_000;
+    private static final long NOTIFICATION_HOLD_MS = 5_000;
+    private static final String SITE_GROUP = "site";
+    private static final String AUDIT_LOG_FILE = "logs/audit.log";
+    private static final String TELEMETRY_DIRECTORY = "telemetry";
+    private static final long TELEMETRY_BLOCK_MS = 2 * 3_600_000L;
+
     public static void main(String[] args) {
-        // 1. Set up the "SaaS" Look and Feel before any UI is created
-        try {
-            UIManager.setLookAndFeel(new FlatDarkLaf());
-        } catch (Exception ex) {
-            System.err.println("Failed to initialize FlatLaf. Falling back to default.");
+        String replayTrace = parseOption(args, REPLAY_TRACE_FLAG);
+        if (replayTrace != null) {
+            replayTrace(Path.of(replayTrace));
+            return;
+        }
+        int latencyProbes = parseIntOption(args, ALARM_LATENCY_FLAG, 0);
+        if (latencyProbes > 0) {
+            measureAlarmLatency(latencyProbes);
+            return;
+        }
+        RunMode runMode = parseRunMode(args);
+
+        if (runMode == RunMode.HEADLESS) {
+            // Never initialize AWT on a hub with no display attached
+            System.setProperty("java.awt.headless", "true");
+        } else {
+            // 1. Set up the "SaaS" Look and Feel before any UI is created
+            try {
+                UIManager.setLookAndFeel(new FlatDarkLaf());
+            } catch (Exception ex) {
+                System.err.println("Failed to initialize FlatLaf. Falling back to default.");
+            }
         }
 
         // 1. Initialize Infrastructure
         SecurityHub hub = SecurityHub.getInstance();
-        setupLogging(hub.getLogger());
+        LogFileArchiver auditLog = setupLogging(hub.getLogger());
         hub.armHub();
-        SimulationEngine hardwareLink = new SimulationEngine(hub, hub.getLogger());
+
+        // Real sensors push to the heartbeat gateway; without one, the simulator stands in for hardware
+        HardwareLink hardwareLink;
+        Runnable startHardwareLink;
+        HeartbeatGateway gateway = createGateway(hub, parseIntOption(args, GATEWAY_PORT_FLAG, 0));
+        if (gateway != null) {
+            hardwareLink = gateway;
+            startHardwareLink = gateway::start;
+        } else {
+            SimulationEngine simulation = new SimulationEngine(hub, hub.getLogger());
+            hardwareLink = simulation;
+            startHardwareLink = new Thread(simulation)::start;
+        }
+        TraceRecorder traceRecorder = startTraceRecorder(hub, parseOption(args, RECORD_TRACE_FLAG));
+        if (traceRecorder != null) {
+            hardwareLink = traceRecorder.wrap(hardwareLink);
+        }
+
+        // One timing wheel carries every hub deadline: liveness, escalation and notification holds
+        HashedWheelTimer hubTimer = new HashedWheelTimer("hub-timer", 100, TimeUnit.MILLISECONDS, 512, hub.getLogger());
+        CorrelationEngine correlation = new CorrelationEngine(hub, hubTimer, hub.getLogger(), List.of(
+                CorrelationPattern.allOf("FIRE", FIRE_WINDOW_MS, AlarmSeverity.CRITICAL,
+                        DeviceType.SMOKE_DEVICE, DeviceType.THERMAL_DEVICE),
+                CorrelationPattern.sequence("BREAK_IN", BREAK_IN_WINDOW_MS, AlarmSeverity.CRITICAL,
+                        DeviceType.GLASS_BREAK_SENSOR_DEVICE, DeviceType.MOTION_DEVICE)
+        ), NOTIFICATION_HOLD_MS, device -> SITE_GROUP);
+        correlation.start();
+
+        // Liveness checks and alarm escalation run off per-device deadlines once hardware is live
+        EscalationScheduler escalation = new EscalationScheduler(hub, hubTimer,
+                new HealthCheckPolicy(LIVENESS_CHECK_INTERVAL_MS, LIVENESS_MAX_INTERVAL_MS, LIVENESS_RETRY_INTERVAL_MS),
+                new RateBudget(LIVENESS_PINGS_PER_SECOND, LIVENESS_BUDGET_SLOT_MS), ALARM_ESCALATION_MS);
+        Runnable startHardware = () -> {
+            startHardwareLink.run();
+            escalation.start();
+        };
 
         DatabaseManager databaseManager = DatabaseManager.getInstance();
-        Thread thread = new Thread(hardwareLink);
-        thread.start();
+        String primaryAddress = parseOption(args, STANDBY_FLAG);
 
-        SystemHealthService systemHealthSvc = new SystemHealthService(hub);
+        BatteryAnalyticsService batteryAnalytics = new BatteryAnalyticsService(hub, hub.getLogger(),
+                BATTERY_SMOOTHING_MS, MAINTENANCE_INTERVAL_MS);
+        batteryAnalytics.start();
+        TelemetryStore telemetryStore = startTelemetryStore(hub);
+        SystemHealthService systemHealthSvc = new SystemHealthService(hub, batteryAnalytics);
+        startRuleEngine(hub, parseOption(args, RULES_FLAG));
+        RuntimeMetricsService metricsSvc = new RuntimeMetricsService(hub.getLogger(), runMode);
 
-        // Initialize Repos
-        DeviceRepository dRepo = new DeviceRepository(hub.getLogger(), hardwareLink);
+        // Alarm history charts read the rollups; history from before they existed is backfilled once
         AlarmLogRepository aRepo = new AlarmLogRepository(hub.getLogger());
+        if (aRepo.backfillRollupsIfMissing()) {
+            hub.getLogger().log("Alarm rollups rebuilt from the alarm history.", LogLevel.INFO);
+        }
+        AlarmService alarmSvc = new AlarmService(aRepo, hub.getLogger());
+        startMonitoring(hub, systemHealthSvc, metricsSvc, correlation, alarmSvc, parseIntOption(args, MONITOR_PORT_FLAG, DEFAULT_MONITOR_PORT));
+
+        // Initialize Repos
+        DeviceRepository dRepo = new DeviceRepository(hub.getLogger(), hardwareLink, hub.getClock());
         hub.setAlarmRepository(aRepo);
+        hub.getZones().setRepository(new ZoneRepository(hub.getLogger()));
 
         UserRepository uRepo = new UserRepository(hub.getLogger());
 
-        List<Device> savedDevices = dRepo.loadAll();
-        for(Device d : savedDevices) {
-            hub.addDevice(d);
-        }
+        // Changed device state is written every few seconds instead of only at shutdown
+        DeviceCheckpointer checkpointer = new DeviceCheckpointer(hub, dRepo, DEVICE_CHECKPOINT_MS, hub.getLogger());
 
-        List<Alarm> activeAlarms = aRepo.loadAllActiveAlarms();
-        for(Alarm a : activeAlarms) {
-            hub.registerAlarm(a);
+        if (primaryAddress != null) {
+            // A standby mirrors the primary's state and only simulates hardware once it takes over
+            startStandby(hub, hardwareLink, dRepo, primaryAddress, startHardware);
+        } else {
+            List<Device> savedDevices = dRepo.loadAll();
+            for(Device d : savedDevices) {
+                hub.addDevice(d);
+            }
+            checkpointer.markCheckpointed(savedDevices);
+
+            List<Alarm> activeAlarms = aRepo.loadAllActiveAlarms();
+            for(Alarm a : activeAlarms) {
+                hub.registerAlarm(a);
+            }
+            startHardware.run();
+            startReplication(hub, parseIntOption(args, REPLICATION_PORT_FLAG, 0));
         }
 
-        addShutdownHook(dRepo, aRepo);
+        checkpointer.start();
+        addShutdownHook(checkpointer, aRepo, telemetryStore);
 //
 //        hub.executeCommand(new SystemResetCommand(motionSensor));
 //        hub.executeCommand(new SystemResetCommand(smokeSensor));
@@ -66,26 +209,277 @@ public class SentinelApplication {
         // Use the Hub to reset everything centrally
         hub.initiateFleetCheck();
 
-        hub.monitorAndHandleDeviceHealth();
-
         // 6. Execution
         hub.processAllCommands(); // Processes Hub commands ONLY, not device commands.
         // registerSubscribers(hub);
 
+        if (runMode == RunMode.HEADLESS) {
+            metricsSvc.markReady();
+        } else {
+            launchUserInterface(hub, uRepo, systemHealthSvc, metricsSvc, auditLog, alarmSvc);
+        }
+        metricsSvc.start();
+    }
+
+    private static RunMode parseRunMode(String[] args) {
+        for (String arg : args) {
+            if (HEADLESS_FLAG.equals(arg)) {
+                return RunMode.HEADLESS;
+            }
+        }
+        return Boolean.getBoolean("sentinel.headless") ? RunMode.HEADLESS : RunMode.UI;
+    }
+
+    private static String parseOption(String[] args, String prefix) {
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+
+    private static int parseIntOption(String[] args, String prefix, int defaultValue) {
+        String value = parseOption(args, prefix);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value '" + prefix + value + "'. Using " + defaultValue + ".");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Records the hub's inputs for {@link #replayTrace(Path)}. Recording stops cleanly at shutdown.
+     */
+    private static TraceRecorder startTraceRecorder(SecurityHub hub, String traceFile) {
+        if (traceFile == null) {
+            return null;
+        }
+
+        TraceRecorder recorder = new TraceRecorder(hub, Path.of(traceFile), hub.getLogger());
+        try {
+            recorder.start();
+        } catch (IOException e) {
+            hub.getLogger().log("Unable to record hub trace: " + e.getMessage(), LogLevel.ERROR);
+            return null;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(recorder::stop, "trace-recorder-stop"));
+        return recorder;
+    }
+
+    /**
+     * Plays a recorded trace through a hub of its own at full speed, prints the report and exits.
+     */
+    private static void replayTrace(Path trace) {
+        System.setProperty("java.awt.headless", "true");
+        Logger logger = new ConsoleLogger();
+        try {
+            System.out.println(new TraceReplayer(logger).replay(trace));
+        } catch (IOException e) {
+            System.err.println("Unable to replay hub trace " + trace + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Measures alarm latency on a hub of its own and exits with status 1 if the p99 to persisted
+     * or to delivered exceeds the SLO. Load and SLO come from {@code -Dsentinel.latency.*}.
+     */
+    private static void measureAlarmLatency(int probes) {
+        System.setProperty("java.awt.headless", "true");
+        long sloNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong("sentinel.latency.sloMs", 250));
+        SecurityHub hub = SecurityHub.createDetached(Runtime.getRuntime().availableProcessors());
+        AlarmLatencyHarness harness = new AlarmLatencyHarness(hub, hub.getLogger(),
+                Integer.getInteger("sentinel.latency.devices", 1_000),
+                Integer.getInteger("sentinel.latency.telemetryRate", 5_000),
+                Integer.getInteger("sentinel.latency.alarmRate", 50));
+        harness.addSubscriber("police", NotificationTopic.severity(AlarmSeverity.HIGH), new PoliceStationLink());
+        harness.addSubscriber("team", NotificationTopic.all(), new SecurityTeamPhoneAppAlarm());
+
+        AlarmLatencyReport report;
+        try {
+            report = harness.run(probes, Integer.getInteger("sentinel.latency.probeRate", 200));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        System.out.println(report);
+        boolean met = report.meetsSlo(AlarmLatencyStage.PERSISTED, 99, sloNanos)
+                && report.meetsSlo(AlarmLatencyStage.DELIVERED, 99, sloNanos);
+        System.out.println("SLO p99 <= " + TimeUnit.NANOSECONDS.toMillis(sloNanos) + "ms: " + (met ? "met" : "MISSED"));
+        if (!met) {
+            System.exit(1);
+        }
+    }
+
+    private static HeartbeatGateway createGateway(SecurityHub hub, int port) {
+        if (port <= 0) {
+            return null;
+        }
+
+        try {
+            return new HeartbeatGateway(hub, port, DEVICE_FRESHNESS_MS, hub.getLogger());
+        } catch (IOException e) {
+            hub.getLogger().log("Unable to open heartbeat gateway, falling back to simulation: " + e.getMessage(), LogLevel.ERROR);
+            return null;
+        }
+    }
+
+    /**
+     * Keeps battery and signal history on disk. Without it the hub still runs, with no history.
+     */
+    private static TelemetryStore startTelemetryStore(SecurityHub hub) {
+        TelemetryStore store = new TelemetryStore(hub, Path.of(TELEMETRY_DIRECTORY), TELEMETRY_BLOCK_MS, hub.getLogger());
+        try {
+            store.start();
+            return store;
+        } catch (IOException e) {
+            hub.getLogger().log("Unable to open telemetry store: " + e.getMessage(), LogLevel.ERROR);
+            return null;
+        }
+    }
+
+    /**
+     * Evaluates the operator's alarm rules against live telemetry. The default rules file is
+     * optional; an explicitly named one that is missing is reported.
+     */
+    private static void startRuleEngine(SecurityHub hub, String rulesFile) {
+        Path path = Path.of(rulesFile != null ? rulesFile : DEFAULT_RULES_FILE);
+        if (!Files.exists(path)) {
+            if (rulesFile != null) {
+                hub.getLogger().log("Alarm rules file not found: " + path, LogLevel.ERROR);
+            }
+            return;
+        }
+
+        RuleEngine ruleEngine = new RuleEngine(hub, hub.getLogger());
+        ruleEngine.loadRules(path);
+        ruleEngine.start();
+    }
+
+    /**
+     * Streams hub changes to a standby when a replication port is configured.
+     */
+    private static void startReplication(SecurityHub hub, int port) {
+        if (port <= 0) {
+            return;
+        }
+
+        try {
+            new ReplicationPublisher(hub, port, hub.getLogger()).start();
+        } catch (IOException e) {
+            hub.getLogger().log("Unable to start replication publisher: " + e.getMessage(), LogLevel.ERROR);
+        }
+    }
+
+    private static void startStandby(SecurityHub hub, HardwareLink hardwareLink, DeviceRepository dRepo,
+                                     String primaryAddress, Runnable onTakeover) {
+        int separator = primaryAddress.lastIndexOf(':');
+        String host = primaryAddress.substring(0, separator);
+        int port = Integer.parseInt(primaryAddress.substring(separator + 1));
+
+        new ReplicationReceiver(hub, hardwareLink, dRepo, hub.getLogger(),
+                host, port, STANDBY_HEARTBEAT_TIMEOUT_MS, onTakeover).start();
+    }
+
+    /**
+     * Kept out of main() so none of the frontend classes are loaded in headless mode.
+     */
+    private static void launchUserInterface(SecurityHub hub, UserRepository uRepo, SystemHealthService healthSvc,
+                                            RuntimeMetricsService metricsSvc, LogFileArchiver auditLog,
+                                            AlarmService alarmSvc) {
         SwingUtilities.invokeLater(() -> {
-            new LoginFrame(hub, hub.getLogger(), uRepo).setVisible(true);
+            new LoginFrame(hub, hub.getLogger(), uRepo, healthSvc, auditLog, alarmSvc).setVisible(true);
+            metricsSvc.markReady();
         });
     }
 
-    private static void setupLogging(Logger logger) {
-        logger.registerListener(new LogFileArchiver("logs.txt"));
+    /**
+     * Exposes the health snapshot and runtime metrics over HTTP. A port of 0 or less disables it.
+     */
+    private static void startMonitoring(SecurityHub hub, SystemHealthService healthSvc, RuntimeMetricsService metricsSvc,
+                                        CorrelationEngine correlation, AlarmService alarmSvc, int port) {
+        if (port <= 0) {
+            return;
+        }
+
+        try {
+            MonitoringServer server = new MonitoringServer(port, hub.getLogger());
+            server.addJsonEndpoint("/health", () -> {
+                SystemSnapshot snap = healthSvc.getSystemSnapshot();
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("fleetHealthPercentage", snap.getFleetHealthPercentage());
+                body.put("activeAlarmCount", snap.getActiveAlarmCount());
+                body.put("alarmDensity", snap.getAlarmDensity());
+                body.put("systemHealthStatus", snap.getSystemHealthStatus().toString());
+                body.put("systemMode", snap.getSystemMode().toString());
+                body.put("armedZones", hub.getZones().getArmedZoneNames());
+                body.put("atRiskDeviceCount", snap.getAtRiskDeviceCount());
+                List<Map<String, Object>> atRisk = new ArrayList<>();
+                for (DeviceForecast f : healthSvc.getMostAtRiskDevices(AT_RISK_REPORTED)) {
+                    Map<String, Object> device = new LinkedHashMap<>();
+                    device.put("deviceId", f.getDeviceId().toString());
+                    device.put("batteryLife", f.getBatteryLife());
+                    device.put("drainPercentPerHour", f.getDrainPercentPerHour());
+                    device.put("hoursToEmpty", f.getHoursToEmpty());
+                    device.put("atRisk", f.isAtRisk());
+                    atRisk.add(device);
+                }
+                body.put("mostAtRisk", atRisk);
+                LocalDateTime now = LocalDateTime.now(hub.getClock());
+                LocalDateTime dayAgo = now.minusHours(ALARM_HISTORY_HOURS - 1);
+                Map<String, Object> alarmHistory = new LinkedHashMap<>();
+                List<Long> perHour = new ArrayList<>(alarmSvc.countsPerBucket(AlarmRollupResolution.HOUR, dayAgo, now).values());
+                alarmHistory.put("perHour", perHour);
+                Map<String, Long> bySeverity = new LinkedHashMap<>();
+                alarmSvc.countsBySeverity(AlarmRollupResolution.HOUR, dayAgo, now).forEach((k, v) -> bySeverity.put(k.toString(), v));
+                alarmHistory.put("bySeverity", bySeverity);
+                Map<String, Long> byDeviceType = new LinkedHashMap<>();
+                alarmSvc.countsByDeviceType(AlarmRollupResolution.HOUR, dayAgo, now).forEach((k, v) -> byDeviceType.put(k.toString(), v));
+                alarmHistory.put("byDeviceType", byDeviceType);
+                body.put("alarmsLast24h", alarmHistory);
+                body.put("timestamp", snap.getTimestamp().toString());
+                return body;
+            });
+            server.addJsonEndpoint("/metrics", () -> {
+                Map<String, Object> body = new LinkedHashMap<>();
+                body.put("runMode", metricsSvc.getRunMode().toString());
+                body.put("startupMillis", metricsSvc.getStartupMillis());
+                body.put("steadyStateCpuPercent", metricsSvc.getSteadyStateCpuPercent());
+                body.put("devices", hub.deviceCount());
+                body.put("hubShards", hub.getShardCount());
+                body.put("pendingCommands", hub.pendingCommandCount());
+                body.put("coalescedCommands", hub.getCoalescedCommandCount());
+                body.put("openCircuits", hub.getOpenCircuitCount());
+                body.put("incidents", correlation.getIncidentCount());
+                body.put("suppressedNotifications", correlation.getSuppressedNotifications());
+                return body;
+            });
+            server.start();
+        } catch (IOException e) {
+            hub.getLogger().log("Unable to start monitoring endpoints: " + e.getMessage(), LogLevel.ERROR);
+        }
+    }
+
+    private static LogFileArchiver setupLogging(Logger logger) {
+        LogFileArchiver archiver = new LogFileArchiver(AUDIT_LOG_FILE);
+        logger.registerListener(archiver);
+        return archiver;
     }
 
     private static void registerSubscribers(SecurityHub hub) {
         SubscriberRepository subscriberRepository = new SubscriberRepository(hub.getLogger());
         SubscriberNotificationService SNS = new SubscriberNotificationService(subscriberRepository, hub.getLogger());
-        SNS.addSubscriber(new SecurityTeamPhoneAppAlarm());
-        SNS.addSubscriber(new PoliceStationLink());
+        SecurityTeamPhoneAppAlarm securityTeam = new SecurityTeamPhoneAppAlarm();
+        PoliceStationLink police = new PoliceStationLink();
+        SNS.addSubscriber(securityTeam);
+        SNS.addSubscriber(police);
+        // One subscription each covers the whole fleet, however many devices join later
+        hub.getNotifications().subscribe(NotificationTopic.all(), securityTeam);
+        hub.getNotifications().subscribe(NotificationTopic.severity(AlarmSeverity.HIGH), police);
     }
 
     /**
@@ -97,18 +491,15 @@ public class SentinelApplication {
         }
     }
 
-    private static void addShutdownHook(DeviceRepository dRepo, AlarmLogRepository aRepo) {
+    private static void addShutdownHook(DeviceCheckpointer checkpointer, AlarmLogRepository aRepo, TelemetryStore telemetryStore) {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("Shutting down Sentinel... Saving Fleet State.");
-            List<Device> currentFleet = SecurityHub.getInstance().getDevices();
-            for (Device d : currentFleet) {
-                dRepo.save(d);
+            if (telemetryStore != null) {
+                telemetryStore.stop();
             }
+            checkpointer.stop();
 
-            List<Alarm> currentActiveAlarms = SecurityHub.getInstance().getActiveAlarms();
-            for (Alarm a : currentActiveAlarms) {
-                aRepo.save(a);
-            }
+            aRepo.saveAll(SecurityHub.getInstance().getActiveAlarms());
         }));
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package alarm;
+
+import devices.model.DeviceType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Data transfer object. The number of alarms of one device type, severity and status whose
+ * timestamp falls in one rollup bucket.
+ */
+public class AlarmRollup {
+    private final LocalDateTime bucketStart;
+    private final DeviceType deviceType;
+    private final AlarmSeverity severity;
+    private final AlarmStatus status;
+    private final long count;
+
+    public AlarmRollup(LocalDateTime bucketStart,
+                       DeviceType deviceType,
+                       AlarmSeverity severity,
+                       AlarmStatus status,
+                       long count) {
+        this.bucketStart = bucketStart;
+        this.deviceType = deviceType;
+        this.severity = severity;
+        this.status = status;
+        this.count = count;
+    }
+
+    public LocalDateTime getBucketStart() {
+        return bucketStart;
+    }
+
+    public DeviceType getDeviceType() {
+        return deviceType;
+    }
+
+    public AlarmSeverity getSeverity() {
+        return severity;
+    }
+
+    public AlarmStatus getStatus() {
+        return status;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,48 @@
+package alarm;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A composite alarm: several related alarms from different devices that together describe one
+ * real-world event, such as smoke and heat together meaning fire.
+ */
+public class Incident {
+    private final UUID id;
+    private final String name;
+    private final AlarmSeverity severity;
+    private final List<Alarm> alarms;
+    private final LocalDateTime timestamp;
+
+    public Incident(String name, AlarmSeverity severity, List<Alarm> alarms, LocalDateTime timestamp) {
+        this.id = UUID.randomUUID();
+        this.name = name;
+        this.severity = severity;
+        this.alarms = List.copyOf(alarms);
+        this.timestamp = timestamp;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AlarmSeverity getSeverity() {
+        return severity;
+    }
+
+    /**
+     * @return The constituent alarms, oldest first.
+     */
+    public List<Alarm> getAlarms() {
+        return alarms;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+}
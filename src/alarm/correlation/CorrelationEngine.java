@@ -0,0 +1,237 @@
+package alarm.correlation;
+
+import alarm.Alarm;
+import alarm.AlarmSeverity;
+import alarm.Incident;
+import core.AlarmNotifier;
+import core.SecurityHub;
+import devices.api.Device;
+import devices.model.DeviceType;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+import infrastructure.scheduling.HashedWheelTimer;
+import infrastructure.subscribers.Subscriber;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Complex-event-processing stage between alarm registration and subscriber notification.
+ * Alarms are grouped by a configurable key and kept in a time-bucketed {@link CorrelationWindow}
+ * per group. When the alarms in a window complete a {@link CorrelationPattern}, such as smoke
+ * and heat together or glass break followed by motion, one composite {@link Incident} is raised
+ * at the pattern's severity and the constituent notifications are suppressed.
+ *
+ * <p>To make suppression possible, the notification of an alarm that could open a pattern is
+ * held for a short time on the hub timer. If the pattern completes meanwhile, the held
+ * notification is dropped in favour of the incident; otherwise it is delivered unchanged when
+ * the hold expires. Alarms from device types that take part in no pattern are delivered
+ * immediately.</p>
+ */
+public class CorrelationEngine implements AlarmNotifier {
+    private static final int MAX_ALARMS_PER_BUCKET = 1024;
+    private static final int BUCKETS_PER_WINDOW = 60;
+    private static final int RECENT_INCIDENTS = 100;
+
+    private final SecurityHub hub;
+    private final HashedWheelTimer timer;
+    private final Logger logger;
+    private final long holdMillis;
+    private final Function<Device, String> groupKey;
+    private final Map<DeviceType, List<CorrelationPattern>> patternsByType = new EnumMap<>(DeviceType.class);
+    private final Map<DeviceType, Boolean> holdByType = new EnumMap<>(DeviceType.class);
+    private final long maxWindowMillis;
+    private final long bucketMillis;
+    private final Map<String, CorrelationWindow> windows = new ConcurrentHashMap<>();
+    private final List<Consumer<Incident>> incidentListeners = new CopyOnWriteArrayList<>();
+    private final Deque<Incident> recentIncidents = new ArrayDeque<>();
+
+    private final AtomicLong incidents = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong suppressed = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+
+    /**
+     * @param holdMillis How long a notification that could open a pattern waits for the rest of it.
+     * @param groupKey   Alarms are only correlated with alarms from devices in the same group.
+     */
+    public CorrelationEngine(SecurityHub hub, HashedWheelTimer timer, Logger logger, List<CorrelationPattern> patterns,
+                             long holdMillis, Function<Device, String> groupKey) {
+        this.hub = hub;
+        this.timer = timer;
+        this.logger = logger;
+        this.holdMillis = holdMillis;
+        this.groupKey = groupKey;
+
+        long maxWindow = 1;
+        for (CorrelationPattern p : patterns) {
+            maxWindow = Math.max(maxWindow, p.getWindowMillis());
+            for (DeviceType type : new LinkedHashSet<>(p.getDeviceTypes())) {
+                patternsByType.computeIfAbsent(type, t -> new ArrayList<>()).add(p);
+                holdByType.merge(type, p.canOpen(type), Boolean::logicalOr);
+            }
+        }
+        this.maxWindowMillis = maxWindow;
+        this.bucketMillis = Math.max(1, maxWindow / BUCKETS_PER_WINDOW);
+    }
+
+    /**
+     * Routes the hub's alarm notifications through this engine.
+     */
+    public void start() {
+        hub.setAlarmNotifier(this);
+        timer.start();
+    }
+
+    public void stop() {
+        hub.setAlarmNotifier(null);
+    }
+
+    public void addIncidentListener(Consumer<Incident> listener) {
+        incidentListeners.add(listener);
+    }
+
+    /**
+     * @return The most recent incidents, newest first.
+     */
+    public List<Incident> getRecentIncidents() {
+        synchronized (recentIncidents) {
+            return new ArrayList<>(recentIncidents);
+        }
+    }
+
+    public long getIncidentCount() {
+        return incidents.get();
+    }
+
+    public long getDeliveredNotifications() {
+        return delivered.get();
+    }
+
+    public long getSuppressedNotifications() {
+        return suppressed.get();
+    }
+
+    @Override
+    public void notify(Device device, Alarm alarm, String message) {
+        List<CorrelationPattern> candidates = patternsByType.get(device.getDeviceType());
+        if (candidates == null) {
+            deliver(device, alarm, message);
+            return;
+        }
+
+        CorrelationWindow window = windows.computeIfAbsent(groupKey.apply(device),
+                k -> new CorrelationWindow(maxWindowMillis, bucketMillis, MAX_ALARMS_PER_BUCKET));
+        CorrelationWindow.Entry entry = new CorrelationWindow.Entry(device, alarm, message, hub.getClock().millis());
+        List<CorrelationWindow.Entry> matched = null;
+        CorrelationPattern pattern = null;
+
+        synchronized (window) {
+            if (!window.add(entry)) {
+                overflowed.incrementAndGet();
+                entry.notified = true; // Too many alarms to correlate this instant; never lose one
+            } else {
+                for (CorrelationPattern p : candidates) {
+                    matched = window.match(p, entry);
+                    if (matched != null) {
+                        pattern = p;
+                        break;
+                    }
+                }
+
+                if (matched != null) {
+                    for (CorrelationWindow.Entry e : matched) {
+                        e.consumed = true;
+                        if (!e.notified) {
+                            if (e.hold != null) {
+                                e.hold.cancel();
+                            }
+                            suppressed.incrementAndGet();
+                        }
+                    }
+                } else if (holdByType.getOrDefault(device.getDeviceType(), false)) {
+                    entry.hold = timer.schedule(() -> release(window, entry), holdMillis, TimeUnit.MILLISECONDS);
+                } else {
+                    entry.notified = true;
+                }
+            }
+        }
+
+        if (matched != null) {
+            raiseIncident(pattern, matched);
+        } else if (entry.notified) {
+            deliver(device, alarm, message);
+        }
+    }
+
+    private void release(CorrelationWindow window, CorrelationWindow.Entry entry) {
+        synchronized (window) {
+            if (entry.consumed || entry.notified) {
+                return;
+            }
+            entry.notified = true;
+        }
+        deliver(entry.device, entry.alarm, entry.message);
+    }
+
+    private void deliver(Device device, Alarm alarm, String message) {
+        delivered.incrementAndGet();
+        device.updateAllSubscribers(message, alarm.getSeverity());
+    }
+
+    private void raiseIncident(CorrelationPattern pattern, List<CorrelationWindow.Entry> matched) {
+        List<Alarm> alarms = new ArrayList<>(matched.size());
+        Set<Device> devices = new LinkedHashSet<>();
+        AlarmSeverity severity = pattern.getSeverity();
+        for (CorrelationWindow.Entry e : matched) {
+            alarms.add(e.alarm);
+            devices.add(e.device);
+            if (e.alarm.getSeverity().compareTo(severity) > 0) {
+                severity = e.alarm.getSeverity();
+            }
+        }
+
+        Incident incident = new Incident(pattern.getName(), severity, alarms, LocalDateTime.now(hub.getClock()));
+        incidents.incrementAndGet();
+        synchronized (recentIncidents) {
+            recentIncidents.addFirst(incident);
+            if (recentIncidents.size() > RECENT_INCIDENTS) {
+                recentIncidents.removeLast();
+            }
+        }
+
+        String message = "Incident " + pattern.getName() + " (" + severity + "): " + alarms.size()
+                + " correlated alarms from " + devices.size() + " devices";
+        logger.log(message, LogLevel.ALARM);
+
+        // Devices involved in one incident often share subscribers; tell each of them once
+        Set<Subscriber> subscribers = new LinkedHashSet<>();
+        for (Device d : devices) {
+            subscribers.addAll(hub.getNotifications().recipients(d, severity));
+        }
+        for (Subscriber s : subscribers) {
+            s.receiveUpdate(message);
+        }
+        delivered.incrementAndGet();
+        for (Consumer<Incident> listener : incidentListeners) {
+            try {
+                listener.accept(incident);
+            } catch (RuntimeException e) {
+                logger.log("Incident listener error: " + e.getMessage(), LogLevel.ERROR);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package alarm.correlation;
+
+import alarm.AlarmSeverity;
+import devices.model.DeviceType;
+
+import java.util.List;
+
+/**
+ * A combination of alarms that together form one incident: alarms from each of the listed device
+ * types within the window, either in any order or in the listed order.
+ */
+public final class CorrelationPattern {
+    private final String name;
+    private final List<DeviceType> deviceTypes;
+    private final boolean ordered;
+    private final long windowMillis;
+    private final AlarmSeverity severity;
+
+    private CorrelationPattern(String name, List<DeviceType> deviceTypes, boolean ordered, long windowMillis, AlarmSeverity severity) {
+        if (deviceTypes.size() < 2) {
+            throw new IllegalArgumentException("A correlation pattern needs at least two device types");
+        }
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Correlation window must be positive");
+        }
+        this.name = name;
+        this.deviceTypes = List.copyOf(deviceTypes);
+        this.ordered = ordered;
+        this.windowMillis = windowMillis;
+        this.severity = severity;
+    }
+
+    /**
+     * Alarms from every listed type, in any order, within the window.
+     */
+    public static CorrelationPattern allOf(String name, long windowMillis, AlarmSeverity severity, DeviceType... deviceTypes) {
+        return new CorrelationPattern(name, List.of(deviceTypes), false, windowMillis, severity);
+    }
+
+    /**
+     * Alarms from the listed types in the listed order, within the window.
+     */
+    public static CorrelationPattern sequence(String name, long windowMillis, AlarmSeverity severity, DeviceType... deviceTypes) {
+        return new CorrelationPattern(name, List.of(deviceTypes), true, windowMillis, severity);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<DeviceType> getDeviceTypes() {
+        return deviceTypes;
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    public AlarmSeverity getSeverity() {
+        return severity;
+    }
+
+    /**
+     * @return true if an alarm from this type could be followed by the rest of the pattern, so
+     *         its notification is worth holding back briefly.
+     */
+    boolean canOpen(DeviceType type) {
+        int position = deviceTypes.indexOf(type);
+        return position >= 0 && (!ordered || position < deviceTypes.size() - 1);
+    }
+}
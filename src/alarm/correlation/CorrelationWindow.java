@@ -0,0 +1,141 @@
+package alarm.correlation;
+
+import alarm.Alarm;
+import devices.api.Device;
+import devices.model.DeviceType;
+import infrastructure.scheduling.HashedWheelTimer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recent alarms for one correlation group, kept in a ring of fixed-width time buckets. A bucket
+ * is recycled as soon as time moves a full turn past it, so old alarms expire without any sweep,
+ * and each bucket holds at most a fixed number of alarms, so memory stays bounded under bursts.
+ * Not thread-safe; the engine locks the window.
+ */
+final class CorrelationWindow {
+    /**
+     * One alarm waiting to be correlated, and the state of its held notification.
+     */
+    static final class Entry {
+        final Device device;
+        final Alarm alarm;
+        final String message;
+        final long atMillis;
+        HashedWheelTimer.Timeout hold;
+        boolean consumed;
+        boolean notified;
+
+        Entry(Device device, Alarm alarm, String message, long atMillis) {
+            this.device = device;
+            this.alarm = alarm;
+            this.message = message;
+            this.atMillis = atMillis;
+        }
+
+        DeviceType type() {
+            return device.getDeviceType();
+        }
+    }
+
+    private static final class Bucket {
+        long index = Long.MIN_VALUE;
+        final List<Entry> entries = new ArrayList<>();
+    }
+
+    private final long bucketMillis;
+    private final int maxPerBucket;
+    private final Bucket[] ring;
+
+    CorrelationWindow(long maxWindowMillis, long bucketMillis, int maxPerBucket) {
+        this.bucketMillis = bucketMillis;
+        this.maxPerBucket = maxPerBucket;
+        this.ring = new Bucket[(int) ((maxWindowMillis + bucketMillis - 1) / bucketMillis) + 1];
+        for (int i = 0; i < ring.length; i++) {
+            ring[i] = new Bucket();
+        }
+    }
+
+    /**
+     * @return false if the entry's bucket is full and the entry was not kept.
+     */
+    boolean add(Entry entry) {
+        long index = entry.atMillis / bucketMillis;
+        Bucket bucket = ring[(int) Math.floorMod(index, (long) ring.length)];
+        if (bucket.index != index) {
+            bucket.index = index;
+            bucket.entries.clear();
+        }
+        if (bucket.entries.size() >= maxPerBucket) {
+            return false;
+        }
+        bucket.entries.add(entry);
+        return true;
+    }
+
+    /**
+     * Looks for unconsumed alarms that complete the pattern together with the trigger.
+     *
+     * @return The matched entries oldest first, including the trigger, or null if there is no match.
+     */
+    List<Entry> match(CorrelationPattern pattern, Entry trigger) {
+        List<DeviceType> types = pattern.getDeviceTypes();
+        if (pattern.isOrdered() && types.get(types.size() - 1) != trigger.type()) {
+            return null; // Only the closing alarm of a sequence can complete it
+        }
+
+        long from = trigger.atMillis - pattern.getWindowMillis();
+        List<Entry> candidates = entriesSince(from, trigger);
+        List<Entry> matched = new ArrayList<>(types.size());
+        boolean triggerUsed = false;
+        long after = from;
+
+        for (int i = 0; i < types.size(); i++) {
+            DeviceType type = types.get(i);
+            boolean last = i == types.size() - 1;
+            if (!triggerUsed && type == trigger.type() && (!pattern.isOrdered() || last)) {
+                matched.add(trigger);
+                triggerUsed = true;
+                continue;
+            }
+
+            Entry found = null;
+            for (Entry e : candidates) {
+                if (e.type() == type && !matched.contains(e) && (!pattern.isOrdered() || e.atMillis >= after)) {
+                    found = e;
+                    break; // Candidates are oldest first, so this is the earliest
+                }
+            }
+            if (found == null) {
+                return null;
+            }
+            matched.add(found);
+            after = found.atMillis;
+        }
+
+        matched.sort((a, b) -> Long.compare(a.atMillis, b.atMillis));
+        return matched;
+    }
+
+    /**
+     * @return Unconsumed entries other than the trigger from the given time on, oldest first.
+     */
+    private List<Entry> entriesSince(long fromMillis, Entry trigger) {
+        List<Entry> result = new ArrayList<>();
+        long first = Math.floorDiv(fromMillis, bucketMillis);
+        long last = trigger.atMillis / bucketMillis;
+        for (long index = Math.max(first, last - ring.length + 1); index <= last; index++) {
+            Bucket bucket = ring[(int) Math.floorMod(index, (long) ring.length)];
+            if (bucket.index != index) {
+                continue;
+            }
+            for (Entry e : bucket.entries) {
+                if (e != trigger && !e.consumed && e.atMillis >= fromMillis && e.atMillis <= trigger.atMillis) {
+                    result.add(e);
+                }
+            }
+        }
+        return result;
+    }
+}
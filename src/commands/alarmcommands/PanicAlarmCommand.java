@@ -12,17 +12,28 @@ import java.time.LocalDateTime;
 public class PanicAlarmCommand implements AlarmCommand {
     private Device device;
     private String message;
+    private SecurityHub hub;
     private CommandType commandType = CommandType.HIGH_PRIORITY_ALARM;
 
     public PanicAlarmCommand(Device device, String message) {
+        this(device, message, null);
+    }
+
+    /**
+     * @param hub The hub to raise the alarm on; null for the shared hub, looked up on execution.
+     */
+    public PanicAlarmCommand(Device device, String message, SecurityHub hub) {
         this.device = device;
         this.message = message;
+        this.hub = hub;
     }
 
     @Override
     public void execute() {
-        SecurityHub.getInstance().registerAlarm(new Alarm(device.getDeviceType(), device.getId(), AlarmStatus.ACTIVE, AlarmSeverity.CRITICAL, LocalDateTime.now()));
-        device.updateAllSubscribers(message);
+        SecurityHub hub = this.hub != null ? this.hub : SecurityHub.getInstance();
+        Alarm alarm = new Alarm(device.getDeviceType(), device.getId(), AlarmStatus.ACTIVE, AlarmSeverity.CRITICAL, LocalDateTime.now(hub.getClock()));
+        hub.registerAlarm(alarm);
+        hub.notifyAlarm(device, alarm, message);
     }
 
     @Override
@@ -13,18 +13,29 @@ public class TriggerAlarmCommand implements AlarmCommand {
     private Device device;
     private String message;
     private AlarmSeverity alarmSeverity;
+    private SecurityHub hub;
     private CommandType commandType = CommandType.ALARM;
 
     public TriggerAlarmCommand(Device device, String message, AlarmSeverity alarmSeverity) {
+        this(device, message, alarmSeverity, null);
+    }
+
+    /**
+     * @param hub The hub to raise the alarm on; null for the shared hub, looked up on execution.
+     */
+    public TriggerAlarmCommand(Device device, String message, AlarmSeverity alarmSeverity, SecurityHub hub) {
         this.device = device;
         this.message = message;
         this.alarmSeverity = alarmSeverity;
+        this.hub = hub;
     }
 
     @Override
     public void execute() {
-        SecurityHub.getInstance().registerAlarm(new Alarm(device.getDeviceType(), device.getId(), AlarmStatus.ACTIVE, alarmSeverity, LocalDateTime.now()));
-        device.updateAllSubscribers(message);
+        SecurityHub hub = this.hub != null ? this.hub : SecurityHub.getInstance();
+        Alarm alarm = new Alarm(device.getDeviceType(), device.getId(), AlarmStatus.ACTIVE, alarmSeverity, LocalDateTime.now(hub.getClock()));
+        hub.registerAlarm(alarm);
+        hub.notifyAlarm(device, alarm, message);
     }
 
     @Override
@@ -0,0 +1,124 @@
+package commands.securityhubcommands;
+
+import alarm.AlarmSeverity;
+import commands.CommandType;
+import devices.api.Device;
+import devices.api.HardwareLink;
+import devices.model.DeviceReading;
+
+import java.util.*;
+
+/**
+ * Diagnoses a group of devices that share a hardware link with one batched poll of that link,
+ * instead of one ping per device. Use {@link #groupByLink(Collection)} to split a fleet.
+ *
+ * <p>While the command is queued the hub may add devices to it, or take out a device whose
+ * diagnostic was superseded by a reset; both only happen under the owning shard's intake lock,
+ * before the command is taken off the queue.</p>
+ */
+public class BatchDiagnosticCommand implements SecurityHubCommand {
+    private final HardwareLink link;
+    private final Map<UUID, Device> devices = new LinkedHashMap<>();
+    private final CommandType commandType = CommandType.DIAGNOSTIC;
+
+    public BatchDiagnosticCommand(HardwareLink link, Collection<Device> devices) {
+        this.link = link;
+        for (Device d : devices) {
+            if (d.getHardwareLink() != link) {
+                throw new IllegalArgumentException("Device " + d.getId() + " is not on this batch's hardware link");
+            }
+            this.devices.put(d.getId(), d);
+        }
+    }
+
+    /**
+     * @return One batch per distinct hardware link among the devices.
+     */
+    public static List<BatchDiagnosticCommand> groupByLink(Collection<Device> devices) {
+        Map<HardwareLink, List<Device>> byLink = new IdentityHashMap<>();
+        for (Device d : devices) {
+            byLink.computeIfAbsent(d.getHardwareLink(), l -> new ArrayList<>()).add(d);
+        }
+        List<BatchDiagnosticCommand> batches = new ArrayList<>(byLink.size());
+        byLink.forEach((link, group) -> batches.add(new BatchDiagnosticCommand(link, group)));
+        return batches;
+    }
+
+    @Override
+    public void execute() {
+        // Devices whose circuit is open are not polled until their backoff runs out
+        List<Device> targets = new ArrayList<>(devices.size());
+        for (Device d : devices.values()) {
+            if (d.tryAcquirePing()) {
+                targets.add(d);
+            }
+        }
+        if (targets.isEmpty()) {
+            return;
+        }
+        List<DeviceReading> readings = link.pollDevices(targets);
+        for (int i = 0; i < targets.size(); i++) {
+            targets.get(i).performSelfCheck(readings.get(i));
+        }
+    }
+
+    public HardwareLink getLink() {
+        return link;
+    }
+
+    public List<Device> getDevices() {
+        return List.copyOf(devices.values());
+    }
+
+    public int size() {
+        return devices.size();
+    }
+
+    public boolean contains(Device device) {
+        return devices.containsKey(device.getId());
+    }
+
+    /**
+     * @return False if the device was already in the batch.
+     */
+    public boolean addDevice(Device device) {
+        if (device.getHardwareLink() != link) {
+            throw new IllegalArgumentException("Device " + device.getId() + " is not on this batch's hardware link");
+        }
+        return devices.putIfAbsent(device.getId(), device) == null;
+    }
+
+    public boolean removeDevice(Device device) {
+        return devices.remove(device.getId()) != null;
+    }
+
+    @Override
+    public AlarmSeverity getSeverity() {
+        return AlarmSeverity.MEDIUM;
+    }
+
+    /**
+     * @return The first device of the batch, which the hub routes the batch by; null if empty.
+     */
+    @Override
+    public Device getDevice() {
+        Iterator<Device> it = devices.values().iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    @Override
+    public CommandType getCommandType() {
+        return commandType;
+    }
+
+    @Override
+    public boolean validate() {
+        return !devices.isEmpty();
+    }
+
+    @Override
+    public String validationMessage() {
+        return devices.isEmpty() ? "Batch Diagnostic Command has no devices"
+                : "Batch Diagnostic Command was validated successfully";
+    }
+}
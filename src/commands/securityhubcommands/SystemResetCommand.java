@@ -9,17 +9,42 @@ import devices.model.DeviceStatus;
 public class SystemResetCommand implements SecurityHubCommand {
 
     private Device device;
+    private SecurityHub hub;
+    private boolean clearFailures;
     private CommandType commandType = CommandType.RESET;
 
     public SystemResetCommand(Device device) {
+        this(device, SecurityHub.getInstance());
+    }
+
+    public SystemResetCommand(Device device, SecurityHub hub) {
+        this(device, hub, true);
+    }
+
+    /**
+     * @param clearFailures False for the escalation ladder's reset, which leaves the failure count
+     *                      standing so that a device still not answering goes on to be decommissioned.
+     */
+    public SystemResetCommand(Device device, SecurityHub hub, boolean clearFailures) {
         this.device = device;
+        this.hub = hub;
+        this.clearFailures = clearFailures;
     }
 
     @Override
     public void execute() {
-        device.setDeviceStatus(DeviceStatus.OPERATIONAL);
-        device.resetFailureCount();
-        SecurityHub.getInstance().resolveAlarmsByDevice(device);
+        if (clearFailures) {
+            device.resetFailureCount();
+        }
+        hub.changeDeviceStatus(device, DeviceStatus.OPERATIONAL);
+        hub.resolveAlarmsByDevice(device);
+    }
+
+    /**
+     * @return False for the escalation ladder's reset, which leaves the failure count standing.
+     */
+    public boolean clearsFailures() {
+        return clearFailures;
     }
 
     @Override
@@ -0,0 +1,13 @@
+package core;
+
+import alarm.Alarm;
+import devices.api.Device;
+
+/**
+ * Delivers the subscriber notification for a newly registered alarm. The hub's default notifier
+ * tells the device's subscribers straight away; a replacement may hold, merge or suppress
+ * notifications, for example to report several related alarms as one incident.
+ */
+public interface AlarmNotifier {
+    void notify(Device device, Alarm alarm, String message);
+}
@@ -0,0 +1,225 @@
+package core;
+
+import alarm.Alarm;
+import devices.api.Device;
+import devices.model.CircuitState;
+import infrastructure.logger.LogLevel;
+import infrastructure.scheduling.HashedWheelTimer;
+import infrastructure.scheduling.RateBudget;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives device liveness and alarm escalation from per-device and per-alarm deadlines on a
+ * {@link HashedWheelTimer} instead of periodic sweeps over the whole fleet.
+ *
+ * <p>Every device has one pending liveness deadline. When it fires, the device is pinged on its
+ * shard and the {@link HealthCheckPolicy} picks the next one from the device's condition and
+ * history: stable devices are checked less and less often, while a failing one is retried soon
+ * and walks the hub's escalation ladder (recovery mode, reset, decommissioned) one missed check
+ * at a time. Telemetry or a status change that makes a device look worse pulls its next check
+ * forward. With a {@link RateBudget}, checks of stable devices are spread so the fleet stays
+ * under a pings-per-second budget; checks of at-risk devices are never held back.</p>
+ *
+ * <p>Every active alarm has one escalation deadline; if the alarm is still unresolved when it
+ * fires, its severity is raised and a new deadline is set, up to CRITICAL. Deadlines are added
+ * and cancelled as the hub reports changes.</p>
+ */
+public class EscalationScheduler implements HubChangeListener {
+    private final SecurityHub hub;
+    private final HashedWheelTimer timer;
+    private final HealthCheckPolicy policy;
+    private final RateBudget pingBudget; // Null for no limit
+    private final long alarmEscalationMillis;
+    private final Map<UUID, HashedWheelTimer.Timeout> livenessDeadlines = new ConcurrentHashMap<>();
+    private final Map<UUID, CheckHistory> checkHistories = new ConcurrentHashMap<>();
+    private final Map<UUID, HashedWheelTimer.Timeout> alarmDeadlines = new ConcurrentHashMap<>();
+    private final AtomicLong livenessChecks = new AtomicLong();
+
+    /**
+     * Checks every device at a fixed interval, with no ping budget.
+     */
+    public EscalationScheduler(SecurityHub hub, HashedWheelTimer timer, long checkIntervalMillis,
+                               long retryIntervalMillis, long alarmEscalationMillis) {
+        this(hub, timer, new HealthCheckPolicy(checkIntervalMillis, checkIntervalMillis, retryIntervalMillis),
+                null, alarmEscalationMillis);
+    }
+
+    /**
+     * @param pingBudget Spreads liveness checks under a global rate, or null for no limit.
+     */
+    public EscalationScheduler(SecurityHub hub, HashedWheelTimer timer, HealthCheckPolicy policy,
+                               RateBudget pingBudget, long alarmEscalationMillis) {
+        this.hub = hub;
+        this.timer = timer;
+        this.policy = policy;
+        this.pingBudget = pingBudget;
+        this.alarmEscalationMillis = alarmEscalationMillis;
+    }
+
+    /**
+     * Schedules deadlines for everything already in the hub and follows changes from then on.
+     */
+    public void start() {
+        hub.addChangeListener(this);
+        for (Device d : hub.getDevices()) {
+            onDeviceAdded(d);
+        }
+        for (Alarm a : hub.getActiveAlarms()) {
+            onAlarmRegistered(a);
+        }
+        timer.start();
+        hub.getLogger().log("Escalation scheduler started for " + livenessDeadlines.size() + " devices and "
+                + alarmDeadlines.size() + " active alarms", LogLevel.HEALTH);
+    }
+
+    public void stop() {
+        hub.removeChangeListener(this);
+        livenessDeadlines.values().forEach(HashedWheelTimer.Timeout::cancel);
+        alarmDeadlines.values().forEach(HashedWheelTimer.Timeout::cancel);
+        livenessDeadlines.clear();
+        checkHistories.clear();
+        alarmDeadlines.clear();
+    }
+
+    public int trackedDevices() {
+        return livenessDeadlines.size();
+    }
+
+    public int trackedAlarms() {
+        return alarmDeadlines.size();
+    }
+
+    /**
+     * @return Liveness checks run since the scheduler started.
+     */
+    public long livenessChecks() {
+        return livenessChecks.get();
+    }
+
+    @Override
+    public void onDeviceAdded(Device device) {
+        checkHistories.putIfAbsent(device.getId(), new CheckHistory());
+        // Spread the first checks over one interval so a large fleet is not pinged all at once
+        scheduleLivenessCheck(device, ThreadLocalRandom.current().nextLong(policy.getBaseIntervalMillis() + 1), false);
+    }
+
+    @Override
+    public void onDeviceRemoved(Device device) {
+        cancel(livenessDeadlines.remove(device.getId()));
+        checkHistories.remove(device.getId());
+    }
+
+    @Override
+    public void onDeviceStatusChanged(Device device) {
+        reassess(device);
+    }
+
+    @Override
+    public void onTelemetryUpdated(Device device) {
+        reassess(device);
+    }
+
+    @Override
+    public void onAlarmRegistered(Alarm alarm) {
+        HashedWheelTimer.Timeout deadline = timer.schedule(() -> escalate(alarm), alarmEscalationMillis, TimeUnit.MILLISECONDS);
+        cancel(alarmDeadlines.put(alarm.getDeviceId(), deadline));
+    }
+
+    @Override
+    public void onAlarmResolved(Alarm alarm) {
+        cancel(alarmDeadlines.remove(alarm.getDeviceId()));
+    }
+
+    /**
+     * Pulls a device's next check forward if its condition no longer justifies the wait. Cheap
+     * when nothing changed, since it runs on every telemetry report.
+     */
+    private void reassess(Device device) {
+        CheckHistory history = checkHistories.get(device.getId());
+        if (history == null) {
+            return;
+        }
+        long ceiling = policy.ceiling(device);
+        if (history.dueAtMillis - nowMillis() > ceiling) {
+            history.healthyStreak = 0;
+            scheduleLivenessCheck(device, ceiling, policy.isAtRisk(device, true));
+        }
+    }
+
+    /**
+     * @param urgent Skip the ping budget, e.g. for an at-risk device.
+     */
+    private void scheduleLivenessCheck(Device device, long delayMillis, boolean urgent) {
+        if (delayMillis > policy.getRetryIntervalMillis()) {
+            // Jitter keeps devices that were checked together from staying in lockstep
+            delayMillis += ThreadLocalRandom.current().nextLong(delayMillis / 10 + 1);
+        }
+        // A device with an open circuit is not pinged when its check fires, so costs no budget
+        if (pingBudget != null && device.getCircuitState() != CircuitState.OPEN) {
+            delayMillis = pingBudget.reserve(nowMillis(), delayMillis, urgent);
+        }
+        CheckHistory history = checkHistories.get(device.getId());
+        if (history != null) {
+            history.dueAtMillis = nowMillis() + delayMillis;
+        }
+        HashedWheelTimer.Timeout deadline = timer.schedule(() -> checkLiveness(device), delayMillis, TimeUnit.MILLISECONDS);
+        cancel(livenessDeadlines.put(device.getId(), deadline));
+
+        // The device may have been removed while its check was in flight
+        if (!hub.containsDevice(device) && livenessDeadlines.remove(device.getId(), deadline)) {
+            deadline.cancel();
+        }
+    }
+
+    private void checkLiveness(Device device) {
+        // Runs on the timer thread; the ping itself happens on the device's shard
+        livenessChecks.incrementAndGet();
+        hub.checkDeviceLiveness(device).thenAccept(responsive -> {
+            CheckHistory history = checkHistories.get(device.getId());
+            if (history == null || !hub.containsDevice(device)) {
+                return;
+            }
+            long delay = policy.nextCheckDelay(device, responsive, history.healthyStreak);
+            history.healthyStreak = policy.isFailing(device, responsive) ? 0 : history.healthyStreak + 1;
+            scheduleLivenessCheck(device, delay, policy.isAtRisk(device, responsive));
+        });
+    }
+
+    private void escalate(Alarm alarm) {
+        alarmDeadlines.computeIfPresent(alarm.getDeviceId(), (id, deadline) -> deadline.isExpired() ? null : deadline);
+        if (!hub.isArmedFor(alarm.getDeviceId())) {
+            // Nobody can resolve alarms in a disarmed zone, so hold the severity until re-armed
+            if (hub.findActiveAlarm(alarm.getDeviceId()) == alarm) {
+                onAlarmRegistered(alarm);
+            }
+            return;
+        }
+        // Escalation re-registers the alarm, which schedules its next deadline
+        hub.escalateAlarm(alarm);
+    }
+
+    private static long nowMillis() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    /**
+     * Per-device scheduling state. Written by whichever thread reschedules the device; a lost
+     * update only costs one check being placed a little early or late.
+     */
+    private static final class CheckHistory {
+        volatile int healthyStreak;
+        volatile long dueAtMillis = Long.MAX_VALUE;
+    }
+
+    private static void cancel(HashedWheelTimer.Timeout timeout) {
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+}
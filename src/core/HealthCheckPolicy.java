@@ -0,0 +1,92 @@
+package core;
+
+import devices.api.Device;
+import devices.model.CircuitState;
+import devices.model.DeviceStatus;
+
+/**
+ * Decides when a device is next checked for liveness, from its condition and recent history.
+ *
+ * <p>A failing device (missed ping, nonzero failure count, recovery mode, circuit not closed) is
+ * retried at the retry interval. A healthy device starts at the base interval, and every further
+ * healthy check in a row doubles it, up to a ceiling set by its condition: the maximum interval
+ * for a full battery and strong signal, twice the base for a middling one, and the base itself
+ * for a low battery or weak signal. A device only earns long intervals while it stays healthy,
+ * and anything that makes it look worse pulls it back down.</p>
+ */
+public class HealthCheckPolicy {
+    static final int LOW_BATTERY = 20;
+    static final int FULL_BATTERY = 80;
+    static final int WEAK_SIGNAL = -85;
+    static final int STRONG_SIGNAL = -70;
+
+    private final long baseIntervalMillis;
+    private final long maxIntervalMillis;
+    private final long retryIntervalMillis;
+
+    public HealthCheckPolicy(long baseIntervalMillis, long maxIntervalMillis, long retryIntervalMillis) {
+        if (retryIntervalMillis <= 0 || baseIntervalMillis < retryIntervalMillis || maxIntervalMillis < baseIntervalMillis) {
+            throw new IllegalArgumentException("Intervals must satisfy 0 < retry <= base <= max");
+        }
+        this.baseIntervalMillis = baseIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.retryIntervalMillis = retryIntervalMillis;
+    }
+
+    /**
+     * @param responsive   Whether the last check answered.
+     * @param healthyStreak Healthy checks in a row before this one.
+     */
+    public long nextCheckDelay(Device device, boolean responsive, int healthyStreak) {
+        if (isFailing(device, responsive)) {
+            return retryIntervalMillis;
+        }
+        long grown = baseIntervalMillis << Math.min(healthyStreak, 20);
+        return Math.min(grown, ceiling(device));
+    }
+
+    /**
+     * @return The longest a device in its current condition should go unchecked.
+     */
+    public long ceiling(Device device) {
+        if (isFailing(device, true)) {
+            return retryIntervalMillis;
+        }
+        int battery = device.getBatteryLife();
+        int signal = device.getSignalStrength();
+        if (battery <= LOW_BATTERY || signal <= WEAK_SIGNAL) {
+            return baseIntervalMillis;
+        }
+        if (battery >= FULL_BATTERY && signal >= STRONG_SIGNAL) {
+            return maxIntervalMillis;
+        }
+        return Math.min(baseIntervalMillis * 2, maxIntervalMillis);
+    }
+
+    /**
+     * At-risk devices (failing, or with a low battery or weak signal) are checked on time whatever
+     * the ping budget says; only checks of stable devices are spread out to fit it.
+     */
+    public boolean isAtRisk(Device device, boolean responsive) {
+        return isFailing(device, responsive) || ceiling(device) <= baseIntervalMillis;
+    }
+
+    public boolean isFailing(Device device, boolean responsive) {
+        return !responsive
+                || device.getFailureCount() > 0
+                || device.getDeviceStatus() == DeviceStatus.RECOVERY_MODE
+                || device.getCircuitState() != CircuitState.CLOSED;
+    }
+
+    public long getBaseIntervalMillis() {
+        return baseIntervalMillis;
+    }
+
+    public long getMaxIntervalMillis() {
+        return maxIntervalMillis;
+    }
+
+    public long getRetryIntervalMillis() {
+        return retryIntervalMillis;
+    }
+}
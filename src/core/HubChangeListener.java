@@ -0,0 +1,38 @@
+package core;
+
+import alarm.Alarm;
+import commands.securityhubcommands.SecurityHubCommand;
+import devices.api.Device;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Callback for state changes made through the {@link SecurityHub}. Callbacks run synchronously
+ * on the thread that made the change (often a shard worker), so implementations must only hand
+ * the change off and return quickly.
+ */
+public interface HubChangeListener {
+    default void onDeviceAdded(Device device) {}
+    default void onDeviceRemoved(Device device) {}
+    default void onDeviceStatusChanged(Device device) {}
+    default void onTelemetryUpdated(Device device) {}
+    default void onAlarmRegistered(Alarm alarm) {}
+    default void onAlarmResolved(Alarm alarm) {}
+    default void onModeChanged(HubStatus status) {}
+
+    /**
+     * Called whenever any zone is armed or disarmed, after {@link #onModeChanged} if the hub-wide
+     * mode changed too.
+     *
+     * @param armedZones The names of the zones armed now.
+     */
+    default void onArmedZonesChanged(List<String> armedZones) {}
+
+    /**
+     * Called when a device joins or leaves a zone it was not already in or had been in.
+     */
+    default void onZoneAssigned(UUID deviceId, String zoneName) {}
+    default void onZoneUnassigned(UUID deviceId, String zoneName) {}
+    default void onCommandExecuted(SecurityHubCommand command) {}
+}
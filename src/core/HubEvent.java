@@ -0,0 +1,87 @@
+package core;
+
+import alarm.Alarm;
+import devices.api.Device;
+import devices.model.DeviceSnapshot;
+
+import java.util.UUID;
+
+/**
+ * One change published on the {@link HubEventStream}. Device events carry the device and a
+ * snapshot of its state taken when the change was published, so a subscriber that handles the
+ * event later still sees the state the event was about. Alarm events carry the alarm, mode events
+ * the new mode; fields that do not apply are null.
+ */
+public class HubEvent {
+    private final long sequence;
+    private final long timestampMillis;
+    private final HubEventType type;
+    private final Device device;
+    private final DeviceSnapshot deviceState;
+    private final Alarm alarm;
+    private final HubStatus mode;
+
+    HubEvent(long sequence, long timestampMillis, HubEventType type, Device device, Alarm alarm, HubStatus mode) {
+        this.sequence = sequence;
+        this.timestampMillis = timestampMillis;
+        this.type = type;
+        this.device = device;
+        this.deviceState = device != null ? device.getSnapshot() : null;
+        this.alarm = alarm;
+        this.mode = mode;
+    }
+
+    /**
+     * @return Position in the stream; increases by one per published event, across all types.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return When the change was published, in epoch millis on the hub's clock.
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public HubEventType getType() {
+        return type;
+    }
+
+    /**
+     * @return The device the event is about, including the device of an alarm; null for mode changes.
+     */
+    public UUID getDeviceId() {
+        if (device != null) {
+            return device.getId();
+        }
+        return alarm != null ? alarm.getDeviceId() : null;
+    }
+
+    public Device getDevice() {
+        return device;
+    }
+
+    public DeviceSnapshot getDeviceState() {
+        return deviceState;
+    }
+
+    public Alarm getAlarm() {
+        return alarm;
+    }
+
+    public HubStatus getMode() {
+        return mode;
+    }
+
+    @Override
+    public String toString() {
+        return "HubEvent{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", deviceId=" + getDeviceId() +
+                (mode != null ? ", mode=" + mode : "") +
+                '}';
+    }
+}
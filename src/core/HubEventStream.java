@@ -0,0 +1,328 @@
+package core;
+
+import alarm.Alarm;
+import devices.api.Device;
+import infrastructure.clock.HubClock;
+import infrastructure.clock.RealClock;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the hub's changes as a {@link Flow} of {@link HubEvent}s, so consumers such as the
+ * dashboard can follow the hub instead of polling its getters.
+ *
+ * <p>The stream is a {@link HubChangeListener} and therefore runs on the thread that made the
+ * change. Publishing only appends the event to each subscription's bounded buffer; delivery runs
+ * on the stream's own threads and follows the demand each subscriber signals. When a subscriber
+ * falls behind and its buffer is full, the subscription's {@link OverflowStrategy} decides what
+ * gives way, never the command path. With no subscribers nothing is allocated.</p>
+ *
+ * <p>Each subscription is drained by at most one thread at a time, so a subscriber's signals
+ * are serialized as {@link Flow} requires, and onSubscribe always comes first.</p>
+ */
+public class HubEventStream implements Flow.Publisher<HubEvent>, HubChangeListener {
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private final Logger logger;
+    private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong conflated = new AtomicLong();
+    private final ExecutorService delivery = Executors.newCachedThreadPool(new DeliveryThreads());
+    private volatile HubClock clock = RealClock.getInstance().coarse();
+
+    public HubEventStream(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Events are stamped from the clock's {@link HubClock#coarse() coarse} view.
+     */
+    public void setClock(HubClock clock) {
+        this.clock = clock.coarse();
+    }
+
+    /**
+     * Subscribes to every event type with a {@link #DEFAULT_BUFFER_SIZE} buffer that drops the
+     * oldest events when the subscriber falls behind.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super HubEvent> subscriber) {
+        subscribe(subscriber, DEFAULT_BUFFER_SIZE, OverflowStrategy.DROP_OLDEST, EnumSet.allOf(HubEventType.class));
+    }
+
+    /**
+     * @param bufferSize Events held for the subscriber beyond what it has requested.
+     * @param types      The event types to deliver; others are never buffered.
+     */
+    public void subscribe(Flow.Subscriber<? super HubEvent> subscriber, int bufferSize,
+                          OverflowStrategy overflow, Set<HubEventType> types) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        EventSubscription subscription = new EventSubscription(subscriber, bufferSize, overflow, EnumSet.copyOf(types));
+        subscriptions.add(subscription);
+        subscription.signal();
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    public long getPublished() {
+        return sequence.get();
+    }
+
+    /**
+     * @return Events discarded because a subscriber's buffer was full, over all subscriptions.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return Buffered events replaced by a newer one for the same device.
+     */
+    public long getConflated() {
+        return conflated.get();
+    }
+
+    @Override
+    public void onDeviceAdded(Device device) {
+        publish(HubEventType.DEVICE_ADDED, device, null, null);
+    }
+
+    @Override
+    public void onDeviceRemoved(Device device) {
+        publish(HubEventType.DEVICE_REMOVED, device, null, null);
+    }
+
+    @Override
+    public void onDeviceStatusChanged(Device device) {
+        publish(HubEventType.DEVICE_STATUS_CHANGED, device, null, null);
+    }
+
+    @Override
+    public void onTelemetryUpdated(Device device) {
+        publish(HubEventType.TELEMETRY_UPDATED, device, null, null);
+    }
+
+    @Override
+    public void onAlarmRegistered(Alarm alarm) {
+        publish(HubEventType.ALARM_REGISTERED, null, alarm, null);
+    }
+
+    @Override
+    public void onAlarmResolved(Alarm alarm) {
+        publish(HubEventType.ALARM_RESOLVED, null, alarm, null);
+    }
+
+    @Override
+    public void onModeChanged(HubStatus status) {
+        publish(HubEventType.MODE_CHANGED, null, null, status);
+    }
+
+    private void publish(HubEventType type, Device device, Alarm alarm, HubStatus mode) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        HubEvent event = new HubEvent(sequence.incrementAndGet(), clock.millis(), type, device, alarm, mode);
+        for (EventSubscription s : subscriptions) {
+            if (s.types.contains(type) && s.offer(event)) {
+                s.signal();
+            }
+        }
+    }
+
+    private static boolean conflatable(HubEventType type) {
+        return type == HubEventType.DEVICE_STATUS_CHANGED || type == HubEventType.TELEMETRY_UPDATED;
+    }
+
+    /**
+     * One subscriber's buffer and demand. The buffer is a ring indexed by absolute position; for
+     * conflation the position of the newest buffered status and telemetry event of each device is
+     * remembered, and an entry behind the head is stale.
+     */
+    private final class EventSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super HubEvent> subscriber;
+        private final OverflowStrategy overflow;
+        private final Set<HubEventType> types;
+        private final HubEvent[] ring;
+        private final Map<UUID, Long> pendingStatus;
+        private final Map<UUID, Long> pendingTelemetry;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private long head;
+        private long tail;
+        private boolean subscribed;    // Only touched by the draining thread
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        private boolean errorSent;     // Only touched by the draining thread
+
+        EventSubscription(Flow.Subscriber<? super HubEvent> subscriber, int bufferSize,
+                          OverflowStrategy overflow, Set<HubEventType> types) {
+            this.subscriber = subscriber;
+            this.overflow = overflow;
+            this.types = types;
+            this.ring = new HubEvent[bufferSize];
+            boolean conflating = overflow == OverflowStrategy.CONFLATE;
+            this.pendingStatus = conflating ? new HashMap<>() : null;
+            this.pendingTelemetry = conflating ? new HashMap<>() : null;
+        }
+
+        /**
+         * Called on the publishing thread; never waits for the subscriber.
+         *
+         * @return Whether a drain should be signalled.
+         */
+        synchronized boolean offer(HubEvent event) {
+            if (cancelled) {
+                return false;
+            }
+            Map<UUID, Long> pending = pendingFor(event);
+            if (pending != null) {
+                Long at = pending.get(event.getDeviceId());
+                if (at != null && at >= head) {
+                    ring[(int) (at % ring.length)] = event;
+                    conflated.incrementAndGet();
+                    return false; // Already counted as available
+                }
+            }
+            if (tail - head == ring.length) {
+                switch (overflow) {
+                    case DROP_NEWEST -> {
+                        dropped.incrementAndGet();
+                        return false;
+                    }
+                    case DISCONNECT -> {
+                        dropped.incrementAndGet();
+                        fail(new IllegalStateException("Subscriber fell " + ring.length + " events behind the hub"));
+                        return true;
+                    }
+                    default -> {
+                        ring[(int) (head % ring.length)] = null;
+                        head++;
+                        dropped.incrementAndGet();
+                    }
+                }
+            }
+            if (pending != null) {
+                pending.put(event.getDeviceId(), tail);
+            }
+            ring[(int) (tail % ring.length)] = event;
+            tail++;
+            return true;
+        }
+
+        private Map<UUID, Long> pendingFor(HubEvent event) {
+            if (pendingStatus == null || !conflatable(event.getType())) {
+                return null;
+            }
+            return event.getType() == HubEventType.DEVICE_STATUS_CHANGED ? pendingStatus : pendingTelemetry;
+        }
+
+        private synchronized HubEvent poll() {
+            if (head == tail) {
+                return null;
+            }
+            int i = (int) (head % ring.length);
+            HubEvent event = ring[i];
+            ring[i] = null;
+            Map<UUID, Long> pending = pendingFor(event);
+            if (pending != null) {
+                pending.remove(event.getDeviceId(), head);
+            }
+            head++;
+            return event;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Non-positive request: " + n)); // Flow rule 3.9
+            } else {
+                requested.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            synchronized (this) {
+                Arrays.fill(ring, null);
+                head = tail;
+                if (pendingStatus != null) {
+                    pendingStatus.clear();
+                    pendingTelemetry.clear();
+                }
+            }
+        }
+
+        private void fail(Throwable t) {
+            if (error == null) {
+                error = t;
+            }
+            cancel();
+        }
+
+        void signal() {
+            if (wip.getAndIncrement() == 0) {
+                delivery.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                try {
+                    if (!subscribed) {
+                        subscribed = true;
+                        subscriber.onSubscribe(this);
+                    }
+                    while (!cancelled && requested.get() > 0) {
+                        HubEvent event = poll();
+                        if (event == null) {
+                            break;
+                        }
+                        if (requested.get() != Long.MAX_VALUE) {
+                            requested.decrementAndGet();
+                        }
+                        subscriber.onNext(event);
+                    }
+                    if (error != null && !errorSent) {
+                        errorSent = true;
+                        subscriber.onError(error);
+                    }
+                } catch (RuntimeException e) {
+                    // A subscriber that throws breaks its own subscription (Flow rule 2.13)
+                    logger.log("Hub event subscriber failed and was cancelled: " + e.getMessage(), LogLevel.ERROR);
+                    errorSent = true;
+                    cancel();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+
+    private static final class DeliveryThreads implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "hub-events-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package core;
+
+/**
+ * The kinds of change published on the hub's event stream, one per {@link HubChangeListener}
+ * callback.
+ */
+public enum HubEventType {
+    DEVICE_ADDED,
+    DEVICE_REMOVED,
+    DEVICE_STATUS_CHANGED,
+    TELEMETRY_UPDATED,
+    ALARM_REGISTERED,
+    ALARM_RESOLVED,
+    MODE_CHANGED
+}
@@ -0,0 +1,526 @@
+package core;
+
+import alarm.Alarm;
+import commands.CommandType;
+import commands.securityhubcommands.*;
+import devices.api.Device;
+import devices.api.HardwareLink;
+import devices.model.DeviceReading;
+import devices.model.DeviceSnapshot;
+import devices.model.PingResult;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * One partition of the {@link SecurityHub}. A shard owns the devices whose ids hash to it,
+ * their pending commands and active alarms, and a single worker thread that executes queued
+ * commands and health sweeps for those devices.
+ *
+ * <p>No state is shared between shards, so shards never contend with each other. Collections
+ * that are read from outside the worker (device and alarm views) are lock-free concurrent
+ * structures; the command intake is guarded by its own lock; everything else is confined to the
+ * worker thread.</p>
+ *
+ * <p>Maintenance commands are coalesced on intake: a device has at most one pending DIAGNOSTIC
+ * and at most one pending RESET, and a RESET supersedes a pending DIAGNOSTIC, so however often
+ * fleet checks run, the queue never holds more than one maintenance command per device. Batched
+ * diagnostics count as a pending DIAGNOSTIC for each of their devices; a new batch for a link
+ * that already has one queued is merged into it.</p>
+ *
+ * <p>Health sweeps and liveness checks go through each device's ping circuit breaker: a device
+ * whose circuit is open is skipped without touching its link, and only pings actually sent count
+ * towards the escalation ladder. The third failure in a row opens the circuit and puts the device
+ * into recovery mode; the reset and decommission steps then follow failed probes, which the
+ * breaker spaces out with an exponential backoff, rather than every sweep. The ladder's diagnostic
+ * and reset are queued ahead of everything else, coalescing with any pending maintenance for the
+ * device, and then run on the worker straight away rather than waiting for the next drain.</p>
+ *
+ * <p>Zone admission is checked again when a command is taken off the queue: a command whose
+ * device's zones were all disarmed after it was queued is dropped instead of executed, and a
+ * batch goes ahead with only the devices whose zones are still armed.</p>
+ */
+class HubShard {
+    // Failure counts at which the escalation ladder takes each step
+    private static final int RECOVERY_AT = 3;
+    private static final int RESET_AT = 4;
+    private static final int DECOMMISSION_AT = 5;
+
+    private final int index;
+    private final Logger logger;
+    private final SecurityHub hub;
+    private final HubChangeListener changes;
+    private final Map<UUID, Device> devices = new ConcurrentHashMap<>();
+    private final List<Device> decommissionedDevices = new ArrayList<>(); // Worker thread only
+    private final Deque<SecurityHubCommand> taskQueue = new ArrayDeque<>(); // Guarded by intakeLock
+    private final Map<CommandKey, SecurityHubCommand> pendingByKey = new HashMap<>(); // Guarded by intakeLock
+    private final Map<HardwareLink, BatchDiagnosticCommand> pendingBatches = new IdentityHashMap<>(); // Guarded by intakeLock
+    private final Object intakeLock = new Object();
+    private final AtomicLong coalescedCommands = new AtomicLong();
+    private final Map<UUID, Alarm> activeAlarms = new ConcurrentHashMap<>();
+    private final ExecutorService worker;
+
+    /**
+     * @param hub The hub that owns the shard; zone admission and the commands of the escalation
+     *            ladder go through it.
+     */
+    HubShard(int index, Logger logger, SecurityHub hub, HubChangeListener changes) {
+        this.index = index;
+        this.logger = logger;
+        this.hub = hub;
+        this.changes = changes;
+        this.worker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "hub-shard-" + index);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    int index() {
+        return index;
+    }
+
+    void addDevice(Device device) {
+        devices.put(device.getId(), device);
+    }
+
+    boolean removeDevice(Device device) {
+        return devices.remove(device.getId(), device);
+    }
+
+    boolean containsDevice(Device device) {
+        return devices.get(device.getId()) == device;
+    }
+
+    Device findDevice(UUID id) {
+        return devices.get(id);
+    }
+
+    Collection<Device> devices() {
+        return devices.values();
+    }
+
+    int deviceCount() {
+        return devices.size();
+    }
+
+    /**
+     * @return False if the command was coalesced into one already pending.
+     */
+    boolean enqueue(SecurityHubCommand cmd) {
+        return enqueue(cmd, false);
+    }
+
+    /**
+     * Queues a command, collapsing it into a pending maintenance command for the same device.
+     *
+     * @param urgent Queue at the front; a pending duplicate is moved to the front instead.
+     * @return False if the command was coalesced into one already pending.
+     */
+    boolean enqueue(SecurityHubCommand cmd, boolean urgent) {
+        if (cmd instanceof BatchDiagnosticCommand) {
+            return enqueueBatch((BatchDiagnosticCommand) cmd) > 0;
+        }
+        CommandType type = cmd.getCommandType();
+        if (type != CommandType.DIAGNOSTIC && type != CommandType.RESET) {
+            synchronized (intakeLock) {
+                add(cmd, urgent);
+            }
+            return true;
+        }
+
+        UUID deviceId = cmd.getDevice().getId();
+        CommandKey key = new CommandKey(deviceId, type);
+        synchronized (intakeLock) {
+            SecurityHubCommand pendingReset = pendingByKey.get(new CommandKey(deviceId, CommandType.RESET));
+            BatchDiagnosticCommand pendingBatch = pendingBatches.get(cmd.getDevice().getHardwareLink());
+            boolean inPendingBatch = pendingBatch != null && pendingBatch.contains(cmd.getDevice());
+            if (type == CommandType.DIAGNOSTIC && (pendingReset != null || (inPendingBatch && !urgent))) {
+                coalescedCommands.incrementAndGet(); // A pending reset or batch covers it
+                return false;
+            }
+            if (type == CommandType.RESET) {
+                SecurityHubCommand diagnostic = pendingByKey.remove(new CommandKey(deviceId, CommandType.DIAGNOSTIC));
+                if (diagnostic != null) {
+                    taskQueue.removeFirstOccurrence(diagnostic);
+                    coalescedCommands.incrementAndGet();
+                }
+                if (inPendingBatch) {
+                    pendingBatch.removeDevice(cmd.getDevice());
+                    coalescedCommands.incrementAndGet();
+                    if (pendingBatch.size() == 0) {
+                        pendingBatches.remove(pendingBatch.getLink(), pendingBatch);
+                        taskQueue.removeFirstOccurrence(pendingBatch);
+                    }
+                }
+            }
+
+            SecurityHubCommand duplicate = pendingByKey.get(key);
+            if (duplicate != null) {
+                if (urgent) {
+                    taskQueue.removeFirstOccurrence(duplicate);
+                    taskQueue.addFirst(duplicate);
+                }
+                coalescedCommands.incrementAndGet();
+                return false;
+            }
+            pendingByKey.put(key, cmd);
+            add(cmd, urgent);
+            return true;
+        }
+    }
+
+    /**
+     * Queues a batched diagnostic, or merges it into the batch already queued for its link.
+     * Devices with a pending reset are left out.
+     *
+     * @return The number of devices newly queued for diagnosis.
+     */
+    int enqueueBatch(BatchDiagnosticCommand batch) {
+        synchronized (intakeLock) {
+            for (Device d : batch.getDevices()) {
+                if (pendingByKey.containsKey(new CommandKey(d.getId(), CommandType.RESET))) {
+                    batch.removeDevice(d);
+                    coalescedCommands.incrementAndGet();
+                }
+            }
+            BatchDiagnosticCommand pending = pendingBatches.get(batch.getLink());
+            if (pending == null) {
+                if (batch.size() > 0) {
+                    pendingBatches.put(batch.getLink(), batch);
+                    add(batch, false);
+                }
+                return batch.size();
+            }
+            int added = 0;
+            for (Device d : batch.getDevices()) {
+                if (pending.addDevice(d)) {
+                    added++;
+                }
+            }
+            coalescedCommands.addAndGet(batch.size() - added);
+            return added;
+        }
+    }
+
+    private void add(SecurityHubCommand cmd, boolean urgent) {
+        if (urgent) {
+            taskQueue.addFirst(cmd);
+        } else {
+            taskQueue.addLast(cmd);
+        }
+    }
+
+    /**
+     * Takes the next command off the queue; from then on an equal command is queued anew.
+     */
+    private SecurityHubCommand poll() {
+        synchronized (intakeLock) {
+            SecurityHubCommand cmd = taskQueue.poll();
+            if (cmd instanceof BatchDiagnosticCommand) {
+                BatchDiagnosticCommand batch = (BatchDiagnosticCommand) cmd;
+                pendingBatches.remove(batch.getLink(), batch);
+            } else if (cmd != null) {
+                pendingByKey.remove(new CommandKey(cmd.getDevice().getId(), cmd.getCommandType()), cmd);
+            }
+            return cmd;
+        }
+    }
+
+    int pendingCommands() {
+        synchronized (intakeLock) {
+            return taskQueue.size();
+        }
+    }
+
+    long coalescedCommands() {
+        return coalescedCommands.get();
+    }
+
+    /**
+     * Executes everything currently queued on this shard's worker.
+     */
+    Future<?> drain() {
+        return worker.submit(() -> {
+            SecurityHubCommand cmd;
+            while ((cmd = poll()) != null) {
+                execute(cmd);
+            }
+        });
+    }
+
+    /**
+     * Executes at most one queued command on this shard's worker. Commands dropped on the way
+     * because their zone was disarmed do not count.
+     *
+     * @return A future completing with true if a command was executed.
+     */
+    Future<Boolean> processNext() {
+        return worker.submit(() -> {
+            SecurityHubCommand cmd;
+            while ((cmd = poll()) != null) {
+                if (execute(cmd)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * @return False if the command was dropped because its device's zone is no longer armed, or
+     *         a batch because none of its devices' zones are.
+     */
+    private boolean execute(SecurityHubCommand cmd) {
+        if (cmd instanceof BatchDiagnosticCommand) {
+            // Off the queue, so nothing else changes the batch any more
+            BatchDiagnosticCommand batch = (BatchDiagnosticCommand) cmd;
+            for (Device d : batch.getDevices()) {
+                if (!hub.isArmedFor(d.getId())) {
+                    batch.removeDevice(d);
+                }
+            }
+            if (batch.size() == 0) {
+                logger.log("Dropped a queued batch diagnostic; its devices' zones were disarmed", LogLevel.WARNING);
+                return false;
+            }
+        } else if (!hub.isArmedFor(cmd.getDevice().getId())) {
+            logger.log("Dropped a queued " + cmd.getCommandType() + " command; the device's zone was disarmed",
+                    LogLevel.WARNING);
+            return false;
+        }
+        cmd.execute();
+        changes.onCommandExecuted(cmd);
+        return true;
+    }
+
+    /**
+     * Pings every device on this shard and escalates failing ones, on the shard's worker.
+     */
+    Future<?> monitorHealth() {
+        return worker.submit(() -> updateDeviceStatus(updateDeviceFailureState()));
+    }
+
+    void registerAlarm(Alarm alarm) {
+        activeAlarms.put(alarm.getDeviceId(), alarm);
+    }
+
+    /**
+     * Swaps an active alarm for its escalated copy, unless it was resolved or replaced meanwhile.
+     */
+    boolean replaceAlarm(Alarm current, Alarm escalated) {
+        return activeAlarms.replace(current.getDeviceId(), current, escalated);
+    }
+
+    void resolveAlarm(Alarm alarm) {
+        activeAlarms.remove(alarm.getDeviceId());
+    }
+
+    Alarm resolveAlarmsByDevice(UUID deviceId) {
+        return activeAlarms.remove(deviceId);
+    }
+
+    List<Alarm> resolveAllAlarms(Predicate<UUID> admitted) {
+        List<Alarm> resolved = new ArrayList<>();
+        for (UUID deviceId : activeAlarms.keySet()) {
+            if (!admitted.test(deviceId)) {
+                continue;
+            }
+            Alarm alarm = activeAlarms.remove(deviceId);
+            if (alarm != null) {
+                resolved.add(alarm);
+            }
+        }
+        return resolved;
+    }
+
+    Alarm findActiveAlarm(UUID deviceId) {
+        return activeAlarms.get(deviceId);
+    }
+
+    Collection<Alarm> activeAlarms() {
+        return activeAlarms.values();
+    }
+
+    int activeAlarmCount() {
+        return activeAlarms.size();
+    }
+
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Polls the shard's devices with one batched call per hardware link, leaving out devices whose
+     * circuit is open.
+     *
+     * @return The devices that were polled and did not answer, with their state after the failure.
+     */
+    private Map<Device, DeviceSnapshot> updateDeviceFailureState() {
+        List<Device> admitted = new ArrayList<>(devices.size());
+        for (Device d : devices.values()) {
+            if (d.tryAcquirePing()) {
+                admitted.add(d);
+            }
+        }
+        Map<Device, DeviceSnapshot> failed = new LinkedHashMap<>();
+        for (BatchDiagnosticCommand batch : BatchDiagnosticCommand.groupByLink(admitted)) {
+            List<Device> group = batch.getDevices();
+            List<DeviceReading> readings = batch.getLink().probeDevices(group);
+            for (int i = 0; i < group.size(); i++) {
+                Device d = group.get(i);
+                boolean responsive = readings.get(i).isResponsive();
+                d.recordPingOutcome(responsive);
+                if (!responsive) {
+                    failed.put(d, d.recordFailure(RECOVERY_AT, DECOMMISSION_AT));
+                    logger.log("Device ping failed", LogLevel.WARNING);
+                } else {
+                    d.resetFailureCount();
+                }
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * Pings one device on this shard's worker and escalates it if the ping fails.
+     *
+     * @return A future completing with true if the device is still registered and responded.
+     */
+    CompletableFuture<Boolean> checkLiveness(Device device) {
+        return CompletableFuture.supplyAsync(() -> containsDevice(device), worker)
+                .thenCompose(registered -> registered ? device.probeAsync() : CompletableFuture.<PingResult>completedFuture(null))
+                .thenApplyAsync(result -> result != null && handlePingResult(device, result), worker);
+    }
+
+    /**
+     * Applies a ping's outcome on the worker. A skipped ping leaves the failure count alone.
+     */
+    private boolean handlePingResult(Device device, PingResult result) {
+        if (result.isSkipped() || !containsDevice(device)) {
+            return false;
+        }
+        if (result.isResponsive()) {
+            device.resetFailureCount();
+            return true;
+        }
+        DeviceSnapshot after = device.recordFailure(RECOVERY_AT, DECOMMISSION_AT);
+        logger.log("Device ping failed", LogLevel.WARNING);
+        if (escalate(device, after)) {
+            decommission(device);
+        }
+        return false;
+    }
+
+    private void updateDeviceStatus(Map<Device, DeviceSnapshot> failed) {
+        List<Device> devicesToDecommission = new ArrayList<>();
+
+        failed.forEach((d, after) -> {
+            if (escalate(d, after)) {
+                devicesToDecommission.add(d);
+            }
+        });
+        for (Device d : devicesToDecommission) {
+            decommission(d);
+        }
+    }
+
+    /**
+     * Follows up on the escalation ladder step a failure reached: warnings, then recovery mode with
+     * a diagnostic, then a reset, then decommissioning. The status changes themselves were made
+     * together with the failure count by {@link Device#recordFailure(int, int)}.
+     *
+     * @param after The device's state right after the failure was counted.
+     * @return true if the device has failed enough times to be decommissioned.
+     */
+    private boolean escalate(Device d, DeviceSnapshot after) {
+        int numFails = after.getFailureCount();
+
+        if (numFails < RECOVERY_AT) {
+            logger.log("Device failure count is " + numFails, LogLevel.WARNING);
+        } else if (numFails == RECOVERY_AT) {
+            changes.onDeviceStatusChanged(d);
+            logger.log("Device failure count is " + numFails + ". The device is in " + after.getStatus(), LogLevel.CRITICAL);
+            runLadderCommand(new SystemDiagnosticCommand(d));
+        } else if (numFails == RESET_AT) {
+            logger.log("Device failure count is " + numFails + ". The device is in " + after.getStatus(), LogLevel.CRITICAL);
+            runLadderCommand(new SystemResetCommand(d, hub, false));
+        } else if (numFails == DECOMMISSION_AT) {
+            changes.onDeviceStatusChanged(d);
+            logger.log("Device failure count is " + numFails + ". The device is in " + after.getStatus(), LogLevel.CRITICAL);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Queues a ladder command urgently and runs whatever is then pending for it on the worker,
+     * after the current task. Ladder commands are the hub's own maintenance, so they run whether
+     * or not the device's zone is armed.
+     */
+    private void runLadderCommand(SecurityHubCommand cmd) {
+        enqueue(cmd, true);
+        worker.execute(() -> {
+            SecurityHubCommand pending = takePending(cmd.getDevice().getId(), cmd.getCommandType());
+            if (pending != null) {
+                pending.execute();
+                changes.onCommandExecuted(pending);
+            }
+        });
+    }
+
+    /**
+     * Takes a device's pending maintenance command of the given type off the queue; a pending
+     * reset stands in for a diagnostic.
+     */
+    private SecurityHubCommand takePending(UUID deviceId, CommandType type) {
+        synchronized (intakeLock) {
+            SecurityHubCommand pending = pendingByKey.remove(new CommandKey(deviceId, CommandType.RESET));
+            if (pending == null && type == CommandType.DIAGNOSTIC) {
+                pending = pendingByKey.remove(new CommandKey(deviceId, CommandType.DIAGNOSTIC));
+            }
+            if (pending != null) {
+                taskQueue.removeFirstOccurrence(pending);
+            }
+            return pending;
+        }
+    }
+
+    private void decommission(Device d) {
+        decommissionedDevices.add(d);
+        if (devices.remove(d.getId(), d)) {
+            changes.onDeviceRemoved(d);
+        }
+    }
+
+    private static final class CommandKey {
+        private final UUID deviceId;
+        private final CommandType type;
+
+        CommandKey(UUID deviceId, CommandType type) {
+            this.deviceId = deviceId;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CommandKey)) {
+                return false;
+            }
+            CommandKey other = (CommandKey) o;
+            return deviceId.equals(other.deviceId) && type == other.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * deviceId.hashCode() + type.hashCode();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package core;
+
+/**
+ * What a subscription to the {@link HubEventStream} does when its buffer is full because the
+ * subscriber is not keeping up. The publisher never waits for a subscriber.
+ */
+public enum OverflowStrategy {
+    DROP_OLDEST,  // Make room by discarding the oldest buffered event
+    DROP_NEWEST,  // Discard the incoming event
+    CONFLATE,     // Keep only the newest buffered status and telemetry event per device; when full, drop the oldest
+    DISCONNECT    // Cancel the subscription and signal onError
+}
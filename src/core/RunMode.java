@@ -0,0 +1,6 @@
+package core;
+
+public enum RunMode {
+    UI,       // Swing login + dashboard on the local display
+    HEADLESS  // Rack-mounted hubs: no AWT, monitoring over HTTP only
+}
@@ -2,38 +2,116 @@ package core;
 
 import alarm.Alarm;
 import alarm.AlarmSeverity;
+import alarm.AlarmStatus;
 import commands.*;
 import commands.securityhubcommands.*;
 import devices.api.Device;
+import devices.model.CircuitState;
 import devices.model.DeviceStatus;
+import infrastructure.clock.HubClock;
+import infrastructure.clock.RealClock;
 import infrastructure.logger.*;
 import infrastructure.repository.AlarmLogRepository;
 import infrastructure.repository.DeviceRepository;
+import infrastructure.subscribers.NotificationBroker;
 
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 // TODO: Stop injecting the repositories, use stateless service layers!
 
+/**
+ * The central orchestrator. Devices, pending commands and active alarms are partitioned
+ * across {@link HubShard}s by device id, each with its own worker thread, so command
+ * throughput scales with cores. This class is the thin router in front of them: it enforces
+ * the security policy, owns the arming state and persistence, and aggregates shard views for
+ * the services and the dashboard.
+ *
+ * <p>Arming is per zone (see {@link ZoneRegistry}): commands and alarm resolution for a device are
+ * admitted only while one of its zones is armed. The hub reports ARMED while any zone is.</p>
+ *
+ * <p>The shard count defaults to the number of available processors and can be overridden
+ * with the {@code sentinel.hub.shards} system property.</p>
+ */
 public class SecurityHub {
-    private static SecurityHub hub;
-    private final Logger logger;
-    private final List<Device> devices = new CopyOnWriteArrayList<>();
-    private final List<Device> decommissionedDevices = new ArrayList<>();
-    private final Deque<SecurityHubCommand> taskQueue = new ArrayDeque<>();
-    private final Map<UUID, Alarm> activeAlarms = new ConcurrentHashMap<>();
-    private HubStatus status = HubStatus.DISARMED;
+    private final TimestampLogger logger;
+    private final HubShard[] shards;
+    private volatile HubClock clock = RealClock.getInstance();
+    private final NotificationBroker notifications;
     private final boolean isMaintenanceMode = false;
-    private AlarmLogRepository alarmRepo;
-    private DeviceRepository deviceRepo;
+    private volatile AlarmLogRepository alarmRepo;
+    private volatile DeviceRepository deviceRepo;
+    private final List<HubChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final HubChangeListener changes = new ChangeDispatcher();
+    private final ZoneRegistry zones = new ZoneRegistry(changes);
+    private final HubEventStream events;
+    private static final AlarmNotifier DIRECT_NOTIFIER = (device, alarm, message) -> device.updateAllSubscribers(message, alarm.getSeverity());
+    private volatile AlarmNotifier alarmNotifier = DIRECT_NOTIFIER;
 
     private SecurityHub() {
+        this(Integer.getInteger("sentinel.hub.shards", Runtime.getRuntime().availableProcessors()),
+                NotificationBroker.getDefault());
+    }
+
+    SecurityHub(int shardCount) {
+        this(shardCount, new NotificationBroker());
+    }
+
+    /**
+     * @param notifications Where this hub's devices publish; zone topics resolve against this hub's zones.
+     */
+    SecurityHub(int shardCount, NotificationBroker notifications) {
+        this.notifications = notifications;
+        notifications.setZoneResolver(zones::zoneMask);
         this.logger = new TimestampLogger(new ConsoleLogger());
+        this.shards = new HubShard[Math.max(1, shardCount)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new HubShard(i, logger, this, changes);
+        }
+        this.events = new HubEventStream(logger);
+        changeListeners.add(events);
+    }
+
+    private HubShard shardFor(UUID deviceId) {
+        int h = deviceId.hashCode();
+        return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public void addChangeListener(HubChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(HubChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Where subscribers register for device notifications by type, zone or severity. Each hub has
+     * its own; the shared hub's is {@link NotificationBroker#getDefault()}.
+     */
+    public NotificationBroker getNotifications() {
+        return notifications;
+    }
+
+    /**
+     * The hub's changes as a backpressured {@link java.util.concurrent.Flow.Publisher}; prefer it
+     * to polling the getters.
+     */
+    public HubEventStream getEvents() {
+        return events;
     }
 
     public void addDevice(Device device) {
-        devices.add(device);
+        device.setNotifications(notifications);
+        shardFor(device.getId()).addDevice(device);
+        changes.onDeviceAdded(device);
         logger.log( "A new " + device.getDeviceType() + " device (ID: " + device.getId() + ") was added to the devices list.", LogLevel.INFO);
 
         if (deviceRepo != null) {
@@ -44,13 +122,44 @@ public class SecurityHub {
     }
 
     public void removeDevice(Device device) {
-        if (devices.contains(device)) {
-            devices.remove(device);
+        if (shardFor(device.getId()).removeDevice(device)) {
+            changes.onDeviceRemoved(device);
         } else {
             logger.log("An attempt was made to remove a nonexistent device.", LogLevel.WARNING);
         }
     }
 
+    /**
+     * Changes a device's status through the hub so listeners (e.g. replication) see the transition.
+     */
+    public void changeDeviceStatus(Device device, DeviceStatus deviceStatus) {
+        device.setDeviceStatus(deviceStatus);
+        changes.onDeviceStatusChanged(device);
+    }
+
+    /**
+     * Announces a fresh battery or signal reading that has already been applied to the device,
+     * so analytics can follow the fleet without polling it.
+     */
+    public void reportTelemetry(Device device) {
+        changes.onTelemetryUpdated(device);
+    }
+
+    /**
+     * O(1) membership check; only the owning shard is consulted.
+     */
+    public boolean containsDevice(Device device) {
+        return shardFor(device.getId()).containsDevice(device);
+    }
+
+    public Device findDevice(UUID deviceId) {
+        return shardFor(deviceId).findDevice(deviceId);
+    }
+
+    public Alarm findActiveAlarm(UUID deviceId) {
+        return shardFor(deviceId).findActiveAlarm(deviceId);
+    }
+
     public void setAlarmRepository(AlarmLogRepository repo) {
         this.alarmRepo = repo;
     }
@@ -63,40 +172,102 @@ public class SecurityHub {
         return logger;
     }
 
+    /**
+     * Where alarm and log timestamps come from; the real clock unless a simulation replaced it.
+     */
+    public HubClock getClock() {
+        return clock;
+    }
+
+    public void setClock(HubClock clock) {
+        this.clock = Objects.requireNonNull(clock);
+        logger.setClock(clock);
+        events.setClock(clock);
+    }
+
+    public ZoneRegistry getZones() {
+        return zones;
+    }
+
     public HubStatus currentMode() {
-        return status;
+        return zones.armedMask() != 0 ? HubStatus.ARMED : HubStatus.DISARMED;
+    }
+
+    /**
+     * O(1): true if any zone the device belongs to is armed.
+     */
+    public boolean isArmedFor(UUID deviceId) {
+        return zones.isArmed(deviceId);
     }
 
     public void processNextCommand() {
-        if (!taskQueue.isEmpty()) {
-            taskQueue.poll().execute();
+        for (HubShard shard : shards) {
+            if (Boolean.TRUE.equals(await(shard.processNext()))) {
+                break;
+            }
         }
-        if (taskQueue.isEmpty()) {
+        if (pendingCommandCount() == 0) {
             logger.log("The commands queue is now empty. All commands processed.", LogLevel.INFO);
         }
     }
 
+    /**
+     * Drains every shard's queue in parallel, one worker per shard, and returns once all are empty.
+     */
     public void processAllCommands() {
-        if (status != HubStatus.ARMED) {
+        if (currentMode() != HubStatus.ARMED) {
             logger.log("Hub must be armed to process commands", LogLevel.WARNING);
             return;
         }
 
-        while (!taskQueue.isEmpty()) {
-            processNextCommand();
+        List<Future<?>> drains = new ArrayList<>(shards.length);
+        for (HubShard shard : shards) {
+            drains.add(shard.drain());
         }
+        for (Future<?> drain : drains) {
+            await(drain);
+        }
+        logger.log("The commands queue is now empty. All commands processed.", LogLevel.INFO);
     }
 
     public void processCommand(Command cmd) {
-        if (status != HubStatus.ARMED) {
-            logger.log("Hub must be armed to process commands", LogLevel.WARNING);
+        if (cmd instanceof BatchDiagnosticCommand) {
+            processBatch((BatchDiagnosticCommand) cmd);
+            return;
+        }
+        if (!isArmedFor(cmd.getDevice().getId())) {
+            logger.log("The device's zone must be armed to process commands", LogLevel.WARNING);
             return;
         }
         cmd.execute();
+        if (cmd instanceof SecurityHubCommand) {
+            changes.onCommandExecuted((SecurityHubCommand) cmd);
+        }
+    }
+
+    /**
+     * Diagnoses the batch's devices whose zones are armed; the others are left out.
+     */
+    private void processBatch(BatchDiagnosticCommand batch) {
+        List<Device> admitted = new ArrayList<>(batch.size());
+        for (Device d : batch.getDevices()) {
+            if (isArmedFor(d.getId())) {
+                admitted.add(d);
+            }
+        }
+        if (admitted.isEmpty()) {
+            logger.log("The devices' zones must be armed to process commands", LogLevel.WARNING);
+            return;
+        }
+        BatchDiagnosticCommand cmd = admitted.size() == batch.size() ? batch
+                : new BatchDiagnosticCommand(batch.getLink(), admitted);
+        cmd.execute();
+        changes.onCommandExecuted(cmd);
     }
 
     public void registerAlarm(Alarm alarm) {
-        activeAlarms.put(alarm.getDeviceId(), alarm);
+        shardFor(alarm.getDeviceId()).registerAlarm(alarm);
+        changes.onAlarmRegistered(alarm);
         if (alarmRepo != null) {
             alarmRepo.save(alarm);
         } else {
@@ -106,74 +277,215 @@ public class SecurityHub {
         logger.log("Alarm registered: " + alarm.getDeviceId(), LogLevel.INFO);
     }
 
+    /**
+     * Raises an alarm that is still active to the next severity, keeping its id and timestamp.
+     *
+     * @return The escalated alarm, or null if the alarm was resolved or replaced meanwhile, or is
+     *         already CRITICAL.
+     */
+    public Alarm escalateAlarm(Alarm alarm) {
+        AlarmSeverity[] severities = AlarmSeverity.values();
+        int next = alarm.getSeverity().ordinal() + 1;
+        if (next >= severities.length || alarm.getStatus() != AlarmStatus.ACTIVE) {
+            return null;
+        }
+
+        Alarm escalated = new Alarm(alarm.getId(), alarm.getDeviceType(), alarm.getDeviceId(),
+                AlarmStatus.ACTIVE, severities[next], alarm.getTimestamp());
+        if (!shardFor(alarm.getDeviceId()).replaceAlarm(alarm, escalated)) {
+            return null;
+        }
+        changes.onAlarmRegistered(escalated);
+        if (alarmRepo != null) {
+            alarmRepo.save(escalated);
+        }
+
+        logger.log("Unresolved alarm escalated to " + escalated.getSeverity() + ": " + alarm.getDeviceId(), LogLevel.ALARM);
+        return escalated;
+    }
+
+    /**
+     * Replaces how alarm notifications reach subscribers, e.g. with a correlation stage.
+     * Null restores direct delivery to the device's subscribers.
+     */
+    public void setAlarmNotifier(AlarmNotifier notifier) {
+        this.alarmNotifier = notifier != null ? notifier : DIRECT_NOTIFIER;
+    }
+
+    /**
+     * Sends the subscriber notification for an alarm that has been registered.
+     */
+    public void notifyAlarm(Device device, Alarm alarm, String message) {
+        alarmNotifier.notify(device, alarm, message);
+    }
+
     public void resolveAlarm(Alarm alarm) {
-        if (status != HubStatus.ARMED) {
-            logger.log("Hub must be armed to resolve active alarms", LogLevel.WARNING);
+        if (!isArmedFor(alarm.getDeviceId())) {
+            logger.log("The device's zone must be armed to resolve active alarms", LogLevel.WARNING);
             return;
         }
+        applyAlarmResolution(alarm);
+    }
+
+    /**
+     * Resolves an alarm without the zone check, for a resolution already admitted elsewhere, e.g.
+     * on the primary a standby replicates.
+     */
+    public void applyAlarmResolution(Alarm alarm) {
         alarm.resolveAlarm();
-        activeAlarms.remove(alarm.getDeviceId());
+        shardFor(alarm.getDeviceId()).resolveAlarm(alarm);
+        changes.onAlarmResolved(alarm);
+        if (alarmRepo != null) {
+            alarmRepo.save(alarm);
+        }
     }
 
     public void resolveAlarmsByDevice(Device device) {
-        if (status != HubStatus.ARMED) {
-            logger.log("Hub must be armed to resolve active alarms", LogLevel.WARNING);
+        if (!isArmedFor(device.getId())) {
+            logger.log("The device's zone must be armed to resolve active alarms", LogLevel.WARNING);
             return;
         }
-        activeAlarms.remove(device.getId());
+        Alarm resolved = shardFor(device.getId()).resolveAlarmsByDevice(device.getId());
+        if (resolved != null) {
+            markResolved(resolved);
+            if (alarmRepo != null) {
+                alarmRepo.save(resolved);
+            }
+        }
     }
 
+    /**
+     * Resolves the active alarms of every device whose zone is armed.
+     */
     public void resolveAllAlarms() {
-        if (status != HubStatus.ARMED) {
+        if (currentMode() != HubStatus.ARMED) {
             logger.log("Hub must be armed to resolve active alarms", LogLevel.WARNING);
             return;
         }
-        activeAlarms.clear();
+        List<Alarm> resolvedAlarms = new ArrayList<>();
+        for (HubShard shard : shards) {
+            for (Alarm resolved : shard.resolveAllAlarms(zones::isArmed)) {
+                markResolved(resolved);
+                resolvedAlarms.add(resolved);
+            }
+        }
+        if (alarmRepo != null && !resolvedAlarms.isEmpty()) {
+            alarmRepo.saveAll(resolvedAlarms);
+        }
     }
 
+    /**
+     * Records the resolution of an alarm already removed from its shard.
+     */
+    private void markResolved(Alarm alarm) {
+        if (alarm.getStatus() == AlarmStatus.ACTIVE) {
+            alarm.resolveAlarm();
+        }
+        changes.onAlarmResolved(alarm);
+    }
+
+    /**
+     * Arms every zone.
+     */
     public void armHub() {
-        if (status == HubStatus.ARMED) {
+        if (zones.allArmed()) {
             logger.log("Hub is already armed. Current Status: ARMED", LogLevel.INFO);
         } else {
-            status = HubStatus.ARMED;
+            modeChanged(zones.armAll());
             logger.log("Successfully armed hub. Current Status: ARMED", LogLevel.INFO);
         }
     }
 
+    /**
+     * Disarms every zone.
+     */
     public void disarmHub() {
-        if (status == HubStatus.DISARMED) {
+        if (zones.armedMask() == 0) {
             logger.log("Hub is already disarmed. Current Status: DISARMED", LogLevel.INFO);
         } else {
-            status = HubStatus.DISARMED;
+            modeChanged(zones.disarmAll());
             logger.log("Successfully disarmed hub. Current Status: DISARMED", LogLevel.INFO);
         }
     }
 
-    public void addCommand(SecurityHubCommand cmd) {
+    /**
+     * Arms one zone by flipping its bit; the devices in it are not visited.
+     */
+    public void armZone(String zoneName) {
+        int id = zones.zoneId(zoneName);
+        if (id < 0) {
+            logger.log("Cannot arm unknown zone " + zoneName, LogLevel.WARNING);
+            return;
+        }
+        modeChanged(zones.arm(id));
+        logger.log("Armed zone " + zoneName + ". Current Status: " + currentMode(), LogLevel.INFO);
+    }
+
+    /**
+     * Disarms one zone by clearing its bit; the devices in it are not visited.
+     */
+    public void disarmZone(String zoneName) {
+        int id = zones.zoneId(zoneName);
+        if (id < 0) {
+            logger.log("Cannot disarm unknown zone " + zoneName, LogLevel.WARNING);
+            return;
+        }
+        modeChanged(zones.disarm(id));
+        logger.log("Disarmed zone " + zoneName + ". Current Status: " + currentMode(), LogLevel.INFO);
+    }
+
+    /**
+     * Listeners hear about the hub-wide mode when the first zone is armed or the last one
+     * disarmed, and about the armed zones whenever they change.
+     */
+    private void modeChanged(long previousArmedMask) {
+        HubStatus previous = previousArmedMask != 0 ? HubStatus.ARMED : HubStatus.DISARMED;
+        HubStatus current = currentMode();
+        if (previous != current) {
+            changes.onModeChanged(current);
+        }
+        if (previousArmedMask != zones.armedMask()) {
+            changes.onArmedZonesChanged(zones.getArmedZoneNames());
+        }
+    }
+
+    /**
+     * Queues a command on its device's shard. A DIAGNOSTIC or RESET already pending for the device
+     * absorbs a duplicate, and a RESET supersedes a pending DIAGNOSTIC.
+     *
+     * @return True if the command was queued, false if it was rejected or coalesced.
+     */
+    public boolean addCommand(SecurityHubCommand cmd) {
         if (!cmd.validate()) {
             logger.log(cmd.validationMessage(), LogLevel.ERROR);
-            return;
+            return false;
+        }
+
+        if (cmd instanceof BatchDiagnosticCommand) {
+            return enqueueBatches(((BatchDiagnosticCommand) cmd).getDevices()) > 0;
         }
 
+        HubShard shard = shardFor(cmd.getDevice().getId());
         if (cmd.getCommandType() == CommandType.RESET || cmd.getCommandType() == CommandType.DIAGNOSTIC) {
-            taskQueue.add(cmd);
-            return;
+            return shard.enqueue(cmd);
         }
 
         if (cmd.getDevice().getDeviceStatus() != DeviceStatus.OPERATIONAL) {
             logger.log("Command unsuccessful, must target an operational device.", LogLevel.ERROR);
-            return;
+            return false;
         }
 
-        if (status == HubStatus.DISARMED) {
-            logger.log("The hub must be armed to trigger it. Current Status: DISARMED", LogLevel.WARNING);
+        if (!isArmedFor(cmd.getDevice().getId())) {
+            logger.log("The device's zone must be armed to trigger it. Current Status: " + currentMode(), LogLevel.WARNING);
 
         } else {
             if (cmd.getSeverity() != AlarmSeverity.LOW && !isMaintenanceMode) {
-                taskQueue.add(cmd);
+                shard.enqueue(cmd);
                 logger.log("Successfully added security hub commands.", LogLevel.INFO);
+                return true;
             }
         }
+        return false;
     }
 
     /** Use this instead of individually calling addCommand and processCommand,
@@ -184,35 +496,144 @@ public class SecurityHub {
         processCommand(cmd);
     }
 
+    /**
+     * Queues a diagnostic of every device as one {@link BatchDiagnosticCommand} per shard and
+     * hardware link, so the check costs a handful of batched polls rather than one per device.
+     */
     public void initiateFleetCheck() {
         logger.log("Initiated fleet check. Any errors will show below.", LogLevel.HEALTH);
+        int fleet = 0;
+        int queued = 0;
+        for (HubShard shard : shards) {
+            for (BatchDiagnosticCommand batch : BatchDiagnosticCommand.groupByLink(shard.devices())) {
+                fleet += batch.size();
+                queued += shard.enqueueBatch(batch);
+            }
+        }
+        if (queued < fleet) {
+            logger.log("Fleet check queued " + queued + " diagnostics; " + (fleet - queued)
+                    + " devices already had maintenance pending.", LogLevel.HEALTH);
+        }
+    }
+
+    /**
+     * Splits devices by shard and hardware link and queues a batched diagnostic for each group.
+     *
+     * @return The number of devices newly queued for diagnosis.
+     */
+    private int enqueueBatches(Collection<Device> devices) {
+        Map<HubShard, List<Device>> byShard = new HashMap<>();
         for (Device d : devices) {
-            addCommand(new SystemDiagnosticCommand(d));
+            byShard.computeIfAbsent(shardFor(d.getId()), s -> new ArrayList<>()).add(d);
+        }
+        int queued = 0;
+        for (Map.Entry<HubShard, List<Device>> group : byShard.entrySet()) {
+            for (BatchDiagnosticCommand batch : BatchDiagnosticCommand.groupByLink(group.getValue())) {
+                queued += group.getKey().enqueueBatch(batch);
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * @return How many commands have been absorbed by a pending command for the same device.
+     */
+    public long getCoalescedCommandCount() {
+        long total = 0;
+        for (HubShard shard : shards) {
+            total += shard.coalescedCommands();
         }
+        return total;
+    }
+
+    public int pendingCommandCount() {
+        int total = 0;
+        for (HubShard shard : shards) {
+            total += shard.pendingCommands();
+        }
+        return total;
     }
 
     public int numActiveAlarms() {
-        return activeAlarms.size();
+        int total = 0;
+        for (HubShard shard : shards) {
+            total += shard.activeAlarmCount();
+        }
+        return total;
     }
 
     public List<Alarm> getActiveAlarms() {
-        return activeAlarms.values().stream().toList();
+        List<Alarm> alarms = new ArrayList<>();
+        for (HubShard shard : shards) {
+            alarms.addAll(shard.activeAlarms());
+        }
+        return alarms;
     }
 
+    /**
+     * Pings every device at once and waits for the answers. Devices whose circuit is open are
+     * skipped.
+     */
     public void pingDevices() {
-        for (Device d : devices) {
-            d.ping();
+        List<Device> all = getDevices();
+        CompletableFuture<?>[] pings = new CompletableFuture<?>[all.size()];
+        for (int i = 0; i < pings.length; i++) {
+            pings[i] = all.get(i).pingAsync();
         }
+        CompletableFuture.allOf(pings).join();
     }
 
+    /**
+     * @return How many devices currently have their pings suspended by an open circuit.
+     */
+    public int getOpenCircuitCount() {
+        int open = 0;
+        for (HubShard shard : shards) {
+            for (Device d : shard.devices()) {
+                if (d.getCircuitState() != CircuitState.CLOSED) {
+                    open++;
+                }
+            }
+        }
+        return open;
+    }
+
+    /**
+     * @return A snapshot of every registered device across all shards.
+     */
     public List<Device> getDevices() {
-        return devices;
+        List<Device> all = new ArrayList<>(deviceCount());
+        for (HubShard shard : shards) {
+            all.addAll(shard.devices());
+        }
+        return all;
+    }
+
+    public int deviceCount() {
+        int total = 0;
+        for (HubShard shard : shards) {
+            total += shard.deviceCount();
+        }
+        return total;
+    }
+
+    /**
+     * Aggregated device counts per status without copying the fleet into a list.
+     */
+    public Map<DeviceStatus, Integer> getDeviceStatusCounts() {
+        Map<DeviceStatus, Integer> counts = new EnumMap<>(DeviceStatus.class);
+        for (HubShard shard : shards) {
+            for (Device d : shard.devices()) {
+                counts.merge(d.getDeviceStatus(), 1, Integer::sum);
+            }
+        }
+        return counts;
     }
 
     public void checkDeviceBatteryLevels() {
         int numLowBatteriedDevices = 0;
 
-        for (Device d : devices) {
+        for (Device d : getDevices()) {
             if (d.getBatteryLife() < 10) {
                 logger.log(d.getId() + " is low on charge", LogLevel.HEALTH);
                 numLowBatteriedDevices++;
@@ -221,59 +642,157 @@ public class SecurityHub {
         logger.log("There are " + numLowBatteriedDevices + " low batteried devices.", LogLevel.HEALTH);
     }
 
+    /**
+     * Runs the ping and escalation sweep on every shard in parallel and waits for all of them.
+     */
     public void monitorAndHandleDeviceHealth() {
-        updateDeviceFailureState();
-        updateDeviceStatus();
+        List<Future<?>> sweeps = new ArrayList<>(shards.length);
+        for (HubShard shard : shards) {
+            sweeps.add(shard.monitorHealth());
+        }
+        for (Future<?> sweep : sweeps) {
+            await(sweep);
+        }
     }
 
-    private void updateDeviceFailureState() {
-        for (Device d : devices) {
-            if (!d.ping()) {
-                d.incrementFailureCount();
-                logger.log("Device ping failed", LogLevel.WARNING);
-            } else {
-                d.resetFailureCount();
-            }
-        }
+    /**
+     * Pings a single device on its shard and applies the failure escalation if it did not answer.
+     * This is the per-device counterpart of {@link #monitorAndHandleDeviceHealth()}.
+     *
+     * @return A future completing with true if the device is still registered and responded.
+     */
+    public CompletableFuture<Boolean> checkDeviceLiveness(Device device) {
+        return shardFor(device.getId()).checkLiveness(device);
     }
 
     public void removeAllDevices() {
-        devices.clear();
+        for (HubShard shard : shards) {
+            for (Device d : shard.devices()) {
+                if (shard.removeDevice(d)) {
+                    changes.onDeviceRemoved(d);
+                }
+            }
+        }
 
         if (deviceRepo != null) {
             deviceRepo.removeAll();
         }
     }
 
-    private void updateDeviceStatus() {
-        List<Device> devicesToDecommission = new ArrayList<>();
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.log("Hub shard task failed: " + e.getCause(), LogLevel.ERROR);
+        }
+        return null;
+    }
 
-        for (Device d : devices) {
-            int numFails = d.getFailureCount();
-
-            if (numFails == 1 || numFails == 2) {
-                logger.log("Device failure count is " + numFails, LogLevel.WARNING);
-            } else if (numFails == 3) {
-                d.setDeviceStatus(DeviceStatus.RECOVERY_MODE);
-                logger.log("Device failure count is " + numFails + ". The device is in " + d.getDeviceStatus(), LogLevel.CRITICAL);
-                taskQueue.addFirst(new SystemDiagnosticCommand(d));
-            } else if (numFails == 4) {
-                logger.log("Device failure count is " + numFails + ". The device is in " + d.getDeviceStatus(), LogLevel.CRITICAL);
-                taskQueue.addFirst(new SystemResetCommand(d));
-            } else if (numFails == 5) {
-                d.setDeviceStatus(DeviceStatus.DECOMMISSIONED);
-                devicesToDecommission.add(d);
-                decommissionedDevices.add(d);
-                logger.log("Device failure count is " + numFails + ". The device is in " + d.getDeviceStatus(), LogLevel.CRITICAL);
+    /**
+     * Fans each change out to the registered listeners. A failing listener never breaks the hub.
+     */
+    private class ChangeDispatcher implements HubChangeListener {
+        @Override
+        public void onDeviceAdded(Device device) {
+            for (HubChangeListener l : changeListeners) {
+                try { l.onDeviceAdded(device); } catch (RuntimeException e) { listenerFailed(e); }
+            }
+        }
+
+        @Override
+        public void onDeviceRemoved(Device device) {
+            for (HubChangeListener l : changeListeners) {
+                try { l.onDeviceRemoved(device); } catch (RuntimeException e) { listenerFailed(e); }
+            }
+        }
+
+        @Override
+        public void onDeviceStatusChanged(Device device) {
+            for (HubChangeListener l : changeListeners) {
+                try { l.onDeviceStatusChanged(device); } catch (RuntimeException e) { listenerFailed(e); }
+            }
+        }
+
+        @Override
+        public void onTelemetryUpdated(Device device) {
+            for (HubChangeListener l : changeListeners) {
+                try { l.onTelemetryUpdated(device); } catch (RuntimeException e) { listenerFailed(e); }
+            }
+        }
+
+        @Override
+        public void onAlarmRegistered(Alarm alarm) {
+            for (HubChangeListener l : changeListeners) {
+                try { l.onAlarmRegistered(alarm); } catch (RuntimeException e) { listenerFailed(e); }
+            }
+        }
+
+        @Override
+        public void onAlarmResolved(Alarm alarm) {
+            for (HubChangeListener l : changeListeners) {
+                try { l.onAlarmResolved(alarm); } catch (RuntimeException e) { listenerFailed(e); }
             }
         }
-        devices.removeIf(devicesToDecommission::contains);
-    }
 
-    public static synchronized SecurityHub getInstance() {
-        if (hub == null) {
-            hub = new SecurityHub();
+        @Override
+        public void onModeChanged(HubStatus status) {
+            for (HubChangeListener l : changeListeners) {
+                try { l.onModeChanged(status); } catch (RuntimeException e) { listenerFailed(e); }
+            }
         }
-        return hub;
+
+        @Override
+        public void onArmedZonesChanged(List<String> armedZones) {
+            for (HubChangeListener l : changeListeners) {
+                try { l.onArmedZonesChanged(armedZones); } catch (RuntimeException e) { listenerFailed(e); }
+            }
+        }
+
+        @Override
+        public void onZoneAssigned(UUID deviceId, String zoneName) {
+            for (HubChangeListener l : changeListeners) {
+                try { l.onZoneAssigned(deviceId, zoneName); } catch (RuntimeException e) { listenerFailed(e); }
+            }
+        }
+
+        @Override
+        public void onZoneUnassigned(UUID deviceId, String zoneName) {
+            for (HubChangeListener l : changeListeners) {
+                try { l.onZoneUnassigned(deviceId, zoneName); } catch (RuntimeException e) { listenerFailed(e); }
+            }
+        }
+
+        @Override
+        public void onCommandExecuted(SecurityHubCommand command) {
+            for (HubChangeListener l : changeListeners) {
+                try { l.onCommandExecuted(command); } catch (RuntimeException e) { listenerFailed(e); }
+            }
+        }
+
+        private void listenerFailed(RuntimeException e) {
+            logger.log("Hub change listener error: " + e.getMessage(), LogLevel.ERROR);
+        }
+    }
+
+    private static class Holder {
+        private static final SecurityHub INSTANCE = new SecurityHub();
+    }
+
+    /**
+     * A hub of its own rather than the shared instance, e.g. to replay a trace against, with its
+     * own notification broker. Commands that look the hub up through {@link #getInstance()} still
+     * report to the shared one.
+     */
+    public static SecurityHub createDetached(int shardCount) {
+        return new SecurityHub(shardCount);
+    }
+
+    /**
+     * Lazily created on first use without locking; every command calls this on its hot path.
+     */
+    public static SecurityHub getInstance() {
+        return Holder.INSTANCE;
     }
 }
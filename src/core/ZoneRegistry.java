@@ -0,0 +1,208 @@
+package core;
+
+import infrastructure.repository.ZoneRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Zones the site is divided into, which devices belong to them, and which are armed.
+ *
+ * <p>Zone ids are bit positions in a {@code long}, so a device's membership is one mask and the
+ * armed zones are another. Deciding whether a device is armed is a map lookup and an AND, and
+ * arming or disarming a zone flips one bit no matter how many devices it holds. Devices with no
+ * explicit membership belong to the {@link #DEFAULT_ZONE}.</p>
+ */
+public class ZoneRegistry {
+    public static final int MAX_ZONES = Long.SIZE;
+    public static final int DEFAULT_ZONE = 0;
+    public static final String DEFAULT_ZONE_NAME = "default";
+    private static final long DEFAULT_MASK = 1L << DEFAULT_ZONE;
+
+    // Zone definitions change rarely; guarded by this
+    private final String[] names = new String[MAX_ZONES];
+    private final Map<String, Integer> ids = new HashMap<>();
+    private volatile long definedMask;
+
+    private final AtomicLong armedMask = new AtomicLong();
+    private final Map<UUID, Long> memberships = new ConcurrentHashMap<>();
+    private final HubChangeListener changes;
+    private volatile ZoneRepository repository;
+
+    /**
+     * @param changes Told about membership changes made through {@link #assign} and {@link #unassign}.
+     */
+    ZoneRegistry(HubChangeListener changes) {
+        this.changes = changes;
+        define(DEFAULT_ZONE, DEFAULT_ZONE_NAME);
+    }
+
+    /**
+     * Loads persisted zones and memberships, then writes every later change through.
+     */
+    public synchronized void setRepository(ZoneRepository repo) {
+        for (Map.Entry<Integer, String> zone : repo.loadZones().entrySet()) {
+            int id = zone.getKey();
+            if (id >= 0 && id < MAX_ZONES && ids.get(zone.getValue()) == null && names[id] == null) {
+                define(id, zone.getValue());
+            }
+        }
+        for (Map.Entry<UUID, Long> membership : repo.loadMemberships().entrySet()) {
+            memberships.put(membership.getKey(), membership.getValue() & definedMask);
+        }
+        repo.saveZone(DEFAULT_ZONE, DEFAULT_ZONE_NAME);
+        this.repository = repo;
+    }
+
+    /**
+     * @return The id of the named zone, creating it if it does not exist.
+     * @throws IllegalStateException if all {@value #MAX_ZONES} zone ids are in use.
+     */
+    public synchronized int defineZone(String name) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        if (definedMask == -1L) {
+            throw new IllegalStateException("No more than " + MAX_ZONES + " zones can be defined");
+        }
+        int id = Long.numberOfTrailingZeros(~definedMask);
+        define(id, name);
+        ZoneRepository repo = repository;
+        if (repo != null) {
+            repo.saveZone(id, name);
+        }
+        return id;
+    }
+
+    /**
+     * @return The id of the named zone, or -1 if there is none.
+     */
+    public synchronized int zoneId(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    public synchronized String zoneName(int id) {
+        return id >= 0 && id < MAX_ZONES ? names[id] : null;
+    }
+
+    public synchronized List<String> getZoneNames() {
+        return namesOf(definedMask);
+    }
+
+    public synchronized List<String> getArmedZoneNames() {
+        return namesOf(armedMask.get());
+    }
+
+    /**
+     * Adds a device to a zone, creating the zone if needed. A device's first zone replaces its
+     * implicit membership of the default zone.
+     */
+    public void assign(UUID deviceId, String zoneName) {
+        int id = defineZone(zoneName);
+        long bit = 1L << id;
+        Long previous = memberships.get(deviceId);
+        memberships.merge(deviceId, bit, (a, b) -> a | b);
+        ZoneRepository repo = repository;
+        if (repo != null) {
+            repo.assign(deviceId, id);
+        }
+        if (previous == null || (previous & bit) == 0) {
+            changes.onZoneAssigned(deviceId, zoneName);
+        }
+    }
+
+    /**
+     * Removes a device from a zone. A device left in no zone falls back to the default zone.
+     */
+    public void unassign(UUID deviceId, String zoneName) {
+        int id = zoneId(zoneName);
+        if (id < 0) {
+            return;
+        }
+        long bit = 1L << id;
+        Long previous = memberships.get(deviceId);
+        memberships.computeIfPresent(deviceId, (d, mask) -> (mask & ~bit) == 0 ? null : mask & ~bit);
+        ZoneRepository repo = repository;
+        if (repo != null) {
+            repo.unassign(deviceId, id);
+        }
+        if (previous != null && (previous & bit) != 0) {
+            changes.onZoneUnassigned(deviceId, zoneName);
+        }
+    }
+
+    /**
+     * @return The zones the device was explicitly assigned to; empty if it only belongs to the
+     *         default zone implicitly.
+     */
+    public synchronized List<String> getZoneNames(UUID deviceId) {
+        Long mask = memberships.get(deviceId);
+        return mask != null ? namesOf(mask) : new ArrayList<>();
+    }
+
+    /**
+     * @return The device's zone membership, bit n set for zone id n.
+     */
+    public long zoneMask(UUID deviceId) {
+        Long mask = memberships.get(deviceId);
+        return mask != null ? mask : DEFAULT_MASK;
+    }
+
+    /**
+     * O(1): true if any zone the device belongs to is armed.
+     */
+    public boolean isArmed(UUID deviceId) {
+        return (zoneMask(deviceId) & armedMask.get()) != 0;
+    }
+
+    public boolean isZoneArmed(int zoneId) {
+        return (armedMask.get() & (1L << zoneId)) != 0;
+    }
+
+    public long armedMask() {
+        return armedMask.get();
+    }
+
+    /**
+     * Each of these swaps the armed bitset in one step and returns the previous one.
+     */
+    long arm(int zoneId) {
+        return armedMask.getAndUpdate(mask -> mask | (1L << zoneId));
+    }
+
+    long disarm(int zoneId) {
+        return armedMask.getAndUpdate(mask -> mask & ~(1L << zoneId));
+    }
+
+    long armAll() {
+        return armedMask.getAndSet(definedMask);
+    }
+
+    long disarmAll() {
+        return armedMask.getAndSet(0L);
+    }
+
+    boolean allArmed() {
+        return (armedMask.get() & definedMask) == definedMask;
+    }
+
+    private void define(int id, String name) {
+        names[id] = name;
+        ids.put(name, id);
+        definedMask |= 1L << id;
+    }
+
+    private List<String> namesOf(long mask) {
+        List<String> result = new ArrayList<>(Long.bitCount(mask));
+        for (long m = mask; m != 0; m &= m - 1) {
+            String name = names[Long.numberOfTrailingZeros(m)];
+            if (name != null) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+}
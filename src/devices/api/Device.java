@@ -1,10 +1,64 @@
 package devices.api;
 
+import devices.model.CircuitState;
+import devices.model.DeviceReading;
+import devices.model.DeviceSnapshot;
 import devices.model.DeviceStatus;
+import devices.model.PingResult;
 
-public interface Device extends Identifiable, Pingable, BatteryMonitored, Recoverable, Observable, Connectable {
+import java.util.concurrent.CompletableFuture;
+
+public interface Device extends Identifiable, Pingable, BatteryMonitored, Recoverable, Observable, Connectable, Versioned {
 
     void performSelfCheck();
+
+    /**
+     * Runs the self check against a reading already taken, e.g. by a batched poll of the link.
+     */
+    void performSelfCheck(DeviceReading reading);
     void setDeviceStatus(DeviceStatus deviceStatus);
     DeviceStatus getDeviceStatus();
+    HardwareLink getHardwareLink();
+
+    /**
+     * @return Status, failure count, battery, signal and state version, all from one instant.
+     */
+    DeviceSnapshot getSnapshot();
+
+    /**
+     * Counts one failed check and applies the status step it reaches, as one atomic update: the
+     * failure that brings the count to {@code recoveryAt} moves the device to RECOVERY_MODE, the
+     * one that brings it to {@code decommissionAt} to DECOMMISSIONED. Concurrent callers each see
+     * a distinct count, so each step is taken exactly once.
+     *
+     * @return The state right after this failure was counted.
+     */
+    DeviceSnapshot recordFailure(int recoveryAt, int decommissionAt);
+
+    /**
+     * Pings the device through its circuit breaker. While the circuit is open the future is
+     * already complete with a skipped result and the link is not touched.
+     */
+    CompletableFuture<PingResult> pingAsync();
+
+    /**
+     * Like {@link #pingAsync()}, for the hub's liveness check; the link is asked through
+     * {@link HardwareLink#probeAsync(Device)}.
+     */
+    CompletableFuture<PingResult> probeAsync();
+
+    CircuitState getCircuitState();
+
+    /**
+     * For callers that ping on the device's behalf, e.g. a batched poll. A true answer obliges
+     * the caller to report the outcome through {@link #recordPingOutcome(boolean)}.
+     *
+     * @return False while the device's circuit is open.
+     */
+    boolean tryAcquirePing();
+
+    /**
+     * Feeds the outcome of a ping made on the device's behalf to its circuit breaker.
+     */
+    void recordPingOutcome(boolean responsive);
 }
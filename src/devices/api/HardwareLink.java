@@ -1,5 +1,64 @@
 package devices.api;
 
+import devices.model.DeviceReading;
+import devices.model.PingResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface HardwareLink {
     boolean isDeviceResponsive(Device device);
+
+    /**
+     * Polls several devices at once, e.g. a whole bus segment in one gateway transaction. Links
+     * that cannot batch fall back to one responsiveness check per device.
+     *
+     * @return One reading per device, in the order given.
+     */
+    default List<DeviceReading> pollDevices(List<Device> devices) {
+        List<DeviceReading> readings = new ArrayList<>(devices.size());
+        for (Device d : devices) {
+            readings.add(new DeviceReading(d.getId(), isDeviceResponsive(d), d.getBatteryLife(), d.getSignalStrength()));
+        }
+        return readings;
+    }
+
+    /**
+     * Pings one device without tying the caller to the round trip. Links whose answers arrive
+     * over the network should complete the future from their I/O thread; this default answers
+     * on the calling thread from {@link #isDeviceResponsive(Device)}.
+     */
+    default CompletableFuture<PingResult> pingAsync(Device device) {
+        long start = System.nanoTime();
+        try {
+            boolean responsive = isDeviceResponsive(device);
+            return CompletableFuture.completedFuture(new PingResult(device.getId(), responsive, System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Pings one device for the hub's liveness check, whose answer counts towards the device's
+     * failure ladder. Links answer it like any other ping; it is kept apart so that wrappers can
+     * tell what a ping was for.
+     */
+    default CompletableFuture<PingResult> probeAsync(Device device) {
+        return pingAsync(device);
+    }
+
+    /**
+     * Polls several devices for the hub's health sweep; see {@link #probeAsync(Device)}.
+     */
+    default List<DeviceReading> probeDevices(List<Device> devices) {
+        return pollDevices(devices);
+    }
+
+    /**
+     * Polls one device for its own self-check.
+     */
+    default DeviceReading selfCheck(Device device) {
+        return pollDevices(List.of(device)).get(0);
+    }
 }
@@ -1,10 +1,26 @@
 package devices.api;
 
+import alarm.AlarmSeverity;
+import infrastructure.subscribers.NotificationBroker;
 import infrastructure.subscribers.Subscriber;
 
+import java.util.List;
+
 public interface Observable {
     void addSubscriber(Subscriber s);
     void removeSubscriber(Subscriber s);
     void updateSubscriber(Subscriber s, String updateMessage);
     void updateAllSubscribers(String updateMessage);
+
+    /**
+     * Notifies as above, and also reaches subscribers of alarms of this severity or higher.
+     */
+    void updateAllSubscribers(String updateMessage, AlarmSeverity severity);
+    List<Subscriber> getSubscribers();
+
+    /**
+     * Publishes through {@code broker} from now on and moves the device's own subscriptions to it.
+     * A hub sets its broker on every device added to it.
+     */
+    void setNotifications(NotificationBroker broker);
 }
@@ -0,0 +1,12 @@
+package devices.api;
+
+/**
+ * State that counts its own changes, so a persister can tell what changed since it last looked
+ * without comparing field by field.
+ */
+public interface Versioned {
+    /**
+     * @return A number that grows with every change to the persisted state.
+     */
+    long getStateVersion();
+}
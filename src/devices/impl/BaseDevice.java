@@ -1,19 +1,51 @@
 package devices.impl;
 
+import alarm.AlarmSeverity;
 import devices.api.Device;
 import devices.api.HardwareLink;
+import devices.model.CircuitState;
+import devices.model.DeviceReading;
+import devices.model.DeviceSnapshot;
 import devices.model.DeviceStatus;
+import devices.model.PingResult;
 import infrastructure.logger.LogLevel;
 import infrastructure.logger.Logger;
+import infrastructure.subscribers.NotificationBroker;
+import infrastructure.subscribers.NotificationTopic;
+import infrastructure.subscribers.Subscriber;
 
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongUnaryOperator;
 
+/**
+ * Shared state and health-check logic for all devices.
+ *
+ * <p>Status, failure count, battery, signal and state version are packed into one word (see
+ * {@link PackedDeviceState}) that is only changed by compare-and-set. The simulator, shard workers
+ * and UI threads can update a device concurrently without losing updates, every change bumps the
+ * version in the same step, and {@link #getSnapshot()} reads all of it at once without locking.</p>
+ *
+ * <p>Devices keep no subscriber lists of their own: subscribing to a device registers a device
+ * topic with the {@link NotificationBroker} of the hub the device belongs to (the default broker
+ * until it is added to one), and notifications are published through it, where they also reach
+ * subscribers of the device's type, zones and, for alarms, severity.</p>
+ */
 public abstract class BaseDevice implements Device {
-    protected int failureCount = 0;
-    protected DeviceStatus deviceStatus = DeviceStatus.AWAY; // Device is away by default
+    private static final int DEFAULT_BATTERY = 80;
+    private static final int DEFAULT_SIGNAL = -70;
+
     protected HardwareLink hardwareLink;
     protected Logger logger;
     protected final UUID Id;
+    // Device is away by default
+    private final AtomicLong state = new AtomicLong(PackedDeviceState.pack(DeviceStatus.AWAY, 0, DEFAULT_BATTERY, DEFAULT_SIGNAL, 0));
+    private final PingCircuitBreaker pingBreaker = new PingCircuitBreaker();
+    private volatile NotificationBroker notifications = NotificationBroker.getDefault();
 
     public BaseDevice(UUID Id, Logger logger, HardwareLink hardwareLink) {
         this.Id = Id;
@@ -21,38 +53,243 @@ public abstract class BaseDevice implements Device {
         this.hardwareLink = hardwareLink;
     }
 
+    @Override
+    public void addSubscriber(Subscriber s) {
+        notifications.subscribe(NotificationTopic.device(Id), s);
+    }
+
+    @Override
+    public void removeSubscriber(Subscriber s) {
+        if (!notifications.unsubscribe(NotificationTopic.device(Id), s)) {
+            logger.log(s + " was tried to be removed but it was not a subscriber", LogLevel.INFO);
+        }
+    }
+
+    @Override
+    public void updateSubscriber(Subscriber s, String updateMessage) {
+        s.receiveUpdate(updateMessage);
+        logger.log(updateMessage, LogLevel.INFO);
+    }
+
+    @Override
+    public void updateAllSubscribers(String updateMessage) {
+        updateAllSubscribers(updateMessage, null);
+    }
+
+    @Override
+    public void updateAllSubscribers(String updateMessage, AlarmSeverity severity) {
+        notifications.publish(this, severity, updateMessage);
+        logger.log(updateMessage, LogLevel.INFO);
+    }
+
+    /**
+     * @return Everyone a notification from this device reaches, whichever topic they subscribed to.
+     */
+    @Override
+    public List<Subscriber> getSubscribers() {
+        return notifications.recipients(this, null);
+    }
+
+    @Override
+    public synchronized void setNotifications(NotificationBroker broker) {
+        NotificationBroker previous = notifications;
+        if (previous == broker) {
+            return;
+        }
+        NotificationTopic own = NotificationTopic.device(Id);
+        for (Subscriber s : previous.subscribers(own)) {
+            previous.unsubscribe(own, s);
+            broker.subscribe(own, s);
+        }
+        notifications = broker;
+    }
+
     @Override
     public void resetFailureCount() {
-        failureCount = 0;
+        pingBreaker.reset();
+        update(word -> PackedDeviceState.withFailures(word, 0));
     }
 
     @Override
     public void incrementFailureCount() {
-        failureCount++;
+        update(word -> PackedDeviceState.withFailures(word, PackedDeviceState.failures(word) + 1));
+    }
+
+    @Override
+    public DeviceSnapshot recordFailure(int recoveryAt, int decommissionAt) {
+        return PackedDeviceState.snapshot(update(word -> {
+            int failures = PackedDeviceState.failures(word) + 1;
+            long next = PackedDeviceState.withFailures(word, failures);
+            if (failures == recoveryAt) {
+                next = PackedDeviceState.withStatus(next, DeviceStatus.RECOVERY_MODE);
+            } else if (failures == decommissionAt) {
+                next = PackedDeviceState.withStatus(next, DeviceStatus.DECOMMISSIONED);
+            }
+            return next;
+        }));
     }
 
     @Override
     public int getFailureCount() {
-        return failureCount;
+        return PackedDeviceState.failures(state.get());
     }
 
     @Override
     public DeviceStatus getDeviceStatus() {
-        return deviceStatus;
+        return PackedDeviceState.status(state.get());
     }
 
     @Override
     public void setDeviceStatus(DeviceStatus deviceStatus) {
-        this.deviceStatus = deviceStatus;
+        update(word -> PackedDeviceState.withStatus(word, deviceStatus));
+    }
+
+    @Override
+    public int getBatteryLife() {
+        return PackedDeviceState.battery(state.get());
+    }
+
+    @Override
+    public void setBatteryLife(int batteryLife) {
+        if (batteryLife >= 0 && batteryLife <= 100) {
+            update(word -> PackedDeviceState.withBattery(word, batteryLife));
+        } else {
+            System.err.println("Battery level must be within range 0-100 inclusive.");
+        }
+    }
+
+    @Override
+    public boolean isBatteryFull() {
+        return getBatteryLife() == 100;
+    }
+
+    @Override
+    public boolean isBatteryEmpty() {
+        return getBatteryLife() == 0;
+    }
+
+    @Override
+    public int getSignalStrength() {
+        return PackedDeviceState.signal(state.get());
+    }
+
+    @Override
+    public void setSignalStrength(int signalStrength) {
+        if (signalStrength > 0) {
+            System.err.println("Signal strength must be greater than zero for a "
+                    + getDeviceType().name().toLowerCase(Locale.ROOT).replace('_', ' ') + ".");
+        }
+        // Readings beyond what the packed field holds are pinned to its range
+        int clamped = Math.max(PackedDeviceState.MIN_SIGNAL, Math.min(PackedDeviceState.MAX_SIGNAL, signalStrength));
+        update(word -> PackedDeviceState.withSignal(word, clamped));
+    }
+
+    @Override
+    public long getStateVersion() {
+        return PackedDeviceState.version(state.get());
+    }
+
+    @Override
+    public DeviceSnapshot getSnapshot() {
+        return PackedDeviceState.snapshot(state.get());
+    }
+
+    /**
+     * Applies a change to the packed state with compare-and-set, retrying if another thread got
+     * there first. A change that leaves the state as it was does not bump the version.
+     *
+     * @return The state after the change.
+     */
+    private long update(LongUnaryOperator change) {
+        while (true) {
+            long current = state.get();
+            long changed = change.applyAsLong(current);
+            if (changed == current) {
+                return current;
+            }
+            long next = PackedDeviceState.bump(changed);
+            if (state.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    @Override
+    public HardwareLink getHardwareLink() {
+        return hardwareLink;
     }
 
     @Override
     public boolean ping() {
-        if (hardwareLink.isDeviceResponsive(this)) {
-            logger.log("Motion Device (" + this.getId() + ") was successfully pinged", LogLevel.INFO);
+        return pingAsync().join().isResponsive();
+    }
+
+    @Override
+    public CompletableFuture<PingResult> pingAsync() {
+        return ping(hardwareLink::pingAsync);
+    }
+
+    @Override
+    public CompletableFuture<PingResult> probeAsync() {
+        return ping(hardwareLink::probeAsync);
+    }
+
+    private CompletableFuture<PingResult> ping(Function<Device, CompletableFuture<PingResult>> send) {
+        if (!tryAcquirePing()) {
+            return CompletableFuture.completedFuture(PingResult.skipped(Id));
+        }
+        CompletableFuture<PingResult> ping;
+        try {
+            ping = send.apply(this);
+        } catch (RuntimeException e) {
+            ping = CompletableFuture.failedFuture(e);
+        }
+        return ping.exceptionally(e -> new PingResult(Id, false, 0)).thenApply(result -> {
+            recordPing(result.isResponsive());
+            return result;
+        });
+    }
+
+    @Override
+    public void performSelfCheck() {
+        if (tryAcquirePing()) {
+            performSelfCheck(hardwareLink.selfCheck(this));
+        }
+    }
+
+    @Override
+    public CircuitState getCircuitState() {
+        return pingBreaker.getState();
+    }
+
+    @Override
+    public boolean tryAcquirePing() {
+        return pingBreaker.tryAcquire(System.nanoTime());
+    }
+
+    @Override
+    public void recordPingOutcome(boolean responsive) {
+        if (responsive) {
+            if (pingBreaker.recordSuccess()) {
+                logger.log(getDeviceType() + " (" + Id + ") is answering again; pings resumed", LogLevel.INFO);
+            }
+        } else if (pingBreaker.recordFailure(System.nanoTime())) {
+            logger.log(getDeviceType() + " (" + Id + ") is not answering; pings suspended for "
+                    + pingBreaker.getBackoffNanos() / 1_000_000 + "ms", LogLevel.ERROR);
+        }
+    }
+
+    /**
+     * Logs the outcome of a ping, whether made directly or as part of a batched poll, and feeds it
+     * to the circuit breaker. Single failures are warnings; the breaker opening is the error.
+     */
+    protected boolean recordPing(boolean responsive) {
+        recordPingOutcome(responsive);
+        if (responsive) {
+            logger.log(getDeviceType() + " (" + this.getId() + ") was successfully pinged", LogLevel.INFO);
             return true;
         } else {
-            logger.log("Could not ping Motion Device (" + this.getId() + ") successfully", LogLevel.ERROR);
+            logger.log("Could not ping " + getDeviceType() + " (" + this.getId() + ") successfully", LogLevel.WARNING);
             return false;
         }
     }
@@ -1,20 +1,14 @@
 package devices.impl;
 
 import devices.api.HardwareLink;
+import devices.model.DeviceReading;
 import devices.model.DeviceType;
 import infrastructure.logger.LogLevel;
 import infrastructure.logger.Logger;
-import infrastructure.subscribers.Subscriber;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.UUID;
 
 public class GlassBreakSensorDevice extends BaseDevice {
-    private final List<Subscriber> subscriberList = new ArrayList<>();
-    private int signalStrength = -70;
-    private int batteryLife = 80;
-
     public GlassBreakSensorDevice(UUID id, Logger logger, HardwareLink hardwareLink) {
         super(id, logger, hardwareLink);
     }
@@ -23,54 +17,6 @@ public class GlassBreakSensorDevice extends BaseDevice {
         this(UUID.randomUUID(), logger, hardwareLink);
     }
 
-    @Override
-    public void addSubscriber(Subscriber s) {
-        subscriberList.add(s);
-    }
-
-    @Override
-    public void removeSubscriber(Subscriber s) {
-        if (subscriberList.contains(s)) {
-            subscriberList.remove(s);
-        } else {
-            logger.log(s + " was tried to be removed but it was not a subscriber", LogLevel.INFO);
-        }
-    }
-
-    @Override
-    public void updateSubscriber(Subscriber s, String updateMessage) {
-        s.receiveUpdate(updateMessage);
-        logger.log(updateMessage, LogLevel.INFO);
-    }
-
-    @Override
-    public void updateAllSubscribers(String updateMessage) {
-        for (Subscriber s : subscriberList) {
-            s.receiveUpdate(updateMessage);
-        }
-
-        logger.log(updateMessage, LogLevel.INFO);
-    }
-
-    @Override
-    public void setBatteryLife(int batteryLife) {
-        if (batteryLife >=0 && batteryLife <= 100) {
-            this.batteryLife = batteryLife;
-        } else {
-            System.err.println("Battery level must be within range 0-100 inclusive.");
-        }
-    }
-
-    @Override
-    public boolean isBatteryFull() {
-        return batteryLife == 100;
-    }
-
-    @Override
-    public boolean isBatteryEmpty() {
-        return batteryLife == 0;
-    }
-
     @Override
     public UUID getId() {
         return Id;
@@ -82,34 +28,16 @@ public class GlassBreakSensorDevice extends BaseDevice {
     }
 
     @Override
-    public int getSignalStrength() {
-        return signalStrength;
-    }
-
-    @Override
-    public void setSignalStrength(int signalStrength) {
-        if (signalStrength > 0) {
-            System.err.println("Signal strength must be greater than zero for a glass break sensor device.");
-        }
-        this.signalStrength = signalStrength;
-    }
-
-    @Override
-    public int getBatteryLife() {
-        return batteryLife;
-    }
-
-    @Override
-    public void performSelfCheck() {
-        if (!ping()) {
+    public void performSelfCheck(DeviceReading reading) {
+        if (!recordPing(reading.isResponsive())) {
             logger.log("CRITICAL: PING to Glass Break Sensor Device (" + Id + ") Failed", LogLevel.CRITICAL);
         }
 
-        if (signalStrength < -100) {
+        if (reading.getSignalStrength() < -100) {
             logger.log("CRITICAL: Signal strength is very weak on Glass Break Sensor Device (" + Id + ")", LogLevel.CRITICAL);
         }
 
-        if (batteryLife <= 10) {
+        if (reading.getBatteryLife() <= 10) {
             logger.log("CRITICAL: Battery less than 10% on Glass Break Sensor Device (" + Id + ")", LogLevel.CRITICAL);
         }
     }
@@ -117,7 +45,7 @@ public class GlassBreakSensorDevice extends BaseDevice {
     @Override
     public String toString() {
         return "GlassBreakSensorDevice{" +
-                "subscriberList=" + subscriberList +
+                "id=" + Id +
                 '}';
     }
 }
@@ -0,0 +1,91 @@
+package devices.impl;
+
+import devices.model.DeviceSnapshot;
+import devices.model.DeviceStatus;
+
+/**
+ * Bit layout of a device's mutable state in one 64-bit word, so every transition is a single
+ * compare-and-set and every read is one volatile load. From the low bits up:
+ * <pre>
+ * version   31 bits  bumped by every change, wraps around
+ * status     3 bits  DeviceStatus ordinal
+ * failures  13 bits  saturates at 8191
+ * battery    7 bits  0-100
+ * signal    10 bits  signed dBm, -512 to 511
+ * </pre>
+ * Signal sits in the top bits so an arithmetic shift sign-extends it.
+ */
+final class PackedDeviceState {
+    static final int MAX_FAILURES = (1 << 13) - 1;
+    static final int MIN_SIGNAL = -(1 << 9);
+    static final int MAX_SIGNAL = (1 << 9) - 1;
+
+    private static final DeviceStatus[] STATUSES = DeviceStatus.values();
+    private static final long VERSION_MASK = (1L << 31) - 1;
+    private static final int STATUS_SHIFT = 31;
+    private static final long STATUS_MASK = (1L << 3) - 1;
+    private static final int FAILURES_SHIFT = 34;
+    private static final long FAILURES_MASK = MAX_FAILURES;
+    private static final int BATTERY_SHIFT = 47;
+    private static final long BATTERY_MASK = (1L << 7) - 1;
+    private static final int SIGNAL_SHIFT = 54;
+    private static final long SIGNAL_MASK = (1L << 10) - 1;
+
+    private PackedDeviceState() {
+    }
+
+    static long pack(DeviceStatus status, int failures, int battery, int signal, long version) {
+        return (version & VERSION_MASK)
+                | ((long) status.ordinal() << STATUS_SHIFT)
+                | ((long) Math.min(failures, MAX_FAILURES) << FAILURES_SHIFT)
+                | (((long) battery & BATTERY_MASK) << BATTERY_SHIFT)
+                | (((long) signal & SIGNAL_MASK) << SIGNAL_SHIFT);
+    }
+
+    static long version(long word) {
+        return word & VERSION_MASK;
+    }
+
+    static DeviceStatus status(long word) {
+        return STATUSES[(int) ((word >>> STATUS_SHIFT) & STATUS_MASK)];
+    }
+
+    static int failures(long word) {
+        return (int) ((word >>> FAILURES_SHIFT) & FAILURES_MASK);
+    }
+
+    static int battery(long word) {
+        return (int) ((word >>> BATTERY_SHIFT) & BATTERY_MASK);
+    }
+
+    static int signal(long word) {
+        return (int) (word >> SIGNAL_SHIFT);
+    }
+
+    static DeviceSnapshot snapshot(long word) {
+        return new DeviceSnapshot(status(word), failures(word), battery(word), signal(word), version(word));
+    }
+
+    /**
+     * @return The word with the version bumped, wrapping within its bits.
+     */
+    static long bump(long word) {
+        return (word & ~VERSION_MASK) | ((word + 1) & VERSION_MASK);
+    }
+
+    static long withStatus(long word, DeviceStatus status) {
+        return (word & ~(STATUS_MASK << STATUS_SHIFT)) | ((long) status.ordinal() << STATUS_SHIFT);
+    }
+
+    static long withFailures(long word, int failures) {
+        return (word & ~(FAILURES_MASK << FAILURES_SHIFT)) | ((long) Math.min(failures, MAX_FAILURES) << FAILURES_SHIFT);
+    }
+
+    static long withBattery(long word, int battery) {
+        return (word & ~(BATTERY_MASK << BATTERY_SHIFT)) | (((long) battery & BATTERY_MASK) << BATTERY_SHIFT);
+    }
+
+    static long withSignal(long word, int signal) {
+        return (word & ~(SIGNAL_MASK << SIGNAL_SHIFT)) | (((long) signal & SIGNAL_MASK) << SIGNAL_SHIFT);
+    }
+}
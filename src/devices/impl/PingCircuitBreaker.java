@@ -0,0 +1,129 @@
+package devices.impl;
+
+import devices.model.CircuitState;
+
+/**
+ * Per-device circuit breaker for pings. After {@link #FAILURE_THRESHOLD} failed pings in a row
+ * the circuit opens and pings are skipped until a backoff runs out; then a single probe is let
+ * through. A successful probe closes the circuit, a failed one opens it again with the backoff
+ * doubled, up to a maximum.
+ *
+ * <p>Skipping is the hot path: while the circuit is open and the backoff has not run out,
+ * {@link #tryAcquire(long)} answers from two volatile reads without locking. Transitions are
+ * synchronized.</p>
+ *
+ * <p>The backoff defaults to 5 seconds doubling up to 5 minutes, and can be changed with
+ * {@code -Dsentinel.ping.backoffMs} and {@code -Dsentinel.ping.maxBackoffMs}.</p>
+ */
+public final class PingCircuitBreaker {
+    /**
+     * Consecutive failures that open the circuit. Matches the failure count at which the hub
+     * puts a device into recovery mode.
+     */
+    public static final int FAILURE_THRESHOLD = 3;
+    private static final long BASE_BACKOFF_NANOS = Long.getLong("sentinel.ping.backoffMs", 5_000) * 1_000_000;
+    private static final long MAX_BACKOFF_NANOS = Long.getLong("sentinel.ping.maxBackoffMs", 300_000) * 1_000_000;
+
+    private final int failureThreshold;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+    private volatile CircuitState state = CircuitState.CLOSED;
+    private volatile long retryAtNanos; // OPEN: when the next probe may go; HALF_OPEN: when a lost probe is given up
+    private int consecutiveFailures;
+    private long backoffNanos;
+
+    public PingCircuitBreaker() {
+        this(FAILURE_THRESHOLD, BASE_BACKOFF_NANOS, MAX_BACKOFF_NANOS);
+    }
+
+    public PingCircuitBreaker(int failureThreshold, long baseBackoffNanos, long maxBackoffNanos) {
+        if (failureThreshold <= 0 || baseBackoffNanos <= 0 || maxBackoffNanos < baseBackoffNanos) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings");
+        }
+        this.failureThreshold = failureThreshold;
+        this.baseBackoffNanos = baseBackoffNanos;
+        this.maxBackoffNanos = maxBackoffNanos;
+        this.backoffNanos = baseBackoffNanos;
+    }
+
+    /**
+     * Asks whether a ping may be sent now. A true answer in the open state claims the probe, and
+     * the caller must report its outcome.
+     */
+    public boolean tryAcquire(long nowNanos) {
+        CircuitState current = state;
+        if (current == CircuitState.CLOSED) {
+            return true;
+        }
+        if (nowNanos - retryAtNanos < 0) {
+            return false;
+        }
+        synchronized (this) {
+            if (state == CircuitState.CLOSED) {
+                return true;
+            }
+            if (nowNanos - retryAtNanos < 0) {
+                return false;
+            }
+            // Open with the backoff run out, or a probe that never reported back
+            state = CircuitState.HALF_OPEN;
+            retryAtNanos = nowNanos + backoffNanos;
+            return true;
+        }
+    }
+
+    /**
+     * @return True if this closed a circuit that was open or half open.
+     */
+    public synchronized boolean recordSuccess() {
+        boolean wasOpen = state != CircuitState.CLOSED;
+        close();
+        return wasOpen;
+    }
+
+    /**
+     * @return True if this opened the circuit, either by reaching the threshold or by a failed probe.
+     */
+    public synchronized boolean recordFailure(long nowNanos) {
+        switch (state) {
+            case CLOSED:
+                if (++consecutiveFailures < failureThreshold) {
+                    return false;
+                }
+                backoffNanos = baseBackoffNanos;
+                break;
+            case HALF_OPEN:
+                backoffNanos = Math.min(backoffNanos * 2, maxBackoffNanos);
+                break;
+            default:
+                return false; // Already open; an unsolicited failure does not move the deadline
+        }
+        state = CircuitState.OPEN;
+        retryAtNanos = nowNanos + backoffNanos;
+        return true;
+    }
+
+    /**
+     * Closes the circuit and forgets the failures, e.g. after the device was reset.
+     */
+    public synchronized void reset() {
+        close();
+    }
+
+    private void close() {
+        state = CircuitState.CLOSED;
+        consecutiveFailures = 0;
+        backoffNanos = baseBackoffNanos;
+    }
+
+    public CircuitState getState() {
+        return state;
+    }
+
+    /**
+     * @return The backoff the circuit was last opened with.
+     */
+    public synchronized long getBackoffNanos() {
+        return backoffNanos;
+    }
+}
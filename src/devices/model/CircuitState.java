@@ -0,0 +1,10 @@
+package devices.model;
+
+/**
+ * State of a device's ping circuit breaker.
+ */
+public enum CircuitState {
+    CLOSED,    // Pinged normally
+    OPEN,      // Failed repeatedly; pings are skipped until the backoff runs out
+    HALF_OPEN  // One probe ping is in flight
+}
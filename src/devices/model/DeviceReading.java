@@ -0,0 +1,37 @@
+package devices.model;
+
+import java.util.UUID;
+
+/**
+ * Data transfer object. One device's state as returned by a hardware link poll: whether it
+ * answered, and the battery and signal it reported.
+ */
+public class DeviceReading {
+    private final UUID deviceId;
+    private final boolean responsive;
+    private final int batteryLife;
+    private final int signalStrength;
+
+    public DeviceReading(UUID deviceId, boolean responsive, int batteryLife, int signalStrength) {
+        this.deviceId = deviceId;
+        this.responsive = responsive;
+        this.batteryLife = batteryLife;
+        this.signalStrength = signalStrength;
+    }
+
+    public UUID getDeviceId() {
+        return deviceId;
+    }
+
+    public boolean isResponsive() {
+        return responsive;
+    }
+
+    public int getBatteryLife() {
+        return batteryLife;
+    }
+
+    public int getSignalStrength() {
+        return signalStrength;
+    }
+}
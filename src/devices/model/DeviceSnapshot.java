@@ -0,0 +1,52 @@
+package devices.model;
+
+/**
+ * Data transfer object. A consistent view of a device's mutable state, all read at one instant:
+ * the fields can never come from different updates.
+ */
+public class DeviceSnapshot {
+    private final DeviceStatus status;
+    private final int failureCount;
+    private final int batteryLife;
+    private final int signalStrength;
+    private final long version;
+
+    public DeviceSnapshot(DeviceStatus status, int failureCount, int batteryLife, int signalStrength, long version) {
+        this.status = status;
+        this.failureCount = failureCount;
+        this.batteryLife = batteryLife;
+        this.signalStrength = signalStrength;
+        this.version = version;
+    }
+
+    public DeviceStatus getStatus() {
+        return status;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public int getBatteryLife() {
+        return batteryLife;
+    }
+
+    public int getSignalStrength() {
+        return signalStrength;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceSnapshot{" +
+                "status=" + status +
+                ", failureCount=" + failureCount +
+                ", batteryLife=" + batteryLife +
+                ", signalStrength=" + signalStrength +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,48 @@
+package devices.model;
+
+import java.util.UUID;
+
+/**
+ * Data transfer object. The outcome of one ping: whether the device answered and how long the
+ * round trip took, or that the ping was skipped because the device's circuit breaker is open.
+ */
+public class PingResult {
+    private final UUID deviceId;
+    private final boolean responsive;
+    private final long latencyNanos;
+    private final boolean skipped;
+
+    public PingResult(UUID deviceId, boolean responsive, long latencyNanos) {
+        this(deviceId, responsive, latencyNanos, false);
+    }
+
+    private PingResult(UUID deviceId, boolean responsive, long latencyNanos, boolean skipped) {
+        this.deviceId = deviceId;
+        this.responsive = responsive;
+        this.latencyNanos = latencyNanos;
+        this.skipped = skipped;
+    }
+
+    /**
+     * @return The result of a ping that was not sent because the device's circuit is open.
+     */
+    public static PingResult skipped(UUID deviceId) {
+        return new PingResult(deviceId, false, 0, true);
+    }
+
+    public UUID getDeviceId() {
+        return deviceId;
+    }
+
+    public boolean isResponsive() {
+        return responsive;
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public boolean isSkipped() {
+        return skipped;
+    }
+}
@@ -0,0 +1,190 @@
+package frontend;
+
+import alarm.AlarmRollupResolution;
+import alarm.AlarmSeverity;
+import devices.model.DeviceType;
+import service.alarm.AlarmService;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Alarm charts drawn from the rollup tables, so a refresh reads a few dozen bucket rows however
+ * long the alarm history is.
+ */
+public class AlarmHistoryPanel extends JPanel {
+    private static final int HOURS_SHOWN = 24;
+    private static final int DAYS_SHOWN = 14;
+    private static final int BREAKDOWN_DAYS = 7;
+    private static final int REFRESH_MS = 15_000;
+
+    private final AlarmService alarmService;
+    private final BarChart hourlyChart = new BarChart("ALARMS PER HOUR (24 H)");
+    private final BarChart dailyChart = new BarChart("ALARMS PER DAY (14 D)");
+    private final BarChart severityChart = new BarChart("BY SEVERITY (7 D)");
+    private final BarChart typeChart = new BarChart("BY DEVICE TYPE (7 D)");
+
+    public AlarmHistoryPanel(AlarmService alarmService) {
+        this.alarmService = alarmService;
+        setLayout(new BorderLayout());
+        setBackground(new Color(30, 31, 34));
+        setBorder(new EmptyBorder(40, 40, 40, 40));
+
+        JPanel header = new JPanel(new BorderLayout());
+        header.setOpaque(false);
+        header.setBorder(new EmptyBorder(0, 0, 20, 0));
+
+        JLabel title = new JLabel("ALARM HISTORY");
+        title.setFont(new Font("Inter", Font.BOLD, 28));
+        title.setForeground(Color.WHITE);
+
+        JButton refreshBtn = new JButton("REFRESH");
+        refreshBtn.setFont(new Font("Inter", Font.BOLD, 12));
+        refreshBtn.setFocusPainted(false);
+        refreshBtn.addActionListener(e -> refresh());
+
+        header.add(title, BorderLayout.WEST);
+        header.add(refreshBtn, BorderLayout.EAST);
+        add(header, BorderLayout.NORTH);
+
+        JPanel charts = new JPanel(new GridLayout(2, 2, 20, 20));
+        charts.setOpaque(false);
+        charts.add(hourlyChart);
+        charts.add(dailyChart);
+        charts.add(severityChart);
+        charts.add(typeChart);
+        add(charts, BorderLayout.CENTER);
+
+        new Timer(REFRESH_MS, e -> refresh()).start();
+        refresh();
+    }
+
+    /**
+     * Reloads the charts off the EDT.
+     */
+    public void refresh() {
+        new SwingWorker<List<ChartData>, Void>() {
+            @Override
+            protected List<ChartData> doInBackground() {
+                LocalDateTime now = LocalDateTime.now();
+                LocalDateTime hoursFrom = now.minusHours(HOURS_SHOWN - 1);
+                LocalDateTime daysFrom = now.minusDays(DAYS_SHOWN - 1);
+                LocalDateTime breakdownFrom = now.minusDays(BREAKDOWN_DAYS - 1);
+
+                List<ChartData> data = new ArrayList<>();
+                data.add(ChartData.of(alarmService.countsPerBucket(AlarmRollupResolution.HOUR, hoursFrom, now),
+                        DateTimeFormatter.ofPattern("HH")));
+                data.add(ChartData.of(alarmService.countsPerBucket(AlarmRollupResolution.DAY, daysFrom, now),
+                        DateTimeFormatter.ofPattern("MM-dd")));
+
+                Map<AlarmSeverity, Long> bySeverity = alarmService.countsBySeverity(AlarmRollupResolution.DAY, breakdownFrom, now);
+                ChartData severity = new ChartData();
+                bySeverity.forEach((s, count) -> severity.add(s.toString(), count));
+                data.add(severity);
+
+                Map<DeviceType, Long> byType = alarmService.countsByDeviceType(AlarmRollupResolution.DAY, breakdownFrom, now);
+                ChartData type = new ChartData();
+                byType.forEach((t, count) -> type.add(t.toString().replace("_DEVICE", "").replace('_', ' '), count));
+                data.add(type);
+                return data;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    List<ChartData> data = get();
+                    hourlyChart.setData(data.get(0));
+                    dailyChart.setData(data.get(1));
+                    severityChart.setData(data.get(2));
+                    typeChart.setData(data.get(3));
+                } catch (Exception e) {
+                    System.err.println("Alarm history refresh failed: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private static final class ChartData {
+        final List<String> labels = new ArrayList<>();
+        final List<Long> values = new ArrayList<>();
+
+        static ChartData of(SortedMap<LocalDateTime, Long> buckets, DateTimeFormatter labelFormat) {
+            ChartData data = new ChartData();
+            buckets.forEach((bucket, count) -> data.add(bucket.format(labelFormat), count));
+            return data;
+        }
+
+        void add(String label, long value) {
+            labels.add(label);
+            values.add(value);
+        }
+    }
+
+    /**
+     * A titled vertical bar chart in the dashboard's card style.
+     */
+    private static final class BarChart extends JPanel {
+        private final String title;
+        private ChartData data = new ChartData();
+
+        BarChart(String title) {
+            this.title = title;
+            setBackground(new Color(25, 26, 29));
+            setBorder(BorderFactory.createLineBorder(new Color(45, 48, 51)));
+        }
+
+        void setData(ChartData data) {
+            this.data = data;
+            repaint();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            Graphics2D g2 = (Graphics2D) g;
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            g2.setColor(Color.GRAY);
+            g2.setFont(new Font("Inter", Font.PLAIN, 12));
+            g2.drawString(title, 15, 22);
+
+            int bars = data.values.size();
+            if (bars == 0) {
+                return;
+            }
+            long max = 1;
+            long total = 0;
+            for (long v : data.values) {
+                max = Math.max(max, v);
+                total += v;
+            }
+            g2.drawString("TOTAL " + total, getWidth() - 15 - g2.getFontMetrics().stringWidth("TOTAL " + total), 22);
+
+            int left = 15, right = getWidth() - 15, top = 40, bottom = getHeight() - 25;
+            int slot = Math.max(1, (right - left) / bars);
+            int barWidth = Math.max(1, slot - 4);
+            int labelEvery = Math.max(1, (int) Math.ceil(bars * 40.0 / Math.max(1, right - left)));
+            g2.setFont(new Font("Inter", Font.PLAIN, 10));
+            FontMetrics fm = g2.getFontMetrics();
+            for (int i = 0; i < bars; i++) {
+                long v = data.values.get(i);
+                int x = left + i * slot;
+                int h = (int) ((bottom - top) * v / max);
+                g2.setColor(new Color(71, 131, 192));
+                g2.fillRect(x + 2, bottom - h, barWidth, h);
+                if (i % labelEvery == 0) {
+                    String label = data.labels.get(i);
+                    g2.setColor(Color.GRAY);
+                    g2.drawString(label, x + 2 + (barWidth - fm.stringWidth(label)) / 2, bottom + 15);
+                }
+            }
+        }
+    }
+}
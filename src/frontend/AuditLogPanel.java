@@ -1,6 +1,10 @@
 package frontend;
 
 import infrastructure.logger.LogListener;
+import infrastructure.logger.search.AuditCursor;
+import infrastructure.logger.search.AuditLogSearch;
+import infrastructure.logger.search.AuditQuery;
+import infrastructure.logger.search.AuditSearchPage;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
@@ -8,10 +12,20 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.file.Path;
 
 public class AuditLogPanel extends JPanel implements LogListener {
     private final JTextArea logArea;
-    private final String logFilePath = "logs.txt";
+    private final Path logFilePath;
+    private final AuditLogSearch search;
+
+    // Search state; EDT only. Live updates are held back while results are shown.
+    private final JTextField searchField = new JTextField();
+    private final JLabel searchStatus = new JLabel(" ");
+    private final JButton moreBtn = new JButton("MORE");
+    private AuditQuery currentQuery;
+    private AuditCursor nextCursor;
+    private boolean showingResults;
 
     // Buffer for incoming log lines; flushed to the JTextArea on the EDT periodically
     private final StringBuilder pendingBuffer = new StringBuilder();
@@ -24,7 +38,15 @@ public class AuditLogPanel extends JPanel implements LogListener {
     // Maximum characters appended to the JTextArea per flush to avoid long EDT work
     private static final int MAX_APPEND_CHARS_PER_FLUSH = 8 * 1024; // 8 KB
 
-    public AuditLogPanel() {
+    private static final int SEARCH_PAGE_SIZE = 200;
+
+    /**
+     * @param logFilePath The archiver's active file; rotation keeps it small, so tailing it is cheap.
+     * @param search Indexed search over the active file and every archive.
+     */
+    public AuditLogPanel(Path logFilePath, AuditLogSearch search) {
+        this.logFilePath = logFilePath;
+        this.search = search;
         setLayout(new BorderLayout());
         setBackground(new Color(30, 31, 34));
         setBorder(new EmptyBorder(30, 30, 30, 30));
@@ -43,6 +65,7 @@ public class AuditLogPanel extends JPanel implements LogListener {
 
         header.add(title, BorderLayout.WEST);
         header.add(refreshBtn, BorderLayout.EAST);
+        header.add(createSearchBar(), BorderLayout.SOUTH);
         header.setBorder(new EmptyBorder(0, 0, 20, 0));
         add(header, BorderLayout.NORTH);
 
@@ -68,6 +91,113 @@ public class AuditLogPanel extends JPanel implements LogListener {
         loadLogFile();
     }
 
+    private JPanel createSearchBar() {
+        JPanel bar = new JPanel(new BorderLayout(10, 0));
+        bar.setOpaque(false);
+        bar.setBorder(new EmptyBorder(15, 0, 0, 0));
+
+        searchField.setFont(new Font("Monospaced", Font.PLAIN, 13));
+        searchField.setToolTipText("Words, level:CRITICAL, device:<uuid>, from:2026-10-13, to:2026-10-14");
+        searchField.addActionListener(e -> runSearch());
+
+        JButton searchBtn = new JButton("SEARCH");
+        styleButton(searchBtn);
+        searchBtn.addActionListener(e -> runSearch());
+
+        styleButton(moreBtn);
+        moreBtn.setEnabled(false);
+        moreBtn.addActionListener(e -> fetchPage(false));
+
+        JButton clearBtn = new JButton("CLEAR");
+        styleButton(clearBtn);
+        clearBtn.addActionListener(e -> clearSearch());
+
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 0));
+        buttons.setOpaque(false);
+        buttons.add(searchBtn);
+        buttons.add(moreBtn);
+        buttons.add(clearBtn);
+
+        searchStatus.setForeground(Color.GRAY);
+        searchStatus.setFont(new Font("Inter", Font.PLAIN, 11));
+
+        bar.add(searchField, BorderLayout.CENTER);
+        bar.add(buttons, BorderLayout.EAST);
+        bar.add(searchStatus, BorderLayout.SOUTH);
+        return bar;
+    }
+
+    private void runSearch() {
+        String text = searchField.getText();
+        if (text.isBlank()) {
+            clearSearch();
+            return;
+        }
+        try {
+            currentQuery = AuditQuery.parse(text, SEARCH_PAGE_SIZE);
+        } catch (IllegalArgumentException e) {
+            searchStatus.setText(e.getMessage());
+            return;
+        }
+        nextCursor = null;
+        showingResults = true;
+        logArea.setText("");
+        fetchPage(true);
+    }
+
+    /**
+     * Runs one page of the current query off the EDT and appends the results, newest first.
+     */
+    private void fetchPage(boolean first) {
+        AuditQuery query = currentQuery;
+        AuditCursor after = nextCursor;
+        if (query == null || (!first && after == null)) {
+            return;
+        }
+        moreBtn.setEnabled(false);
+        searchStatus.setText("Searching...");
+
+        new Thread(() -> {
+            try {
+                AuditSearchPage page = search.search(query, after);
+                StringBuilder content = new StringBuilder();
+                for (String entry : page.getEntries()) {
+                    content.append(entry).append('\n');
+                }
+                SwingUtilities.invokeLater(() -> {
+                    if (query != currentQuery) {
+                        return; // Superseded by a newer search
+                    }
+                    logArea.append(content.toString());
+                    nextCursor = page.getNext();
+                    moreBtn.setEnabled(page.hasMore());
+                    int shown = logArea.getLineCount() - 1;
+                    searchStatus.setText(String.format("%d entries shown%s (%d segments, %.1f ms)",
+                            shown, page.hasMore() ? ", more available" : "",
+                            page.getSegmentsSearched(), page.getElapsedMicros() / 1000.0));
+                    if (first) {
+                        logArea.setCaretPosition(0);
+                    }
+                });
+            } catch (IOException e) {
+                SwingUtilities.invokeLater(() -> searchStatus.setText("Search failed: " + e.getMessage()));
+            }
+        }, "audit-log-search").start();
+    }
+
+    private void clearSearch() {
+        currentQuery = null;
+        nextCursor = null;
+        showingResults = false;
+        moreBtn.setEnabled(false);
+        searchField.setText("");
+        searchStatus.setText(" ");
+        synchronized (bufferLock) {
+            pendingBuffer.setLength(0);
+        }
+        loadLogFile();
+    }
+
     private void styleButton(JButton btn) {
         btn.setFont(new Font("Inter", Font.BOLD, 11));
         btn.setBackground(new Color(45, 48, 51));
@@ -80,7 +210,7 @@ public class AuditLogPanel extends JPanel implements LogListener {
     }
 
     /**
-     * Reads the tail of logs.txt and populates the text area.
+     * Reads the tail of the active log file and populates the text area.
      * Reading is done on a background thread; only a limited tail (MAX_TAIL_BYTES) is loaded.
      */
     public void loadLogFile() {
@@ -89,7 +219,7 @@ public class AuditLogPanel extends JPanel implements LogListener {
         // Use a background thread for File I/O to keep Swing responsive
         new Thread(() -> {
             try {
-                java.io.File f = new java.io.File(logFilePath);
+                java.io.File f = logFilePath.toFile();
                 if (!f.exists() || f.length() == 0) {
                     SwingUtilities.invokeLater(() -> logArea.append("(no logs present)\n"));
                     return;
@@ -118,7 +248,7 @@ public class AuditLogPanel extends JPanel implements LogListener {
                     });
                 }
             } catch (IOException e) {
-                SwingUtilities.invokeLater(() -> logArea.append("ERROR: Could not read logs.txt\n"));
+                SwingUtilities.invokeLater(() -> logArea.append("ERROR: Could not read " + logFilePath.getFileName() + "\n"));
             }
         }, "audit-log-loader").start();
     }
@@ -148,6 +278,9 @@ public class AuditLogPanel extends JPanel implements LogListener {
      * Flushes the buffered logs to the JTextArea. Runs on the EDT via Swing Timer.
      */
     private void flushBufferToTextArea() {
+        if (showingResults) {
+            return;
+        }
         String toAppend = null;
         synchronized (bufferLock) {
             if (pendingBuffer.length() > 0) {
@@ -1,22 +1,41 @@
 package frontend;
 
+import core.HubEvent;
+import core.HubEventType;
+import core.OverflowStrategy;
 import core.SecurityHub;
 import devices.api.Device;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shows a card per device. Cards follow the hub's event stream: changed devices are collected
+ * and redrawn together in one EDT task, and only additions and removals rebuild the grid.
+ */
+public class DeviceFleetPanel extends JPanel implements Flow.Subscriber<HubEvent> {
+    private static final int EVENT_BUFFER = 256;
 
-public class DeviceFleetPanel extends JPanel {
     private final SecurityHub hub;
     private final JPanel cardGrid;
 
     // Reuse cards rather than recreating them every refresh
     private final Map<UUID, DeviceCard> cardMap = new HashMap<>();
 
+    // Filled by the event stream, emptied on the EDT
+    private final Set<UUID> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean structureChanged = new AtomicBoolean();
+    private final AtomicBoolean updateQueued = new AtomicBoolean();
+
     public DeviceFleetPanel(SecurityHub hub) {
         this.hub = hub;
         setLayout(new BorderLayout());
@@ -39,6 +58,53 @@ public class DeviceFleetPanel extends JPanel {
 
         add(scroll, BorderLayout.CENTER);
         refresh();
+
+        // Telemetry arrives far faster than anyone can read it; the newest state per device is enough
+        hub.getEvents().subscribe(this, EVENT_BUFFER, OverflowStrategy.CONFLATE,
+                EnumSet.of(HubEventType.DEVICE_ADDED, HubEventType.DEVICE_REMOVED,
+                        HubEventType.DEVICE_STATUS_CHANGED, HubEventType.TELEMETRY_UPDATED));
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        subscription.request(Long.MAX_VALUE); // onNext only marks the card
+    }
+
+    @Override
+    public void onNext(HubEvent event) {
+        if (event.getType() == HubEventType.DEVICE_ADDED || event.getType() == HubEventType.DEVICE_REMOVED) {
+            structureChanged.set(true);
+        } else {
+            dirty.add(event.getDeviceId());
+        }
+        if (updateQueued.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::applyUpdates);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        // The dashboard's periodic refresh keeps the cards current
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    private void applyUpdates() {
+        updateQueued.set(false);
+        if (structureChanged.getAndSet(false)) {
+            dirty.clear();
+            refresh();
+            return;
+        }
+        for (UUID id : dirty.toArray(new UUID[0])) {
+            dirty.remove(id);
+            DeviceCard card = cardMap.get(id);
+            if (card != null) {
+                card.updateFromDevice();
+            }
+        }
     }
 
     public void refresh() {
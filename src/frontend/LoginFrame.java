@@ -1,9 +1,12 @@
 package frontend;
 
 import core.SecurityHub;
+import infrastructure.logger.LogFileArchiver;
 import infrastructure.logger.Logger;
 import infrastructure.repository.UserRepository;
+import service.alarm.AlarmService;
 import service.auth.AuthService;
+import service.system.SystemHealthService;
 import user.User;
 
 import javax.swing.*;
@@ -19,10 +22,17 @@ public class LoginFrame extends JFrame {
     private final SecurityHub hub;
     private final Logger logger;
     private final AuthService authService;
+    private final SystemHealthService healthService;
+    private final LogFileArchiver auditLog;
+    private final AlarmService alarmService;
 
-    public LoginFrame(SecurityHub hub, Logger logger, UserRepository userRepository) {
+    public LoginFrame(SecurityHub hub, Logger logger, UserRepository userRepository, SystemHealthService healthService,
+                      LogFileArchiver auditLog, AlarmService alarmService) {
         this.hub = hub;
         this.logger = logger;
+        this.healthService = healthService;
+        this.auditLog = auditLog;
+        this.alarmService = alarmService;
         this.authService = new AuthService(userRepository);
 
         setTitle("SENTINEL | Secure Access");
@@ -101,7 +111,7 @@ public class LoginFrame extends JFrame {
             statusLabel.setForeground(new Color(34, 197, 94));
 
             SwingUtilities.invokeLater(() -> {
-                new SentinelDashboard(hub, logger).setVisible(true);
+                new SentinelDashboard(hub, logger, healthService, auditLog, alarmService).setVisible(true);
                 this.dispose();
             });
             return;
@@ -113,7 +123,7 @@ public class LoginFrame extends JFrame {
             statusLabel.setForeground(new Color(34, 197, 94));
 
             SwingUtilities.invokeLater(() -> {
-                new SentinelDashboard(hub, logger).setVisible(true);
+                new SentinelDashboard(hub, logger, healthService, auditLog, alarmService).setVisible(true);
                 this.dispose();
             });
         } else {
@@ -1,7 +1,10 @@
 package frontend;
 
 import core.SecurityHub;
+import infrastructure.logger.LogFileArchiver;
 import infrastructure.logger.Logger;
+import infrastructure.logger.search.AuditLogSearch;
+import service.alarm.AlarmService;
 import service.system.SystemHealthService;
 
 import javax.swing.*;
@@ -9,6 +12,8 @@ import javax.swing.border.EmptyBorder;
 import java.awt.*;
 
 public class SentinelDashboard extends JFrame {
+    private static final int FLEET_RECONCILE_TICKS = 10;
+
     private final SecurityHub hub;
     private final CardLayout cardLayout = new CardLayout();
     private final JPanel mainContentArea = new JPanel(cardLayout);
@@ -18,25 +23,29 @@ public class SentinelDashboard extends JFrame {
     private final SystemReportPanel reportPage;
     private final DeviceFleetPanel fleetPage;
     private final ReceiverPanel receiverPage;
+    private final AlarmHistoryPanel alarmHistoryPage;
+    private int ticks; // Only touched by the Swing timer on the EDT
 
-    public SentinelDashboard(SecurityHub hub, Logger logger) {
+    public SentinelDashboard(SecurityHub hub, Logger logger, SystemHealthService healthService, LogFileArchiver auditLog,
+                             AlarmService alarmService) {
         this.hub = hub;
         this.logger = logger;
         setupFrame();
 
         // 1. Initialize Content Panels
-        reportPage = new SystemReportPanel(new SystemHealthService(hub));
+        reportPage = new SystemReportPanel(healthService);
         fleetPage = new DeviceFleetPanel(hub);
         receiverPage = new ReceiverPanel();
+        alarmHistoryPage = new AlarmHistoryPanel(alarmService);
 
         // 2. Build Card Stack
         mainContentArea.add(reportPage, "REPORT");
         mainContentArea.add(fleetPage, "FLEET");
         mainContentArea.add(receiverPage, "RECEIVER");
-        mainContentArea.add(new JPanel(), "ALARM_HISTORY"); // Placeholder
+        mainContentArea.add(alarmHistoryPage, "ALARM_HISTORY");
         mainContentArea.add(new JPanel(), "SETTINGS"); // Placeholder
 
-        AuditLogPanel auditPage = new AuditLogPanel();
+        AuditLogPanel auditPage = new AuditLogPanel(auditLog.getActiveFile(), new AuditLogSearch(auditLog));
         mainContentArea.add(auditPage, "AUDIT_LOGS");
         logger.registerListener(auditPage);
 
@@ -45,7 +54,8 @@ public class SentinelDashboard extends JFrame {
         add(createSidebar(), BorderLayout.WEST);
         add(mainContentArea, BorderLayout.CENTER);
 
-        // 4. Global Refresh Timer: reduced frequency to lower EDT load
+        // 4. Global Refresh Timer: the fleet page follows the hub's event stream and is only
+        // reconciled occasionally, for changes made to devices behind the hub's back
         Timer uiTimer = new Timer(1000, e -> updateDisplay());
         uiTimer.start();
     }
@@ -58,10 +68,12 @@ public class SentinelDashboard extends JFrame {
     }
 
     private void updateDisplay() {
-
+        boolean reconcile = ++ticks % FLEET_RECONCILE_TICKS == 0;
         SwingUtilities.invokeLater(() -> {
             reportPage.updateReport();
-            fleetPage.refresh();
+            if (reconcile) {
+                fleetPage.refresh();
+            }
         });
     }
 
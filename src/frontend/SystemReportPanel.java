@@ -1,15 +1,18 @@
 package frontend;
 
+import service.device.DeviceForecast;
 import service.system.SystemHealthService;
 import service.system.SystemSnapshot;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 public class SystemReportPanel extends JPanel {
+    private static final int AT_RISK_SHOWN = 5;
     private final SystemHealthService healthService;
-    private final JLabel healthVal, alarmVal, densityVal, modeVal, timeVal;
+    private final JLabel healthVal, alarmVal, densityVal, modeVal, atRiskVal, timeVal;
 
     public SystemReportPanel(SystemHealthService healthService) {
         this.healthService = healthService;
@@ -32,6 +35,7 @@ public class SystemReportPanel extends JPanel {
         alarmVal = createStatCard(statsGrid, "ACTIVE ALARMS");
         densityVal = createStatCard(statsGrid, "ALARM DENSITY");
         modeVal = createStatCard(statsGrid, "SYSTEM MODE");
+        atRiskVal = createStatCard(statsGrid, "BATTERIES AT RISK");
         timeVal = createStatCard(statsGrid, "LAST SNAPSHOT");
 
         add(statsGrid, BorderLayout.CENTER);
@@ -59,12 +63,27 @@ public class SystemReportPanel extends JPanel {
         return val;
     }
 
+    private String atRiskSummary() {
+        List<DeviceForecast> atRisk = healthService.getMostAtRiskDevices(AT_RISK_SHOWN);
+        if (atRisk.isEmpty()) {
+            return "No batteries are draining";
+        }
+        StringBuilder sb = new StringBuilder("<html>");
+        for (DeviceForecast f : atRisk) {
+            sb.append(String.format("%s &mdash; %.0f%%, empty in %.1f h<br>",
+                    f.getDeviceId().toString().substring(0, 8), f.getBatteryLife(), f.getHoursToEmpty()));
+        }
+        return sb.append("</html>").toString();
+    }
+
     public void updateReport() {
         SystemSnapshot snap = healthService.getSystemSnapshot();
         healthVal.setText((int)(snap.getFleetHealthPercentage() * 100) + "%");
         alarmVal.setText(String.valueOf(snap.getActiveAlarmCount()));
         densityVal.setText(String.format("%.2f", snap.getAlarmDensity()));
         modeVal.setText(snap.getSystemMode().toString());
+        atRiskVal.setText(String.valueOf(snap.getAtRiskDeviceCount()));
+        atRiskVal.setToolTipText(atRiskSummary());
         timeVal.setText(snap.getTimestamp().atZone(java.time.ZoneId.systemDefault())
                 .format(DateTimeFormatter.ofPattern("HH:mm:ss")));
     }
@@ -0,0 +1,48 @@
+package infrastructure.clock;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The system clock read once per tick by a daemon thread and cached in a volatile field, so
+ * reading it is a plain memory load. Readings lag the system clock by up to one tick and never
+ * go backwards.
+ */
+public class CoarseClock extends HubClock {
+    public static final long DEFAULT_RESOLUTION_MS = 1;
+
+    private volatile long millis;
+    private volatile long nanos;
+
+    public CoarseClock(long resolutionMillis) {
+        if (resolutionMillis <= 0) {
+            throw new IllegalArgumentException("Resolution must be positive");
+        }
+        this.millis = System.currentTimeMillis();
+        this.nanos = System.nanoTime();
+        long tickNanos = resolutionMillis * 1_000_000;
+        Thread ticker = new Thread(() -> {
+            while (true) {
+                LockSupport.parkNanos(tickNanos);
+                millis = Math.max(millis, System.currentTimeMillis());
+                nanos = System.nanoTime();
+            }
+        }, "coarse-clock");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanos;
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+}
@@ -0,0 +1,71 @@
+package infrastructure.clock;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * The hub's source of time. Extends {@link Clock}, so {@code LocalDateTime.now(clock)} and
+ * {@code Instant.now(clock)} work as usual, and adds the two things the hub needs beyond reading
+ * the wall clock: a monotonic reading for measuring intervals, and waiting.
+ *
+ * <p>{@link RealClock} is the default. {@link CoarseClock} trades resolution for a cheap read
+ * where timestamps are taken at a high rate, and {@link VirtualClock} only moves when told to, so
+ * the simulator can run days of site time in seconds and the same seed gives the same run.</p>
+ */
+public abstract class HubClock extends Clock {
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    /**
+     * @return A monotonic reading in nanoseconds, only meaningful as a difference.
+     */
+    public abstract long nanoTime();
+
+    /**
+     * Waits until {@code millis} have passed on this clock. A virtual clock moves forward instead
+     * of waiting.
+     */
+    public abstract void sleep(long millis) throws InterruptedException;
+
+    /**
+     * @return A clock reading the same time, as cheaply as possible, at millisecond resolution or
+     * coarser. Use it for timestamps taken at a high rate, e.g. on every log line.
+     */
+    public HubClock coarse() {
+        return this;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis());
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZONE;
+    }
+
+    /**
+     * @return A view of this clock in another zone; it reads the same instants.
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        HubClock source = this;
+        return new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return zone;
+            }
+
+            @Override
+            public Clock withZone(ZoneId other) {
+                return source.withZone(other);
+            }
+
+            @Override
+            public Instant instant() {
+                return source.instant();
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package infrastructure.clock;
+
+import java.time.Instant;
+
+/**
+ * The system clock. {@link #coarse()} shares one {@link CoarseClock}, started on first use.
+ */
+public class RealClock extends HubClock {
+    private static final RealClock INSTANCE = new RealClock();
+
+    private RealClock() {
+    }
+
+    public static RealClock getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public long millis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.now();
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    @Override
+    public HubClock coarse() {
+        return CoarseHolder.INSTANCE;
+    }
+
+    private static class CoarseHolder {
+        private static final CoarseClock INSTANCE = new CoarseClock(CoarseClock.DEFAULT_RESOLUTION_MS);
+    }
+}
@@ -0,0 +1,52 @@
+package infrastructure.clock;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A clock that stands still until it is advanced. {@link #sleep(long)} advances it instead of
+ * waiting, so a loop that sleeps between ticks runs as fast as the work in it allows, and every
+ * timestamp it produces depends only on the start time and the number of ticks.
+ */
+public class VirtualClock extends HubClock {
+    private final long startMillis;
+    private final AtomicLong elapsedNanos = new AtomicLong();
+
+    public VirtualClock(Instant start) {
+        this.startMillis = start.toEpochMilli();
+    }
+
+    public void advance(Duration duration) {
+        advanceNanos(duration.toNanos());
+    }
+
+    public void advanceNanos(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Time only moves forward");
+        }
+        elapsedNanos.addAndGet(nanos);
+    }
+
+    /**
+     * @return How far the clock has been advanced since it was created.
+     */
+    public Duration elapsed() {
+        return Duration.ofNanos(elapsedNanos.get());
+    }
+
+    @Override
+    public long millis() {
+        return startMillis + elapsedNanos.get() / 1_000_000;
+    }
+
+    @Override
+    public long nanoTime() {
+        return elapsedNanos.get();
+    }
+
+    @Override
+    public void sleep(long millis) {
+        advanceNanos(millis * 1_000_000);
+    }
+}
@@ -0,0 +1,21 @@
+package infrastructure.factories;
+
+import devices.api.Device;
+import devices.api.HardwareLink;
+import devices.impl.GlassBreakSensorDevice;
+import infrastructure.logger.Logger;
+
+import java.util.UUID;
+
+public class GlassBreakSensorDeviceFactory implements DeviceFactory {
+
+    @Override
+    public Device create(UUID Id, Logger logger, HardwareLink hardwareLink) {
+        return new GlassBreakSensorDevice(Id, logger, hardwareLink);
+    }
+
+    @Override
+    public Device create(Logger logger, HardwareLink hardwareLink) {
+        return new GlassBreakSensorDevice(UUID.randomUUID(), logger, hardwareLink);
+    }
+}
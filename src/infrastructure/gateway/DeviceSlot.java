@@ -0,0 +1,24 @@
+package infrastructure.gateway;
+
+import devices.api.Device;
+
+/**
+ * Gateway-side state for one registered device. Written by the selector thread, read by
+ * anyone asking whether the device is responsive.
+ */
+class DeviceSlot {
+    final Device device;
+    final long idMsb;
+    final long idLsb;
+    volatile long lastSeenNanos;
+    volatile int lastAckSequence = -1;
+    int lastAlarmSequence = -1;                 // Selector thread only
+    long lastAlarmMillis = Long.MIN_VALUE;      // Selector thread only
+
+    DeviceSlot(Device device, long lastSeenNanos) {
+        this.device = device;
+        this.idMsb = device.getId().getMostSignificantBits();
+        this.idLsb = device.getId().getLeastSignificantBits();
+        this.lastSeenNanos = lastSeenNanos;
+    }
+}
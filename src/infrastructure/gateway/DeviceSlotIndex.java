@@ -0,0 +1,99 @@
+package infrastructure.gateway;
+
+/**
+ * Open-addressing hash table from raw device id halves to {@link DeviceSlot}, so the decode
+ * path can find a device without building a {@link java.util.UUID}. Linear probing with
+ * backward-shift deletion keeps lookups to a few adjacent array reads.
+ *
+ * <p>Not thread-safe: the gateway confines it to the selector thread.</p>
+ */
+class DeviceSlotIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private DeviceSlot[] table = new DeviceSlot[INITIAL_CAPACITY];
+    private int size;
+
+    DeviceSlot get(long msb, long lsb) {
+        DeviceSlot[] t = table;
+        int mask = t.length - 1;
+        for (int i = hash(msb, lsb) & mask; ; i = (i + 1) & mask) {
+            DeviceSlot slot = t[i];
+            if (slot == null) {
+                return null;
+            }
+            if (slot.idMsb == msb && slot.idLsb == lsb) {
+                return slot;
+            }
+        }
+    }
+
+    void put(DeviceSlot slot) {
+        if ((size + 1) * 2 > table.length) {
+            resize();
+        }
+        if (insert(table, slot)) {
+            size++;
+        }
+    }
+
+    void remove(long msb, long lsb) {
+        DeviceSlot[] t = table;
+        int mask = t.length - 1;
+        int i = hash(msb, lsb) & mask;
+        while (t[i] != null && !(t[i].idMsb == msb && t[i].idLsb == lsb)) {
+            i = (i + 1) & mask;
+        }
+        if (t[i] == null) {
+            return;
+        }
+
+        // Shift later entries of the probe run back so no lookup stops early at the hole
+        t[i] = null;
+        size--;
+        for (int j = (i + 1) & mask; t[j] != null; j = (j + 1) & mask) {
+            int home = hash(t[j].idMsb, t[j].idLsb) & mask;
+            boolean reachable = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+            if (!reachable) {
+                t[i] = t[j];
+                t[j] = null;
+                i = j;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static boolean insert(DeviceSlot[] t, DeviceSlot slot) {
+        int mask = t.length - 1;
+        for (int i = hash(slot.idMsb, slot.idLsb) & mask; ; i = (i + 1) & mask) {
+            if (t[i] == null) {
+                t[i] = slot;
+                return true;
+            }
+            if (t[i].idMsb == slot.idMsb && t[i].idLsb == slot.idLsb) {
+                t[i] = slot;
+                return false;
+            }
+        }
+    }
+
+    private void resize() {
+        DeviceSlot[] bigger = new DeviceSlot[table.length * 2];
+        for (DeviceSlot slot : table) {
+            if (slot != null) {
+                insert(bigger, slot);
+            }
+        }
+        table = bigger;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -0,0 +1,410 @@
+package infrastructure.gateway;
+
+import alarm.AlarmSeverity;
+import commands.alarmcommands.TriggerAlarmCommand;
+import core.HubChangeListener;
+import core.SecurityHub;
+import devices.api.Device;
+import devices.api.HardwareLink;
+import devices.model.DeviceReading;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+import infrastructure.telemetry.TelemetryCodec;
+import infrastructure.telemetry.TelemetryHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link HardwareLink} for devices that push their state. One selector thread accepts
+ * {@link TelemetryCodec} frames over UDP and TCP on the same port, updates battery and signal
+ * on the matching {@link Device} in place, stamps the device's last-seen time, and raises
+ * alarms reported by devices. Alarm events are acknowledged back to the sender so devices can
+ * retransmit until the hub has them.
+ *
+ * <p>Responsiveness is a freshness check against the last-seen timestamp: a single map lookup
+ * with no round-trip to the device. Devices are registered automatically as they are added to
+ * or removed from the hub.</p>
+ */
+public class HeartbeatGateway implements HardwareLink, HubChangeListener {
+    private static final int UDP_BUFFER_BYTES = 64 * 1024;
+    private static final int TCP_BUFFER_BYTES = 64 * 1024 + TelemetryCodec.HEADER_SIZE;
+    private static final int UDP_SOCKET_RECEIVE_BYTES = 4 * 1024 * 1024; // Absorbs heartbeat bursts
+    private static final int MAX_ACKS_PER_FRAME = TelemetryCodec.MAX_PAYLOAD / TelemetryCodec.ALARM_EVENT_SIZE + 1;
+
+    private final SecurityHub hub;
+    private final Logger logger;
+    private final long freshnessNanos;
+    private final Selector selector;
+    private final DatagramChannel udpChannel;
+    private final ServerSocketChannel tcpChannel;
+    private final ByteBuffer udpBuffer = ByteBuffer.allocateDirect(UDP_BUFFER_BYTES);
+    private final ByteBuffer ackBuffer = ByteBuffer.allocateDirect(UDP_BUFFER_BYTES);
+    private final TelemetryCodec codec = new TelemetryCodec();
+    private final Dispatcher dispatcher = new Dispatcher();
+
+    // Lookups by UUID from any thread, and by raw id halves on the selector thread
+    private final Map<UUID, DeviceSlot> slots = new ConcurrentHashMap<>();
+    private final DeviceSlotIndex index = new DeviceSlotIndex();
+    private final Queue<Runnable> pendingIndexUpdates = new ConcurrentLinkedQueue<>();
+
+    private final ExecutorService alarmDispatch = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "gateway-alarm-dispatch");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong receivedMessages = new AtomicLong();
+    private final AtomicLong unknownDeviceMessages = new AtomicLong();
+    private final AtomicLong rejectedFrames = new AtomicLong();
+    private final Thread selectorThread;
+    private volatile boolean running = true;
+
+    public HeartbeatGateway(SecurityHub hub, int port, long freshnessMillis, Logger logger) throws IOException {
+        this.hub = hub;
+        this.logger = logger;
+        this.freshnessNanos = TimeUnit.MILLISECONDS.toNanos(freshnessMillis);
+        this.selector = Selector.open();
+
+        this.udpChannel = DatagramChannel.open();
+        this.udpChannel.setOption(StandardSocketOptions.SO_RCVBUF, UDP_SOCKET_RECEIVE_BYTES);
+        this.udpChannel.bind(new InetSocketAddress(port));
+        this.udpChannel.configureBlocking(false);
+        this.udpChannel.register(selector, SelectionKey.OP_READ);
+
+        // Share the port number between UDP and TCP, so an ephemeral UDP port is reused for TCP
+        this.tcpChannel = ServerSocketChannel.open();
+        this.tcpChannel.bind(new InetSocketAddress(getPort()));
+        this.tcpChannel.configureBlocking(false);
+        this.tcpChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        selectorThread = new Thread(this::selectLoop, "heartbeat-gateway");
+        selectorThread.setDaemon(true);
+    }
+
+    public void start() {
+        for (Device d : hub.getDevices()) {
+            register(d);
+        }
+        hub.addChangeListener(this);
+        selectorThread.start();
+        logger.log("Heartbeat gateway listening on UDP/TCP port " + getPort(), LogLevel.INFO);
+    }
+
+    public void stop() {
+        running = false;
+        hub.removeChangeListener(this);
+        alarmDispatch.shutdown();
+        selector.wakeup();
+    }
+
+    public int getPort() {
+        return ((InetSocketAddress) udpChannel.socket().getLocalSocketAddress()).getPort();
+    }
+
+    /**
+     * Devices start out as not yet seen; they become responsive on their first message.
+     */
+    public void register(Device device) {
+        DeviceSlot slot = new DeviceSlot(device, System.nanoTime() - freshnessNanos - 1);
+        if (slots.putIfAbsent(device.getId(), slot) == null) {
+            pendingIndexUpdates.add(() -> index.put(slot));
+            selector.wakeup();
+        }
+    }
+
+    public void unregister(Device device) {
+        DeviceSlot slot = slots.remove(device.getId());
+        if (slot != null) {
+            pendingIndexUpdates.add(() -> index.remove(slot.idMsb, slot.idLsb));
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * @return System.nanoTime() of the device's last message, or -1 if the device is unknown.
+     */
+    public long getLastSeenNanos(UUID deviceId) {
+        DeviceSlot slot = slots.get(deviceId);
+        return slot == null ? -1 : slot.lastSeenNanos;
+    }
+
+    public long getReceivedMessages() {
+        return receivedMessages.get();
+    }
+
+    public long getUnknownDeviceMessages() {
+        return unknownDeviceMessages.get();
+    }
+
+    public long getRejectedFrames() {
+        return rejectedFrames.get();
+    }
+
+    @Override
+    public boolean isDeviceResponsive(Device device) {
+        DeviceSlot slot = slots.get(device.getId());
+        return slot != null && System.nanoTime() - slot.lastSeenNanos <= freshnessNanos;
+    }
+
+    /**
+     * Answers from the heartbeat table in one pass against a single clock reading; the battery
+     * and signal are the last ones the devices reported.
+     */
+    @Override
+    public List<DeviceReading> pollDevices(List<Device> devices) {
+        long now = System.nanoTime();
+        List<DeviceReading> readings = new ArrayList<>(devices.size());
+        for (Device d : devices) {
+            DeviceSlot slot = slots.get(d.getId());
+            boolean fresh = slot != null && now - slot.lastSeenNanos <= freshnessNanos;
+            readings.add(new DeviceReading(d.getId(), fresh, d.getBatteryLife(), d.getSignalStrength()));
+        }
+        return readings;
+    }
+
+    @Override
+    public void onDeviceAdded(Device device) {
+        register(device);
+    }
+
+    @Override
+    public void onDeviceRemoved(Device device) {
+        unregister(device);
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select();
+                Runnable update;
+                while ((update = pendingIndexUpdates.poll()) != null) {
+                    update.run();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+
+                    if (key.channel() == udpChannel) {
+                        readDatagrams();
+                    } else if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        readStream(key);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                logger.log("Heartbeat gateway stopped: " + e.getMessage(), LogLevel.ERROR);
+            }
+        } finally {
+            closeQuietly(udpChannel);
+            closeQuietly(tcpChannel);
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void readDatagrams() throws IOException {
+        // Drain everything queued on the socket before going back to select()
+        while (true) {
+            udpBuffer.clear();
+            SocketAddress source = udpChannel.receive(udpBuffer);
+            if (source == null) {
+                return;
+            }
+            udpBuffer.flip();
+            while (udpBuffer.hasRemaining()) {
+                if (!decodeFrame(udpBuffer)) {
+                    break; // A datagram never continues in the next one, so drop the rest
+                }
+            }
+            if (prepareAcks()) {
+                udpChannel.send(ackBuffer, source);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel client;
+        while ((client = tcpChannel.accept()) != null) {
+            client.configureBlocking(false);
+            client.register(selector, SelectionKey.OP_READ, ByteBuffer.allocateDirect(TCP_BUFFER_BYTES));
+        }
+    }
+
+    private void readStream(SelectionKey key) {
+        SocketChannel client = (SocketChannel) key.channel();
+        ByteBuffer buf = (ByteBuffer) key.attachment();
+        try {
+            if (client.read(buf) < 0) {
+                key.cancel();
+                closeQuietly(client);
+                return;
+            }
+            buf.flip();
+            while (buf.hasRemaining() && decodeFrame(buf)) {
+                // Keep decoding whole frames
+            }
+            if (dispatcher.rejected) {
+                // A corrupt stream cannot be resynchronized; the device must reconnect
+                key.cancel();
+                closeQuietly(client);
+                return;
+            }
+            buf.compact(); // Keep any partial frame for the next read
+            if (prepareAcks()) {
+                client.write(ackBuffer); // Best effort; devices retransmit unacknowledged alarms
+            }
+        } catch (IOException e) {
+            key.cancel();
+            closeQuietly(client);
+        }
+    }
+
+    /**
+     * @return true if a whole frame was decoded and more may follow.
+     */
+    private boolean decodeFrame(ByteBuffer buf) {
+        dispatcher.now = System.nanoTime();
+        dispatcher.rejected = false;
+        int result = codec.decodeFrame(buf, dispatcher);
+        if (result == TelemetryCodec.INCOMPLETE) {
+            return false;
+        }
+        if (result < 0) {
+            rejectedFrames.incrementAndGet();
+            dispatcher.rejected = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Encodes any pending alarm acknowledgements into the ack buffer.
+     *
+     * @return true if there is an ack frame to send.
+     */
+    private boolean prepareAcks() {
+        if (dispatcher.ackCount == 0) {
+            return false;
+        }
+        ackBuffer.clear();
+        codec.beginFrame(ackBuffer);
+        for (int i = 0; i < dispatcher.ackCount; i++) {
+            if (codec.frameCapacity(ackBuffer) < TelemetryCodec.ACK_SIZE) {
+                break;
+            }
+            codec.putAck(ackBuffer, dispatcher.ackMsb[i], dispatcher.ackLsb[i], dispatcher.ackSequence[i]);
+        }
+        codec.endFrame(ackBuffer);
+        ackBuffer.flip();
+        dispatcher.ackCount = 0;
+        return true;
+    }
+
+    /**
+     * Applies decoded messages to devices. Runs on the selector thread only.
+     */
+    private class Dispatcher implements TelemetryHandler {
+        long now;
+        boolean rejected;
+        final long[] ackMsb = new long[MAX_ACKS_PER_FRAME];
+        final long[] ackLsb = new long[MAX_ACKS_PER_FRAME];
+        final int[] ackSequence = new int[MAX_ACKS_PER_FRAME];
+        int ackCount;
+
+        private DeviceSlot touch(long msb, long lsb) {
+            DeviceSlot slot = index.get(msb, lsb);
+            if (slot == null) {
+                unknownDeviceMessages.incrementAndGet();
+                return null;
+            }
+            slot.lastSeenNanos = now;
+            receivedMessages.incrementAndGet();
+            return slot;
+        }
+
+        @Override
+        public void onHeartbeat(long idMsb, long idLsb) {
+            touch(idMsb, idLsb);
+        }
+
+        @Override
+        public void onTelemetry(long idMsb, long idLsb, int batteryLife, int signalStrength) {
+            DeviceSlot slot = touch(idMsb, idLsb);
+            if (slot != null) {
+                slot.device.setBatteryLife(batteryLife);
+                slot.device.setSignalStrength(signalStrength);
+                hub.reportTelemetry(slot.device);
+            }
+        }
+
+        @Override
+        public void onAlarmEvent(long idMsb, long idLsb, AlarmSeverity severity, int sequence, long epochMillis) {
+            DeviceSlot slot = touch(idMsb, idLsb);
+            if (slot == null) {
+                return;
+            }
+
+            // Retransmissions of an alarm we already raised are only acknowledged again
+            if (isNewAlarm(slot, sequence, epochMillis)) {
+                slot.lastAlarmSequence = sequence;
+                slot.lastAlarmMillis = epochMillis;
+                Device device = slot.device;
+                alarmDispatch.execute(() -> hub.processCommand(
+                        new TriggerAlarmCommand(device, "Alarm reported by " + device.getDeviceType(), severity, hub)));
+            }
+            if (ackCount < MAX_ACKS_PER_FRAME) {
+                ackMsb[ackCount] = idMsb;
+                ackLsb[ackCount] = idLsb;
+                ackSequence[ackCount] = sequence;
+                ackCount++;
+            }
+        }
+
+        /**
+         * An alarm is new if its sequence is ahead of the last one raised, compared as serial
+         * numbers so the counter may wrap, or if it happened later, which is how a device that
+         * rebooted and numbers its alarms from scratch again shows up. A retransmission carries
+         * the sequence and time of the original.
+         */
+        private boolean isNewAlarm(DeviceSlot slot, int sequence, long epochMillis) {
+            return sequence - slot.lastAlarmSequence > 0 || epochMillis > slot.lastAlarmMillis;
+        }
+
+        @Override
+        public void onAck(long idMsb, long idLsb, int sequence) {
+            DeviceSlot slot = touch(idMsb, idLsb);
+            if (slot != null) {
+                slot.lastAckSequence = sequence;
+            }
+        }
+    }
+
+    private static void closeQuietly(Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
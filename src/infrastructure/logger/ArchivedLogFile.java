@@ -0,0 +1,44 @@
+package infrastructure.logger;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Data transfer object. One rotated, gzip-compressed log file and the span of log entries it
+ * holds, as recorded in the archiver's manifest.
+ */
+public class ArchivedLogFile {
+    private final Path path;
+    private final Instant firstEntry;
+    private final Instant lastEntry;
+    private final long compressedBytes;
+    private final long lineCount;
+
+    public ArchivedLogFile(Path path, Instant firstEntry, Instant lastEntry, long compressedBytes, long lineCount) {
+        this.path = path;
+        this.firstEntry = firstEntry;
+        this.lastEntry = lastEntry;
+        this.compressedBytes = compressedBytes;
+        this.lineCount = lineCount;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public Instant getFirstEntry() {
+        return firstEntry;
+    }
+
+    public Instant getLastEntry() {
+        return lastEntry;
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+}
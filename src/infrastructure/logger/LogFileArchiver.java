@@ -1,34 +1,122 @@
 package infrastructure.logger;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import infrastructure.logger.search.LogSegmentIndexWriter;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the audit trail to disk and keeps it bounded.
+ *
+ * <p>Log lines are appended to the active file on a background writer. When the active file
+ * passes its size limit, or has been open longer than its age limit, it is renamed to
+ * {@code <name>-<timestamp><ext>} and a fresh one is started. Rotated files are gzip-compressed
+ * on a low-priority thread and recorded in a manifest ({@code <name>.manifest}) with the time
+ * range of the entries they hold, so a search for a given period only opens the files that
+ * cover it. Once compressed, the oldest archives are deleted while the archive exceeds its
+ * total size or they are past the retention period.</p>
+ *
+ * <p>Archives are written as a run of gzip members of {@value #BLOCK_LINES} lines each, and an
+ * inverted index of the entries ({@code <archive>.idx}) is built in the same pass, so a search
+ * can find entries without reading the archive and decompress only the blocks it returns.</p>
+ *
+ * <p>Rotated files that were not yet compressed when the hub stopped are picked up on the next
+ * start.</p>
+ */
 public class LogFileArchiver implements LogListener {
+    public static final long DEFAULT_MAX_FILE_BYTES = 5L * 1024 * 1024;
+    public static final long DEFAULT_MAX_FILE_AGE_MS = 24 * 3_600_000L;
+    public static final long DEFAULT_MAX_ARCHIVE_BYTES = 512L * 1024 * 1024;
+    public static final long DEFAULT_RETENTION_MS = 90 * 24 * 3_600_000L;
+
+    private static final String COMPRESSED_SUFFIX = ".gz";
+    private static final int BLOCK_LINES = 256;
+    private static final String MANIFEST_SUFFIX = ".manifest";
+    private static final DateTimeFormatter ROTATED_NAME =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+
     final Path file;
+    private final Path directory;
+    private final String stem;
+    private final String extension;
+    private final Path manifestFile;
+    private final long maxFileBytes;
+    private final long maxFileAgeMillis;
+    private final long maxArchiveBytes;
+    private final long retentionMillis;
+
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
     private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor(r -> {
         Thread t = new Thread(r, "logfile-archiver");
         t.setDaemon(true);
         return t;
     });
+    private final ExecutorService compressExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "logfile-compressor");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    // Active file state; writer thread only
+    private BufferedWriter writer;
+    private long activeBytes;
+    private long activeOpenedMillis;
+
+    // Oldest first; guarded by this
+    private final List<ArchivedLogFile> manifest = new ArrayList<>();
 
     public LogFileArchiver(String filepath) {
-        this.file = Path.of(filepath);
+        this(filepath, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILE_AGE_MS, DEFAULT_MAX_ARCHIVE_BYTES, DEFAULT_RETENTION_MS);
+    }
+
+    /**
+     * @param maxFileBytes The active file is rotated once it grows past this.
+     * @param maxFileAgeMillis The active file is rotated once its first entry is this old.
+     * @param maxArchiveBytes Compressed archives beyond this total are deleted, oldest first.
+     * @param retentionMillis Archives whose newest entry is older than this are deleted.
+     */
+    public LogFileArchiver(String filepath, long maxFileBytes, long maxFileAgeMillis,
+                           long maxArchiveBytes, long retentionMillis) {
+        this.file = Path.of(filepath).toAbsolutePath();
+        this.directory = file.getParent();
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        this.stem = dot > 0 ? name.substring(0, dot) : name;
+        this.extension = dot > 0 ? name.substring(dot) : "";
+        this.manifestFile = directory.resolve(stem + MANIFEST_SUFFIX);
+        this.maxFileBytes = maxFileBytes;
+        this.maxFileAgeMillis = maxFileAgeMillis;
+        this.maxArchiveBytes = maxArchiveBytes;
+        this.retentionMillis = retentionMillis;
+
         try {
+            Files.createDirectories(directory);
             if (Files.notExists(file)) {
                 Files.createFile(file);
             }
         } catch (IOException e) {
             System.err.println("Unable to create log file: " + e.getMessage());
         }
+        loadManifest();
+        recoverRotatedFiles();
 
         // Ensure executor is shutdown cleanly
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            writeExecutor.execute(this::closeWriter);
             writeExecutor.shutdown();
+            compressExecutor.shutdown();
             try {
                 if (!writeExecutor.awaitTermination(1, TimeUnit.SECONDS)) {
                     writeExecutor.shutdownNow();
@@ -39,7 +127,336 @@ public class LogFileArchiver implements LogListener {
         }));
     }
 
+    public Path getActiveFile() {
+        return file;
+    }
+
+    /**
+     * @return The compressed archives, oldest first.
+     */
+    public synchronized List<ArchivedLogFile> getManifest() {
+        return new ArrayList<>(manifest);
+    }
+
+    /**
+     * Opens an archive for reading, line by line, decompressing as it goes.
+     */
+    public static BufferedReader openArchive(ArchivedLogFile archive) throws IOException {
+        return new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archive.getPath())), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The timestamp at the start of a {@code [timestamp] [LEVEL] message} log line, or
+     *         null if the line has none.
+     */
+    public static Instant timestampOf(String line) {
+        int end = line.indexOf(']');
+        if (!line.startsWith("[") || end < 0) {
+            return null;
+        }
+        try {
+            return Instant.parse(line.substring(1, end));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
     @Override
     public void receiveLog(String update) {
+        pending.add(update);
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                writeExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                drainScheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Rotates the active file now, regardless of its size or age.
+     */
+    public void rotateNow() {
+        writeExecutor.execute(() -> {
+            drain();
+            if (activeBytes > 0) {
+                rotate();
+            }
+        });
+    }
+
+    /**
+     * Waits until everything received so far is written, and every rotated file compressed.
+     */
+    public void flush() throws InterruptedException {
+        try {
+            writeExecutor.submit(this::drain).get();
+            compressExecutor.submit(() -> {}).get();
+        } catch (ExecutionException e) {
+            System.err.println("Log file flush failed: " + e.getCause());
+        }
+    }
+
+    private void drain() {
+        // Cleared first so a line queued while draining always schedules another pass
+        drainScheduled.set(false);
+        try {
+            String line;
+            while ((line = pending.poll()) != null) {
+                append(line);
+            }
+            if (writer != null) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to write log file: " + e.getMessage());
+            closeWriter();
+        }
+    }
+
+    private void append(String line) throws IOException {
+        if (writer == null) {
+            openActive();
+        }
+        if (activeBytes > 0 && (activeBytes + line.length() >= maxFileBytes
+                || System.currentTimeMillis() - activeOpenedMillis >= maxFileAgeMillis)) {
+            rotate();
+            openActive();
+        }
+        writer.write(line);
+        writer.write('\n');
+        // Counted in chars; the audit trail is almost entirely ASCII
+        activeBytes += line.length() + 1;
+    }
+
+    private void openActive() throws IOException {
+        activeBytes = Files.exists(file) ? Files.size(file) : 0;
+        activeOpenedMillis = System.currentTimeMillis();
+        if (activeBytes > 0) {
+            // Continuing a file from an earlier run; its age counts from its first entry
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String first = in.readLine();
+                Instant firstEntry = first != null ? timestampOf(first) : null;
+                if (firstEntry != null) {
+                    activeOpenedMillis = firstEntry.toEpochMilli();
+                }
+            }
+        }
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void rotate() {
+        closeWriter();
+        Path rotated = directory.resolve(stem + "-" + ROTATED_NAME.format(Instant.now()) + extension);
+        for (int n = 1; Files.exists(rotated) || Files.exists(compressedPath(rotated)); n++) {
+            rotated = directory.resolve(stem + "-" + ROTATED_NAME.format(Instant.now()) + "-" + n + extension);
+        }
+        try {
+            Files.move(file, rotated);
+        } catch (IOException e) {
+            System.err.println("Unable to rotate log file: " + e.getMessage());
+            return;
+        }
+        activeBytes = 0;
+        Path toCompress = rotated;
+        compressExecutor.execute(() -> compress(toCompress));
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("Unable to close log file: " + e.getMessage());
+        }
+        writer = null;
+    }
+
+    /**
+     * Gzips and indexes one rotated file, records it in the manifest and applies the retention
+     * policy. Runs on the low-priority compressor.
+     */
+    private void compress(Path rotated) {
+        Path compressed = compressedPath(rotated);
+        LogSegmentIndexWriter index = new LogSegmentIndexWriter(BLOCK_LINES);
+        String first = null;
+        String last = null;
+        long lines = 0;
+        try (BufferedReader in = Files.newBufferedReader(rotated, StandardCharsets.UTF_8);
+             OutputStream file = new BufferedOutputStream(Files.newOutputStream(compressed))) {
+            CountingOutputStream out = new CountingOutputStream(file);
+            Writer block = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (block == null) {
+                    index.startBlock(out.count);
+                    block = new OutputStreamWriter(new GZIPOutputStream(out, 8192), StandardCharsets.UTF_8);
+                }
+                if (first == null) {
+                    first = line;
+                }
+                last = line;
+                block.write(line);
+                block.write('\n');
+                index.addLine(line);
+                if (++lines % BLOCK_LINES == 0) {
+                    block.close();
+                    block = null;
+                }
+            }
+            if (block != null) {
+                block.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to compress " + rotated + ": " + e.getMessage());
+            return;
+        }
+        try {
+            index.write(LogSegmentIndexWriter.indexFileFor(compressed));
+        } catch (IOException e) {
+            // Still searchable, by scanning
+            System.err.println("Unable to index " + compressed + ": " + e.getMessage());
+        }
+
+        try {
+            Instant modified = Files.getLastModifiedTime(rotated).toInstant();
+            Files.delete(rotated);
+            Instant firstEntry = first != null && timestampOf(first) != null ? timestampOf(first) : modified;
+            Instant lastEntry = last != null && timestampOf(last) != null ? timestampOf(last) : modified;
+            ArchivedLogFile archive = new ArchivedLogFile(compressed, firstEntry, lastEntry, Files.size(compressed), lines);
+            synchronized (this) {
+                manifest.add(archive);
+                manifest.sort(Comparator.comparing(ArchivedLogFile::getLastEntry));
+                enforceRetention();
+                saveManifest();
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to archive " + rotated + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Caller holds this.
+     */
+    private void enforceRetention() {
+        long total = 0;
+        for (ArchivedLogFile archive : manifest) {
+            total += archive.getCompressedBytes();
+        }
+        Instant cutoff = Instant.now().minusMillis(retentionMillis);
+        Iterator<ArchivedLogFile> oldestFirst = manifest.iterator();
+        while (oldestFirst.hasNext()) {
+            ArchivedLogFile archive = oldestFirst.next();
+            if (total <= maxArchiveBytes && !archive.getLastEntry().isBefore(cutoff)) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(archive.getPath());
+                Files.deleteIfExists(LogSegmentIndexWriter.indexFileFor(archive.getPath()));
+            } catch (IOException e) {
+                System.err.println("Unable to delete expired log archive: " + e.getMessage());
+                continue;
+            }
+            total -= archive.getCompressedBytes();
+            oldestFirst.remove();
+        }
+    }
+
+    /**
+     * Caller holds this. Written to a temporary file and moved into place, so a crash never
+     * leaves a half-written manifest.
+     */
+    private void saveManifest() {
+        StringBuilder content = new StringBuilder();
+        for (ArchivedLogFile archive : manifest) {
+            content.append(archive.getPath().getFileName()).append('\t')
+                    .append(archive.getFirstEntry()).append('\t')
+                    .append(archive.getLastEntry()).append('\t')
+                    .append(archive.getCompressedBytes()).append('\t')
+                    .append(archive.getLineCount()).append('\n');
+        }
+        Path temp = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        try {
+            Files.writeString(temp, content, StandardCharsets.UTF_8);
+            Files.move(temp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Unable to save log manifest: " + e.getMessage());
+        }
+    }
+
+    private synchronized void loadManifest() {
+        if (Files.notExists(manifestFile)) {
+            return;
+        }
+        try {
+            for (String row : Files.readAllLines(manifestFile, StandardCharsets.UTF_8)) {
+                String[] fields = row.split("\t");
+                if (fields.length != 5) {
+                    continue;
+                }
+                Path path = directory.resolve(fields[0]);
+                if (Files.exists(path)) {
+                    manifest.add(new ArchivedLogFile(path, Instant.parse(fields[1]), Instant.parse(fields[2]),
+                            Long.parseLong(fields[3]), Long.parseLong(fields[4])));
+                }
+            }
+            manifest.sort(Comparator.comparing(ArchivedLogFile::getLastEntry));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Unable to read log manifest: " + e.getMessage());
+        }
+    }
+
+    private void recoverRotatedFiles() {
+        List<Path> leftovers = new ArrayList<>();
+        try (DirectoryStream<Path> rotated = Files.newDirectoryStream(directory, stem + "-*" + extension)) {
+            for (Path path : rotated) {
+                String name = path.getFileName().toString();
+                if (!name.endsWith(COMPRESSED_SUFFIX) && !name.endsWith(".tmp") && !name.endsWith(".idx")) {
+                    leftovers.add(path);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to scan for rotated log files: " + e.getMessage());
+        }
+        Collections.sort(leftovers);
+        for (Path leftover : leftovers) {
+            compressExecutor.execute(() -> compress(leftover));
+        }
+    }
+
+    private static Path compressedPath(Path rotated) {
+        return rotated.resolveSibling(rotated.getFileName() + COMPRESSED_SUFFIX);
+    }
+
+    /**
+     * Counts the bytes of the archive so each gzip member's offset is known; closing a member
+     * leaves the file open.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
     }
 }
@@ -1,5 +1,8 @@
 package infrastructure.logger;
 
+import infrastructure.clock.HubClock;
+import infrastructure.clock.RealClock;
+
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -27,12 +30,21 @@ public class TimestampLogger extends LoggerDecorator {
     private final LinkedBlockingQueue<String> listenerQueue;
     private final Thread workerThread;
     private final AtomicBoolean running = new AtomicBoolean(true);
+    private volatile HubClock clock;
 
     private static final int MAX_TIMED_LOGS = 2000;
     private static final int LISTENER_QUEUE_CAPACITY = 1000;
 
     public TimestampLogger(Logger logger) {
+        this(logger, RealClock.getInstance());
+    }
+
+    /**
+     * @param clock Timestamps are taken from its {@link HubClock#coarse() coarse} view.
+     */
+    public TimestampLogger(Logger logger, HubClock clock) {
         super(logger);
+        this.clock = clock.coarse();
 
         this.listenerQueue = new LinkedBlockingQueue<>(LISTENER_QUEUE_CAPACITY);
 
@@ -95,7 +107,7 @@ public class TimestampLogger extends LoggerDecorator {
 
     @Override
     public void log(String update, LogLevel logLevel) {
-        Instant timestamp = Instant.now();
+        Instant timestamp = clock.instant();
 
         // Delegate to the wrapped logger
         logger.log(update, logLevel);
@@ -119,6 +131,10 @@ public class TimestampLogger extends LoggerDecorator {
         }
     }
 
+    public void setClock(HubClock clock) {
+        this.clock = clock.coarse();
+    }
+
     /**
      * Returns a snapshot copy of the stored logs.
      */
@@ -0,0 +1,24 @@
+package infrastructure.logger.search;
+
+/**
+ * Where the next page of an audit search starts: entries at or before a timestamp, less the
+ * ones at exactly that timestamp that were already returned. Being time-based, a cursor stays
+ * valid when the active log file is rotated between pages.
+ */
+public final class AuditCursor {
+    private final long timestampMillis;
+    private final int skip;
+
+    AuditCursor(long timestampMillis, int skip) {
+        this.timestampMillis = timestampMillis;
+        this.skip = skip;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public int getSkip() {
+        return skip;
+    }
+}
@@ -0,0 +1,351 @@
+package infrastructure.logger.search;
+
+import infrastructure.logger.ArchivedLogFile;
+import infrastructure.logger.LogFileArchiver;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Searches the whole audit trail: the archived segments through their indexes and the active
+ * log file, which rotation keeps small, by scanning it.
+ *
+ * <p>Segments are visited newest first and skipped by the time range in the manifest. Within an
+ * indexed segment the posting lists of the query's keys are intersected, the per-line timestamps
+ * narrow the result to the requested range, and only the blocks holding the entries on the page
+ * are decompressed. The search stops as soon as a page is full, so the cost of a page depends on
+ * how far back its matches are, not on the size of the history.</p>
+ */
+public class AuditLogSearch {
+    private static final int OPEN_INDEX_LIMIT = 64;
+    private static final int HOUR_UNION_LIMIT = 48;
+
+    private final LogFileArchiver archiver;
+    private final Map<Path, LogSegmentIndex> openIndexes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, LogSegmentIndex> eldest) {
+            return size() > OPEN_INDEX_LIMIT;
+        }
+    };
+
+    public AuditLogSearch(LogFileArchiver archiver) {
+        this.archiver = archiver;
+    }
+
+    public AuditSearchPage search(AuditQuery query) throws IOException {
+        return search(query, null);
+    }
+
+    /**
+     * @param after The cursor of the previous page, or null for the first page.
+     * @return Up to a page of matching entries, newest first.
+     */
+    public AuditSearchPage search(AuditQuery query, AuditCursor after) throws IOException {
+        long start = System.nanoTime();
+        long lower = query.getFrom() != null ? query.getFrom().toEpochMilli() : Long.MIN_VALUE;
+        long upper = query.getTo() != null ? query.getTo().toEpochMilli() - 1 : Long.MAX_VALUE;
+        if (after != null) {
+            upper = Math.min(upper, after.getTimestampMillis());
+        }
+        int wanted = query.getPageSize() + 1;
+        int skip = after != null ? after.getSkip() : 0;
+
+        List<Hit> hits = new ArrayList<>(wanted);
+        int searched = 0;
+        List<Segment> segments = new ArrayList<>();
+        segments.add(new ScannedSegment(archiver.getActiveFile(), false));
+        List<ArchivedLogFile> manifest = archiver.getManifest();
+        for (int i = manifest.size() - 1; i >= 0; i--) {
+            ArchivedLogFile archive = manifest.get(i);
+            if (archive.getLastEntry().toEpochMilli() < lower) {
+                break;
+            }
+            if (archive.getFirstEntry().toEpochMilli() <= upper) {
+                segments.add(segmentFor(archive));
+            }
+        }
+
+        for (Segment segment : segments) {
+            if (hits.size() == wanted) {
+                break;
+            }
+            searched++;
+            for (Hit hit : segment.hits(query, lower, upper)) {
+                if (after != null && hit.timestamp == after.getTimestampMillis() && skip > 0) {
+                    skip--;
+                    continue;
+                }
+                hits.add(hit);
+                if (hits.size() == wanted) {
+                    break;
+                }
+            }
+        }
+
+        int pageSize = Math.min(query.getPageSize(), hits.size());
+        List<String> entries = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            Hit hit = hits.get(i);
+            entries.add(hit.segment.line(hit.line));
+        }
+
+        AuditCursor next = null;
+        if (hits.size() > pageSize) {
+            long last = hits.get(pageSize - 1).timestamp;
+            int sameTimestamp = 0;
+            for (int i = 0; i < pageSize; i++) {
+                if (hits.get(i).timestamp == last) {
+                    sameTimestamp++;
+                }
+            }
+            if (after != null && after.getTimestampMillis() == last) {
+                sameTimestamp += after.getSkip();
+            }
+            next = new AuditCursor(last, sameTimestamp);
+        }
+        return new AuditSearchPage(entries, next, searched, (System.nanoTime() - start) / 1_000);
+    }
+
+    private Segment segmentFor(ArchivedLogFile archive) {
+        Path indexFile = LogSegmentIndexWriter.indexFileFor(archive.getPath());
+        LogSegmentIndex index;
+        synchronized (openIndexes) {
+            index = openIndexes.get(indexFile);
+            if (index == null && Files.exists(indexFile)) {
+                try {
+                    index = LogSegmentIndex.open(indexFile);
+                    openIndexes.put(indexFile, index);
+                } catch (IOException e) {
+                    index = null;
+                }
+            }
+        }
+        // Archives written before indexing existed, or with a damaged index, are scanned
+        return index != null ? new IndexedSegment(archive.getPath(), index) : new ScannedSegment(archive.getPath(), true);
+    }
+
+    private static final class Hit {
+        final Segment segment;
+        final int line;
+        final long timestamp;
+
+        Hit(Segment segment, int line, long timestamp) {
+            this.segment = segment;
+            this.line = line;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private interface Segment {
+        /**
+         * @return Matching entries in {@code [lower, upper]}, newest first.
+         */
+        List<Hit> hits(AuditQuery query, long lower, long upper) throws IOException;
+
+        String line(int line) throws IOException;
+    }
+
+    private static List<Hit> newestFirst(Segment segment, int[] lines, int count, long[] timestamps) {
+        List<Hit> hits = new ArrayList<>(count);
+        boolean ascending = true;
+        for (int i = 0; i < count; i++) {
+            ascending &= i == 0 || timestamps[lines[i - 1]] <= timestamps[lines[i]];
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            hits.add(new Hit(segment, lines[i], timestamps[lines[i]]));
+        }
+        if (!ascending) {
+            // Concurrent writers can leave entries a few milliseconds out of order
+            hits.sort((a, b) -> a.timestamp != b.timestamp ? Long.compare(b.timestamp, a.timestamp) : Integer.compare(b.line, a.line));
+        }
+        return hits;
+    }
+
+    private static final class IndexedSegment implements Segment {
+        private final Path archive;
+        private final LogSegmentIndex index;
+        private final Map<Integer, String[]> blocks = new HashMap<>();
+
+        IndexedSegment(Path archive, LogSegmentIndex index) {
+            this.archive = archive;
+            this.index = index;
+        }
+
+        @Override
+        public List<Hit> hits(AuditQuery query, long lower, long upper) {
+            long[] timestamps = index.timestamps();
+            int[] candidates = candidates(query, lower, upper);
+            int count = 0;
+            for (int line : candidates) {
+                long ts = timestamps[line];
+                if (ts >= lower && ts <= upper) {
+                    candidates[count++] = line;
+                }
+            }
+            return newestFirst(this, candidates, count, timestamps);
+        }
+
+        private int[] candidates(AuditQuery query, long lower, long upper) {
+            if (query.getKeys().isEmpty()) {
+                return timeCandidates(lower, upper);
+            }
+            List<int[]> postings = new ArrayList<>(query.getKeys().size());
+            for (String key : query.getKeys()) {
+                int[] lines = index.postings(key);
+                if (lines.length == 0) {
+                    return lines;
+                }
+                postings.add(lines);
+            }
+            postings.sort(Comparator.comparingInt(p -> p.length));
+            int[] result = postings.get(0);
+            for (int i = 1; i < postings.size() && result.length > 0; i++) {
+                result = intersect(result, postings.get(i));
+            }
+            return result == postings.get(0) ? result.clone() : result;
+        }
+
+        /**
+         * Narrow time-only queries through the hour buckets; wide ones take every line.
+         */
+        private int[] timeCandidates(long lower, long upper) {
+            if (lower != Long.MIN_VALUE && upper != Long.MAX_VALUE
+                    && LogTokenizer.hourOf(upper) - LogTokenizer.hourOf(lower) < HOUR_UNION_LIMIT) {
+                int[] union = new int[0];
+                for (long hour = LogTokenizer.hourOf(lower); hour <= LogTokenizer.hourOf(upper); hour++) {
+                    union = merge(union, index.postings(LogTokenizer.HOUR_PREFIX + hour));
+                }
+                return union;
+            }
+            int[] all = new int[index.lineCount()];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        @Override
+        public String line(int line) throws IOException {
+            int block = index.blockOf(line);
+            String[] lines = blocks.get(block);
+            if (lines == null) {
+                lines = readBlock(block);
+                blocks.put(block, lines);
+            }
+            return lines[line - block * index.blockLines()];
+        }
+
+        private String[] readBlock(int block) throws IOException {
+            try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+                long start = index.blockStart(block);
+                long end = index.blockEnd(block) >= 0 ? index.blockEnd(block) : channel.size();
+                ByteBuffer compressed = ByteBuffer.allocate((int) (end - start));
+                while (compressed.hasRemaining() && channel.read(compressed, start + compressed.position()) >= 0) {
+                    // Positional reads until the block is in
+                }
+                List<String> lines = new ArrayList<>(index.blockLines());
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                        new GZIPInputStream(new ByteArrayInputStream(compressed.array())), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        lines.add(line);
+                    }
+                }
+                return lines.toArray(new String[0]);
+            }
+        }
+    }
+
+    /**
+     * A segment without an index: the active file, or an archive from before indexing.
+     */
+    private static final class ScannedSegment implements Segment {
+        private final Path file;
+        private final boolean compressed;
+        private final List<String> lines = new ArrayList<>();
+
+        ScannedSegment(Path file, boolean compressed) {
+            this.file = file;
+            this.compressed = compressed;
+        }
+
+        @Override
+        public List<Hit> hits(AuditQuery query, long lower, long upper) throws IOException {
+            try (BufferedReader in = compressed
+                    ? new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))
+                    : Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines.add(line);
+                }
+            } catch (NoSuchFileException e) {
+                // The active file is being rotated; its entries are in the newest archive
+                return List.of();
+            }
+
+            int[] matching = new int[lines.size()];
+            long[] timestamps = new long[lines.size()];
+            int count = 0;
+            long previous = Long.MIN_VALUE;
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                long ts = AuditQuery.timestampOf(line, previous);
+                timestamps[i] = ts;
+                previous = ts;
+                if (ts >= lower && ts <= upper && query.matches(line)) {
+                    matching[count++] = i;
+                }
+            }
+            return newestFirst(this, matching, count, timestamps);
+        }
+
+        @Override
+        public String line(int line) {
+            return lines.get(line);
+        }
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                out[n++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                out[n++] = b[j++];
+            } else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
@@ -0,0 +1,127 @@
+package infrastructure.logger.search;
+
+import infrastructure.logger.LogFileArchiver;
+
+import java.time.*;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * An audit log search: every key must be present on an entry, and the entry must fall in
+ * {@code [from, to)} when those are set.
+ *
+ * <p>{@link #parse(String, int)} accepts the search box syntax: free words, {@code level:CRITICAL},
+ * {@code device:<uuid>} (a bare UUID also works), and {@code from:} / {@code to:} with an ISO
+ * instant, date-time or date in the hub's time zone. A {@code to:} date includes that whole day.</p>
+ */
+public class AuditQuery {
+    private static final String FROM_PREFIX = "from:";
+    private static final String TO_PREFIX = "to:";
+
+    private final Set<String> keys;
+    private final Instant from;
+    private final Instant to;
+    private final int pageSize;
+
+    /**
+     * @param keys Index keys as produced by {@link LogTokenizer}.
+     */
+    public AuditQuery(Collection<String> keys, Instant from, Instant to, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.keys = Collections.unmodifiableSet(new LinkedHashSet<>(keys));
+        this.from = from;
+        this.to = to;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a date cannot be read.
+     */
+    public static AuditQuery parse(String text, int pageSize) {
+        List<String> keys = new ArrayList<>();
+        Instant from = null;
+        Instant to = null;
+        for (String term : text.trim().split("\\s+")) {
+            String lower = term.toLowerCase(Locale.ROOT);
+            if (term.isEmpty()) {
+                continue;
+            } else if (lower.startsWith(LogTokenizer.LEVEL_PREFIX)) {
+                keys.add(LogTokenizer.LEVEL_PREFIX + term.substring(LogTokenizer.LEVEL_PREFIX.length()).toUpperCase(Locale.ROOT));
+            } else if (lower.startsWith(LogTokenizer.DEVICE_PREFIX)) {
+                keys.add(lower);
+            } else if (LogTokenizer.isUuid(term)) {
+                keys.add(LogTokenizer.DEVICE_PREFIX + lower);
+            } else if (lower.startsWith(FROM_PREFIX)) {
+                from = parseTime(term.substring(FROM_PREFIX.length()), false);
+            } else if (lower.startsWith(TO_PREFIX)) {
+                to = parseTime(term.substring(TO_PREFIX.length()), true);
+            } else {
+                LogTokenizer.words(term, keys::add);
+            }
+        }
+        return new AuditQuery(keys, from, to, pageSize);
+    }
+
+    private static Instant parseTime(String text, boolean endOfDay) {
+        try {
+            return Instant.parse(text);
+        } catch (DateTimeParseException ignored) {
+        }
+        try {
+            return LocalDateTime.parse(text).atZone(ZoneId.systemDefault()).toInstant();
+        } catch (DateTimeParseException ignored) {
+        }
+        try {
+            LocalDate date = LocalDate.parse(text);
+            return (endOfDay ? date.plusDays(1) : date).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Unrecognised date or time: " + text);
+        }
+    }
+
+    public Set<String> getKeys() {
+        return keys;
+    }
+
+    public Instant getFrom() {
+        return from;
+    }
+
+    public Instant getTo() {
+        return to;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Checks an entry that has not been indexed, e.g. one in the active log file. Cheap substring
+     * checks reject most lines before any tokenizing.
+     */
+    boolean matches(String line) {
+        String lower = null;
+        for (String key : keys) {
+            if (key.startsWith(LogTokenizer.HOUR_PREFIX) || key.startsWith(LogTokenizer.LEVEL_PREFIX)) {
+                continue;
+            }
+            if (lower == null) {
+                lower = line.toLowerCase(Locale.ROOT);
+            }
+            String text = key.startsWith(LogTokenizer.DEVICE_PREFIX) ? key.substring(LogTokenizer.DEVICE_PREFIX.length()) : key;
+            if (!lower.contains(text)) {
+                return false;
+            }
+        }
+        Set<String> lineKeys = new HashSet<>();
+        LogTokenizer.keys(line, lineKeys::add);
+        return lineKeys.containsAll(keys);
+    }
+
+    static long timestampOf(String line, long fallback) {
+        Instant ts = LogFileArchiver.timestampOf(line);
+        return ts != null ? ts.toEpochMilli() : fallback;
+    }
+}
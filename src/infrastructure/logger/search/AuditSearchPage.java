@@ -0,0 +1,44 @@
+package infrastructure.logger.search;
+
+import java.util.List;
+
+/**
+ * Data transfer object. One page of audit log entries, newest first, and the cursor for the
+ * page after it.
+ */
+public class AuditSearchPage {
+    private final List<String> entries;
+    private final AuditCursor next;
+    private final int segmentsSearched;
+    private final long elapsedMicros;
+
+    public AuditSearchPage(List<String> entries, AuditCursor next, int segmentsSearched, long elapsedMicros) {
+        this.entries = entries;
+        this.next = next;
+        this.segmentsSearched = segmentsSearched;
+        this.elapsedMicros = elapsedMicros;
+    }
+
+    public List<String> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return The cursor for the next page, or null if this is the last one.
+     */
+    public AuditCursor getNext() {
+        return next;
+    }
+
+    public boolean hasMore() {
+        return next != null;
+    }
+
+    public int getSegmentsSearched() {
+        return segmentsSearched;
+    }
+
+    public long getElapsedMicros() {
+        return elapsedMicros;
+    }
+}
@@ -0,0 +1,118 @@
+package infrastructure.logger.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Read side of a segment index written by {@link LogSegmentIndexWriter}. The file is memory
+ * mapped and terms are found by binary search over the sorted entry table, so opening a segment
+ * costs a mapping and looking a term up touches a handful of pages.
+ */
+final class LogSegmentIndex {
+    private final ByteBuffer data;
+    private final int lineCount;
+    private final int blockLines;
+    private final long[] blockOffsets;
+    private final int timestampsPosition;
+    private final int termCount;
+    private final int termTablePosition;
+    private long[] timestamps; // Decoded on first use
+
+    private LogSegmentIndex(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.getInt(0) != LogSegmentIndexWriter.MAGIC || data.getInt(4) != LogSegmentIndexWriter.VERSION) {
+            throw new IOException("Not a log segment index");
+        }
+        this.lineCount = data.getInt(8);
+        this.blockLines = data.getInt(12);
+        int blockCount = data.getInt(16);
+        int position = 20;
+        this.blockOffsets = new long[blockCount];
+        for (int i = 0; i < blockCount; i++) {
+            blockOffsets[i] = data.getLong(position);
+            position += Long.BYTES;
+        }
+        int timestampsLength = data.getInt(position);
+        this.timestampsPosition = position + Integer.BYTES;
+        position = timestampsPosition + timestampsLength;
+        this.termCount = data.getInt(position);
+        this.termTablePosition = position + Integer.BYTES;
+    }
+
+    static LogSegmentIndex open(Path indexFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new LogSegmentIndex(mapped);
+        }
+    }
+
+    int lineCount() {
+        return lineCount;
+    }
+
+    int blockOf(int line) {
+        return line / blockLines;
+    }
+
+    int blockLines() {
+        return blockLines;
+    }
+
+    long blockStart(int block) {
+        return blockOffsets[block];
+    }
+
+    /**
+     * @return The offset the block ends at, or -1 for the last block, which runs to end of file.
+     */
+    long blockEnd(int block) {
+        return block + 1 < blockOffsets.length ? blockOffsets[block + 1] : -1;
+    }
+
+    /**
+     * @return The ascending line numbers posted under the key, or an empty array.
+     */
+    int[] postings(String key) {
+        byte[] wanted = key.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = data.getInt(termTablePosition + mid * Integer.BYTES);
+            int length = ((data.get(entry) & 0xFF) << 8) | (data.get(entry + 1) & 0xFF);
+            byte[] term = new byte[length];
+            data.get(entry + 2, term);
+            int cmp = Arrays.compareUnsigned(term, wanted);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                int count = data.getInt(entry + 2 + length);
+                return PostingList.decode(data, entry + 2 + length + Integer.BYTES, count);
+            }
+        }
+        return new int[0];
+    }
+
+    synchronized long[] timestamps() {
+        if (timestamps == null) {
+            ByteBuffer buf = data.duplicate();
+            buf.position(timestampsPosition);
+            long[] decoded = new long[lineCount];
+            long ts = 0;
+            for (int i = 0; i < lineCount; i++) {
+                ts += PostingList.unZigZag(PostingList.readVarint(buf));
+                decoded[i] = ts;
+            }
+            timestamps = decoded;
+        }
+        return timestamps;
+    }
+}
@@ -0,0 +1,133 @@
+package infrastructure.logger.search;
+
+import infrastructure.logger.LogFileArchiver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Builds the inverted index of one archived log segment while the archiver compresses it.
+ *
+ * <p>The archive is written as a series of gzip members of {@code blockLines} lines each; the
+ * index records where each member starts, so any line can be read back by decompressing just
+ * its block. File layout, big-endian:</p>
+ * <pre>
+ * int magic, int version, int lineCount, int blockLines, int blockCount
+ * long[blockCount]  compressed offset of each block
+ * int length, byte[length]  per-line timestamps, zig-zag varint deltas
+ * int termCount, int[termCount]  file offset of each term entry, sorted by term bytes
+ * term entries: short length, byte[length] term, int postingCount, varint line gaps
+ * </pre>
+ */
+public class LogSegmentIndexWriter {
+    static final int MAGIC = 0x5E1D1D0C;
+    static final int VERSION = 1;
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final int blockLines;
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final ByteArrayOutputStream timestamps = new ByteArrayOutputStream();
+    private long[] blockOffsets = new long[64];
+    private int blockCount;
+    private int lineCount;
+    private long lastTimestamp;
+
+    public LogSegmentIndexWriter(int blockLines) {
+        this.blockLines = blockLines;
+    }
+
+    /**
+     * @return Where the index of an archive lives: next to it, with an added {@code .idx}.
+     */
+    public static Path indexFileFor(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Called before the first line of each block with the block's offset in the archive.
+     */
+    public void startBlock(long compressedOffset) {
+        if (blockCount == blockOffsets.length) {
+            blockOffsets = Arrays.copyOf(blockOffsets, blockCount * 2);
+        }
+        blockOffsets[blockCount++] = compressedOffset;
+    }
+
+    public void addLine(String line) {
+        int lineNumber = lineCount++;
+        Instant timestamp = LogFileArchiver.timestampOf(line);
+        // A line without a timestamp (e.g. a wrapped message) sorts with the line before it
+        long ts = timestamp != null ? timestamp.toEpochMilli() : lastTimestamp;
+        PostingList.writeVarint(timestamps, PostingList.zigZag(ts - lastTimestamp));
+        lastTimestamp = ts;
+
+        LogTokenizer.keys(line, key -> terms.computeIfAbsent(key, k -> new Postings()).add(lineNumber));
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    public void write(Path indexFile) throws IOException {
+        List<byte[]> sortedTerms = new ArrayList<>(terms.size());
+        Map<byte[], Postings> byBytes = new IdentityHashMap<>();
+        for (Map.Entry<String, Postings> term : terms.entrySet()) {
+            byte[] bytes = term.getKey().getBytes(StandardCharsets.UTF_8);
+            sortedTerms.add(bytes);
+            byBytes.put(bytes, term.getValue());
+        }
+        sortedTerms.sort(Arrays::compareUnsigned);
+
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        int[] entryOffsets = new int[sortedTerms.size()];
+        ByteBuffer intBuf = ByteBuffer.allocate(Integer.BYTES);
+        for (int i = 0; i < sortedTerms.size(); i++) {
+            byte[] term = sortedTerms.get(i);
+            Postings postings = byBytes.get(term);
+            entryOffsets[i] = entries.size();
+            entries.write(term.length >>> 8);
+            entries.write(term.length);
+            entries.write(term);
+            entries.write(intBuf.clear().putInt(postings.count).array());
+            PostingList.encode(postings.lines, postings.count, entries);
+        }
+
+        int headerSize = 5 * Integer.BYTES + blockCount * Long.BYTES
+                + Integer.BYTES + timestamps.size()
+                + Integer.BYTES + entryOffsets.length * Integer.BYTES;
+        ByteBuffer out = ByteBuffer.allocate(headerSize + entries.size());
+        out.putInt(MAGIC).putInt(VERSION).putInt(lineCount).putInt(blockLines).putInt(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            out.putLong(blockOffsets[i]);
+        }
+        out.putInt(timestamps.size()).put(timestamps.toByteArray());
+        out.putInt(entryOffsets.length);
+        for (int offset : entryOffsets) {
+            out.putInt(headerSize + offset);
+        }
+        out.put(entries.toByteArray());
+        Files.write(indexFile, out.array());
+    }
+
+    private static final class Postings {
+        int[] lines = new int[4];
+        int count;
+
+        void add(int line) {
+            // A key that appears twice on one line is posted once
+            if (count > 0 && lines[count - 1] == line) {
+                return;
+            }
+            if (count == lines.length) {
+                lines = Arrays.copyOf(lines, count * 2);
+            }
+            lines[count++] = line;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package infrastructure.logger.search;
+
+import infrastructure.logger.LogFileArchiver;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a {@code [timestamp] [LEVEL] message} log line into the keys it is indexed under:
+ * its hour bucket, its level, every device UUID it mentions, and the lower-cased words of the
+ * message. Indexing and query matching use the same keys, so they always agree.
+ */
+public final class LogTokenizer {
+    public static final String HOUR_PREFIX = "hour:";
+    public static final String LEVEL_PREFIX = "level:";
+    public static final String DEVICE_PREFIX = "device:";
+    private static final int MIN_WORD = 2;
+    private static final int MAX_WORD = 64;
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+    private static final Pattern UUID_PATTERN =
+            Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+
+    private LogTokenizer() {
+    }
+
+    public static void keys(String line, Consumer<String> sink) {
+        int position = 0;
+        Instant timestamp = LogFileArchiver.timestampOf(line);
+        if (timestamp != null) {
+            sink.accept(hourKey(timestamp.toEpochMilli()));
+            position = line.indexOf(']') + 1;
+        }
+        int open = line.indexOf('[', position);
+        int close = open >= 0 ? line.indexOf(']', open) : -1;
+        if (close > open && line.substring(position, open).isBlank()) {
+            sink.accept(LEVEL_PREFIX + line.substring(open + 1, close));
+            position = close + 1;
+        }
+
+        Matcher uuid = UUID_PATTERN.matcher(line);
+        uuid.region(position, line.length());
+        while (uuid.find()) {
+            words(line, position, uuid.start(), sink);
+            sink.accept(DEVICE_PREFIX + uuid.group().toLowerCase(Locale.ROOT));
+            position = uuid.end();
+        }
+        words(line, position, line.length(), sink);
+    }
+
+    /**
+     * Emits the words of free text the same way message words are indexed.
+     */
+    public static void words(String text, Consumer<String> sink) {
+        words(text, 0, text.length(), sink);
+    }
+
+    public static boolean isUuid(String text) {
+        return UUID_PATTERN.matcher(text).matches();
+    }
+
+    public static String hourKey(long epochMillis) {
+        return HOUR_PREFIX + Math.floorDiv(epochMillis, MILLIS_PER_HOUR);
+    }
+
+    static long hourOf(long epochMillis) {
+        return Math.floorDiv(epochMillis, MILLIS_PER_HOUR);
+    }
+
+    private static void words(String text, int from, int to, Consumer<String> sink) {
+        int start = -1;
+        for (int i = from; i <= to; i++) {
+            boolean wordChar = i < to && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                int length = i - start;
+                if (length >= MIN_WORD && length <= MAX_WORD) {
+                    sink.accept(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package infrastructure.logger.search;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Varint codecs for the segment index. Posting lists are ascending line numbers stored as
+ * gaps, so a term on most lines of a segment costs about a byte per line; timestamps are stored
+ * as zig-zag encoded deltas.
+ */
+final class PostingList {
+    private PostingList() {
+    }
+
+    static void encode(int[] lines, int count, ByteArrayOutputStream out) {
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            writeVarint(out, lines[i] - previous);
+            previous = lines[i];
+        }
+    }
+
+    static int[] decode(ByteBuffer in, int position, int count) {
+        ByteBuffer buf = in.duplicate();
+        buf.position(position);
+        int[] lines = new int[count];
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += (int) readVarint(buf);
+            lines[i] = previous;
+        }
+        return lines;
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
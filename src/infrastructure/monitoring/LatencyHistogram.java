@@ -0,0 +1,114 @@
+package infrastructure.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size latency histogram in the style of HdrHistogram: values are counted in buckets
+ * whose width doubles with each power of two, each split into {@value #SUB_BUCKETS} linear
+ * sub-buckets, so every recorded value is kept to within 1% whether it is a microsecond or a
+ * minute. Recording is one array increment and never allocates or locks; count, mean and max
+ * are exact.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int MAX_SHIFT = 63 - SUB_BITS + 1;
+    private static final int LENGTH = (MAX_SHIFT + 2) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(LENGTH);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value Any non-negative measurement, typically nanoseconds; negative values count as 0.
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        counts.incrementAndGet(indexOf(v));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * Adds every value recorded by {@code other}.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < LENGTH; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param percentile 0 to 100.
+     * @return The largest value in the bucket the percentile falls in, capped at the recorded max;
+     *         0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueAt(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return Count, mean, p50, p90, p99, p99.9 and max in microseconds, for nanosecond values.
+     */
+    public String summary() {
+        return String.format("n=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                getCount(), getMean() / 1_000, getValueAtPercentile(50) / 1e3, getValueAtPercentile(90) / 1e3,
+                getValueAtPercentile(99) / 1e3, getValueAtPercentile(99.9) / 1e3, getMax() / 1e3);
+    }
+
+    /**
+     * Values below {@link #SUB_BUCKETS} map to themselves; above that, the top {@code SUB_BITS}
+     * bits of the value pick the sub-bucket and the shift that exposes them picks the bucket.
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / HALF - 1;
+        long lowest = (long) (index - shift * HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,72 @@
+package infrastructure.monitoring;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Minimal HTTP server exposing read-only JSON monitoring endpoints (e.g. /health, /metrics).
+ * This is the only way to observe a hub running in headless mode, so it is started in both
+ * run modes to keep the two comparable.
+ *
+ * <p>Each endpoint is backed by a supplier that is invoked per request; suppliers should
+ * return plain maps or primitives so Gson never has to reflect into JDK classes.</p>
+ */
+public class MonitoringServer {
+    private final HttpServer server;
+    private final Logger logger;
+    private final Gson gson = new Gson();
+
+    public MonitoringServer(int port, Logger logger) throws IOException {
+        this.logger = logger;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "monitoring-http");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    public void addJsonEndpoint(String path, Supplier<?> body) {
+        server.createContext(path, exchange -> respond(exchange, body));
+    }
+
+    public void start() {
+        server.start();
+        logger.log("Monitoring endpoints listening on port " + server.getAddress().getPort(), LogLevel.INFO);
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void respond(HttpExchange exchange, Supplier<?> body) throws IOException {
+        byte[] payload;
+        int code = 200;
+        try {
+            payload = gson.toJson(body.get()).getBytes(StandardCharsets.UTF_8);
+        } catch (RuntimeException e) {
+            code = 500;
+            payload = ("{\"error\":\"" + e.getClass().getSimpleName() + "\"}").getBytes(StandardCharsets.UTF_8);
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, payload.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(payload);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package infrastructure.replication;
+
+import alarm.AlarmSeverity;
+import core.HubStatus;
+import devices.model.DeviceStatus;
+import devices.model.DeviceType;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Wire format for the replication stream. Each batch travels as one length-prefixed frame:
+ *
+ * <pre>
+ *   int   frame length (bytes that follow)
+ *   byte  format version
+ *   int   event count
+ *   event * count: byte type, long createdAtMicros, then the type-specific fields
+ * </pre>
+ *
+ * Enums are written as ordinals, UUIDs as two longs and zone lists as a count followed by
+ * modified-UTF-8 names.
+ */
+final class ReplicationCodec {
+    static final byte VERSION = 3;
+    static final int MAX_FRAME_BYTES = 16 * 1024 * 1024;
+
+    private ReplicationCodec() {
+    }
+
+    static void writeFrame(DataOutputStream out, List<ReplicationEvent> batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + batch.size() * 64);
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeByte(VERSION);
+        body.writeInt(batch.size());
+        for (ReplicationEvent e : batch) {
+            writeEvent(body, e);
+        }
+
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+        out.flush();
+    }
+
+    static List<ReplicationEvent> readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length <= 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid replication frame length: " + length);
+        }
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+
+        DataInputStream body = new DataInputStream(new ByteArrayInputStream(frame));
+        byte version = body.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported replication format version: " + version);
+        }
+        int count = body.readInt();
+        List<ReplicationEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            events.add(readEvent(body));
+        }
+        return events;
+    }
+
+    private static void writeEvent(DataOutputStream out, ReplicationEvent e) throws IOException {
+        out.writeByte(e.getType().ordinal());
+        out.writeLong(e.getCreatedAtMicros());
+
+        switch (e.getType()) {
+            case DEVICE_UPSERT -> {
+                writeUuid(out, e.getId());
+                out.writeByte(e.getDeviceType().ordinal());
+                out.writeByte(e.getDeviceStatus().ordinal());
+                out.writeInt(e.getBatteryLife());
+                out.writeInt(e.getSignalStrength());
+                out.writeInt(e.getFailureCount());
+            }
+            case DEVICE_REMOVED -> {
+                writeUuid(out, e.getId());
+                out.writeByte(e.getDeviceType().ordinal());
+            }
+            case ALARM_REGISTERED, ALARM_RESOLVED -> {
+                writeUuid(out, e.getId());
+                writeUuid(out, e.getDeviceId());
+                out.writeByte(e.getDeviceType().ordinal());
+                out.writeByte(e.getSeverity().ordinal());
+                out.writeLong(e.getAlarmTimestamp().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(e.getAlarmTimestamp().getNano());
+            }
+            case MODE_CHANGED -> out.writeByte(e.getHubStatus().ordinal());
+            case ZONES_ARMED -> writeZones(out, e.getZones());
+            case ZONE_ASSIGNED, ZONE_UNASSIGNED, ZONE_MEMBERSHIP -> {
+                writeUuid(out, e.getId());
+                writeZones(out, e.getZones());
+            }
+            case HEARTBEAT -> {
+            }
+        }
+    }
+
+    private static ReplicationEvent readEvent(DataInputStream in) throws IOException {
+        ReplicationEventType type = ReplicationEventType.values()[in.readByte()];
+        long createdAt = in.readLong();
+
+        switch (type) {
+            case DEVICE_UPSERT -> {
+                UUID id = readUuid(in);
+                DeviceType deviceType = DeviceType.values()[in.readByte()];
+                DeviceStatus status = DeviceStatus.values()[in.readByte()];
+                int battery = in.readInt();
+                int signal = in.readInt();
+                int failures = in.readInt();
+                return new ReplicationEvent(type, createdAt, id, id, deviceType, status, battery, signal, failures,
+                        null, null, null);
+            }
+            case DEVICE_REMOVED -> {
+                UUID id = readUuid(in);
+                DeviceType deviceType = DeviceType.values()[in.readByte()];
+                return new ReplicationEvent(type, createdAt, id, id, deviceType, null, 0, 0, 0, null, null, null);
+            }
+            case ALARM_REGISTERED, ALARM_RESOLVED -> {
+                UUID id = readUuid(in);
+                UUID deviceId = readUuid(in);
+                DeviceType deviceType = DeviceType.values()[in.readByte()];
+                AlarmSeverity severity = AlarmSeverity.values()[in.readByte()];
+                LocalDateTime timestamp = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+                return new ReplicationEvent(type, createdAt, id, deviceId, deviceType, null, 0, 0, 0,
+                        severity, timestamp, null);
+            }
+            case MODE_CHANGED -> {
+                HubStatus status = HubStatus.values()[in.readByte()];
+                return new ReplicationEvent(type, createdAt, null, null, null, null, 0, 0, 0, null, null, status);
+            }
+            case ZONES_ARMED -> {
+                List<String> zones = readZones(in);
+                return new ReplicationEvent(type, createdAt, null, null, null, null, 0, 0, 0, null, null, null, zones);
+            }
+            case ZONE_ASSIGNED, ZONE_UNASSIGNED, ZONE_MEMBERSHIP -> {
+                UUID id = readUuid(in);
+                List<String> zones = readZones(in);
+                return new ReplicationEvent(type, createdAt, id, id, null, null, 0, 0, 0, null, null, null, zones);
+            }
+            default -> {
+                return new ReplicationEvent(type, createdAt, null, null, null, null, 0, 0, 0, null, null, null);
+            }
+        }
+    }
+
+    private static void writeZones(DataOutputStream out, List<String> zones) throws IOException {
+        out.writeShort(zones.size());
+        for (String zone : zones) {
+            out.writeUTF(zone);
+        }
+    }
+
+    private static List<String> readZones(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        List<String> zones = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            zones.add(in.readUTF());
+        }
+        return zones;
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
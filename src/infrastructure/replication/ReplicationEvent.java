@@ -0,0 +1,191 @@
+package infrastructure.replication;
+
+import alarm.Alarm;
+import alarm.AlarmSeverity;
+import core.HubStatus;
+import devices.api.Device;
+import devices.model.DeviceStatus;
+import devices.model.DeviceType;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One replicated state change. Device and alarm fields are copied when the event is created,
+ * so later mutations on the primary cannot leak into an event that is still queued.
+ * Fields that do not apply to the event type are null or zero.
+ */
+public class ReplicationEvent {
+    private final ReplicationEventType type;
+    private final long createdAtMicros;
+    private final UUID id;           // Device id, or alarm id for alarm events
+    private final UUID deviceId;     // Owning device for alarm events
+    private final DeviceType deviceType;
+    private final DeviceStatus deviceStatus;
+    private final int batteryLife;
+    private final int signalStrength;
+    private final int failureCount;
+    private final AlarmSeverity severity;
+    private final LocalDateTime alarmTimestamp;
+    private final HubStatus hubStatus;
+    private final List<String> zones;
+
+    ReplicationEvent(ReplicationEventType type, long createdAtMicros, UUID id, UUID deviceId,
+                     DeviceType deviceType, DeviceStatus deviceStatus, int batteryLife, int signalStrength,
+                     int failureCount, AlarmSeverity severity, LocalDateTime alarmTimestamp, HubStatus hubStatus) {
+        this(type, createdAtMicros, id, deviceId, deviceType, deviceStatus, batteryLife, signalStrength,
+                failureCount, severity, alarmTimestamp, hubStatus, null);
+    }
+
+    ReplicationEvent(ReplicationEventType type, long createdAtMicros, UUID id, UUID deviceId,
+                     DeviceType deviceType, DeviceStatus deviceStatus, int batteryLife, int signalStrength,
+                     int failureCount, AlarmSeverity severity, LocalDateTime alarmTimestamp, HubStatus hubStatus,
+                     List<String> zones) {
+        this.type = type;
+        this.createdAtMicros = createdAtMicros;
+        this.id = id;
+        this.deviceId = deviceId;
+        this.deviceType = deviceType;
+        this.deviceStatus = deviceStatus;
+        this.batteryLife = batteryLife;
+        this.signalStrength = signalStrength;
+        this.failureCount = failureCount;
+        this.severity = severity;
+        this.alarmTimestamp = alarmTimestamp;
+        this.hubStatus = hubStatus;
+        this.zones = zones != null ? List.copyOf(zones) : null;
+    }
+
+    public static ReplicationEvent deviceUpsert(Device d) {
+        return new ReplicationEvent(ReplicationEventType.DEVICE_UPSERT, nowMicros(), d.getId(), d.getId(),
+                d.getDeviceType(), d.getDeviceStatus(), d.getBatteryLife(), d.getSignalStrength(),
+                d.getFailureCount(), null, null, null);
+    }
+
+    public static ReplicationEvent deviceRemoved(Device d) {
+        return new ReplicationEvent(ReplicationEventType.DEVICE_REMOVED, nowMicros(), d.getId(), d.getId(),
+                d.getDeviceType(), null, 0, 0, 0, null, null, null);
+    }
+
+    public static ReplicationEvent alarmRegistered(Alarm a) {
+        return new ReplicationEvent(ReplicationEventType.ALARM_REGISTERED, nowMicros(), a.getId(), a.getDeviceId(),
+                a.getDeviceType(), null, 0, 0, 0, a.getSeverity(), a.getTimestamp(), null);
+    }
+
+    public static ReplicationEvent alarmResolved(Alarm a) {
+        return new ReplicationEvent(ReplicationEventType.ALARM_RESOLVED, nowMicros(), a.getId(), a.getDeviceId(),
+                a.getDeviceType(), null, 0, 0, 0, a.getSeverity(), a.getTimestamp(), null);
+    }
+
+    public static ReplicationEvent modeChanged(HubStatus status) {
+        return new ReplicationEvent(ReplicationEventType.MODE_CHANGED, nowMicros(), null, null,
+                null, null, 0, 0, 0, null, null, status);
+    }
+
+    /**
+     * Zones are named rather than numbered, since the standby may have given them other ids.
+     */
+    public static ReplicationEvent zonesArmed(List<String> armedZones) {
+        return new ReplicationEvent(ReplicationEventType.ZONES_ARMED, nowMicros(), null, null,
+                null, null, 0, 0, 0, null, null, null, armedZones);
+    }
+
+    public static ReplicationEvent zoneAssigned(UUID deviceId, String zoneName) {
+        return new ReplicationEvent(ReplicationEventType.ZONE_ASSIGNED, nowMicros(), deviceId, deviceId,
+                null, null, 0, 0, 0, null, null, null, List.of(zoneName));
+    }
+
+    public static ReplicationEvent zoneUnassigned(UUID deviceId, String zoneName) {
+        return new ReplicationEvent(ReplicationEventType.ZONE_UNASSIGNED, nowMicros(), deviceId, deviceId,
+                null, null, 0, 0, 0, null, null, null, List.of(zoneName));
+    }
+
+    /**
+     * Every zone the device was assigned to; empty if it only belongs to the default zone.
+     */
+    public static ReplicationEvent zoneMembership(UUID deviceId, List<String> zoneNames) {
+        return new ReplicationEvent(ReplicationEventType.ZONE_MEMBERSHIP, nowMicros(), deviceId, deviceId,
+                null, null, 0, 0, 0, null, null, null, zoneNames);
+    }
+
+    public static ReplicationEvent heartbeat() {
+        return new ReplicationEvent(ReplicationEventType.HEARTBEAT, nowMicros(), null, null,
+                null, null, 0, 0, 0, null, null, null);
+    }
+
+    /**
+     * Wall-clock microseconds since the epoch. Used instead of System.nanoTime() so lag can be
+     * measured between two processes on hosts with synchronized clocks.
+     */
+    static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+
+    public ReplicationEventType getType() {
+        return type;
+    }
+
+    public long getCreatedAtMicros() {
+        return createdAtMicros;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getDeviceId() {
+        return deviceId;
+    }
+
+    public DeviceType getDeviceType() {
+        return deviceType;
+    }
+
+    public DeviceStatus getDeviceStatus() {
+        return deviceStatus;
+    }
+
+    public int getBatteryLife() {
+        return batteryLife;
+    }
+
+    public int getSignalStrength() {
+        return signalStrength;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public AlarmSeverity getSeverity() {
+        return severity;
+    }
+
+    public LocalDateTime getAlarmTimestamp() {
+        return alarmTimestamp;
+    }
+
+    public HubStatus getHubStatus() {
+        return hubStatus;
+    }
+
+    /**
+     * @return Zone names: the armed zones for ZONES_ARMED, the device's zones for ZONE_MEMBERSHIP,
+     *         the one zone joined or left for ZONE_ASSIGNED and ZONE_UNASSIGNED; otherwise null.
+     */
+    public List<String> getZones() {
+        return zones;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicationEvent{" +
+                "type=" + type +
+                ", id=" + id +
+                ", createdAtMicros=" + createdAtMicros +
+                '}';
+    }
+}
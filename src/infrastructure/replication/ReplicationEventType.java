@@ -0,0 +1,14 @@
+package infrastructure.replication;
+
+public enum ReplicationEventType {
+    DEVICE_UPSERT,     // Device added, or its status/telemetry changed
+    DEVICE_REMOVED,
+    ALARM_REGISTERED,
+    ALARM_RESOLVED,
+    MODE_CHANGED,      // Hub armed or disarmed
+    HEARTBEAT,         // Sent when the primary has nothing else to say
+    ZONES_ARMED,       // The set of armed zones changed
+    ZONE_ASSIGNED,     // A device joined a zone
+    ZONE_UNASSIGNED,   // A device left a zone
+    ZONE_MEMBERSHIP    // All of a device's zones, sent in the snapshot
+}
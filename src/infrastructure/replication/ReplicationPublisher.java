@@ -0,0 +1,222 @@
+package infrastructure.replication;
+
+import alarm.Alarm;
+import core.HubChangeListener;
+import core.HubStatus;
+import core.SecurityHub;
+import devices.api.Device;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Primary side of hub replication. Listens for a single standby over TCP, sends it a full
+ * snapshot of the hub on connect, then streams every change made through the
+ * {@link SecurityHub} in length-prefixed batches. A heartbeat frame is sent whenever the
+ * hub has been quiet for {@link #HEARTBEAT_INTERVAL_MS}, so the standby can detect loss of
+ * the primary.
+ *
+ * <p>Hub callbacks only copy the change into a bounded queue. If the standby falls so far
+ * behind that the queue fills, the backlog is dropped and a fresh snapshot is sent instead,
+ * so the command path is never blocked by replication.</p>
+ */
+public class ReplicationPublisher implements HubChangeListener {
+    static final long HEARTBEAT_INTERVAL_MS = 500;
+    private static final int MAX_BATCH = 512;
+    private static final int QUEUE_CAPACITY = 100_000;
+
+    private final SecurityHub hub;
+    private final Logger logger;
+    private final ServerSocket serverSocket;
+    private final LinkedBlockingQueue<ReplicationEvent> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicBoolean resyncRequired = new AtomicBoolean(false);
+    private final AtomicLong sentEvents = new AtomicLong();
+    private final AtomicLong sentBatches = new AtomicLong();
+    private final Thread senderThread;
+    private volatile boolean running = true;
+    private volatile boolean streaming = false;
+
+    public ReplicationPublisher(SecurityHub hub, int port, Logger logger) throws IOException {
+        this.hub = hub;
+        this.logger = logger;
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.setReuseAddress(true);
+        this.serverSocket.bind(new InetSocketAddress(port));
+
+        senderThread = new Thread(this::acceptLoop, "replication-publisher");
+        senderThread.setDaemon(true);
+    }
+
+    public void start() {
+        hub.addChangeListener(this);
+        senderThread.start();
+        logger.log("Replication publisher listening on port " + getPort(), LogLevel.INFO);
+    }
+
+    public void stop() {
+        running = false;
+        hub.removeChangeListener(this);
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+        }
+        senderThread.interrupt();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public long getSentEvents() {
+        return sentEvents.get();
+    }
+
+    public long getSentBatches() {
+        return sentBatches.get();
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try (Socket standby = serverSocket.accept()) {
+                standby.setTcpNoDelay(true);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(standby.getOutputStream(), 64 * 1024));
+                logger.log("Standby connected from " + standby.getRemoteSocketAddress(), LogLevel.INFO);
+
+                // Start queueing before the snapshot; replaying a change twice is harmless
+                queue.clear();
+                streaming = true;
+                sendSnapshot(out);
+                stream(out);
+            } catch (IOException e) {
+                if (running) {
+                    logger.log("Standby connection lost: " + e.getMessage(), LogLevel.WARNING);
+                }
+            } finally {
+                streaming = false;
+                queue.clear();
+            }
+        }
+    }
+
+    private void stream(DataOutputStream out) throws IOException {
+        List<ReplicationEvent> batch = new ArrayList<>(MAX_BATCH);
+        while (running) {
+            if (resyncRequired.getAndSet(false)) {
+                logger.log("Replication queue overflowed. Resending snapshot to standby.", LogLevel.WARNING);
+                queue.clear();
+                sendSnapshot(out);
+                continue;
+            }
+
+            ReplicationEvent first;
+            try {
+                first = queue.poll(HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            batch.clear();
+            if (first == null) {
+                batch.add(ReplicationEvent.heartbeat());
+            } else {
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+            }
+            send(out, batch);
+        }
+    }
+
+    private void sendSnapshot(DataOutputStream out) throws IOException {
+        List<ReplicationEvent> snapshot = new ArrayList<>();
+        snapshot.add(ReplicationEvent.modeChanged(hub.currentMode()));
+        snapshot.add(ReplicationEvent.zonesArmed(hub.getZones().getArmedZoneNames()));
+        for (Device d : hub.getDevices()) {
+            snapshot.add(ReplicationEvent.deviceUpsert(d));
+            snapshot.add(ReplicationEvent.zoneMembership(d.getId(), hub.getZones().getZoneNames(d.getId())));
+        }
+        for (Alarm a : hub.getActiveAlarms()) {
+            snapshot.add(ReplicationEvent.alarmRegistered(a));
+        }
+
+        for (int from = 0; from < snapshot.size(); from += MAX_BATCH) {
+            send(out, snapshot.subList(from, Math.min(snapshot.size(), from + MAX_BATCH)));
+        }
+    }
+
+    private void send(DataOutputStream out, List<ReplicationEvent> batch) throws IOException {
+        ReplicationCodec.writeFrame(out, batch);
+        sentEvents.addAndGet(batch.size());
+        sentBatches.incrementAndGet();
+    }
+
+    private void enqueue(ReplicationEvent event) {
+        if (!streaming) {
+            return; // The next standby gets a full snapshot anyway
+        }
+        if (!queue.offer(event)) {
+            resyncRequired.set(true);
+        }
+    }
+
+    @Override
+    public void onDeviceAdded(Device device) {
+        enqueue(ReplicationEvent.deviceUpsert(device));
+    }
+
+    @Override
+    public void onDeviceRemoved(Device device) {
+        enqueue(ReplicationEvent.deviceRemoved(device));
+    }
+
+    @Override
+    public void onDeviceStatusChanged(Device device) {
+        enqueue(ReplicationEvent.deviceUpsert(device));
+    }
+
+    @Override
+    public void onAlarmRegistered(Alarm alarm) {
+        enqueue(ReplicationEvent.alarmRegistered(alarm));
+    }
+
+    @Override
+    public void onAlarmResolved(Alarm alarm) {
+        enqueue(ReplicationEvent.alarmResolved(alarm));
+    }
+
+    @Override
+    public void onModeChanged(HubStatus status) {
+        enqueue(ReplicationEvent.modeChanged(status));
+    }
+
+    @Override
+    public void onArmedZonesChanged(List<String> armedZones) {
+        enqueue(ReplicationEvent.zonesArmed(armedZones));
+    }
+
+    @Override
+    public void onZoneAssigned(UUID deviceId, String zoneName) {
+        enqueue(ReplicationEvent.zoneAssigned(deviceId, zoneName));
+    }
+
+    @Override
+    public void onZoneUnassigned(UUID deviceId, String zoneName) {
+        enqueue(ReplicationEvent.zoneUnassigned(deviceId, zoneName));
+    }
+}
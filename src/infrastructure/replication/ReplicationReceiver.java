@@ -0,0 +1,274 @@
+package infrastructure.replication;
+
+import alarm.Alarm;
+import alarm.AlarmStatus;
+import core.HubStatus;
+import core.SecurityHub;
+import core.ZoneRegistry;
+import devices.api.Device;
+import devices.api.HardwareLink;
+import devices.model.DeviceType;
+import infrastructure.factories.*;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+import infrastructure.repository.DeviceRepository;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Standby side of hub replication. Connects to a primary's {@link ReplicationPublisher},
+ * applies each replicated change to the local {@link SecurityHub} (and through it, the
+ * local SQLite copy), and takes over once no frame has arrived for the heartbeat timeout.
+ *
+ * <p>Replication lag is measured per event as the time between the change being made on
+ * the primary and it being applied here.</p>
+ */
+public class ReplicationReceiver {
+    private static final long RECONNECT_DELAY_MS = 250;
+
+    private final SecurityHub hub;
+    private final HardwareLink hardwareLink;
+    private final DeviceRepository deviceRepo; // Nullable
+    private final Logger logger;
+    private final String host;
+    private final int port;
+    private final long heartbeatTimeoutMillis;
+    private final Runnable onTakeover;
+    private final Map<DeviceType, DeviceFactory> factories = new EnumMap<>(DeviceType.class);
+
+    private final AtomicBoolean takenOver = new AtomicBoolean(false);
+    private final AtomicLong appliedEvents = new AtomicLong();
+    private final AtomicLong receivedBatches = new AtomicLong();
+    private final AtomicLong totalLagMicros = new AtomicLong();
+    private final AtomicLong maxLagMicros = new AtomicLong();
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "replication-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Thread readerThread;
+    private volatile Socket socket;
+    private volatile long lastFrameNanos;
+
+    public ReplicationReceiver(SecurityHub hub, HardwareLink hardwareLink, DeviceRepository deviceRepo, Logger logger,
+                               String host, int port, long heartbeatTimeoutMillis, Runnable onTakeover) {
+        this.hub = hub;
+        this.hardwareLink = hardwareLink;
+        this.deviceRepo = deviceRepo;
+        this.logger = logger;
+        this.host = host;
+        this.port = port;
+        this.heartbeatTimeoutMillis = heartbeatTimeoutMillis;
+        this.onTakeover = onTakeover;
+
+        factories.put(DeviceType.MOTION_DEVICE, new MotionDeviceFactory());
+        factories.put(DeviceType.SMOKE_DEVICE, new SmokeDeviceFactory());
+        factories.put(DeviceType.THERMAL_DEVICE, new ThermalDeviceFactory());
+        factories.put(DeviceType.GLASS_BREAK_SENSOR_DEVICE, new GlassBreakSensorDeviceFactory());
+
+        readerThread = new Thread(this::readLoop, "replication-receiver");
+        readerThread.setDaemon(true);
+    }
+
+    public void start() {
+        lastFrameNanos = System.nanoTime(); // The primary gets one timeout to show up
+        readerThread.start();
+        long period = Math.max(1, heartbeatTimeoutMillis / 4);
+        watchdog.scheduleAtFixedRate(this::checkHeartbeat, period, period, TimeUnit.MILLISECONDS);
+        logger.log("Standby mode: replicating from primary " + host + ":" + port, LogLevel.INFO);
+    }
+
+    public boolean hasTakenOver() {
+        return takenOver.get();
+    }
+
+    public long getAppliedEvents() {
+        return appliedEvents.get();
+    }
+
+    public long getReceivedBatches() {
+        return receivedBatches.get();
+    }
+
+    public double getMeanLagMicros() {
+        long applied = appliedEvents.get();
+        return applied == 0 ? 0.0 : (double) totalLagMicros.get() / applied;
+    }
+
+    public long getMaxLagMicros() {
+        return maxLagMicros.get();
+    }
+
+    private void readLoop() {
+        while (!takenOver.get()) {
+            try (Socket s = new Socket()) {
+                s.connect(new InetSocketAddress(host, port), (int) heartbeatTimeoutMillis);
+                s.setTcpNoDelay(true);
+                socket = s;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 64 * 1024));
+
+                while (!takenOver.get()) {
+                    List<ReplicationEvent> batch = ReplicationCodec.readFrame(in);
+                    lastFrameNanos = System.nanoTime();
+                    receivedBatches.incrementAndGet();
+                    for (ReplicationEvent e : batch) {
+                        try {
+                            apply(e);
+                        } catch (RuntimeException ex) {
+                            logger.log("Failed to apply replicated " + e.getType() + ": " + ex.getMessage(), LogLevel.ERROR);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (!takenOver.get()) {
+                    try {
+                        Thread.sleep(RECONNECT_DELAY_MS);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void apply(ReplicationEvent e) {
+        switch (e.getType()) {
+            case DEVICE_UPSERT -> applyDeviceUpsert(e);
+            case DEVICE_REMOVED -> {
+                Device d = hub.findDevice(e.getId());
+                if (d != null) {
+                    hub.removeDevice(d);
+                    if (deviceRepo != null) {
+                        deviceRepo.remove(d);
+                    }
+                }
+            }
+            case ALARM_REGISTERED -> hub.registerAlarm(new Alarm(e.getId(), e.getDeviceType(), e.getDeviceId(),
+                    AlarmStatus.ACTIVE, e.getSeverity(), e.getAlarmTimestamp()));
+            case ALARM_RESOLVED -> {
+                // The primary admitted the resolution; the standby's zones may lag behind it
+                Alarm active = hub.findActiveAlarm(e.getDeviceId());
+                if (active != null && active.getId().equals(e.getId())) {
+                    hub.applyAlarmResolution(active);
+                }
+            }
+            case MODE_CHANGED -> {
+                if (e.getHubStatus() == HubStatus.ARMED) {
+                    hub.armHub();
+                } else {
+                    hub.disarmHub();
+                }
+            }
+            case ZONES_ARMED -> applyArmedZones(e.getZones());
+            case ZONE_ASSIGNED -> hub.getZones().assign(e.getId(), e.getZones().get(0));
+            case ZONE_UNASSIGNED -> hub.getZones().unassign(e.getId(), e.getZones().get(0));
+            case ZONE_MEMBERSHIP -> applyMembership(e.getId(), e.getZones());
+            case HEARTBEAT -> {
+            }
+        }
+
+        long lag = Math.max(0, ReplicationEvent.nowMicros() - e.getCreatedAtMicros());
+        appliedEvents.incrementAndGet();
+        totalLagMicros.addAndGet(lag);
+        maxLagMicros.accumulateAndGet(lag, Math::max);
+    }
+
+    private void applyDeviceUpsert(ReplicationEvent e) {
+        Device d = hub.findDevice(e.getId());
+        boolean isNew = d == null;
+        if (isNew) {
+            d = factories.get(e.getDeviceType()).create(e.getId(), logger, hardwareLink);
+        }
+
+        d.setBatteryLife(e.getBatteryLife());
+        d.setSignalStrength(e.getSignalStrength());
+        d.resetFailureCount();
+        for (int i = 0; i < e.getFailureCount(); i++) {
+            d.incrementFailureCount();
+        }
+
+        if (isNew) {
+            d.setDeviceStatus(e.getDeviceStatus());
+            hub.addDevice(d);
+        } else if (d.getDeviceStatus() != e.getDeviceStatus()) {
+            hub.changeDeviceStatus(d, e.getDeviceStatus());
+        }
+
+        if (deviceRepo != null) {
+            deviceRepo.save(d);
+        }
+    }
+
+    /**
+     * Arms exactly the named zones, defining any the standby does not know yet.
+     */
+    private void applyArmedZones(List<String> armed) {
+        ZoneRegistry zones = hub.getZones();
+        for (String name : armed) {
+            zones.defineZone(name);
+        }
+        for (String name : zones.getZoneNames()) {
+            boolean shouldBeArmed = armed.contains(name);
+            if (shouldBeArmed != zones.isZoneArmed(zones.zoneId(name))) {
+                if (shouldBeArmed) {
+                    hub.armZone(name);
+                } else {
+                    hub.disarmZone(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts the device in exactly the named zones, so memberships the standby loaded from its own
+     * database that the primary no longer has are dropped.
+     */
+    private void applyMembership(UUID deviceId, List<String> zoneNames) {
+        ZoneRegistry zones = hub.getZones();
+        for (String name : zones.getZoneNames(deviceId)) {
+            if (!zoneNames.contains(name)) {
+                zones.unassign(deviceId, name);
+            }
+        }
+        for (String name : zoneNames) {
+            zones.assign(deviceId, name);
+        }
+    }
+
+    private void checkHeartbeat() {
+        long silentMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastFrameNanos);
+        if (silentMillis > heartbeatTimeoutMillis) {
+            takeOver(silentMillis);
+        }
+    }
+
+    private void takeOver(long silentMillis) {
+        if (!takenOver.compareAndSet(false, true)) {
+            return;
+        }
+        logger.log("No heartbeat from primary for " + silentMillis + " ms. Standby is taking over.", LogLevel.CRITICAL);
+        watchdog.shutdown();
+        Socket s = socket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException ignored) {
+            }
+        }
+        readerThread.interrupt();
+        onTakeover.run();
+    }
+}
@@ -1,6 +1,8 @@
 package infrastructure.repository;
 
 import alarm.Alarm;
+import alarm.AlarmRollup;
+import alarm.AlarmRollupResolution;
 import alarm.AlarmSeverity;
 import alarm.AlarmStatus;
 import devices.model.DeviceType;
@@ -11,12 +13,29 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
+/**
+ * Alarm history, plus rollup tables counting alarms per minute, hour and day by device type,
+ * severity and status. The rollups are adjusted in the same transaction as every save, so
+ * dashboards read a handful of bucket rows instead of scanning the history.
+ */
 public class AlarmLogRepository {
+    // Bucket starts are stored as text that sorts in time order, e.g. 2026-10-19T14:05
+    private static final DateTimeFormatter BUCKET_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+    private static final String ROLLUP_ADJUST_SQL = """
+        INSERT INTO alarm_rollups (resolution, bucket_start, device_type, alarm_severity, alarm_status, alarm_count)
+        VALUES (?, ?, ?, ?, ?, ?)
+        ON CONFLICT(resolution, bucket_start, device_type, alarm_severity, alarm_status) DO UPDATE SET
+            alarm_count = alarm_count + excluded.alarm_count
+    """;
+
     private final Connection connection;
     private final Logger logger;
 
@@ -26,24 +45,192 @@ public class AlarmLogRepository {
     }
 
     public void save(Alarm alarm) {
+        saveAll(List.of(alarm));
+    }
+
+    /**
+     * Saves the alarms and adjusts the rollups in one transaction. An alarm saved again, e.g. on
+     * resolution or escalation, moves its count from its previous rollup rows to its new ones.
+     */
+    public void saveAll(Collection<Alarm> alarms) {
+        String previousSql = "SELECT device_type, alarm_status, alarm_severity, timestamp FROM alarm_logs WHERE id = ?";
         String sql = """
         INSERT INTO alarm_logs (id, device_type, device_id, alarm_status, alarm_severity, timestamp)
         VALUES (?, ?, ?, ?, ?, ?)
         ON CONFLICT(id) DO UPDATE SET
             alarm_status = excluded.alarm_status,
+            alarm_severity = excluded.alarm_severity,
             timestamp = excluded.timestamp
     """;
 
+        synchronized (connection) {
+            try (PreparedStatement previous = connection.prepareStatement(previousSql);
+                 PreparedStatement ps = connection.prepareStatement(sql);
+                 PreparedStatement rollup = connection.prepareStatement(ROLLUP_ADJUST_SQL)) {
+                connection.setAutoCommit(false);
+                for (Alarm alarm : alarms) {
+                    previous.setString(1, alarm.getId().toString());
+                    try (ResultSet rs = previous.executeQuery()) {
+                        if (rs.next()) {
+                            DeviceType type = DeviceType.valueOf(rs.getString("device_type"));
+                            AlarmStatus status = AlarmStatus.valueOf(rs.getString("alarm_status"));
+                            AlarmSeverity severity = AlarmSeverity.valueOf(rs.getString("alarm_severity"));
+                            LocalDateTime timestamp = parseTimestamp(rs.getString("timestamp"));
+                            if (type == alarm.getDeviceType() && status == alarm.getStatus()
+                                    && severity == alarm.getSeverity() && timestamp.equals(alarm.getTimestamp())) {
+                                continue; // Nothing a rollup counts has changed
+                            }
+                            addRollupAdjustments(rollup, timestamp, type, severity, status, -1);
+                        }
+                    }
+
+                    ps.setString(1, alarm.getId().toString());
+                    ps.setString(2, alarm.getDeviceType().toString());
+                    ps.setString(3, alarm.getDeviceId().toString());
+                    ps.setString(4, alarm.getStatus().toString());
+                    ps.setString(5, alarm.getSeverity().toString());
+                    ps.setString(6, alarm.getTimestamp().toString());
+                    ps.executeUpdate();
+                    addRollupAdjustments(rollup, alarm.getTimestamp(), alarm.getDeviceType(),
+                            alarm.getSeverity(), alarm.getStatus(), 1);
+                }
+                rollup.executeBatch();
+                connection.commit();
+            } catch (SQLException | IllegalArgumentException e) {
+                rollback();
+                logger.log("Database Save Error: " + e.getMessage(), LogLevel.ERROR);
+            } finally {
+                restoreAutoCommit();
+            }
+        }
+    }
+
+    private static void addRollupAdjustments(PreparedStatement rollup, LocalDateTime timestamp, DeviceType type,
+                                             AlarmSeverity severity, AlarmStatus status, int delta) throws SQLException {
+        for (AlarmRollupResolution resolution : AlarmRollupResolution.values()) {
+            rollup.setString(1, resolution.toString());
+            rollup.setString(2, BUCKET_FORMAT.format(resolution.bucketOf(timestamp)));
+            rollup.setString(3, type.toString());
+            rollup.setString(4, severity.toString());
+            rollup.setString(5, status.toString());
+            rollup.setInt(6, delta);
+            rollup.addBatch();
+        }
+    }
+
+    /**
+     * Recomputes every rollup from the alarm history, e.g. for history saved before the rollup
+     * tables existed.
+     */
+    public void rebuildRollups() {
+        // Bucket starts cut from the stored timestamps; a space separator comes from the column default
+        String[][] buckets = {
+            {AlarmRollupResolution.MINUTE.toString(), "substr(replace(timestamp, ' ', 'T'), 1, 16)"},
+            {AlarmRollupResolution.HOUR.toString(), "substr(replace(timestamp, ' ', 'T'), 1, 13) || ':00'"},
+            {AlarmRollupResolution.DAY.toString(), "substr(timestamp, 1, 10) || 'T00:00'"},
+        };
+        synchronized (connection) {
+            try (Statement stmt = connection.createStatement()) {
+                connection.setAutoCommit(false);
+                stmt.executeUpdate("DELETE FROM alarm_rollups");
+                for (String[] bucket : buckets) {
+                    stmt.executeUpdate("""
+                        INSERT INTO alarm_rollups (resolution, bucket_start, device_type, alarm_severity, alarm_status, alarm_count)
+                        SELECT '%s', %s AS bucket, device_type, alarm_severity, alarm_status, COUNT(*)
+                        FROM alarm_logs
+                        WHERE device_type IS NOT NULL AND alarm_severity IS NOT NULL AND alarm_status IS NOT NULL
+                        GROUP BY bucket, device_type, alarm_severity, alarm_status
+                    """.formatted(bucket[0], bucket[1]));
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                rollback();
+                logger.log("Alarm rollup rebuild failed: " + e.getMessage(), LogLevel.ERROR);
+            } finally {
+                restoreAutoCommit();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the rollups if there is alarm history but no rollups, e.g. on the first start
+     * after upgrading.
+     *
+     * @return True if a rebuild was run.
+     */
+    public boolean backfillRollupsIfMissing() {
+        String sql = """
+            SELECT EXISTS (SELECT 1 FROM alarm_logs) AND NOT EXISTS (SELECT 1 FROM alarm_rollups)
+        """;
+        boolean missing = false;
+        try (PreparedStatement ps = connection.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            missing = rs.next() && rs.getBoolean(1);
+        } catch (SQLException e) {
+            logger.log("Alarm rollup check failed: " + e.getMessage(), LogLevel.ERROR);
+        }
+        if (missing) {
+            rebuildRollups();
+        }
+        return missing;
+    }
+
+    /**
+     * @param from Start of the range; the bucket it falls in is included.
+     * @param to End of the range, exclusive.
+     * @return The non-empty rollup rows whose bucket starts in the range, in bucket order. Reads
+     *         one row per bucket and type/severity/status combination, however many alarms there are.
+     */
+    public List<AlarmRollup> loadRollups(AlarmRollupResolution resolution, LocalDateTime from, LocalDateTime to) {
+        String sql = """
+            SELECT bucket_start, device_type, alarm_severity, alarm_status, alarm_count
+            FROM alarm_rollups
+            WHERE resolution = ? AND bucket_start >= ? AND bucket_start < ? AND alarm_count > 0
+            ORDER BY bucket_start
+        """;
+        LocalDateTime end = resolution.bucketOf(to);
+        if (end.isBefore(to)) {
+            end = end.plus(1, resolution.getUnit());
+        }
+        List<AlarmRollup> rollups = new ArrayList<>();
+
         try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, alarm.getId().toString());
-            ps.setString(2, alarm.getDeviceType().toString());
-            ps.setString(3, alarm.getDeviceId().toString());
-            ps.setString(4, alarm.getStatus().toString());
-            ps.setString(5, alarm.getSeverity().toString());
-            ps.setString(6, alarm.getTimestamp().toString());
-            ps.executeUpdate();
+            ps.setString(1, resolution.toString());
+            ps.setString(2, BUCKET_FORMAT.format(resolution.bucketOf(from)));
+            ps.setString(3, BUCKET_FORMAT.format(end));
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                rollups.add(new AlarmRollup(
+                    LocalDateTime.parse(rs.getString("bucket_start"), BUCKET_FORMAT),
+                    DeviceType.valueOf(rs.getString("device_type")),
+                    AlarmSeverity.valueOf(rs.getString("alarm_severity")),
+                    AlarmStatus.valueOf(rs.getString("alarm_status")),
+                    rs.getLong("alarm_count")
+                ));
+            }
+        } catch (SQLException e) {
+            logger.log("Alarm rollup query failed: " + e.getMessage(), LogLevel.ERROR);
+        }
+        return rollups;
+    }
+
+    private static LocalDateTime parseTimestamp(String timestamp) {
+        return LocalDateTime.parse(timestamp.replace(' ', 'T'));
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.log("Database Rollback Error: " + e.getMessage(), LogLevel.ERROR);
+        }
+    }
+
+    private void restoreAutoCommit() {
+        try {
+            connection.setAutoCommit(true);
         } catch (SQLException e) {
-            logger.log("Database Save Error: " + e.getMessage(), LogLevel.ERROR);
+            logger.log("Database Error: " + e.getMessage(), LogLevel.ERROR);
         }
     }
 
@@ -54,7 +241,7 @@ public class AlarmLogRepository {
             UUID.fromString(rs.getString("device_id")),
             AlarmStatus.valueOf(rs.getString("alarm_status")),
             AlarmSeverity.valueOf(rs.getString("alarm_severity")),
-            LocalDateTime.parse(rs.getString("timestamp"))
+            parseTimestamp(rs.getString("timestamp"))
         );
     }
 
@@ -2,6 +2,7 @@ package infrastructure.repository;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
@@ -40,14 +41,24 @@ public class DatabaseManager {
                     id TEXT PRIMARY KEY,
                     type TEXT NOT NULL,
                     status TEXT NOT NULL,
-                    battery_level REAL DEFAULT 100.0
+                    battery_level REAL DEFAULT 100.0,
+                    signal_strength INTEGER,
+                    failure_count INTEGER DEFAULT 0,
+                    state_version INTEGER DEFAULT 0,
+                    updated_at TEXT
                 )
             """);
+            // Columns added for checkpointing; older databases lack them
+            addColumnIfMissing(stmt, "devices", "signal_strength", "INTEGER");
+            addColumnIfMissing(stmt, "devices", "failure_count", "INTEGER DEFAULT 0");
+            addColumnIfMissing(stmt, "devices", "state_version", "INTEGER DEFAULT 0");
+            addColumnIfMissing(stmt, "devices", "updated_at", "TEXT");
 
-            // Create Alarm Log Table
+            // Create Alarm Log Table; ids are alarm UUIDs
+            boolean legacyAlarmLogs = renameIntegerKeyedAlarmLogs(stmt);
             stmt.execute("""
                 CREATE TABLE IF NOT EXISTS alarm_logs (
-                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    id TEXT PRIMARY KEY,
                     device_type TEXT,
                     device_id TEXT,
                     alarm_status TEXT,
@@ -55,6 +66,27 @@ public class DatabaseManager {
                     timestamp DATETIME DEFAULT CURRENT_TIMESTAMP
                 )
             """);
+            if (legacyAlarmLogs) {
+                stmt.execute("""
+                    INSERT INTO alarm_logs (id, device_type, device_id, alarm_status, alarm_severity, timestamp)
+                    SELECT CAST(id AS TEXT), device_type, device_id, alarm_status, alarm_severity, timestamp
+                    FROM alarm_logs_legacy
+                """);
+                stmt.execute("DROP TABLE alarm_logs_legacy");
+            }
+
+            // Create Alarm Rollup Table; alarm counts per bucket, kept in step with alarm_logs
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS alarm_rollups (
+                    resolution TEXT NOT NULL,
+                    bucket_start TEXT NOT NULL,
+                    device_type TEXT NOT NULL,
+                    alarm_severity TEXT NOT NULL,
+                    alarm_status TEXT NOT NULL,
+                    alarm_count INTEGER NOT NULL,
+                    PRIMARY KEY (resolution, bucket_start, device_type, alarm_severity, alarm_status)
+                ) WITHOUT ROWID
+            """);
 
             // Create User Table
             stmt.execute("""
@@ -64,6 +96,22 @@ public class DatabaseManager {
                 )
             """);
 
+            // Create Zone Tables; a device may belong to several zones
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS zones (
+                    id INTEGER PRIMARY KEY,
+                    name TEXT NOT NULL UNIQUE
+                )
+            """);
+
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS device_zones (
+                    device_id TEXT NOT NULL,
+                    zone_id INTEGER NOT NULL,
+                    PRIMARY KEY (device_id, zone_id)
+                )
+            """);
+
             // Create Receivers Table
             stmt.execute("""
                 CREATE TABLE IF NOT EXISTS subscribers (
@@ -74,4 +122,36 @@ public class DatabaseManager {
             """);
         }
     }
+
+    private void addColumnIfMissing(Statement stmt, String table, String column, String definition) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equals(rs.getString("name"))) {
+                    return;
+                }
+            }
+        }
+        stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+    }
+
+    /**
+     * Older databases declared alarm_logs.id as an INTEGER key, which rejects the UUIDs alarms
+     * are saved under. Moves such a table aside so it can be recreated with a TEXT key.
+     *
+     * @return True if the table was moved and its rows need copying back.
+     */
+    private boolean renameIntegerKeyedAlarmLogs(Statement stmt) throws SQLException {
+        boolean integerId = false;
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(alarm_logs)")) {
+            while (rs.next()) {
+                if ("id".equals(rs.getString("name")) && "INTEGER".equalsIgnoreCase(rs.getString("type"))) {
+                    integerId = true;
+                }
+            }
+        }
+        if (integerId) {
+            stmt.execute("ALTER TABLE alarm_logs RENAME TO alarm_logs_legacy");
+        }
+        return integerId;
+    }
 }
@@ -0,0 +1,130 @@
+package infrastructure.repository;
+
+import core.HubChangeListener;
+import core.SecurityHub;
+import devices.api.Device;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists the fleet's device state in the background.
+ *
+ * <p>Every interval the checkpointer compares each device's state version with the version it
+ * last wrote, and upserts only the devices that changed, plus deletes the ones removed from the
+ * hub, in one transaction. Write volume follows churn rather than fleet size, and a crash loses
+ * at most one interval of changes. The version is read before the device's fields, so a change
+ * racing with a checkpoint is always picked up by the next one.</p>
+ */
+public class DeviceCheckpointer implements HubChangeListener {
+    private final SecurityHub hub;
+    private final DeviceRepository repository;
+    private final long intervalMillis;
+    private final Logger logger;
+    private final Map<UUID, Long> writtenVersions = new ConcurrentHashMap<>();
+    private final Set<UUID> removed = ConcurrentHashMap.newKeySet();
+    private final AtomicLong checkpoints = new AtomicLong();
+    private final AtomicLong devicesWritten = new AtomicLong();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "device-checkpointer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public DeviceCheckpointer(SecurityHub hub, DeviceRepository repository, long intervalMillis, Logger logger) {
+        this.hub = hub;
+        this.repository = repository;
+        this.intervalMillis = intervalMillis;
+        this.logger = logger;
+    }
+
+    public void start() {
+        hub.addChangeListener(this);
+        scheduler.scheduleWithFixedDelay(this::checkpoint, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the schedule and writes whatever changed since the last checkpoint.
+     */
+    public void stop() {
+        hub.removeChangeListener(this);
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(intervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint();
+    }
+
+    /**
+     * Records devices just loaded from the repository as already written, so they are only
+     * written again once they change.
+     */
+    public void markCheckpointed(Collection<Device> devices) {
+        for (Device d : devices) {
+            writtenVersions.put(d.getId(), d.getStateVersion());
+        }
+    }
+
+    @Override
+    public void onDeviceAdded(Device device) {
+        removed.remove(device.getId());
+    }
+
+    @Override
+    public void onDeviceRemoved(Device device) {
+        writtenVersions.remove(device.getId());
+        removed.add(device.getId());
+    }
+
+    /**
+     * Writes the devices that changed since they were last written.
+     *
+     * @return The number of devices upserted or deleted.
+     */
+    public synchronized int checkpoint() {
+        List<Device> changed = new ArrayList<>();
+        List<Long> versions = new ArrayList<>();
+        for (Device d : hub.getDevices()) {
+            long version = d.getStateVersion();
+            Long written = writtenVersions.get(d.getId());
+            if (written == null || written != version) {
+                changed.add(d);
+                versions.add(version);
+            }
+        }
+        List<UUID> gone = new ArrayList<>(removed);
+        if (changed.isEmpty() && gone.isEmpty()) {
+            return 0;
+        }
+
+        if (!repository.checkpoint(changed, gone)) {
+            return 0; // Versions are unchanged, so the next checkpoint retries
+        }
+        for (int i = 0; i < changed.size(); i++) {
+            writtenVersions.put(changed.get(i).getId(), versions.get(i));
+        }
+        removed.removeAll(gone);
+        checkpoints.incrementAndGet();
+        devicesWritten.addAndGet(changed.size());
+        if (!gone.isEmpty()) {
+            logger.log("Device checkpoint removed " + gone.size() + " device(s) from storage.", LogLevel.INFO);
+        }
+        return changed.size() + gone.size();
+    }
+
+    public long getCheckpointCount() {
+        return checkpoints.get();
+    }
+
+    public long getDevicesWritten() {
+        return devicesWritten.get();
+    }
+}
@@ -2,9 +2,12 @@ package infrastructure.repository;
 
 import devices.api.Device;
 import devices.api.HardwareLink;
+import devices.model.DeviceSnapshot;
 import devices.model.DeviceStatus;
 import devices.model.DeviceType;
+import infrastructure.clock.RealClock;
 import infrastructure.factories.DeviceFactory;
+import infrastructure.factories.GlassBreakSensorDeviceFactory;
 import infrastructure.factories.MotionDeviceFactory;
 import infrastructure.factories.SmokeDeviceFactory;
 import infrastructure.factories.ThermalDeviceFactory;
@@ -15,6 +18,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Instant;
 import java.util.*;
 
 import static java.lang.String.valueOf;
@@ -23,36 +28,93 @@ public class DeviceRepository {
     private final Connection connection;
     private final Logger logger;
     private final HardwareLink hardwareLink;
+    private final Clock clock;
     Map<DeviceType, DeviceFactory> deviceTypeDeviceFactoryMap = new HashMap<>();
 
     public DeviceRepository(Logger logger, HardwareLink hardwareLink) {
+        this(logger, hardwareLink, RealClock.getInstance());
+    }
+
+    /**
+     * @param clock Stamps {@code updated_at}; pass the hub's clock so simulated runs store simulated time.
+     */
+    public DeviceRepository(Logger logger, HardwareLink hardwareLink, Clock clock) {
         this.logger = logger;
         this.hardwareLink = hardwareLink;
+        this.clock = clock;
         this.connection = DatabaseManager.getInstance().getConnection();
 
         deviceTypeDeviceFactoryMap.put(DeviceType.MOTION_DEVICE, new MotionDeviceFactory());
         deviceTypeDeviceFactoryMap.put(DeviceType.SMOKE_DEVICE, new SmokeDeviceFactory());
         deviceTypeDeviceFactoryMap.put(DeviceType.THERMAL_DEVICE, new ThermalDeviceFactory());
+        deviceTypeDeviceFactoryMap.put(DeviceType.GLASS_BREAK_SENSOR_DEVICE, new GlassBreakSensorDeviceFactory());
     }
 
     public void save(Device device) {
-        String sql = """
-            INSERT INTO devices (id, type, status, battery_level)
-            VALUES (?, ?, ?, ?)
+        checkpoint(List.of(device), List.of());
+    }
+
+    /**
+     * Upserts the changed devices and deletes the removed ones in one transaction.
+     *
+     * @return True if the transaction committed.
+     */
+    public boolean checkpoint(Collection<Device> changed, Collection<UUID> removed) {
+        String upsertSql = """
+            INSERT INTO devices (id, type, status, battery_level, signal_strength, failure_count, state_version, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
             ON CONFLICT(id) DO UPDATE SET
                 type = excluded.type,
                 status = excluded.status,
-                battery_level = excluded.battery_level
+                battery_level = excluded.battery_level,
+                signal_strength = excluded.signal_strength,
+                failure_count = excluded.failure_count,
+                state_version = excluded.state_version,
+                updated_at = excluded.updated_at
         """;
-
-        try (PreparedStatement ps = connection.prepareStatement(sql)) {
-            ps.setString(1, valueOf(device.getId()));
-            ps.setString(2, valueOf(device.getDeviceType()));
-            ps.setString(3, valueOf(device.getDeviceStatus()));
-            ps.setDouble(4, device.getBatteryLife());
-            ps.executeUpdate();
-        } catch (SQLException e) {
-            logger.log(e.getMessage(), LogLevel.ERROR);
+        String deleteSql = "DELETE FROM devices WHERE id = ?";
+        String now = Instant.now(clock).toString();
+
+        synchronized (connection) {
+            try (PreparedStatement upsert = connection.prepareStatement(upsertSql);
+                 PreparedStatement delete = connection.prepareStatement(deleteSql)) {
+                connection.setAutoCommit(false);
+                for (Device device : changed) {
+                    // One consistent read, so the stored version matches the stored state
+                    DeviceSnapshot state = device.getSnapshot();
+                    upsert.setString(1, valueOf(device.getId()));
+                    upsert.setString(2, valueOf(device.getDeviceType()));
+                    upsert.setString(3, valueOf(state.getStatus()));
+                    upsert.setDouble(4, state.getBatteryLife());
+                    upsert.setInt(5, state.getSignalStrength());
+                    upsert.setInt(6, state.getFailureCount());
+                    upsert.setLong(7, state.getVersion());
+                    upsert.setString(8, now);
+                    upsert.addBatch();
+                }
+                for (UUID id : removed) {
+                    delete.setString(1, valueOf(id));
+                    delete.addBatch();
+                }
+                upsert.executeBatch();
+                delete.executeBatch();
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackError) {
+                    logger.log(rollbackError.getMessage(), LogLevel.ERROR);
+                }
+                logger.log("Device checkpoint failed: " + e.getMessage(), LogLevel.ERROR);
+                return false;
+            } finally {
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    logger.log(e.getMessage(), LogLevel.ERROR);
+                }
+            }
         }
     }
 
@@ -85,18 +147,7 @@ public class DeviceRepository {
             ResultSet rs = ps.executeQuery();
 
             if (rs.next()) {
-                UUID Id = UUID.fromString(rs.getString("id"));
-                DeviceType deviceType = DeviceType.valueOf(rs.getString("type"));
-                DeviceStatus deviceStatus = DeviceStatus.valueOf(rs.getString("status"));
-                int batteryLife = rs.getInt("battery_level");
-
-                UUID idFromDb = UUID.fromString(rs.getString("id"));
-                int batt = rs.getInt("battery_level");
-
-                Device device = deviceTypeDeviceFactoryMap.get(deviceType).create(Id, logger, hardwareLink);
-                device.setBatteryLife(batt);
-                device.setDeviceStatus(deviceStatus);
-                return device;
+                return mapRowToDevice(rs);
             }
         } catch (SQLException e) {
             logger.log(e.getMessage(), LogLevel.ERROR);
@@ -128,6 +179,13 @@ public class DeviceRepository {
         Device device = deviceTypeDeviceFactoryMap.get(type).create(id, logger, hardwareLink);
         device.setBatteryLife(batt);
         device.setDeviceStatus(status);
+        int signal = rs.getInt("signal_strength");
+        if (!rs.wasNull()) {
+            device.setSignalStrength(signal);
+        }
+        for (int i = rs.getInt("failure_count"); i > 0; i--) {
+            device.incrementFailureCount();
+        }
         return device;
     }
 }
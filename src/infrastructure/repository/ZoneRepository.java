@@ -0,0 +1,104 @@
+package infrastructure.repository;
+
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+import static java.lang.String.valueOf;
+
+/**
+ * Persists zone definitions and which devices belong to them. Arming state is not stored;
+ * the hub decides that at startup.
+ */
+public class ZoneRepository {
+    private final Connection connection;
+    private final Logger logger;
+
+    public ZoneRepository(Logger logger) {
+        this.logger = logger;
+        this.connection = DatabaseManager.getInstance().getConnection();
+    }
+
+    public void saveZone(int id, String name) {
+        String sql = """
+            INSERT INTO zones (id, name)
+            VALUES (?, ?)
+            ON CONFLICT(id) DO UPDATE SET
+                name = excluded.name
+        """;
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, id);
+            ps.setString(2, name);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            logger.log(e.getMessage(), LogLevel.ERROR);
+        }
+    }
+
+    public void assign(UUID deviceId, int zoneId) {
+        String sql = "INSERT OR IGNORE INTO device_zones (device_id, zone_id) VALUES (?, ?)";
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, valueOf(deviceId));
+            ps.setInt(2, zoneId);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            logger.log(e.getMessage(), LogLevel.ERROR);
+        }
+    }
+
+    public void unassign(UUID deviceId, int zoneId) {
+        String sql = "DELETE FROM device_zones WHERE device_id = ? AND zone_id = ?";
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, valueOf(deviceId));
+            ps.setInt(2, zoneId);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            logger.log(e.getMessage(), LogLevel.ERROR);
+        }
+    }
+
+    /**
+     * @return Zone names keyed by zone id.
+     */
+    public Map<Integer, String> loadZones() {
+        String sql = "SELECT id, name FROM zones";
+        Map<Integer, String> zones = new HashMap<>();
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                zones.put(rs.getInt("id"), rs.getString("name"));
+            }
+        } catch (SQLException e) {
+            logger.log(e.getMessage(), LogLevel.ERROR);
+        }
+        return zones;
+    }
+
+    /**
+     * @return Each device's zone membership as a bitmask, bit n set for zone id n.
+     */
+    public Map<UUID, Long> loadMemberships() {
+        String sql = "SELECT device_id, zone_id FROM device_zones";
+        Map<UUID, Long> memberships = new HashMap<>();
+
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                UUID deviceId = UUID.fromString(rs.getString("device_id"));
+                memberships.merge(deviceId, 1L << rs.getInt("zone_id"), (a, b) -> a | b);
+            }
+        } catch (SQLException e) {
+            logger.log(e.getMessage(), LogLevel.ERROR);
+        }
+        return memberships;
+    }
+}
@@ -0,0 +1,241 @@
+package infrastructure.scheduling;
+
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A hashed timing wheel for very large numbers of coarse deadlines. Time is divided into ticks;
+ * each tick maps to one bucket of a fixed-size wheel, and a deadline further out than one turn
+ * of the wheel waits in its bucket for the remaining number of turns.
+ *
+ * <p>Scheduling and cancelling are O(1) from any thread: both only append to a lock-free queue
+ * that the single timer thread drains at the start of each tick. Buckets are intrusive doubly
+ * linked lists owned by the timer thread, so each tick only touches the timeouts in one bucket.
+ * Expired tasks run on the timer thread and must be short; hand anything slow to an executor.
+ * Deadlines fire up to one tick late, never early.</p>
+ */
+public class HashedWheelTimer {
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final Logger logger;
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingTimeouts = new AtomicLong();
+    private final Thread worker;
+    private volatile long startNanos;
+    private volatile boolean running;
+    private long tick; // Timer thread only
+
+    public HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int wheelSize, Logger logger) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        this.logger = logger;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[powerOfTwo(wheelSize)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        startNanos = System.nanoTime();
+        running = true;
+        worker.start();
+    }
+
+    public void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * Runs the task once the delay has elapsed. May be called before {@link #start()}; the
+     * delay then counts from when the timer starts.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        long now = running ? System.nanoTime() - startNanos : 0;
+        Timeout timeout = new Timeout(this, task, now + Math.max(0, unit.toNanos(delay)));
+        pendingTimeouts.incrementAndGet();
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return Timeouts that are scheduled and have neither fired nor been cancelled.
+     */
+    public long pendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = tickNanos * (tick + 1);
+            long sleepNanos = deadline - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                }
+                continue;
+            }
+
+            removeCancelled();
+            transferScheduled();
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state.get() == CANCELLED) {
+                continue;
+            }
+            // A deadline that already passed goes into the current bucket and fires this tick
+            long ticks = Math.max(timeout.deadlineNanos / tickNanos, tick);
+            timeout.remainingRounds = (ticks - tick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void runTask(Timeout timeout) {
+        try {
+            timeout.task.run();
+        } catch (RuntimeException e) {
+            logger.log("Timer task failed: " + e, LogLevel.ERROR);
+        }
+    }
+
+    private static int powerOfTwo(int n) {
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * Handle to one scheduled task.
+     */
+    public static final class Timeout {
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // Timer thread only
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadlineNanos) {
+            this.timer = timer;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * @return true if this call cancelled the task; false if it already fired or was cancelled.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(PENDING, CANCELLED)) {
+                return false;
+            }
+            timer.pendingTimeouts.decrementAndGet();
+            timer.cancelled.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts hashed to one slot of the wheel. Timer thread only.
+     */
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(long deadlineNanos) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                } else if (timeout.deadlineNanos <= deadlineNanos) {
+                    remove(timeout);
+                    if (timeout.state.compareAndSet(PENDING, EXPIRED)) {
+                        pendingTimeouts.decrementAndGet();
+                        runTask(timeout);
+                    }
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
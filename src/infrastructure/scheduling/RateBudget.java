@@ -0,0 +1,87 @@
+package infrastructure.scheduling;
+
+import java.util.Arrays;
+
+/**
+ * Spreads scheduled work under a global rate limit. Time is cut into fixed slots, each with room
+ * for a share of the per-second budget; a reservation takes room in the slot its deadline falls
+ * in, or is pushed to the first later slot that has room. Deferred work keeps its offset within
+ * the slot, so a crowd of deadlines is smeared over the following slots instead of landing on one
+ * slot boundary.
+ *
+ * <p>Mandatory reservations always get the slot they ask for, and still count against it, so work
+ * that must not wait pushes optional work back rather than the other way round.</p>
+ *
+ * <p>Slot counters live in a ring indexed by slot number; a counter tagged with an older slot is
+ * reset on first use. Reservations are synchronized and cost a few array reads when the budget
+ * has room.</p>
+ */
+public class RateBudget {
+    private static final int RING_SLOTS = 4096;
+
+    private final long slotMillis;
+    private final int permitsPerSlot;
+    private final long[] slotTags = new long[RING_SLOTS];
+    private final int[] reserved = new int[RING_SLOTS];
+    private long deferred;
+    private long reservations;
+
+    /**
+     * @param permitsPerSecond The budget; at least one permit per slot is always granted.
+     * @param slotMillis       Granularity of the budget. Shorter slots spread work more evenly.
+     */
+    public RateBudget(int permitsPerSecond, long slotMillis) {
+        if (permitsPerSecond <= 0 || slotMillis <= 0 || slotMillis > 1000) {
+            throw new IllegalArgumentException("Invalid rate budget");
+        }
+        this.slotMillis = slotMillis;
+        this.permitsPerSlot = (int) Math.max(1, permitsPerSecond * slotMillis / 1000);
+        Arrays.fill(slotTags, Long.MIN_VALUE);
+    }
+
+    /**
+     * Reserves one permit for work wanted after {@code delayMillis}.
+     *
+     * @param nowMillis Any monotonic millisecond clock, used consistently by all callers.
+     * @param mandatory Take the wanted slot even if it is full.
+     * @return The delay to schedule the work with; never shorter than the one asked for.
+     */
+    public synchronized long reserve(long nowMillis, long delayMillis, boolean mandatory) {
+        reservations++;
+        long target = nowMillis + Math.max(0, delayMillis);
+        long wanted = Math.floorDiv(target, slotMillis);
+        // Slots further out than half the ring would collide with slots still in use
+        long last = Math.max(wanted, Math.floorDiv(nowMillis, slotMillis) + RING_SLOTS / 2 - 1);
+        for (long slot = wanted; slot <= last; slot++) {
+            int i = (int) Math.floorMod(slot, (long) RING_SLOTS);
+            if (slotTags[i] != slot) {
+                slotTags[i] = slot;
+                reserved[i] = 0;
+            }
+            if (reserved[i] < permitsPerSlot || mandatory || slot == last) {
+                reserved[i]++;
+                if (slot == wanted) {
+                    return Math.max(0, delayMillis);
+                }
+                deferred++;
+                return slot * slotMillis + Math.floorMod(target, slotMillis) - nowMillis;
+            }
+        }
+        return Math.max(0, delayMillis); // Unreachable: the last slot always admits
+    }
+
+    public int getPermitsPerSecond() {
+        return (int) (permitsPerSlot * 1000 / slotMillis);
+    }
+
+    /**
+     * @return How many reservations were pushed to a later slot.
+     */
+    public synchronized long getDeferred() {
+        return deferred;
+    }
+
+    public synchronized long getReservations() {
+        return reservations;
+    }
+}
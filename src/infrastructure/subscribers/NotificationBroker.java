@@ -0,0 +1,220 @@
+package infrastructure.subscribers;
+
+import alarm.AlarmSeverity;
+import devices.api.Device;
+import devices.model.DeviceType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Routes device notifications to subscribers by topic (see {@link NotificationTopic}), so one
+ * subscription to a topic covers every device it matches. Memory grows with the number of
+ * subscriptions, not with subscriptions times devices.
+ *
+ * <p>Notifications are routed by the sender's device type, zone mask and alarm severity. The
+ * recipients of each distinct combination are worked out once, in subscription order and with
+ * each subscriber at most once, and cached as an immutable array, so a notification costs one
+ * map lookup and a walk over that array. Devices with their own subscriptions get routes of their
+ * own. Any change to the subscriptions swaps in an empty cache; publishing takes no locks.</p>
+ */
+public class NotificationBroker {
+    private static final Subscriber[] NONE = new Subscriber[0];
+
+    private final List<Subscription> subscriptions = new ArrayList<>(); // Guarded by this
+    private volatile Routing routing = new Routing(new Subscription[0]);
+    private volatile ToLongFunction<UUID> zoneMasks = id -> 1L; // Everything in the default zone
+
+    private static class Holder {
+        private static final NotificationBroker INSTANCE = new NotificationBroker();
+    }
+
+    /**
+     * The broker devices publish through unless they are given another.
+     */
+    public static NotificationBroker getDefault() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Sets where zone topics look up a device's zone membership, normally the hub's zone registry.
+     */
+    public void setZoneResolver(ToLongFunction<UUID> zoneMasks) {
+        this.zoneMasks = Objects.requireNonNull(zoneMasks); // Routes are keyed by mask, so none go stale
+    }
+
+    /**
+     * Registering the same subscriber for the same topic twice has no effect.
+     */
+    public synchronized void subscribe(NotificationTopic topic, Subscriber subscriber) {
+        Objects.requireNonNull(subscriber);
+        for (Subscription s : subscriptions) {
+            if (s.subscriber == subscriber && s.topic.equals(topic)) {
+                return;
+            }
+        }
+        subscriptions.add(new Subscription(topic, subscriber));
+        rebuild();
+    }
+
+    /**
+     * @return False if the subscriber was not registered for the topic.
+     */
+    public synchronized boolean unsubscribe(NotificationTopic topic, Subscriber subscriber) {
+        boolean removed = subscriptions.removeIf(s -> s.subscriber == subscriber && s.topic.equals(topic));
+        if (removed) {
+            rebuild();
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the subscriber from every topic.
+     */
+    public synchronized void unsubscribeAll(Subscriber subscriber) {
+        if (subscriptions.removeIf(s -> s.subscriber == subscriber)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * @return The subscribers registered for exactly this topic, in subscription order.
+     */
+    public synchronized List<Subscriber> subscribers(NotificationTopic topic) {
+        List<Subscriber> result = new ArrayList<>();
+        for (Subscription s : subscriptions) {
+            if (s.topic.equals(topic)) {
+                result.add(s.subscriber);
+            }
+        }
+        return result;
+    }
+
+    public int getSubscriptionCount() {
+        return routing.subscriptions.length;
+    }
+
+    /**
+     * @return How many distinct routes have been worked out since subscriptions last changed.
+     */
+    public int getCachedRouteCount() {
+        return routing.routes.size();
+    }
+
+    /**
+     * Delivers a message from a device to every subscriber whose topic matches it.
+     *
+     * @param severity The alarm's severity, or null for a message that is not about an alarm.
+     * @return How many subscribers received the message.
+     */
+    public int publish(Device device, AlarmSeverity severity, String message) {
+        Subscriber[] recipients = route(device, severity);
+        for (Subscriber s : recipients) {
+            s.receiveUpdate(message);
+        }
+        return recipients.length;
+    }
+
+    /**
+     * @return The subscribers a message from the device with the given severity would reach.
+     */
+    public List<Subscriber> recipients(Device device, AlarmSeverity severity) {
+        return List.of(route(device, severity));
+    }
+
+    private Subscriber[] route(Device device, AlarmSeverity severity) {
+        Routing r = routing;
+        if (r.subscriptions.length == 0) {
+            return NONE;
+        }
+        UUID id = device.getId();
+        RouteKey key = new RouteKey(r.directDevices.contains(id) ? id : null, device.getDeviceType(),
+                severity, zoneMasks.applyAsLong(id));
+        Subscriber[] recipients = r.routes.get(key);
+        if (recipients == null) {
+            recipients = r.compute(key, id);
+        }
+        return recipients;
+    }
+
+    private void rebuild() {
+        routing = new Routing(subscriptions.toArray(new Subscription[0]));
+    }
+
+    private static final class Subscription {
+        final NotificationTopic topic;
+        final Subscriber subscriber;
+
+        Subscription(NotificationTopic topic, Subscriber subscriber) {
+            this.topic = topic;
+            this.subscriber = subscriber;
+        }
+    }
+
+    /**
+     * An immutable view of the subscriptions with the routes worked out from it so far.
+     */
+    private static final class Routing {
+        final Subscription[] subscriptions;
+        final Set<UUID> directDevices = new HashSet<>();
+        final Map<RouteKey, Subscriber[]> routes = new ConcurrentHashMap<>();
+
+        Routing(Subscription[] subscriptions) {
+            this.subscriptions = subscriptions;
+            for (Subscription s : subscriptions) {
+                if (s.topic.getKind() == NotificationTopic.Kind.DEVICE) {
+                    directDevices.add(s.topic.getDeviceId());
+                }
+            }
+        }
+
+        Subscriber[] compute(RouteKey key, UUID id) {
+            Set<Subscriber> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<Subscriber> recipients = new ArrayList<>();
+            for (Subscription s : subscriptions) {
+                if (s.topic.matches(id, key.type, key.zoneMask, key.severity) && seen.add(s.subscriber)) {
+                    recipients.add(s.subscriber);
+                }
+            }
+            Subscriber[] route = recipients.isEmpty() ? NONE : recipients.toArray(new Subscriber[0]);
+            Subscriber[] raced = routes.putIfAbsent(key, route);
+            return raced != null ? raced : route;
+        }
+    }
+
+    /**
+     * What a route depends on. The device id is only part of it for devices that have
+     * subscriptions of their own, so the cache stays small for the rest of the fleet.
+     */
+    private static final class RouteKey {
+        final UUID deviceId;
+        final DeviceType type;
+        final AlarmSeverity severity;
+        final long zoneMask;
+        private final int hash;
+
+        RouteKey(UUID deviceId, DeviceType type, AlarmSeverity severity, long zoneMask) {
+            this.deviceId = deviceId;
+            this.type = type;
+            this.severity = severity;
+            this.zoneMask = zoneMask;
+            int h = Long.hashCode(zoneMask);
+            h = 31 * h + type.ordinal();
+            h = 31 * h + (severity != null ? severity.ordinal() + 1 : 0);
+            this.hash = deviceId != null ? 31 * h + deviceId.hashCode() : h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof RouteKey)) return false;
+            RouteKey k = (RouteKey) o;
+            return type == k.type && severity == k.severity && zoneMask == k.zoneMask && Objects.equals(deviceId, k.deviceId);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package infrastructure.subscribers;
+
+import alarm.AlarmSeverity;
+import devices.model.DeviceType;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * What a subscriber registers for with the {@link NotificationBroker}: every device, one device
+ * type, one zone, alarms at or above a severity, or a single device.
+ */
+public final class NotificationTopic {
+    public enum Kind {
+        ALL,
+        DEVICE_TYPE,
+        ZONE,
+        SEVERITY,
+        DEVICE
+    }
+
+    private static final NotificationTopic ALL = new NotificationTopic(Kind.ALL, null, -1, null, null);
+
+    private final Kind kind;
+    private final DeviceType deviceType;
+    private final int zoneId;
+    private final AlarmSeverity minimumSeverity;
+    private final UUID deviceId;
+
+    private NotificationTopic(Kind kind, DeviceType deviceType, int zoneId, AlarmSeverity minimumSeverity, UUID deviceId) {
+        this.kind = kind;
+        this.deviceType = deviceType;
+        this.zoneId = zoneId;
+        this.minimumSeverity = minimumSeverity;
+        this.deviceId = deviceId;
+    }
+
+    public static NotificationTopic all() {
+        return ALL;
+    }
+
+    public static NotificationTopic deviceType(DeviceType type) {
+        return new NotificationTopic(Kind.DEVICE_TYPE, Objects.requireNonNull(type), -1, null, null);
+    }
+
+    /**
+     * @param zoneId A zone id from {@code ZoneRegistry}, i.e. its bit in the device zone masks.
+     */
+    public static NotificationTopic zone(int zoneId) {
+        if (zoneId < 0 || zoneId >= Long.SIZE) {
+            throw new IllegalArgumentException("Zone id out of range: " + zoneId);
+        }
+        return new NotificationTopic(Kind.ZONE, null, zoneId, null, null);
+    }
+
+    /**
+     * Alarm notifications of this severity or higher, from any device. Messages that are not
+     * about an alarm carry no severity and are not delivered on this topic.
+     */
+    public static NotificationTopic severity(AlarmSeverity minimum) {
+        return new NotificationTopic(Kind.SEVERITY, null, -1, Objects.requireNonNull(minimum), null);
+    }
+
+    public static NotificationTopic device(UUID deviceId) {
+        return new NotificationTopic(Kind.DEVICE, null, -1, null, Objects.requireNonNull(deviceId));
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @param severity Null for messages that are not about an alarm.
+     */
+    boolean matches(UUID id, DeviceType type, long zoneMask, AlarmSeverity severity) {
+        return switch (kind) {
+            case ALL -> true;
+            case DEVICE_TYPE -> deviceType == type;
+            case ZONE -> (zoneMask >>> zoneId & 1L) != 0;
+            case SEVERITY -> severity != null && severity.compareTo(minimumSeverity) >= 0;
+            case DEVICE -> deviceId.equals(id);
+        };
+    }
+
+    UUID getDeviceId() {
+        return deviceId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NotificationTopic)) return false;
+        NotificationTopic that = (NotificationTopic) o;
+        return kind == that.kind && zoneId == that.zoneId && deviceType == that.deviceType
+                && minimumSeverity == that.minimumSeverity && Objects.equals(deviceId, that.deviceId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, deviceType, zoneId, minimumSeverity, deviceId);
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case ALL -> "all";
+            case DEVICE_TYPE -> "type:" + deviceType;
+            case ZONE -> "zone:" + zoneId;
+            case SEVERITY -> "severity>=" + minimumSeverity;
+            case DEVICE -> "device:" + deviceId;
+        };
+    }
+}
@@ -0,0 +1,241 @@
+package infrastructure.telemetry;
+
+import alarm.AlarmSeverity;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact fixed-layout binary format for device messages. Messages are grouped into frames;
+ * a UDP datagram carries one or more whole frames and a TCP stream carries frames back to back.
+ *
+ * <pre>
+ * Frame header (12 bytes, big-endian)
+ *   short  magic 0x5E17
+ *   byte   format version
+ *   byte   reserved (0)
+ *   short  message count
+ *   short  payload length in bytes
+ *   int    CRC32C of the payload
+ *
+ * Messages (type byte followed by a fixed body; ids are 16 raw UUID bytes)
+ *   HEARTBEAT    id                                        17 bytes
+ *   TELEMETRY    id, byte battery, short signal dBm        20 bytes
+ *   ALARM_EVENT  id, byte severity, int sequence, long ms  30 bytes
+ *   ACK          id, int sequence                          21 bytes
+ * </pre>
+ *
+ * Encoding and decoding use absolute reads and writes on the caller's buffer, so neither
+ * allocates. An instance keeps per-frame encoder state and a checksum, so it is not thread-safe;
+ * use one per thread.
+ */
+public class TelemetryCodec {
+    public static final short MAGIC = 0x5E17;
+    public static final byte VERSION = 1;
+    public static final int HEADER_SIZE = 12;
+    public static final int MAX_PAYLOAD = 0xFFFF;
+
+    public static final byte HEARTBEAT = 1;
+    public static final byte TELEMETRY = 2;
+    public static final byte ALARM_EVENT = 3;
+    public static final byte ACK = 4;
+
+    public static final int HEARTBEAT_SIZE = 17;
+    public static final int TELEMETRY_SIZE = 20;
+    public static final int ALARM_EVENT_SIZE = 30;
+    public static final int ACK_SIZE = 21;
+
+    // Decode results other than a message count
+    public static final int INCOMPLETE = -1;
+    public static final int BAD_MAGIC = -2;
+    public static final int BAD_VERSION = -3;
+    public static final int BAD_CHECKSUM = -4;
+    public static final int MALFORMED = -5;
+
+    private static final AlarmSeverity[] SEVERITIES = AlarmSeverity.values();
+
+    private final CRC32C crc = new CRC32C();
+    private int frameStart = -1;
+    private int frameCount;
+
+    // ---------------------------------------------------------------- encoding
+
+    /**
+     * Reserves a frame header at the buffer's position. Messages are then appended with the
+     * put methods and the frame is sealed with {@link #endFrame(ByteBuffer)}.
+     */
+    public void beginFrame(ByteBuffer buf) {
+        frameStart = buf.position();
+        frameCount = 0;
+        buf.position(frameStart + HEADER_SIZE);
+    }
+
+    /**
+     * @return Bytes still available for messages in the current frame.
+     */
+    public int frameCapacity(ByteBuffer buf) {
+        return Math.min(buf.remaining(), MAX_PAYLOAD - (buf.position() - frameStart - HEADER_SIZE));
+    }
+
+    public void putHeartbeat(ByteBuffer buf, UUID deviceId) {
+        putHeartbeat(buf, deviceId.getMostSignificantBits(), deviceId.getLeastSignificantBits());
+    }
+
+    public void putHeartbeat(ByteBuffer buf, long idMsb, long idLsb) {
+        buf.put(HEARTBEAT).putLong(idMsb).putLong(idLsb);
+        frameCount++;
+    }
+
+    public void putTelemetry(ByteBuffer buf, UUID deviceId, int batteryLife, int signalStrength) {
+        buf.put(TELEMETRY).putLong(deviceId.getMostSignificantBits()).putLong(deviceId.getLeastSignificantBits());
+        buf.put((byte) batteryLife).putShort((short) signalStrength);
+        frameCount++;
+    }
+
+    public void putAlarmEvent(ByteBuffer buf, UUID deviceId, AlarmSeverity severity, int sequence, long epochMillis) {
+        buf.put(ALARM_EVENT).putLong(deviceId.getMostSignificantBits()).putLong(deviceId.getLeastSignificantBits());
+        buf.put((byte) severity.ordinal()).putInt(sequence).putLong(epochMillis);
+        frameCount++;
+    }
+
+    public void putAck(ByteBuffer buf, long idMsb, long idLsb, int sequence) {
+        buf.put(ACK).putLong(idMsb).putLong(idLsb).putInt(sequence);
+        frameCount++;
+    }
+
+    /**
+     * Fills in the reserved header for the frame started by {@link #beginFrame(ByteBuffer)}.
+     *
+     * @return The number of messages in the frame.
+     */
+    public int endFrame(ByteBuffer buf) {
+        int payloadStart = frameStart + HEADER_SIZE;
+        int payloadLength = buf.position() - payloadStart;
+        if (payloadLength > MAX_PAYLOAD) {
+            throw new IllegalStateException("Telemetry frame payload exceeds " + MAX_PAYLOAD + " bytes");
+        }
+
+        buf.putShort(frameStart, MAGIC);
+        buf.put(frameStart + 2, VERSION);
+        buf.put(frameStart + 3, (byte) 0);
+        buf.putShort(frameStart + 4, (short) frameCount);
+        buf.putShort(frameStart + 6, (short) payloadLength);
+        buf.putInt(frameStart + 8, checksum(buf, payloadStart, payloadLength));
+
+        int count = frameCount;
+        frameStart = -1;
+        frameCount = 0;
+        return count;
+    }
+
+    // ---------------------------------------------------------------- decoding
+
+    /**
+     * Decodes one frame starting at the buffer's position and passes each message to the handler.
+     * The checksum, every message's type and length, and that the messages fill the payload exactly
+     * are all verified before any message is delivered, so a rejected frame has no effect.
+     *
+     * @return The number of messages decoded, with the position advanced past the frame, or one of
+     *         the negative result codes. On {@link #INCOMPLETE} the position is unchanged so a stream
+     *         reader can wait for more bytes; on other errors the caller should discard the input.
+     */
+    public int decodeFrame(ByteBuffer buf, TelemetryHandler handler) {
+        int start = buf.position();
+        if (buf.limit() - start < HEADER_SIZE) {
+            return INCOMPLETE;
+        }
+        if (buf.getShort(start) != MAGIC) {
+            return BAD_MAGIC;
+        }
+        if (buf.get(start + 2) != VERSION) {
+            return BAD_VERSION;
+        }
+
+        int count = Short.toUnsignedInt(buf.getShort(start + 4));
+        int payloadLength = Short.toUnsignedInt(buf.getShort(start + 6));
+        int payloadStart = start + HEADER_SIZE;
+        int end = payloadStart + payloadLength;
+        if (end > buf.limit()) {
+            return INCOMPLETE;
+        }
+        if (buf.getInt(start + 8) != checksum(buf, payloadStart, payloadLength)) {
+            return BAD_CHECKSUM;
+        }
+
+        // The whole frame is checked before the first message goes out, so a rejected one has no effect
+        int p = payloadStart;
+        for (int i = 0; i < count && p >= 0; i++) {
+            p = skipMessage(buf, p, end);
+        }
+        if (p != end) {
+            return MALFORMED; // A bad message, or bytes the message count does not account for
+        }
+
+        p = payloadStart;
+        for (int i = 0; i < count; i++) {
+            byte type = buf.get(p);
+            long msb = buf.getLong(p + 1);
+            long lsb = buf.getLong(p + 9);
+
+            switch (type) {
+                case HEARTBEAT -> {
+                    handler.onHeartbeat(msb, lsb);
+                    p += HEARTBEAT_SIZE;
+                }
+                case TELEMETRY -> {
+                    handler.onTelemetry(msb, lsb, buf.get(p + 17), buf.getShort(p + 18));
+                    p += TELEMETRY_SIZE;
+                }
+                case ALARM_EVENT -> {
+                    handler.onAlarmEvent(msb, lsb, SEVERITIES[buf.get(p + 17)], buf.getInt(p + 18), buf.getLong(p + 22));
+                    p += ALARM_EVENT_SIZE;
+                }
+                default -> {
+                    handler.onAck(msb, lsb, buf.getInt(p + 17));
+                    p += ACK_SIZE;
+                }
+            }
+        }
+
+        buf.position(end);
+        return count;
+    }
+
+    /**
+     * @return The offset just past the well-formed message at {@code p}, or -1 if the message has
+     *         an unknown type or field value or runs past {@code end}.
+     */
+    private static int skipMessage(ByteBuffer buf, int p, int end) {
+        if (p + HEARTBEAT_SIZE > end) {
+            return -1; // Every message is at least a type byte and an id
+        }
+        int size = switch (buf.get(p)) {
+            case HEARTBEAT -> HEARTBEAT_SIZE;
+            case TELEMETRY -> TELEMETRY_SIZE;
+            case ALARM_EVENT -> ALARM_EVENT_SIZE;
+            case ACK -> ACK_SIZE;
+            default -> -1;
+        };
+        if (size < 0 || p + size > end) {
+            return -1;
+        }
+        if (buf.get(p) == ALARM_EVENT) {
+            int severity = buf.get(p + 17);
+            if (severity < 0 || severity >= SEVERITIES.length) {
+                return -1;
+            }
+        }
+        return p + size;
+    }
+
+    private int checksum(ByteBuffer buf, int offset, int length) {
+        int position = buf.position();
+        int limit = buf.limit();
+        buf.limit(offset + length).position(offset);
+        crc.reset();
+        crc.update(buf);
+        buf.limit(limit).position(position);
+        return (int) crc.getValue();
+    }
+}
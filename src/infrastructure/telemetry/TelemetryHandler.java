@@ -0,0 +1,15 @@
+package infrastructure.telemetry;
+
+import alarm.AlarmSeverity;
+
+/**
+ * Receives messages as {@link TelemetryCodec} decodes them. Device ids are passed as their two
+ * raw halves so decoding never allocates; implementations look devices up by those halves.
+ * Every callback defaults to a no-op so a receiver only overrides the messages it expects.
+ */
+public interface TelemetryHandler {
+    default void onHeartbeat(long idMsb, long idLsb) {}
+    default void onTelemetry(long idMsb, long idLsb, int batteryLife, int signalStrength) {}
+    default void onAlarmEvent(long idMsb, long idLsb, AlarmSeverity severity, int sequence, long epochMillis) {}
+    default void onAck(long idMsb, long idLsb, int sequence) {}
+}
@@ -0,0 +1,34 @@
+package infrastructure.timeseries;
+
+/**
+ * Reads back what a {@link BitWriter} wrote.
+ */
+final class BitReader {
+    private final byte[] buffer;
+    private long bitPosition;
+
+    BitReader(byte[] buffer) {
+        this.buffer = buffer;
+    }
+
+    boolean readBit() {
+        return read(1) == 1;
+    }
+
+    long read(int bits) {
+        long result = 0;
+        while (bits > 0) {
+            int index = (int) (bitPosition >>> 3);
+            if (index >= buffer.length) {
+                throw new IllegalStateException("Block ended early");
+            }
+            int available = 8 - (int) (bitPosition & 7);
+            int take = Math.min(available, bits);
+            int chunk = ((buffer[index] & 0xFF) >>> (available - take)) & ((1 << take) - 1);
+            result = (result << take) | chunk;
+            bits -= take;
+            bitPosition += take;
+        }
+        return result;
+    }
+}
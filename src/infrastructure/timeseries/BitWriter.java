@@ -0,0 +1,45 @@
+package infrastructure.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Append-only bit buffer, most significant bit first.
+ */
+final class BitWriter {
+    private byte[] buffer;
+    private long bitPosition;
+
+    BitWriter(int initialBytes) {
+        this.buffer = new byte[Math.max(8, initialBytes)];
+    }
+
+    void writeBit(boolean bit) {
+        write(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Appends the low {@code bits} bits of {@code value}.
+     */
+    void write(long value, int bits) {
+        while (bits > 0) {
+            int index = (int) (bitPosition >>> 3);
+            if (index == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int free = 8 - (int) (bitPosition & 7);
+            int take = Math.min(free, bits);
+            int chunk = (int) ((value >>> (bits - take)) & ((1 << take) - 1));
+            buffer[index] |= (byte) (chunk << (free - take));
+            bits -= take;
+            bitPosition += take;
+        }
+    }
+
+    int byteLength() {
+        return (int) ((bitPosition + 7) >>> 3);
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, byteLength());
+    }
+}
@@ -0,0 +1,19 @@
+package infrastructure.timeseries;
+
+/**
+ * Bucket widths for downsampled telemetry.
+ */
+public enum RollupResolution {
+    ONE_MINUTE(60_000L),
+    ONE_HOUR(3_600_000L);
+
+    private final long millis;
+
+    RollupResolution(long millis) {
+        this.millis = millis;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+}
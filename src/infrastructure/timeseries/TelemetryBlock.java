@@ -0,0 +1,177 @@
+package infrastructure.timeseries;
+
+/**
+ * One device's samples for one block window, compressed as they arrive.
+ *
+ * <p>Timestamps are stored as the delta of their deltas: a device reporting on a steady
+ * interval costs one bit per sample, and jitter of a few hundred milliseconds costs under two
+ * bytes. Battery and signal values are XORed with the previous value and only the meaningful
+ * bits are written, so an unchanged reading is one bit and a small change a dozen or so. The
+ * first timestamp is kept outside the bit stream, in the block header.</p>
+ *
+ * <p>Not thread-safe; the store guards each device's open block.</p>
+ */
+final class TelemetryBlock {
+    private final BitWriter bits = new BitWriter(256);
+    private final XorEncoder battery = new XorEncoder();
+    private final XorEncoder signal = new XorEncoder();
+    private int count;
+    private long firstTimestamp;
+    private long lastTimestamp;
+    private long lastDelta;
+
+    void append(long timestampMillis, int batteryLife, int signalStrength) {
+        if (count == 0) {
+            firstTimestamp = timestampMillis;
+        } else {
+            long delta = timestampMillis - lastTimestamp;
+            writeDeltaOfDelta(delta - lastDelta);
+            lastDelta = delta;
+        }
+        lastTimestamp = timestampMillis;
+        battery.write(bits, Double.doubleToRawLongBits(batteryLife));
+        signal.write(bits, Double.doubleToRawLongBits(signalStrength));
+        count++;
+    }
+
+    int count() {
+        return count;
+    }
+
+    long firstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    byte[] toByteArray() {
+        return bits.toByteArray();
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            bits.writeBit(false);
+        } else if (dod >= -63 && dod <= 64) {
+            bits.write(0b10, 2);
+            bits.write(dod + 63, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            bits.write(0b110, 3);
+            bits.write(dod + 255, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            bits.write(0b1110, 4);
+            bits.write(dod + 2047, 12);
+        } else if (dod >= Integer.MIN_VALUE && dod <= Integer.MAX_VALUE) {
+            bits.write(0b11110, 5);
+            bits.write(dod, 32);
+        } else {
+            bits.write(0b11111, 5);
+            bits.write(dod, 64);
+        }
+    }
+
+    /**
+     * Decodes a block written by {@link #append}, oldest sample first.
+     */
+    static void decode(byte[] data, long firstTimestamp, int count, TelemetrySampleConsumer consumer) {
+        BitReader in = new BitReader(data);
+        XorDecoder battery = new XorDecoder();
+        XorDecoder signal = new XorDecoder();
+        long timestamp = firstTimestamp;
+        long delta = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                delta += readDeltaOfDelta(in);
+                timestamp += delta;
+            }
+            double b = Double.longBitsToDouble(battery.read(in));
+            double s = Double.longBitsToDouble(signal.read(in));
+            consumer.accept(timestamp, (int) b, (int) s);
+        }
+    }
+
+    private static long readDeltaOfDelta(BitReader in) {
+        if (!in.readBit()) {
+            return 0;
+        }
+        if (!in.readBit()) {
+            return in.read(7) - 63;
+        }
+        if (!in.readBit()) {
+            return in.read(9) - 255;
+        }
+        if (!in.readBit()) {
+            return in.read(12) - 2047;
+        }
+        if (!in.readBit()) {
+            return (int) in.read(32);
+        }
+        return in.read(64);
+    }
+
+    private static final class XorEncoder {
+        private boolean first = true;
+        private long previous;
+        private int previousLeading = -1;
+        private int previousTrailing;
+
+        void write(BitWriter out, long value) {
+            if (first) {
+                out.write(value, 64);
+                previous = value;
+                first = false;
+                return;
+            }
+            long xor = value ^ previous;
+            previous = value;
+            if (xor == 0) {
+                out.writeBit(false);
+                return;
+            }
+            out.writeBit(true);
+
+            int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+            int trailing = Long.numberOfTrailingZeros(xor);
+            if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                // Fits in the previous window of meaningful bits
+                out.writeBit(false);
+                out.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+            } else {
+                int length = 64 - leading - trailing;
+                out.writeBit(true);
+                out.write(leading, 5);
+                out.write(length - 1, 6);
+                out.write(xor >>> trailing, length);
+                previousLeading = leading;
+                previousTrailing = trailing;
+            }
+        }
+    }
+
+    private static final class XorDecoder {
+        private boolean first = true;
+        private long previous;
+        private int previousLeading;
+        private int previousTrailing;
+
+        long read(BitReader in) {
+            if (first) {
+                first = false;
+                previous = in.read(64);
+                return previous;
+            }
+            if (!in.readBit()) {
+                return previous;
+            }
+            if (in.readBit()) {
+                previousLeading = (int) in.read(5);
+                int length = (int) in.read(6) + 1;
+                previousTrailing = 64 - previousLeading - length;
+            }
+            long meaningful = in.read(64 - previousLeading - previousTrailing);
+            previous ^= meaningful << previousTrailing;
+            return previous;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package infrastructure.timeseries;
+
+/**
+ * Data transfer object. Summary of one device's samples within one rollup bucket.
+ */
+public class TelemetryRollup {
+    private final long bucketStartMillis;
+    private final int sampleCount;
+    private final int minBattery;
+    private final int maxBattery;
+    private final double meanBattery;
+    private final int minSignal;
+    private final int maxSignal;
+    private final double meanSignal;
+
+    public TelemetryRollup(long bucketStartMillis,
+                           int sampleCount,
+                           int minBattery,
+                           int maxBattery,
+                           double meanBattery,
+                           int minSignal,
+                           int maxSignal,
+                           double meanSignal) {
+        this.bucketStartMillis = bucketStartMillis;
+        this.sampleCount = sampleCount;
+        this.minBattery = minBattery;
+        this.maxBattery = maxBattery;
+        this.meanBattery = meanBattery;
+        this.minSignal = minSignal;
+        this.maxSignal = maxSignal;
+        this.meanSignal = meanSignal;
+    }
+
+    public long getBucketStartMillis() {
+        return bucketStartMillis;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public int getMinBattery() {
+        return minBattery;
+    }
+
+    public int getMaxBattery() {
+        return maxBattery;
+    }
+
+    public double getMeanBattery() {
+        return meanBattery;
+    }
+
+    public int getMinSignal() {
+        return minSignal;
+    }
+
+    public int getMaxSignal() {
+        return maxSignal;
+    }
+
+    public double getMeanSignal() {
+        return meanSignal;
+    }
+}
@@ -0,0 +1,28 @@
+package infrastructure.timeseries;
+
+/**
+ * Data transfer object. One battery and signal reading of a device.
+ */
+public class TelemetrySample {
+    private final long timestampMillis;
+    private final int batteryLife;
+    private final int signalStrength;
+
+    public TelemetrySample(long timestampMillis, int batteryLife, int signalStrength) {
+        this.timestampMillis = timestampMillis;
+        this.batteryLife = batteryLife;
+        this.signalStrength = signalStrength;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public int getBatteryLife() {
+        return batteryLife;
+    }
+
+    public int getSignalStrength() {
+        return signalStrength;
+    }
+}
@@ -0,0 +1,9 @@
+package infrastructure.timeseries;
+
+/**
+ * Receives decoded samples without boxing them.
+ */
+@FunctionalInterface
+public interface TelemetrySampleConsumer {
+    void accept(long timestampMillis, int batteryLife, int signalStrength);
+}
@@ -0,0 +1,330 @@
+package infrastructure.timeseries;
+
+import core.HubChangeListener;
+import core.SecurityHub;
+import devices.api.Device;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded time-series store for device battery and signal history.
+ *
+ * <p>Every telemetry update reported through the {@link SecurityHub} is appended to the device's
+ * open {@link TelemetryBlock}, which compresses it in memory. When a sample falls into the next
+ * block window the open block is sealed and appended to the device's file
+ * ({@code <deviceId>.tsd}) by a background writer, so no disk I/O happens on the reporting
+ * thread. A file is a sequence of blocks, each with a header holding its first and last
+ * timestamp, sample count and byte length; range scans skip blocks outside the range without
+ * decoding them.</p>
+ *
+ * <p>The open block of each device is only on disk after it is sealed; {@link #flush()} seals
+ * them all, and {@link #stop()} flushes. Samples older than the device's latest are dropped.</p>
+ */
+public class TelemetryStore implements HubChangeListener {
+    private static final String FILE_SUFFIX = ".tsd";
+    private static final int BLOCK_HEADER_SIZE = 24;
+
+    private final SecurityHub hub;
+    private final Path directory;
+    private final long blockMillis;
+    private final Logger logger;
+    private final Map<UUID, Series> series = new ConcurrentHashMap<>();
+    private final ExecutorService writer;
+    private final AtomicLong sampleCount = new AtomicLong();
+    private final AtomicLong droppedSamples = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    /**
+     * @param blockMillis Width of a block window; longer blocks compress better but keep more
+     *        unsealed samples in memory.
+     */
+    public TelemetryStore(SecurityHub hub, Path directory, long blockMillis, Logger logger) {
+        this.hub = hub;
+        this.directory = directory;
+        this.blockMillis = blockMillis;
+        this.logger = logger;
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "telemetry-store-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void start() throws IOException {
+        Files.createDirectories(directory);
+        hub.addChangeListener(this);
+    }
+
+    /**
+     * Stops recording and writes every open block out.
+     */
+    public void stop() {
+        hub.removeChangeListener(this);
+        flush();
+        writer.shutdown();
+    }
+
+    @Override
+    public void onTelemetryUpdated(Device device) {
+        append(device.getId(), hub.getClock().millis(), device.getBatteryLife(), device.getSignalStrength());
+    }
+
+    public void append(UUID deviceId, long timestampMillis, int batteryLife, int signalStrength) {
+        Series s = series.computeIfAbsent(deviceId, id -> new Series(fileFor(id)));
+        synchronized (s) {
+            if (timestampMillis < s.lastTimestamp) {
+                droppedSamples.incrementAndGet();
+                return;
+            }
+            long window = Math.floorDiv(timestampMillis, blockMillis);
+            if (s.open != null && window != s.openWindow) {
+                seal(s);
+            }
+            if (s.open == null) {
+                s.open = new TelemetryBlock();
+                s.openWindow = window;
+            }
+            s.open.append(timestampMillis, batteryLife, signalStrength);
+            s.lastTimestamp = timestampMillis;
+        }
+        sampleCount.incrementAndGet();
+    }
+
+    /**
+     * Seals every open block and waits until all sealed blocks are on disk.
+     */
+    public void flush() {
+        for (Series s : series.values()) {
+            synchronized (s) {
+                if (s.open != null) {
+                    seal(s);
+                }
+            }
+        }
+        try {
+            writer.submit(() -> {}).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            logger.log("Telemetry store flush failed: " + e.getMessage(), LogLevel.ERROR);
+        }
+    }
+
+    /**
+     * Streams one device's samples with {@code fromMillis <= timestamp < toMillis}, oldest first.
+     */
+    public void scan(UUID deviceId, long fromMillis, long toMillis, TelemetrySampleConsumer consumer) {
+        // Blocks not yet on disk; anything in the file from their start onwards is a duplicate
+        List<SealedBlock> inMemory = new ArrayList<>();
+        Series s = series.get(deviceId);
+        if (s != null) {
+            synchronized (s) {
+                inMemory.addAll(s.pending);
+                if (s.open != null) {
+                    inMemory.add(new SealedBlock(s.open));
+                }
+            }
+        }
+        long cutoff = inMemory.isEmpty() ? Long.MAX_VALUE : inMemory.get(0).firstTimestamp;
+
+        TelemetrySampleConsumer inRange = (ts, battery, signal) -> {
+            if (ts >= fromMillis && ts < toMillis) {
+                consumer.accept(ts, battery, signal);
+            }
+        };
+        scanFile(fileFor(deviceId), fromMillis, toMillis, cutoff, inRange);
+        for (SealedBlock block : inMemory) {
+            if (block.overlaps(fromMillis, toMillis)) {
+                TelemetryBlock.decode(block.data, block.firstTimestamp, block.count, inRange);
+            }
+        }
+    }
+
+    public List<TelemetrySample> range(UUID deviceId, long fromMillis, long toMillis) {
+        List<TelemetrySample> samples = new ArrayList<>();
+        scan(deviceId, fromMillis, toMillis, (ts, battery, signal) -> samples.add(new TelemetrySample(ts, battery, signal)));
+        return samples;
+    }
+
+    /**
+     * Downsamples one device's history into fixed buckets; empty buckets are left out.
+     */
+    public List<TelemetryRollup> rollup(UUID deviceId, long fromMillis, long toMillis, RollupResolution resolution) {
+        RollupBuilder builder = new RollupBuilder(resolution.getMillis());
+        scan(deviceId, fromMillis, toMillis, builder);
+        return builder.finish();
+    }
+
+    public long getSampleCount() {
+        return sampleCount.get();
+    }
+
+    public long getDroppedSamples() {
+        return droppedSamples.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public int getSeriesCount() {
+        return series.size();
+    }
+
+    private Path fileFor(UUID deviceId) {
+        return directory.resolve(deviceId + FILE_SUFFIX);
+    }
+
+    /**
+     * Caller holds the series lock.
+     */
+    private void seal(Series s) {
+        SealedBlock block = new SealedBlock(s.open);
+        s.open = null;
+        s.pending.add(block);
+        writer.execute(() -> write(s, block));
+    }
+
+    private void write(Series s, SealedBlock block) {
+        ByteBuffer buf = ByteBuffer.allocate(BLOCK_HEADER_SIZE + block.data.length);
+        buf.putLong(block.firstTimestamp)
+                .putLong(block.lastTimestamp)
+                .putInt(block.count)
+                .putInt(block.data.length)
+                .put(block.data);
+        try {
+            // One write per block, so a concurrent scan never sees a header without its body
+            Files.write(s.file, buf.array(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            bytesWritten.addAndGet(buf.capacity());
+        } catch (IOException e) {
+            logger.log("Unable to write telemetry block to " + s.file + ": " + e.getMessage(), LogLevel.ERROR);
+        } finally {
+            synchronized (s) {
+                s.pending.remove(block);
+            }
+        }
+    }
+
+    private void scanFile(Path file, long fromMillis, long toMillis, long cutoff, TelemetrySampleConsumer consumer) {
+        if (!Files.exists(file)) {
+            return;
+        }
+        byte[] header = new byte[BLOCK_HEADER_SIZE];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                try {
+                    in.readFully(header);
+                } catch (EOFException e) {
+                    return;
+                }
+                ByteBuffer h = ByteBuffer.wrap(header);
+                long first = h.getLong();
+                long last = h.getLong();
+                int count = h.getInt();
+                int length = h.getInt();
+                if (first >= cutoff || first >= toMillis) {
+                    return;
+                }
+                if (last < fromMillis) {
+                    in.skipNBytes(length);
+                    continue;
+                }
+                byte[] data = new byte[length];
+                in.readFully(data);
+                TelemetryBlock.decode(data, first, count, consumer);
+            }
+        } catch (EOFException e) {
+            logger.log("Telemetry file " + file + " ends in a partial block", LogLevel.WARNING);
+        } catch (IOException | IllegalStateException e) {
+            logger.log("Unable to read telemetry file " + file + ": " + e.getMessage(), LogLevel.ERROR);
+        }
+    }
+
+    private static final class Series {
+        final Path file;
+        final Deque<SealedBlock> pending = new ArrayDeque<>(); // Sealed, not yet written
+        TelemetryBlock open;
+        long openWindow;
+        long lastTimestamp = Long.MIN_VALUE;
+
+        Series(Path file) {
+            this.file = file;
+        }
+    }
+
+    private static final class SealedBlock {
+        final long firstTimestamp;
+        final long lastTimestamp;
+        final int count;
+        final byte[] data;
+
+        SealedBlock(TelemetryBlock block) {
+            this.firstTimestamp = block.firstTimestamp();
+            this.lastTimestamp = block.lastTimestamp();
+            this.count = block.count();
+            this.data = block.toByteArray();
+        }
+
+        boolean overlaps(long fromMillis, long toMillis) {
+            return lastTimestamp >= fromMillis && firstTimestamp < toMillis;
+        }
+    }
+
+    private static final class RollupBuilder implements TelemetrySampleConsumer {
+        private final long bucketMillis;
+        private final List<TelemetryRollup> rollups = new ArrayList<>();
+        private long bucket = Long.MIN_VALUE;
+        private int count;
+        private int minBattery, maxBattery, minSignal, maxSignal;
+        private long sumBattery, sumSignal;
+
+        RollupBuilder(long bucketMillis) {
+            this.bucketMillis = bucketMillis;
+        }
+
+        @Override
+        public void accept(long timestampMillis, int batteryLife, int signalStrength) {
+            long start = Math.floorDiv(timestampMillis, bucketMillis) * bucketMillis;
+            if (start != bucket) {
+                emit();
+                bucket = start;
+                minBattery = maxBattery = batteryLife;
+                minSignal = maxSignal = signalStrength;
+            }
+            count++;
+            minBattery = Math.min(minBattery, batteryLife);
+            maxBattery = Math.max(maxBattery, batteryLife);
+            minSignal = Math.min(minSignal, signalStrength);
+            maxSignal = Math.max(maxSignal, signalStrength);
+            sumBattery += batteryLife;
+            sumSignal += signalStrength;
+        }
+
+        List<TelemetryRollup> finish() {
+            emit();
+            return rollups;
+        }
+
+        private void emit() {
+            if (count > 0) {
+                rollups.add(new TelemetryRollup(bucket, count, minBattery, maxBattery, (double) sumBattery / count,
+                        minSignal, maxSignal, (double) sumSignal / count));
+            }
+            count = 0;
+            sumBattery = 0;
+            sumSignal = 0;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package infrastructure.trace;
+
+import alarm.Alarm;
+import core.SecurityHub;
+import devices.api.Device;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A 64-bit FNV-1a digest of the hub state a trace drives: every device's id, type, status,
+ * battery, signal and failure count, and every active alarm's device and severity. Devices and
+ * alarms are taken in id order and timestamps are left out, so two hubs that went through the
+ * same inputs agree however their shards and clocks were set up.
+ */
+public final class HubChecksum {
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private HubChecksum() {
+    }
+
+    public static long of(SecurityHub hub) {
+        long h = OFFSET_BASIS;
+        List<Device> devices = hub.getDevices();
+        devices.sort(Comparator.comparing(Device::getId));
+        for (Device d : devices) {
+            h = mix(h, d.getId());
+            h = mix(h, d.getDeviceType().ordinal());
+            h = mix(h, d.getDeviceStatus().ordinal());
+            h = mix(h, d.getBatteryLife());
+            h = mix(h, d.getSignalStrength());
+            h = mix(h, d.getFailureCount());
+        }
+
+        List<Alarm> alarms = hub.getActiveAlarms();
+        alarms.sort(Comparator.comparing(Alarm::getDeviceId).thenComparing(Alarm::getSeverity));
+        for (Alarm a : alarms) {
+            h = mix(h, a.getDeviceId());
+            h = mix(h, a.getSeverity().ordinal());
+        }
+        return h;
+    }
+
+    private static long mix(long h, UUID id) {
+        return mix(mix(h, id.getMostSignificantBits()), id.getLeastSignificantBits());
+    }
+
+    private static long mix(long h, long value) {
+        for (int i = 0; i < 8; i++) {
+            h ^= (value >>> (i * 8)) & 0xFF;
+            h *= PRIME;
+        }
+        return h;
+    }
+}
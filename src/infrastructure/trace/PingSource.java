@@ -0,0 +1,12 @@
+package infrastructure.trace;
+
+/**
+ * What a recorded ping was for, so that replay can ask the hub the same way. Only liveness pings
+ * count towards a device's failure ladder.
+ */
+public enum PingSource {
+    LIVENESS,    // The hub's liveness check or health sweep
+    BATCH,       // A batched diagnostic poll
+    SELF_CHECK,  // A device's own self-check
+    ON_DEMAND    // Any other ping, e.g. one asked for from the dashboard
+}
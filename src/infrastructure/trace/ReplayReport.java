@@ -0,0 +1,89 @@
+package infrastructure.trace;
+
+import infrastructure.monitoring.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The outcome of one {@link TraceReplayer} run: how fast the trace went through the hub, how long
+ * each kind of event took to apply, and the hub's final {@link HubChecksum}.
+ */
+public class ReplayReport {
+    private final long events;
+    private final long elapsedNanos;
+    private final LatencyHistogram overall;
+    private final Map<TraceEventType, LatencyHistogram> byType;
+    private final long checksum;
+    private final Long recordedChecksum;
+
+    ReplayReport(long events, long elapsedNanos, LatencyHistogram overall,
+                 Map<TraceEventType, LatencyHistogram> byType, long checksum, Long recordedChecksum) {
+        this.events = events;
+        this.elapsedNanos = elapsedNanos;
+        this.overall = overall;
+        this.byType = new EnumMap<>(byType);
+        this.checksum = checksum;
+        this.recordedChecksum = recordedChecksum;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getEventsPerSecond() {
+        return elapsedNanos == 0 ? 0 : events * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @return Nanoseconds taken to apply each event.
+     */
+    public LatencyHistogram getLatency() {
+        return overall;
+    }
+
+    /**
+     * @return Nanoseconds taken to apply each event of the type; empty if the trace had none.
+     */
+    public LatencyHistogram getLatency(TraceEventType type) {
+        return byType.getOrDefault(type, new LatencyHistogram());
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return False if the recording was cut short and has no checksum to compare against.
+     */
+    public boolean hasRecordedChecksum() {
+        return recordedChecksum != null;
+    }
+
+    /**
+     * @return True if the replay ended in the state the recorded hub was in when it stopped.
+     */
+    public boolean matchesRecording() {
+        return recordedChecksum != null && recordedChecksum == checksum;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("Replayed %d events in %.1fms (%.0f events/s)%n",
+                events, elapsedNanos / 1e6, getEventsPerSecond()));
+        sb.append(String.format("  %-16s %s%n", "all", overall.summary()));
+        byType.forEach((type, h) -> sb.append(String.format("  %-16s %s%n", type, h.summary())));
+        sb.append(String.format("  checksum %016x", checksum));
+        if (recordedChecksum != null) {
+            sb.append(matchesRecording() ? " matches the recording"
+                    : String.format(", recording ended at %016x", recordedChecksum));
+        } else {
+            sb.append(", recording has no checksum");
+        }
+        return sb.toString();
+    }
+}
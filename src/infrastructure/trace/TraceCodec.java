@@ -0,0 +1,215 @@
+package infrastructure.trace;
+
+import alarm.AlarmSeverity;
+import commands.CommandType;
+import devices.model.DeviceStatus;
+import devices.model.DeviceType;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * File format for hub traces:
+ *
+ * <pre>
+ *   int   magic
+ *   byte  format version
+ *   long  recording start, epoch millis on the hub's clock
+ *   event until END or end of file:
+ *         varint nanos since the previous event, byte type, then the type-specific fields
+ * </pre>
+ *
+ * A device's UUID is written once, in its DEVICE_ADDED event, which gives it the next index;
+ * later events name it by that index as a varint. Battery levels are written as varints, signal
+ * strengths as zig-zag varints and enums as ordinals, with a ping's answer in the low bit of its
+ * source's byte, so a typical event takes three to five bytes. A trace cut short by a crash
+ * reads up to its last complete event.
+ */
+final class TraceCodec {
+    static final int MAGIC = 0x53545243; // "STRC"
+    static final byte VERSION = 2;
+
+    private TraceCodec() {
+    }
+
+    static final class Encoder {
+        private final DataOutputStream out;
+        private final Map<UUID, Integer> indexes = new HashMap<>();
+        private long lastOffset;
+
+        Encoder(OutputStream out, long startEpochMillis) throws IOException {
+            this.out = new DataOutputStream(out);
+            this.out.writeInt(MAGIC);
+            this.out.writeByte(VERSION);
+            this.out.writeLong(startEpochMillis);
+        }
+
+        /**
+         * @return False if the device has no DEVICE_ADDED event in the trace yet.
+         */
+        boolean knows(UUID deviceId) {
+            return indexes.containsKey(deviceId);
+        }
+
+        void write(TraceEvent e) throws IOException {
+            writeVarint(out, Math.max(0, e.getOffsetNanos() - lastOffset));
+            lastOffset = Math.max(lastOffset, e.getOffsetNanos());
+            out.writeByte(e.getType().ordinal());
+
+            switch (e.getType()) {
+                case DEVICE_ADDED -> {
+                    indexes.putIfAbsent(e.getDeviceId(), indexes.size());
+                    out.writeLong(e.getDeviceId().getMostSignificantBits());
+                    out.writeLong(e.getDeviceId().getLeastSignificantBits());
+                    out.writeByte(e.getDeviceType().ordinal());
+                    out.writeByte(e.getDeviceStatus().ordinal());
+                    writeVarint(out, e.getBatteryLife() & 0xFFFFFFFFL);
+                    writeVarint(out, zigZag(e.getSignalStrength()));
+                }
+                case DEVICE_REMOVED, ALARM_RESOLVED -> writeIndex(e.getDeviceId());
+                case TELEMETRY -> {
+                    writeIndex(e.getDeviceId());
+                    writeVarint(out, e.getBatteryLife() & 0xFFFFFFFFL);
+                    writeVarint(out, zigZag(e.getSignalStrength()));
+                }
+                case PING -> {
+                    writeIndex(e.getDeviceId());
+                    out.writeByte(e.getPingSource().ordinal() << 1 | (e.isResponsive() ? 1 : 0));
+                }
+                case ALARM_TRIGGERED -> {
+                    writeIndex(e.getDeviceId());
+                    out.writeByte(e.getSeverity().ordinal());
+                }
+                case COMMAND -> {
+                    writeIndex(e.getDeviceId());
+                    out.writeByte(e.getCommandType().ordinal());
+                }
+                case END -> out.writeLong(e.getChecksum());
+                case ARMED, DISARMED -> {
+                }
+            }
+        }
+
+        private void writeIndex(UUID deviceId) throws IOException {
+            Integer index = indexes.get(deviceId);
+            if (index == null) {
+                throw new IOException("Device " + deviceId + " is not in the trace");
+            }
+            writeVarint(out, index);
+        }
+
+        int size() {
+            return out.size();
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    static final class Decoder {
+        private final DataInputStream in;
+        private final long startEpochMillis;
+        private final List<UUID> devices = new ArrayList<>();
+        private final Map<UUID, Integer> indexes = new HashMap<>();
+        private long offset;
+
+        Decoder(InputStream in) throws IOException {
+            this.in = new DataInputStream(in);
+            if (this.in.readInt() != MAGIC) {
+                throw new IOException("Not a hub trace");
+            }
+            byte version = this.in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported trace format version: " + version);
+            }
+            this.startEpochMillis = this.in.readLong();
+        }
+
+        long getStartEpochMillis() {
+            return startEpochMillis;
+        }
+
+        /**
+         * @return The next event, or null at the end of the file.
+         */
+        TraceEvent read() throws IOException {
+            try {
+                offset += readVarint(in);
+                TraceEventType[] types = TraceEventType.values();
+                int ordinal = in.readUnsignedByte();
+                if (ordinal >= types.length) {
+                    throw new IOException("Unknown trace event type: " + ordinal);
+                }
+
+                return switch (types[ordinal]) {
+                    case DEVICE_ADDED -> {
+                        UUID id = new UUID(in.readLong(), in.readLong());
+                        if (indexes.putIfAbsent(id, devices.size()) == null) {
+                            devices.add(id);
+                        }
+                        yield new TraceEvent(TraceEventType.DEVICE_ADDED, offset, id,
+                                DeviceType.values()[in.readUnsignedByte()], DeviceStatus.values()[in.readUnsignedByte()],
+                                (int) readVarint(in), unZigZag(readVarint(in)), false, null, null, null, 0);
+                    }
+                    case DEVICE_REMOVED -> TraceEvent.deviceRemoved(offset, readDevice());
+                    case ALARM_RESOLVED -> TraceEvent.alarmResolved(offset, readDevice());
+                    case TELEMETRY -> TraceEvent.telemetry(offset, readDevice(), (int) readVarint(in), unZigZag(readVarint(in)));
+                    case PING -> {
+                        UUID id = readDevice();
+                        int ping = in.readUnsignedByte();
+                        yield TraceEvent.ping(offset, id, (ping & 1) != 0, PingSource.values()[ping >>> 1]);
+                    }
+                    case ALARM_TRIGGERED -> TraceEvent.alarmTriggered(offset, readDevice(),
+                            AlarmSeverity.values()[in.readUnsignedByte()]);
+                    case COMMAND -> TraceEvent.command(offset, readDevice(), CommandType.values()[in.readUnsignedByte()]);
+                    case ARMED -> TraceEvent.mode(offset, true);
+                    case DISARMED -> TraceEvent.mode(offset, false);
+                    case END -> TraceEvent.end(offset, in.readLong());
+                };
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        private UUID readDevice() throws IOException {
+            long index = readVarint(in);
+            if (index >= devices.size()) {
+                throw new IOException("Trace names unknown device index " + index);
+            }
+            return devices.get((int) index);
+        }
+    }
+
+    static void writeVarint(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarint(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in trace");
+    }
+
+    private static long zigZag(int value) {
+        return ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL;
+    }
+
+    private static int unZigZag(long value) {
+        return (int) (value >>> 1) ^ -(int) (value & 1);
+    }
+}
@@ -0,0 +1,144 @@
+package infrastructure.trace;
+
+import alarm.AlarmSeverity;
+import commands.CommandType;
+import devices.api.Device;
+import devices.model.DeviceStatus;
+import devices.model.DeviceType;
+
+import java.util.UUID;
+
+/**
+ * One input to the hub as it appears in a trace. Device fields are copied when the event is
+ * created. Fields that do not apply to the event type are null, zero or false.
+ */
+public class TraceEvent {
+    private final TraceEventType type;
+    private final long offsetNanos;  // Since the recording started, on the hub's clock
+    private final UUID deviceId;
+    private final DeviceType deviceType;
+    private final DeviceStatus deviceStatus;
+    private final int batteryLife;
+    private final int signalStrength;
+    private final boolean responsive;
+    private final PingSource pingSource;
+    private final AlarmSeverity severity;
+    private final CommandType commandType;
+    private final long checksum;
+
+    TraceEvent(TraceEventType type, long offsetNanos, UUID deviceId, DeviceType deviceType,
+               DeviceStatus deviceStatus, int batteryLife, int signalStrength, boolean responsive,
+               PingSource pingSource, AlarmSeverity severity, CommandType commandType, long checksum) {
+        this.type = type;
+        this.offsetNanos = offsetNanos;
+        this.deviceId = deviceId;
+        this.deviceType = deviceType;
+        this.deviceStatus = deviceStatus;
+        this.batteryLife = batteryLife;
+        this.signalStrength = signalStrength;
+        this.responsive = responsive;
+        this.pingSource = pingSource;
+        this.severity = severity;
+        this.commandType = commandType;
+        this.checksum = checksum;
+    }
+
+    static TraceEvent deviceAdded(long offsetNanos, Device d) {
+        return new TraceEvent(TraceEventType.DEVICE_ADDED, offsetNanos, d.getId(), d.getDeviceType(),
+                d.getDeviceStatus(), d.getBatteryLife(), d.getSignalStrength(), false, null, null, null, 0);
+    }
+
+    static TraceEvent deviceRemoved(long offsetNanos, UUID deviceId) {
+        return new TraceEvent(TraceEventType.DEVICE_REMOVED, offsetNanos, deviceId, null, null, 0, 0, false, null,
+                null, null, 0);
+    }
+
+    static TraceEvent telemetry(long offsetNanos, UUID deviceId, int batteryLife, int signalStrength) {
+        return new TraceEvent(TraceEventType.TELEMETRY, offsetNanos, deviceId, null, null, batteryLife,
+                signalStrength, false, null, null, null, 0);
+    }
+
+    static TraceEvent ping(long offsetNanos, UUID deviceId, boolean responsive, PingSource source) {
+        return new TraceEvent(TraceEventType.PING, offsetNanos, deviceId, null, null, 0, 0, responsive, source, null,
+                null, 0);
+    }
+
+    static TraceEvent alarmTriggered(long offsetNanos, UUID deviceId, AlarmSeverity severity) {
+        return new TraceEvent(TraceEventType.ALARM_TRIGGERED, offsetNanos, deviceId, null, null, 0, 0, false, null,
+                severity, null, 0);
+    }
+
+    static TraceEvent alarmResolved(long offsetNanos, UUID deviceId) {
+        return new TraceEvent(TraceEventType.ALARM_RESOLVED, offsetNanos, deviceId, null, null, 0, 0, false, null,
+                null, null, 0);
+    }
+
+    static TraceEvent mode(long offsetNanos, boolean armed) {
+        return new TraceEvent(armed ? TraceEventType.ARMED : TraceEventType.DISARMED, offsetNanos, null, null, null,
+                0, 0, false, null, null, null, 0);
+    }
+
+    static TraceEvent command(long offsetNanos, UUID deviceId, CommandType commandType) {
+        return new TraceEvent(TraceEventType.COMMAND, offsetNanos, deviceId, null, null, 0, 0, false, null, null,
+                commandType, 0);
+    }
+
+    static TraceEvent end(long offsetNanos, long checksum) {
+        return new TraceEvent(TraceEventType.END, offsetNanos, null, null, null, 0, 0, false, null, null,
+                null, checksum);
+    }
+
+    public TraceEventType getType() {
+        return type;
+    }
+
+    public long getOffsetNanos() {
+        return offsetNanos;
+    }
+
+    public UUID getDeviceId() {
+        return deviceId;
+    }
+
+    public DeviceType getDeviceType() {
+        return deviceType;
+    }
+
+    public DeviceStatus getDeviceStatus() {
+        return deviceStatus;
+    }
+
+    public int getBatteryLife() {
+        return batteryLife;
+    }
+
+    public int getSignalStrength() {
+        return signalStrength;
+    }
+
+    public boolean isResponsive() {
+        return responsive;
+    }
+
+    /**
+     * @return What the ping was for; PING events only.
+     */
+    public PingSource getPingSource() {
+        return pingSource;
+    }
+
+    public AlarmSeverity getSeverity() {
+        return severity;
+    }
+
+    public CommandType getCommandType() {
+        return commandType;
+    }
+
+    /**
+     * @return The hub's {@link HubChecksum} when the recording stopped; END events only.
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+}
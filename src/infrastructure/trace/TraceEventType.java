@@ -0,0 +1,14 @@
+package infrastructure.trace;
+
+public enum TraceEventType {
+    DEVICE_ADDED,      // Carries the device's id, type and state, and gives it its index in the trace
+    DEVICE_REMOVED,
+    TELEMETRY,         // A battery and signal reading reported to the hub
+    PING,              // What the hardware link answered for one device, and what the ping was for
+    ALARM_TRIGGERED,
+    ALARM_RESOLVED,
+    ARMED,
+    DISARMED,
+    COMMAND,           // A maintenance command executed against a device
+    END                // Written on a clean stop, with the hub's checksum at that point
+}
@@ -0,0 +1,282 @@
+package infrastructure.trace;
+
+import alarm.Alarm;
+import commands.CommandType;
+import commands.securityhubcommands.SecurityHubCommand;
+import commands.securityhubcommands.SystemResetCommand;
+import core.HubChangeListener;
+import core.HubStatus;
+import core.SecurityHub;
+import devices.api.Device;
+import devices.api.HardwareLink;
+import devices.model.DeviceReading;
+import devices.model.PingResult;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Records what goes into a hub to a trace file that {@link TraceReplayer} can play back: devices
+ * joining and leaving, telemetry, the answers the hardware gave to pings and polls, triggered
+ * and resolved alarms, arming and disarming, and executed resets.
+ *
+ * <p>What the hub works out for itself is left out, since replaying the inputs makes it again:
+ * status changes and diagnostics that follow from failed pings, escalated alarms and the like.
+ * Ping answers are only seen if the devices were created with a link from {@link #wrap}.</p>
+ *
+ * <p>Events are written through a buffer as they happen, timed on the hub's clock. If writing
+ * fails, recording stops and the error is logged; the hub carries on.</p>
+ */
+public class TraceRecorder implements HubChangeListener {
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final SecurityHub hub;
+    private final Path file;
+    private final Logger logger;
+    private final Set<UUID> activeAlarms = new HashSet<>(); // Guarded by this
+    private TraceCodec.Encoder encoder;                     // Guarded by this
+    private OutputStream out;                               // Guarded by this
+    private long startNanos;
+    private long events;
+
+    public TraceRecorder(SecurityHub hub, Path file, Logger logger) {
+        this.hub = hub;
+        this.file = file;
+        this.logger = logger;
+    }
+
+    /**
+     * @return A link that answers as {@code link} does and records every answer.
+     */
+    public HardwareLink wrap(HardwareLink link) {
+        return new RecordingLink(link);
+    }
+
+    /**
+     * Opens the trace and records the devices, alarms and mode the hub already has.
+     */
+    public synchronized void start() throws IOException {
+        if (out != null) {
+            return;
+        }
+        out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_BYTES);
+        encoder = new TraceCodec.Encoder(out, hub.getClock().millis());
+        startNanos = hub.getClock().nanoTime();
+
+        // Changes made meanwhile wait for this lock, so none fall between the snapshot and the stream
+        hub.addChangeListener(this);
+        for (Device d : hub.getDevices()) {
+            write(TraceEvent.deviceAdded(offset(), d));
+        }
+        if (hub.currentMode() == HubStatus.ARMED) {
+            write(TraceEvent.mode(offset(), true));
+        }
+        for (Alarm a : hub.getActiveAlarms()) {
+            onAlarmRegistered(a);
+        }
+        logger.log("Recording hub trace to " + file, LogLevel.INFO);
+    }
+
+    /**
+     * Writes the hub's checksum as the last event and closes the trace.
+     */
+    public synchronized void stop() {
+        hub.removeChangeListener(this);
+        if (out == null) {
+            return;
+        }
+        write(TraceEvent.end(offset(), HubChecksum.of(hub)));
+        close();
+        logger.log("Recorded " + events + " events to " + file, LogLevel.INFO);
+    }
+
+    public synchronized long getEventCount() {
+        return events;
+    }
+
+    /**
+     * @return Bytes written so far, including any still in the buffer.
+     */
+    public synchronized long getBytesWritten() {
+        return encoder != null ? encoder.size() : 0;
+    }
+
+    @Override
+    public synchronized void onDeviceAdded(Device device) {
+        write(TraceEvent.deviceAdded(offset(), device));
+    }
+
+    @Override
+    public synchronized void onDeviceRemoved(Device device) {
+        if (known(device.getId())) {
+            write(TraceEvent.deviceRemoved(offset(), device.getId()));
+        }
+    }
+
+    @Override
+    public synchronized void onTelemetryUpdated(Device device) {
+        if (ensureKnown(device)) {
+            write(TraceEvent.telemetry(offset(), device.getId(), device.getBatteryLife(), device.getSignalStrength()));
+        }
+    }
+
+    /**
+     * An alarm registered again under an id that is still active is an escalation, which the hub
+     * repeats by itself, so only new alarms are recorded.
+     */
+    @Override
+    public synchronized void onAlarmRegistered(Alarm alarm) {
+        if (activeAlarms.add(alarm.getId()) && ensureKnown(hub.findDevice(alarm.getDeviceId()))) {
+            write(TraceEvent.alarmTriggered(offset(), alarm.getDeviceId(), alarm.getSeverity()));
+        }
+    }
+
+    @Override
+    public synchronized void onAlarmResolved(Alarm alarm) {
+        activeAlarms.remove(alarm.getId());
+        if (known(alarm.getDeviceId())) {
+            write(TraceEvent.alarmResolved(offset(), alarm.getDeviceId()));
+        }
+    }
+
+    @Override
+    public synchronized void onModeChanged(HubStatus status) {
+        write(TraceEvent.mode(offset(), status == HubStatus.ARMED));
+    }
+
+    /**
+     * Alarm commands show up as the alarms they raise and diagnostics as the polls they make, so
+     * resets are the only commands recorded as such. The escalation ladder's resets are left out
+     * too: replaying the pings that led to them makes the hub issue them again.
+     */
+    @Override
+    public synchronized void onCommandExecuted(SecurityHubCommand command) {
+        if (command instanceof SystemResetCommand && ((SystemResetCommand) command).clearsFailures()
+                && ensureKnown(command.getDevice())) {
+            write(TraceEvent.command(offset(), command.getDevice().getId(), CommandType.RESET));
+        }
+    }
+
+    private synchronized void recordPing(Device device, boolean responsive, PingSource source) {
+        if (ensureKnown(device)) {
+            write(TraceEvent.ping(offset(), device.getId(), responsive, source));
+        }
+    }
+
+    private boolean known(UUID deviceId) {
+        return encoder != null && encoder.knows(deviceId);
+    }
+
+    /**
+     * Devices that reach the recorder before their DEVICE_ADDED event, e.g. pinged while being
+     * loaded, are added to the trace as they are now.
+     */
+    private boolean ensureKnown(Device device) {
+        if (device == null || encoder == null) {
+            return false;
+        }
+        if (!encoder.knows(device.getId())) {
+            write(TraceEvent.deviceAdded(offset(), device));
+        }
+        return out != null;
+    }
+
+    private long offset() {
+        return hub.getClock().nanoTime() - startNanos;
+    }
+
+    private void write(TraceEvent e) {
+        if (out == null) {
+            return;
+        }
+        try {
+            encoder.write(e);
+            events++;
+        } catch (IOException ex) {
+            logger.log("Hub trace recording stopped: " + ex.getMessage(), LogLevel.ERROR);
+            close();
+        }
+    }
+
+    private void close() {
+        try {
+            out.close();
+        } catch (IOException e) {
+            logger.log("Unable to close hub trace " + file + ": " + e.getMessage(), LogLevel.ERROR);
+        }
+        out = null;
+    }
+
+    /**
+     * Records each answer with what it was for. Calls go to the same method of the wrapped link,
+     * whose defaults then stay inside it, so every answer is recorded once.
+     */
+    private final class RecordingLink implements HardwareLink {
+        private final HardwareLink link;
+
+        RecordingLink(HardwareLink link) {
+            this.link = link;
+        }
+
+        @Override
+        public boolean isDeviceResponsive(Device device) {
+            boolean responsive = link.isDeviceResponsive(device);
+            recordPing(device, responsive, PingSource.ON_DEMAND);
+            return responsive;
+        }
+
+        @Override
+        public List<DeviceReading> pollDevices(List<Device> devices) {
+            return record(devices, link.pollDevices(devices), PingSource.BATCH);
+        }
+
+        @Override
+        public List<DeviceReading> probeDevices(List<Device> devices) {
+            return record(devices, link.probeDevices(devices), PingSource.LIVENESS);
+        }
+
+        @Override
+        public DeviceReading selfCheck(Device device) {
+            DeviceReading reading = link.selfCheck(device);
+            recordPing(device, reading.isResponsive(), PingSource.SELF_CHECK);
+            return reading;
+        }
+
+        @Override
+        public CompletableFuture<PingResult> pingAsync(Device device) {
+            return record(device, link.pingAsync(device), PingSource.ON_DEMAND);
+        }
+
+        @Override
+        public CompletableFuture<PingResult> probeAsync(Device device) {
+            return record(device, link.probeAsync(device), PingSource.LIVENESS);
+        }
+
+        private List<DeviceReading> record(List<Device> devices, List<DeviceReading> readings, PingSource source) {
+            for (int i = 0; i < readings.size(); i++) {
+                recordPing(devices.get(i), readings.get(i).isResponsive(), source);
+            }
+            return readings;
+        }
+
+        private CompletableFuture<PingResult> record(Device device, CompletableFuture<PingResult> ping, PingSource source) {
+            return ping.whenComplete((result, e) -> {
+                if (e != null) {
+                    recordPing(device, false, source); // The device counts a failed ping as no answer
+                } else if (!result.isSkipped()) {
+                    recordPing(device, result.isResponsive(), source);
+                }
+            });
+        }
+    }
+}
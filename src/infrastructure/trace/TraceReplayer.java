@@ -0,0 +1,194 @@
+package infrastructure.trace;
+
+import alarm.Alarm;
+import alarm.AlarmStatus;
+import commands.CommandType;
+import commands.securityhubcommands.BatchDiagnosticCommand;
+import commands.securityhubcommands.SystemResetCommand;
+import core.SecurityHub;
+import devices.api.Device;
+import devices.api.HardwareLink;
+import devices.model.DeviceType;
+import infrastructure.clock.VirtualClock;
+import infrastructure.factories.*;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+import infrastructure.monitoring.LatencyHistogram;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plays a trace from {@link TraceRecorder} back through a hub as fast as the hub takes it, as a
+ * repeatable benchmark built from a real run.
+ *
+ * <p>The whole trace is read before the clock starts, so only the hub's work is timed. The hub
+ * runs on a {@link VirtualClock} moved to each event's recorded time, so alarm timestamps come
+ * out as recorded, and its devices are linked to hardware that gives each ping the answer that
+ * was recorded for it. Each ping is asked the way it was recorded, so only liveness pings count
+ * towards the failure ladder. Ping circuit breakers and the timing wheels still run on wall time, so a
+ * trace in which they mattered may end in a different state than the recording; two replays of
+ * the same trace still agree with each other.</p>
+ */
+public class TraceReplayer {
+    private static final String REPLAYED_ALARM_MESSAGE = "Replayed alarm";
+
+    private final Logger logger;
+    private final int shardCount;
+    private final Map<DeviceType, DeviceFactory> factories = new EnumMap<>(DeviceType.class);
+
+    public TraceReplayer(Logger logger) {
+        this(logger, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TraceReplayer(Logger logger, int shardCount) {
+        this.logger = logger;
+        this.shardCount = shardCount;
+        factories.put(DeviceType.MOTION_DEVICE, new MotionDeviceFactory());
+        factories.put(DeviceType.SMOKE_DEVICE, new SmokeDeviceFactory());
+        factories.put(DeviceType.THERMAL_DEVICE, new ThermalDeviceFactory());
+        factories.put(DeviceType.GLASS_BREAK_SENSOR_DEVICE, new GlassBreakSensorDeviceFactory());
+    }
+
+    /**
+     * Replays the trace against a new hub of its own.
+     */
+    public ReplayReport replay(Path trace) throws IOException {
+        return replay(trace, SecurityHub.createDetached(shardCount));
+    }
+
+    /**
+     * Replays the trace against {@code hub}, which should start empty. The hub's clock is replaced.
+     */
+    public ReplayReport replay(Path trace, SecurityHub hub) throws IOException {
+        long startEpochMillis;
+        List<TraceEvent> events = new ArrayList<>();
+        Long recordedChecksum = null;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(trace))) {
+            TraceCodec.Decoder decoder = new TraceCodec.Decoder(in);
+            startEpochMillis = decoder.getStartEpochMillis();
+            TraceEvent e;
+            while ((e = decoder.read()) != null) {
+                if (e.getType() == TraceEventType.END) {
+                    recordedChecksum = e.getChecksum();
+                    break;
+                }
+                events.add(e);
+            }
+        }
+        if (recordedChecksum == null) {
+            logger.log("Hub trace " + trace + " ends without a checksum; it was not stopped cleanly.", LogLevel.WARNING);
+        }
+
+        VirtualClock clock = new VirtualClock(Instant.ofEpochMilli(startEpochMillis));
+        hub.setClock(clock);
+        ReplayLink link = new ReplayLink();
+        LatencyHistogram overall = new LatencyHistogram();
+        Map<TraceEventType, LatencyHistogram> byType = new EnumMap<>(TraceEventType.class);
+
+        long at = 0;
+        long start = System.nanoTime();
+        for (TraceEvent e : events) {
+            clock.advanceNanos(e.getOffsetNanos() - at);
+            at = e.getOffsetNanos();
+
+            long before = System.nanoTime();
+            apply(hub, link, e);
+            long took = System.nanoTime() - before;
+            overall.record(took);
+            byType.computeIfAbsent(e.getType(), t -> new LatencyHistogram()).record(took);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        ReplayReport report = new ReplayReport(events.size(), elapsed, overall, byType, HubChecksum.of(hub), recordedChecksum);
+        logger.log("Replayed " + events.size() + " events from " + trace + " at "
+                + Math.round(report.getEventsPerSecond()) + " events/s", LogLevel.INFO);
+        return report;
+    }
+
+    private void apply(SecurityHub hub, ReplayLink link, TraceEvent e) {
+        if (e.getType() == TraceEventType.DEVICE_ADDED) {
+            if (hub.findDevice(e.getDeviceId()) == null) {
+                Device d = factories.get(e.getDeviceType()).create(e.getDeviceId(), hub.getLogger(), link);
+                d.setDeviceStatus(e.getDeviceStatus());
+                d.setBatteryLife(e.getBatteryLife());
+                d.setSignalStrength(e.getSignalStrength());
+                hub.addDevice(d);
+            }
+            return;
+        }
+        if (e.getType() == TraceEventType.ARMED) {
+            hub.armHub();
+            return;
+        }
+        if (e.getType() == TraceEventType.DISARMED) {
+            hub.disarmHub();
+            return;
+        }
+
+        // The hub may have decommissioned the device by itself, as it did when recording
+        Device d = hub.findDevice(e.getDeviceId());
+        if (d == null) {
+            return;
+        }
+        switch (e.getType()) {
+            case DEVICE_REMOVED -> hub.removeDevice(d);
+            case TELEMETRY -> {
+                d.setBatteryLife(e.getBatteryLife());
+                d.setSignalStrength(e.getSignalStrength());
+                hub.reportTelemetry(d);
+            }
+            case PING -> {
+                link.answer(d.getId(), e.isResponsive());
+                switch (e.getPingSource()) {
+                    case LIVENESS -> hub.checkDeviceLiveness(d).join();
+                    case BATCH -> new BatchDiagnosticCommand(d.getHardwareLink(), List.of(d)).execute();
+                    case SELF_CHECK -> d.performSelfCheck();
+                    case ON_DEMAND -> d.pingAsync().join();
+                }
+            }
+            case ALARM_TRIGGERED -> {
+                Alarm alarm = new Alarm(d.getDeviceType(), d.getId(), AlarmStatus.ACTIVE, e.getSeverity(),
+                        LocalDateTime.now(hub.getClock()));
+                hub.registerAlarm(alarm);
+                hub.notifyAlarm(d, alarm, REPLAYED_ALARM_MESSAGE);
+            }
+            case ALARM_RESOLVED -> {
+                Alarm alarm = hub.findActiveAlarm(d.getId());
+                if (alarm != null) {
+                    hub.resolveAlarm(alarm);
+                }
+            }
+            case COMMAND -> {
+                if (e.getCommandType() == CommandType.RESET) {
+                    new SystemResetCommand(d, hub).execute();
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Stands in for the hardware, answering each device's pings as it was last told to.
+     */
+    private static final class ReplayLink implements HardwareLink {
+        private final Map<UUID, Boolean> answers = new ConcurrentHashMap<>();
+
+        void answer(UUID deviceId, boolean responsive) {
+            answers.put(deviceId, responsive);
+        }
+
+        @Override
+        public boolean isDeviceResponsive(Device device) {
+            return answers.getOrDefault(device.getId(), true);
+        }
+    }
+}
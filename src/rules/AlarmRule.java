@@ -0,0 +1,72 @@
+package rules;
+
+import alarm.AlarmSeverity;
+import devices.api.Device;
+import devices.model.DeviceType;
+
+/**
+ * A compiled alarm rule: when every condition holds for a device of the rule's type on
+ * {@code forTicks} consecutive telemetry updates, an alarm of the given severity is raised.
+ * Create rules with {@link RuleCompiler#compile(String)}.
+ */
+public final class AlarmRule {
+    private final String source;
+    private final DeviceType deviceType;
+    private final RuleCondition[] conditions;
+    private final int forTicks;
+    private final AlarmSeverity severity;
+    private final String message;
+
+    AlarmRule(String source, DeviceType deviceType, RuleCondition[] conditions, int forTicks,
+              AlarmSeverity severity, String message) {
+        this.source = source;
+        this.deviceType = deviceType;
+        this.conditions = conditions;
+        this.forTicks = forTicks;
+        this.severity = severity;
+        this.message = message;
+    }
+
+    /**
+     * @return true if every condition holds for the device right now.
+     */
+    public boolean matches(Device device) {
+        for (RuleCondition c : conditions) {
+            if (!c.predicate.test(device)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The device type this rule applies to, or null if it applies to every type.
+     */
+    public DeviceType getDeviceType() {
+        return deviceType;
+    }
+
+    public int getForTicks() {
+        return forTicks;
+    }
+
+    public AlarmSeverity getSeverity() {
+        return severity;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * The condition the engine indexes this rule by.
+     */
+    RuleCondition primaryCondition() {
+        return conditions[0];
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
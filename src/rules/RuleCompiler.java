@@ -0,0 +1,162 @@
+package rules;
+
+import alarm.AlarmSeverity;
+import devices.model.DeviceStatus;
+import devices.model.DeviceType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses operator-declared alarm rules and compiles them into {@link AlarmRule}s.
+ *
+ * <pre>
+ * rule      := target condition ("and" condition)* ["for" N "tick" | "ticks"] "->" SEVERITY ["message"]
+ * target    := a DeviceType such as THERMAL_DEVICE, or ANY
+ * condition := ("battery" | "signal" | "failures") op integer
+ *            | "status" ("==" | "!=") DeviceStatus
+ * op        := &lt; | &lt;= | &gt; | &gt;= | == | !=
+ * </pre>
+ *
+ * Example: {@code THERMAL_DEVICE signal < -95 for 3 ticks -> HIGH "Thermal sensor losing signal"}
+ */
+public final class RuleCompiler {
+    private static final Pattern TOKEN = Pattern.compile("\"[^\"]*\"|->|<=|>=|==|!=|<|>|[^\\s<>=!\"]+");
+
+    private RuleCompiler() {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the rule is not valid, with the reason in the message.
+     */
+    public static AlarmRule compile(String source) {
+        List<String> tokens = tokenize(source);
+        Cursor in = new Cursor(source, tokens);
+
+        String target = in.next("a device type or ANY");
+        DeviceType deviceType = target.equalsIgnoreCase("ANY") ? null : parseEnum(DeviceType.class, target, source);
+
+        List<RuleCondition> conditions = new ArrayList<>();
+        do {
+            conditions.add(parseCondition(in));
+        } while (in.accept("and"));
+
+        int forTicks = 1;
+        if (in.accept("for")) {
+            forTicks = parseInt(in.next("a tick count"), source);
+            if (forTicks < 1) {
+                throw new IllegalArgumentException("Tick count must be at least 1 in rule: " + source);
+            }
+            if (!in.accept("ticks") && !in.accept("tick")) {
+                throw new IllegalArgumentException("Expected 'ticks' after the tick count in rule: " + source);
+            }
+        }
+
+        in.expect("->");
+        AlarmSeverity severity = parseEnum(AlarmSeverity.class, in.next("a severity"), source);
+        String message = in.hasNext() ? unquote(in.next("a message"), source) : "Rule matched: " + source.trim();
+        if (in.hasNext()) {
+            throw new IllegalArgumentException("Unexpected '" + in.next("") + "' in rule: " + source);
+        }
+
+        // Index by the most selective condition: numeric bounds first, then status equality
+        conditions.sort(Comparator.comparingInt(RuleCompiler::indexPreference));
+        return new AlarmRule(source.trim(), deviceType, conditions.toArray(new RuleCondition[0]), forTicks, severity, message);
+    }
+
+    private static RuleCondition parseCondition(Cursor in) {
+        String fieldName = in.next("a field").toUpperCase(Locale.ROOT);
+        String operator = in.next("an operator");
+        String value = in.next("a value");
+
+        if (fieldName.equals("STATUS")) {
+            return new RuleCondition(operator, parseEnum(DeviceStatus.class, value, in.source));
+        }
+
+        RuleCondition.Field field;
+        try {
+            field = RuleCondition.Field.valueOf(fieldName);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown field '" + fieldName.toLowerCase() + "' in rule: " + in.source);
+        }
+        return new RuleCondition(field, operator, parseInt(value, in.source));
+    }
+
+    private static int indexPreference(RuleCondition c) {
+        if (c.hasUpperBound() || c.hasLowerBound()) return 0;
+        if (c.field == RuleCondition.Field.STATUS && c.operator.equals("==")) return 1;
+        return 2;
+    }
+
+    private static List<String> tokenize(String source) {
+        List<String> tokens = new ArrayList<>();
+        Matcher m = TOKEN.matcher(source);
+        while (m.find()) {
+            tokens.add(m.group());
+        }
+        return tokens;
+    }
+
+    private static int parseInt(String value, String source) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected a number but found '" + value + "' in rule: " + source);
+        }
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String source) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " '" + value + "' in rule: " + source);
+        }
+    }
+
+    private static String unquote(String token, String source) {
+        if (token.length() < 2 || !token.startsWith("\"") || !token.endsWith("\"")) {
+            throw new IllegalArgumentException("Alarm message must be quoted in rule: " + source);
+        }
+        return token.substring(1, token.length() - 1);
+    }
+
+    private static final class Cursor {
+        final String source;
+        final List<String> tokens;
+        int position;
+
+        Cursor(String source, List<String> tokens) {
+            this.source = source;
+            this.tokens = tokens;
+        }
+
+        boolean hasNext() {
+            return position < tokens.size();
+        }
+
+        String next(String expected) {
+            if (!hasNext()) {
+                throw new IllegalArgumentException("Expected " + expected + " at end of rule: " + source);
+            }
+            return tokens.get(position++);
+        }
+
+        boolean accept(String keyword) {
+            if (hasNext() && tokens.get(position).equalsIgnoreCase(keyword)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(String token) {
+            if (!accept(token)) {
+                throw new IllegalArgumentException("Expected '" + token + "' in rule: " + source);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package rules;
+
+import devices.api.Device;
+import devices.model.DeviceStatus;
+
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * One compiled comparison in a rule, e.g. {@code signal < -95} or {@code status == RECOVERY_MODE}.
+ * The comparison is compiled once into a small closure over the threshold; numeric conditions
+ * also expose the threshold as an inclusive bound so the engine can index rules by it.
+ */
+final class RuleCondition {
+    enum Field {
+        BATTERY(Device::getBatteryLife),
+        SIGNAL(Device::getSignalStrength),
+        FAILURES(Device::getFailureCount),
+        STATUS(null);
+
+        final ToIntFunction<Device> reader;
+
+        Field(ToIntFunction<Device> reader) {
+            this.reader = reader;
+        }
+    }
+
+    final Field field;
+    final String operator;
+    final int threshold;
+    final DeviceStatus status;
+    final Predicate<Device> predicate;
+
+    RuleCondition(Field field, String operator, int threshold) {
+        this.field = field;
+        this.operator = operator;
+        this.threshold = threshold;
+        this.status = null;
+        this.predicate = compile(field.reader, operator, threshold);
+    }
+
+    RuleCondition(String operator, DeviceStatus status) {
+        this.field = Field.STATUS;
+        this.operator = operator;
+        this.threshold = 0;
+        this.status = status;
+        this.predicate = switch (operator) {
+            case "==" -> d -> d.getDeviceStatus() == status;
+            case "!=" -> d -> d.getDeviceStatus() != status;
+            default -> throw new IllegalArgumentException("Status only supports == and !=, not " + operator);
+        };
+    }
+
+    /**
+     * @return true if every matching value is at most {@link #upperBound()}.
+     */
+    boolean hasUpperBound() {
+        return field != Field.STATUS && (operator.equals("<") || operator.equals("<=") || operator.equals("=="));
+    }
+
+    int upperBound() {
+        return operator.equals("<") ? threshold - 1 : threshold;
+    }
+
+    /**
+     * @return true if every matching value is at least {@link #lowerBound()}.
+     */
+    boolean hasLowerBound() {
+        return field != Field.STATUS && (operator.equals(">") || operator.equals(">="));
+    }
+
+    int lowerBound() {
+        return operator.equals(">") ? threshold + 1 : threshold;
+    }
+
+    @Override
+    public String toString() {
+        return field.name().toLowerCase() + " " + operator + " " + (status != null ? status : threshold);
+    }
+
+    private static Predicate<Device> compile(ToIntFunction<Device> reader, String operator, int t) {
+        return switch (operator) {
+            case "<" -> d -> reader.applyAsInt(d) < t;
+            case "<=" -> d -> reader.applyAsInt(d) <= t;
+            case ">" -> d -> reader.applyAsInt(d) > t;
+            case ">=" -> d -> reader.applyAsInt(d) >= t;
+            case "==" -> d -> reader.applyAsInt(d) == t;
+            case "!=" -> d -> reader.applyAsInt(d) != t;
+            default -> throw new IllegalArgumentException("Unknown operator " + operator);
+        };
+    }
+}
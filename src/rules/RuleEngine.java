@@ -0,0 +1,218 @@
+package rules;
+
+import commands.alarmcommands.TriggerAlarmCommand;
+import core.HubChangeListener;
+import core.SecurityHub;
+import devices.api.Device;
+import devices.model.DeviceType;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evaluates operator-declared {@link AlarmRule}s against every telemetry update reported through
+ * the {@link SecurityHub} and raises a {@link TriggerAlarmCommand} when a rule has matched for its
+ * required number of consecutive updates.
+ *
+ * <p>Rules are compiled once and indexed per {@link DeviceType} by {@link RuleIndex}, so an
+ * update only visits rules whose primary condition can match the device's current readings.
+ * A match streak is tracked by remembering the update number of each rule's last match, so rules
+ * that stop matching are never touched; they simply fail to continue their streak. Alarms are
+ * raised on a separate thread so evaluation never waits on persistence.</p>
+ */
+public class RuleEngine implements HubChangeListener {
+    private final SecurityHub hub;
+    private final Logger logger;
+    private final Map<UUID, MatchState> states = new ConcurrentHashMap<>();
+    private final ExecutorService alarmDispatch = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "rule-engine-alarms");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong evaluations = new AtomicLong();
+    private final AtomicLong firedRules = new AtomicLong();
+    private volatile RuleSet ruleSet = new RuleSet(List.of());
+
+    public RuleEngine(SecurityHub hub, Logger logger) {
+        this.hub = hub;
+        this.logger = logger;
+    }
+
+    public void start() {
+        hub.addChangeListener(this);
+    }
+
+    public void stop() {
+        hub.removeChangeListener(this);
+        alarmDispatch.shutdown();
+    }
+
+    /**
+     * Replaces the active rules. Streaks restart from zero under the new rule set.
+     */
+    public void setRules(List<AlarmRule> rules) {
+        ruleSet = new RuleSet(rules);
+        logger.log("Alarm rule engine loaded " + rules.size() + " rules", LogLevel.INFO);
+    }
+
+    /**
+     * Compiles one rule per line of the file, skipping blank lines and lines starting with '#'.
+     * Invalid rules are logged and skipped so one typo cannot disable the rest.
+     *
+     * @return The number of rules loaded.
+     */
+    public int loadRules(Path file) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file);
+        } catch (IOException e) {
+            logger.log("Unable to read alarm rules from " + file + ": " + e.getMessage(), LogLevel.ERROR);
+            return 0;
+        }
+
+        List<AlarmRule> rules = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                rules.add(RuleCompiler.compile(line));
+            } catch (IllegalArgumentException e) {
+                logger.log(file + ":" + (i + 1) + ": " + e.getMessage(), LogLevel.ERROR);
+            }
+        }
+        setRules(rules);
+        return rules.size();
+    }
+
+    public List<AlarmRule> getRules() {
+        return ruleSet.rules;
+    }
+
+    public long getEvaluations() {
+        return evaluations.get();
+    }
+
+    public long getFiredRules() {
+        return firedRules.get();
+    }
+
+    @Override
+    public void onTelemetryUpdated(Device device) {
+        evaluate(device);
+    }
+
+    @Override
+    public void onDeviceRemoved(Device device) {
+        states.remove(device.getId());
+    }
+
+    /**
+     * Advances every rule that matches the device's current readings by one update and raises an
+     * alarm for each rule whose streak just reached its required length.
+     *
+     * @return The number of rules that fired on this update.
+     */
+    public int evaluate(Device device) {
+        RuleSet set = ruleSet;
+        RuleIndex index = set.byType.get(device.getDeviceType());
+        if (index == null) {
+            return 0;
+        }
+        evaluations.incrementAndGet();
+
+        MatchState state = states.computeIfAbsent(device.getId(), id -> new MatchState());
+        int fired = 0;
+        synchronized (state) {
+            state.prepare(set, index.ruleCount);
+            int tick = ++state.tick;
+
+            for (RuleIndex.Bounds b : index.bounds) {
+                int value = b.field.reader.applyAsInt(device);
+                for (int i = b.start(value), end = b.end(value); i < end; i++) {
+                    fired += consider(device, state, tick, b.rules[i], b.slots[i]);
+                }
+            }
+            RuleIndex.Bucket status = index.statusBucket(device);
+            for (int i = 0; i < status.rules.length; i++) {
+                fired += consider(device, state, tick, status.rules[i], status.slots[i]);
+            }
+            for (int i = 0; i < index.unindexed.rules.length; i++) {
+                fired += consider(device, state, tick, index.unindexed.rules[i], index.unindexed.slots[i]);
+            }
+        }
+        return fired;
+    }
+
+    private int consider(Device device, MatchState state, int tick, AlarmRule rule, int slot) {
+        if (!rule.matches(device)) {
+            return 0;
+        }
+        int run = state.lastMatch[slot] == tick - 1 ? state.run[slot] + 1 : 1;
+        state.lastMatch[slot] = tick;
+        state.run[slot] = run;
+        if (run != rule.getForTicks()) {
+            return 0; // Fire once per streak, when it reaches the required length
+        }
+
+        firedRules.incrementAndGet();
+        alarmDispatch.execute(() -> hub.processCommand(
+                new TriggerAlarmCommand(device, rule.getMessage(), rule.getSeverity(), hub)));
+        return 1;
+    }
+
+    /**
+     * An immutable, compiled snapshot of the active rules.
+     */
+    private static final class RuleSet {
+        final List<AlarmRule> rules;
+        final Map<DeviceType, RuleIndex> byType = new EnumMap<>(DeviceType.class);
+
+        RuleSet(List<AlarmRule> rules) {
+            this.rules = List.copyOf(rules);
+            for (DeviceType type : DeviceType.values()) {
+                List<AlarmRule> applicable = new ArrayList<>();
+                for (AlarmRule rule : this.rules) {
+                    if (rule.getDeviceType() == null || rule.getDeviceType() == type) {
+                        applicable.add(rule);
+                    }
+                }
+                if (!applicable.isEmpty()) {
+                    byType.put(type, new RuleIndex(applicable));
+                }
+            }
+        }
+    }
+
+    /**
+     * Per-device streak counters, one slot per rule of the device's type.
+     */
+    private static final class MatchState {
+        RuleSet set;
+        int tick;
+        int[] lastMatch;
+        int[] run;
+
+        void prepare(RuleSet current, int ruleCount) {
+            if (set != current) {
+                set = current;
+                tick = 0;
+                lastMatch = new int[ruleCount];
+                run = new int[ruleCount];
+            }
+        }
+    }
+}
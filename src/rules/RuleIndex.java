@@ -0,0 +1,142 @@
+package rules;
+
+import devices.api.Device;
+import devices.model.DeviceStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rules for one device type, indexed by each rule's primary condition so that an update
+ * only visits rules that can match it.
+ *
+ * <p>Numeric primaries are kept sorted by their bound per field: the rules whose bound admits
+ * the current value form a contiguous run found by binary search. Status equality primaries are
+ * bucketed by status. Anything else is checked on every update. Each rule also gets a slot
+ * number, local to this type, for its consecutive-match counter.</p>
+ */
+final class RuleIndex {
+    /**
+     * Rules whose primary condition bounds one numeric field from above or below, sorted by bound.
+     */
+    static final class Bounds {
+        final RuleCondition.Field field;
+        final boolean upper;
+        final int[] bounds;
+        final AlarmRule[] rules;
+        final int[] slots;
+
+        Bounds(RuleCondition.Field field, boolean upper, List<AlarmRule> rules, List<Integer> slots) {
+            this.field = field;
+            this.upper = upper;
+            Integer[] order = new Integer[rules.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparingInt(i -> bound(rules.get(i))));
+
+            this.bounds = new int[order.length];
+            this.rules = new AlarmRule[order.length];
+            this.slots = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                this.rules[i] = rules.get(order[i]);
+                this.slots[i] = slots.get(order[i]);
+                this.bounds[i] = bound(this.rules[i]);
+            }
+        }
+
+        private int bound(AlarmRule rule) {
+            RuleCondition c = rule.primaryCondition();
+            return upper ? c.upperBound() : c.lowerBound();
+        }
+
+        /**
+         * @return The first candidate position for the value; candidates run to {@link #end(int)}.
+         */
+        int start(int value) {
+            // Upper bounds admit the value when bound >= value: the tail of the sorted array
+            return upper ? firstAtLeast(value) : 0;
+        }
+
+        int end(int value) {
+            // Lower bounds admit the value when bound <= value: the head of the sorted array
+            return upper ? bounds.length : firstAtLeast(value + 1);
+        }
+
+        private int firstAtLeast(int value) {
+            int lo = 0;
+            int hi = bounds.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (bounds[mid] < value) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+
+    static final class Bucket {
+        final AlarmRule[] rules;
+        final int[] slots;
+
+        Bucket(List<AlarmRule> rules, List<Integer> slots) {
+            this.rules = rules.toArray(new AlarmRule[0]);
+            this.slots = slots.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private static final Bucket EMPTY = new Bucket(List.of(), List.of());
+
+    final Bounds[] bounds;
+    final Map<DeviceStatus, Bucket> byStatus;
+    final Bucket unindexed;
+    final int ruleCount;
+
+    RuleIndex(List<AlarmRule> rules) {
+        this.ruleCount = rules.size();
+        Map<String, List<AlarmRule>> boundRules = new LinkedHashMap<>();
+        Map<String, List<Integer>> boundSlots = new LinkedHashMap<>();
+        Map<DeviceStatus, List<AlarmRule>> statusRules = new EnumMap<>(DeviceStatus.class);
+        Map<DeviceStatus, List<Integer>> statusSlots = new EnumMap<>(DeviceStatus.class);
+        List<AlarmRule> otherRules = new ArrayList<>();
+        List<Integer> otherSlots = new ArrayList<>();
+
+        for (int slot = 0; slot < rules.size(); slot++) {
+            AlarmRule rule = rules.get(slot);
+            RuleCondition c = rule.primaryCondition();
+            if (c.hasUpperBound() || c.hasLowerBound()) {
+                String key = c.field + (c.hasUpperBound() ? "<=" : ">=");
+                boundRules.computeIfAbsent(key, k -> new ArrayList<>()).add(rule);
+                boundSlots.computeIfAbsent(key, k -> new ArrayList<>()).add(slot);
+            } else if (c.field == RuleCondition.Field.STATUS && c.operator.equals("==")) {
+                statusRules.computeIfAbsent(c.status, k -> new ArrayList<>()).add(rule);
+                statusSlots.computeIfAbsent(c.status, k -> new ArrayList<>()).add(slot);
+            } else {
+                otherRules.add(rule);
+                otherSlots.add(slot);
+            }
+        }
+
+        List<Bounds> built = new ArrayList<>();
+        for (Map.Entry<String, List<AlarmRule>> e : boundRules.entrySet()) {
+            RuleCondition first = e.getValue().get(0).primaryCondition();
+            built.add(new Bounds(first.field, first.hasUpperBound(), e.getValue(), boundSlots.get(e.getKey())));
+        }
+        this.bounds = built.toArray(new Bounds[0]);
+
+        this.byStatus = new EnumMap<>(DeviceStatus.class);
+        for (DeviceStatus status : DeviceStatus.values()) {
+            List<AlarmRule> r = statusRules.get(status);
+            byStatus.put(status, r == null ? EMPTY : new Bucket(r, statusSlots.get(status)));
+        }
+        this.unindexed = otherRules.isEmpty() ? EMPTY : new Bucket(otherRules, otherSlots);
+    }
+
+    Bucket statusBucket(Device device) {
+        Bucket bucket = byStatus.get(device.getDeviceStatus());
+        return bucket == null ? EMPTY : bucket;
+    }
+}
@@ -1,10 +1,19 @@
 package service.alarm;
 
 import alarm.Alarm;
+import alarm.AlarmRollup;
+import alarm.AlarmRollupResolution;
+import alarm.AlarmSeverity;
+import devices.model.DeviceType;
 import infrastructure.logger.Logger;
 import infrastructure.repository.AlarmLogRepository;
 
+import java.time.LocalDateTime;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 public class AlarmService {
     AlarmLogRepository alarmLogRepository;
@@ -26,4 +35,48 @@ public class AlarmService {
     public List<Alarm> loadAllActiveAlarms() {
         return alarmLogRepository.loadAllActiveAlarms();
     }
+
+    /**
+     * @return Alarms raised per bucket in {@code [from, to)}, whatever their status now, with
+     *         empty buckets present as zero so the result can be charted directly.
+     */
+    public SortedMap<LocalDateTime, Long> countsPerBucket(AlarmRollupResolution resolution,
+                                                          LocalDateTime from, LocalDateTime to) {
+        SortedMap<LocalDateTime, Long> counts = new TreeMap<>();
+        for (LocalDateTime bucket = resolution.bucketOf(from); bucket.isBefore(to);
+             bucket = bucket.plus(1, resolution.getUnit())) {
+            counts.put(bucket, 0L);
+        }
+        for (AlarmRollup rollup : alarmLogRepository.loadRollups(resolution, from, to)) {
+            counts.merge(rollup.getBucketStart(), rollup.getCount(), Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * @return Alarms raised in the buckets of {@code [from, to)} per severity.
+     */
+    public Map<AlarmSeverity, Long> countsBySeverity(AlarmRollupResolution resolution,
+                                                     LocalDateTime from, LocalDateTime to) {
+        Map<AlarmSeverity, Long> counts = new EnumMap<>(AlarmSeverity.class);
+        for (AlarmSeverity severity : AlarmSeverity.values()) {
+            counts.put(severity, 0L);
+        }
+        for (AlarmRollup rollup : alarmLogRepository.loadRollups(resolution, from, to)) {
+            counts.merge(rollup.getSeverity(), rollup.getCount(), Long::sum);
+        }
+        return counts;
+    }
+
+    public Map<DeviceType, Long> countsByDeviceType(AlarmRollupResolution resolution,
+                                                    LocalDateTime from, LocalDateTime to) {
+        Map<DeviceType, Long> counts = new EnumMap<>(DeviceType.class);
+        for (DeviceType type : DeviceType.values()) {
+            counts.put(type, 0L);
+        }
+        for (AlarmRollup rollup : alarmLogRepository.loadRollups(resolution, from, to)) {
+            counts.merge(rollup.getDeviceType(), rollup.getCount(), Long::sum);
+        }
+        return counts;
+    }
 }
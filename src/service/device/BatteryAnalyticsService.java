@@ -0,0 +1,477 @@
+package service.device;
+
+import core.HubChangeListener;
+import core.SecurityHub;
+import devices.api.Device;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming battery and signal analytics. Every telemetry update reported through the
+ * {@link SecurityHub} refreshes time-weighted exponential moving averages of the device's battery
+ * level, drain rate and signal strength, and from those a forecast of the hours until the battery
+ * is empty.
+ *
+ * <p>Devices are split over stripes by id, each with its own lock, so updates from different
+ * shard workers rarely wait on each other. Within a stripe, state is a fixed set of primitive
+ * arrays indexed by a per-device slot, so memory stays constant per device no matter how many
+ * samples arrive, and devices are kept in an indexed min-heap ordered by hours-to-empty, updated
+ * in O(log n) per sample.</p>
+ *
+ * <p>The K most at-risk devices are read from the tops of the stripe heaps with a best-first
+ * walk, in O(K log K) per stripe, and the stripes' lists merged, so the cost depends on K and
+ * the stripe count rather than the fleet. Each stripe is read under its own lock, so the result
+ * is not one snapshot of the whole fleet. A device is flagged at risk when it is forecast to run
+ * flat within the maintenance interval, i.e. before the next visit.</p>
+ */
+public class BatteryAnalyticsService implements HubChangeListener {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int REPLACEMENT_JUMP = 20; // A rise this large is a new or recharged battery
+    private static final double MIN_DRAIN_PER_HOUR = 1e-3;
+    private static final double NANOS_PER_HOUR = TimeUnit.HOURS.toNanos(1);
+
+    private final SecurityHub hub;
+    private final Logger logger;
+    private final double smoothingNanos;
+    private final double maintenanceHours;
+    private final Stripe[] stripes;
+
+    /**
+     * Uses one stripe per processor, or {@code sentinel.analytics.stripes}.
+     *
+     * @param smoothingMillis Time constant of the moving averages; older samples fade with it.
+     * @param maintenanceIntervalMillis Time between maintenance visits; devices forecast to run
+     *        flat sooner are flagged at risk.
+     */
+    public BatteryAnalyticsService(SecurityHub hub, Logger logger, long smoothingMillis, long maintenanceIntervalMillis) {
+        this(hub, logger, smoothingMillis, maintenanceIntervalMillis,
+                Integer.getInteger("sentinel.analytics.stripes", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @param stripeCount Rounded up to a power of two.
+     */
+    public BatteryAnalyticsService(SecurityHub hub, Logger logger, long smoothingMillis, long maintenanceIntervalMillis,
+                                   int stripeCount) {
+        this.hub = hub;
+        this.logger = logger;
+        this.smoothingNanos = TimeUnit.MILLISECONDS.toNanos(smoothingMillis);
+        this.maintenanceHours = maintenanceIntervalMillis / 3_600_000.0;
+        int count = Integer.highestOneBit(Math.max(1, stripeCount) * 2 - 1);
+        this.stripes = new Stripe[count];
+        int capacity = Math.max(64, INITIAL_CAPACITY / count);
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    /**
+     * Seeds the analytics from the current fleet and follows telemetry updates from then on.
+     */
+    public void start() {
+        hub.addChangeListener(this);
+        for (Device d : hub.getDevices()) {
+            onTelemetryUpdated(d);
+        }
+    }
+
+    public void stop() {
+        hub.removeChangeListener(this);
+    }
+
+    @Override
+    public void onDeviceAdded(Device device) {
+        onTelemetryUpdated(device);
+    }
+
+    @Override
+    public void onTelemetryUpdated(Device device) {
+        record(device.getId(), device.getBatteryLife(), device.getSignalStrength(), hub.getClock().nanoTime());
+    }
+
+    @Override
+    public void onDeviceRemoved(Device device) {
+        remove(device.getId());
+    }
+
+    /**
+     * Folds one battery/signal reading into the device's averages and forecast.
+     */
+    public void record(UUID deviceId, int batteryLife, int signalStrength, long nowNanos) {
+        stripeFor(deviceId).record(deviceId, batteryLife, signalStrength, nowNanos);
+    }
+
+    public void remove(UUID deviceId) {
+        stripeFor(deviceId).remove(deviceId);
+    }
+
+    /**
+     * @return The current forecast for one device, or null if it has reported no telemetry.
+     */
+    public DeviceForecast getForecast(UUID deviceId) {
+        return stripeFor(deviceId).getForecast(deviceId);
+    }
+
+    /**
+     * @return Up to k draining devices, soonest to run flat first.
+     */
+    public List<DeviceForecast> getMostAtRisk(int k) {
+        if (k <= 0) {
+            return new ArrayList<>();
+        }
+        if (stripes.length == 1) {
+            return stripes[0].getMostAtRisk(k);
+        }
+
+        // Each stripe's list is sorted, so merge them by their heads
+        List<List<DeviceForecast>> tops = new ArrayList<>(stripes.length);
+        Frontier heads = new Frontier(stripes.length);
+        for (Stripe stripe : stripes) {
+            List<DeviceForecast> top = stripe.getMostAtRisk(k);
+            if (!top.isEmpty()) {
+                heads.push(tops.size(), top.get(0).getHoursToEmpty());
+            }
+            tops.add(top);
+        }
+        int[] next = new int[stripes.length];
+        List<DeviceForecast> result = new ArrayList<>(k);
+        while (heads.size() > 0 && result.size() < k) {
+            int i = heads.pop();
+            List<DeviceForecast> top = tops.get(i);
+            result.add(top.get(next[i]++));
+            if (next[i] < top.size()) {
+                heads.push(i, top.get(next[i]).getHoursToEmpty());
+            }
+        }
+        return result;
+    }
+
+    public int getAtRiskCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.getAtRiskCount();
+        }
+        return count;
+    }
+
+    public int getTrackedDeviceCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            count += stripe.getTrackedDeviceCount();
+        }
+        return count;
+    }
+
+    private Stripe stripeFor(UUID deviceId) {
+        int h = deviceId.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * The devices whose ids hash to one stripe. Every field is guarded by the stripe.
+     */
+    private final class Stripe {
+        private final Map<UUID, Integer> slots = new HashMap<>();
+        private UUID[] ids;
+        private int[] lastBattery;
+        private long[] lastSampleNanos;
+        private double[] battery;
+        private double[] drainPerHour;
+        private double[] signal;
+        private double[] hoursToEmpty;
+        private boolean[] atRisk;
+        private int[] freeSlots;
+        private int freeCount;
+        private int nextSlot;
+        private int atRiskCount;
+
+        // Indexed min-heap of slots by hours-to-empty
+        private int[] heap;
+        private int[] heapPosition;
+        private int heapSize;
+
+        Stripe(int capacity) {
+            ids = new UUID[capacity];
+            lastBattery = new int[capacity];
+            lastSampleNanos = new long[capacity];
+            battery = new double[capacity];
+            drainPerHour = new double[capacity];
+            signal = new double[capacity];
+            hoursToEmpty = new double[capacity];
+            atRisk = new boolean[capacity];
+            freeSlots = new int[capacity];
+            heap = new int[capacity];
+            heapPosition = new int[capacity];
+        }
+
+        synchronized void record(UUID deviceId, int batteryLife, int signalStrength, long nowNanos) {
+            Integer existing = slots.get(deviceId);
+            if (existing == null) {
+                int slot = allocate(deviceId);
+                lastBattery[slot] = batteryLife;
+                lastSampleNanos[slot] = nowNanos;
+                battery[slot] = batteryLife;
+                drainPerHour[slot] = 0;
+                signal[slot] = signalStrength;
+                hoursToEmpty[slot] = Double.POSITIVE_INFINITY;
+                heapInsert(slot);
+                return;
+            }
+
+            int slot = existing;
+            long elapsed = nowNanos - lastSampleNanos[slot];
+            if (elapsed > 0) {
+                double alpha = 1 - Math.exp(-elapsed / smoothingNanos);
+                if (batteryLife - lastBattery[slot] >= REPLACEMENT_JUMP) {
+                    // The old drain history says nothing about a fresh battery
+                    battery[slot] = batteryLife;
+                    drainPerHour[slot] = 0;
+                } else {
+                    double rate = (lastBattery[slot] - batteryLife) / (elapsed / NANOS_PER_HOUR);
+                    drainPerHour[slot] += alpha * (rate - drainPerHour[slot]);
+                    battery[slot] += alpha * (batteryLife - battery[slot]);
+                }
+                signal[slot] += alpha * (signalStrength - signal[slot]);
+                lastBattery[slot] = batteryLife;
+                lastSampleNanos[slot] = nowNanos;
+            }
+
+            double hours = drainPerHour[slot] > MIN_DRAIN_PER_HOUR
+                    ? Math.max(0, battery[slot]) / drainPerHour[slot]
+                    : Double.POSITIVE_INFINITY;
+            updateHoursToEmpty(slot, hours);
+        }
+
+        synchronized void remove(UUID deviceId) {
+            Integer slot = slots.remove(deviceId);
+            if (slot == null) {
+                return;
+            }
+            if (atRisk[slot]) {
+                atRisk[slot] = false;
+                atRiskCount--;
+            }
+            heapRemove(slot);
+            ids[slot] = null;
+            freeSlots[freeCount++] = slot;
+        }
+
+        synchronized DeviceForecast getForecast(UUID deviceId) {
+            Integer slot = slots.get(deviceId);
+            return slot == null ? null : forecast(slot);
+        }
+
+        synchronized List<DeviceForecast> getMostAtRisk(int k) {
+            if (heapSize == 0) {
+                return new ArrayList<>();
+            }
+            List<DeviceForecast> result = new ArrayList<>(Math.min(k, heapSize));
+
+            // Best-first walk of the heap: the next smallest is always a child of one already taken
+            Frontier frontier = new Frontier(k + 1);
+            frontier.push(0, hoursToEmpty[heap[0]]);
+            while (frontier.size() > 0 && result.size() < k) {
+                int position = frontier.pop();
+                int slot = heap[position];
+                if (hoursToEmpty[slot] == Double.POSITIVE_INFINITY) {
+                    break;
+                }
+                result.add(forecast(slot));
+                for (int child = 2 * position + 1; child <= 2 * position + 2 && child < heapSize; child++) {
+                    frontier.push(child, hoursToEmpty[heap[child]]);
+                }
+            }
+            return result;
+        }
+
+        synchronized int getAtRiskCount() {
+            return atRiskCount;
+        }
+
+        synchronized int getTrackedDeviceCount() {
+            return slots.size();
+        }
+
+        private DeviceForecast forecast(int slot) {
+            return new DeviceForecast(ids[slot], battery[slot], drainPerHour[slot], signal[slot], hoursToEmpty[slot], atRisk[slot]);
+        }
+
+        private void updateHoursToEmpty(int slot, double hours) {
+            double previous = hoursToEmpty[slot];
+            hoursToEmpty[slot] = hours;
+            if (hours < previous) {
+                siftUp(heapPosition[slot]);
+            } else if (hours > previous) {
+                siftDown(heapPosition[slot]);
+            }
+
+            boolean risky = hours < maintenanceHours;
+            if (risky != atRisk[slot]) {
+                atRisk[slot] = risky;
+                atRiskCount += risky ? 1 : -1;
+                if (risky) {
+                    logger.log(String.format("Device %s is forecast to run flat in %.1f hours, before the next maintenance visit",
+                            ids[slot], hours), LogLevel.HEALTH);
+                }
+            }
+        }
+
+        private int allocate(UUID deviceId) {
+            int slot;
+            if (freeCount > 0) {
+                slot = freeSlots[--freeCount];
+            } else {
+                if (nextSlot == ids.length) {
+                    grow();
+                }
+                slot = nextSlot++;
+            }
+            ids[slot] = deviceId;
+            atRisk[slot] = false;
+            slots.put(deviceId, slot);
+            return slot;
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            lastBattery = Arrays.copyOf(lastBattery, capacity);
+            lastSampleNanos = Arrays.copyOf(lastSampleNanos, capacity);
+            battery = Arrays.copyOf(battery, capacity);
+            drainPerHour = Arrays.copyOf(drainPerHour, capacity);
+            signal = Arrays.copyOf(signal, capacity);
+            hoursToEmpty = Arrays.copyOf(hoursToEmpty, capacity);
+            atRisk = Arrays.copyOf(atRisk, capacity);
+            freeSlots = Arrays.copyOf(freeSlots, capacity);
+            heap = Arrays.copyOf(heap, capacity);
+            heapPosition = Arrays.copyOf(heapPosition, capacity);
+        }
+
+        // ------------------------------------------------------------ indexed heap
+
+        private void heapInsert(int slot) {
+            heap[heapSize] = slot;
+            heapPosition[slot] = heapSize;
+            siftUp(heapSize++);
+        }
+
+        private void heapRemove(int slot) {
+            int position = heapPosition[slot];
+            int last = heap[--heapSize];
+            if (position == heapSize) {
+                return;
+            }
+            heap[position] = last;
+            heapPosition[last] = position;
+            siftDown(position);
+            siftUp(heapPosition[last]);
+        }
+
+        private void siftUp(int position) {
+            int slot = heap[position];
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (hoursToEmpty[heap[parent]] <= hoursToEmpty[slot]) {
+                    break;
+                }
+                heap[position] = heap[parent];
+                heapPosition[heap[position]] = position;
+                position = parent;
+            }
+            heap[position] = slot;
+            heapPosition[slot] = position;
+        }
+
+        private void siftDown(int position) {
+            int slot = heap[position];
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && hoursToEmpty[heap[child + 1]] < hoursToEmpty[heap[child]]) {
+                    child++;
+                }
+                if (hoursToEmpty[slot] <= hoursToEmpty[heap[child]]) {
+                    break;
+                }
+                heap[position] = heap[child];
+                heapPosition[heap[position]] = position;
+                position = child;
+            }
+            heap[position] = slot;
+            heapPosition[slot] = position;
+        }
+    }
+
+    /**
+     * A small binary min-heap of ints by a double key, used for the best-first walks. Grows as
+     * needed; each walk pushes at most two entries per pop.
+     */
+    private static final class Frontier {
+        private int[] items;
+        private double[] keys;
+        private int size;
+
+        Frontier(int capacity) {
+            items = new int[Math.max(2, capacity)];
+            keys = new double[items.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void push(int item, double key) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            int position = size++;
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                items[position] = items[parent];
+                keys[position] = keys[parent];
+                position = parent;
+            }
+            items[position] = item;
+            keys[position] = key;
+        }
+
+        int pop() {
+            int top = items[0];
+            int item = items[--size];
+            double key = keys[size];
+            int position = 0;
+            while (true) {
+                int child = 2 * position + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                items[position] = items[child];
+                keys[position] = keys[child];
+                position = child;
+            }
+            items[position] = item;
+            keys[position] = key;
+            return top;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package service.device;
+
+import java.util.UUID;
+
+/**
+ * Data transfer object. The smoothed battery and signal readings of one device and the
+ * forecast derived from them at the time of the query.
+ */
+public class DeviceForecast {
+    private final UUID deviceId;
+    private final double batteryLife;
+    private final double drainPercentPerHour;
+    private final double signalStrength;
+    private final double hoursToEmpty;
+    private final boolean atRisk;
+
+    public DeviceForecast(UUID deviceId,
+                          double batteryLife,
+                          double drainPercentPerHour,
+                          double signalStrength,
+                          double hoursToEmpty,
+                          boolean atRisk) {
+        this.deviceId = deviceId;
+        this.batteryLife = batteryLife;
+        this.drainPercentPerHour = drainPercentPerHour;
+        this.signalStrength = signalStrength;
+        this.hoursToEmpty = hoursToEmpty;
+        this.atRisk = atRisk;
+    }
+
+    public UUID getDeviceId() {
+        return deviceId;
+    }
+
+    public double getBatteryLife() {
+        return batteryLife;
+    }
+
+    public double getDrainPercentPerHour() {
+        return drainPercentPerHour;
+    }
+
+    public double getSignalStrength() {
+        return signalStrength;
+    }
+
+    /**
+     * @return Forecast hours until the battery is empty, or positive infinity if it is not draining.
+     */
+    public double getHoursToEmpty() {
+        return hoursToEmpty;
+    }
+
+    /**
+     * @return true if the battery is forecast to run flat before the next maintenance visit.
+     */
+    public boolean isAtRisk() {
+        return atRisk;
+    }
+}
@@ -0,0 +1,106 @@
+package service.system;
+
+import core.RunMode;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks process-level cost of running the hub so the UI and headless run modes
+ * can be compared: the time from JVM start until the hub is ready, and the
+ * steady-state CPU usage sampled over a fixed interval.
+ *
+ * <p>Sampling runs on a single daemon thread and only reads JVM counters, so it
+ * adds no measurable load of its own.</p>
+ */
+public class RuntimeMetricsService {
+    private static final long SAMPLE_INTERVAL_SECONDS = 60;
+
+    private final Logger logger;
+    private final RunMode runMode;
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "runtime-metrics-sampler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile long startupMillis = -1;
+    private volatile double steadyStateCpuPercent = 0.0;
+    private long lastCpuNanos = -1;
+    private long lastWallNanos = -1;
+
+    public RuntimeMetricsService(Logger logger, RunMode runMode) {
+        this.logger = logger;
+        this.runMode = runMode;
+    }
+
+    /**
+     * Records the startup time as the JVM uptime at the moment the hub became ready.
+     * Uptime is used instead of a timestamp taken in main() so class loading and
+     * AWT initialization are included in the figure.
+     */
+    public void markReady() {
+        startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        logger.log("Sentinel ready in " + runMode + " mode. Startup time: " + startupMillis + " ms", LogLevel.HEALTH);
+    }
+
+    /**
+     * Starts periodic CPU sampling. The first sample only establishes a baseline.
+     */
+    public void start() {
+        sampler.scheduleAtFixedRate(this::sample, 0, SAMPLE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        sampler.shutdownNow();
+    }
+
+    private void sample() {
+        long cpuNanos = processCpuNanos();
+        long wallNanos = System.nanoTime();
+        if (cpuNanos < 0) {
+            return;
+        }
+
+        if (lastCpuNanos >= 0) {
+            long cores = Runtime.getRuntime().availableProcessors();
+            double elapsed = (double) (wallNanos - lastWallNanos) * cores;
+            steadyStateCpuPercent = elapsed <= 0 ? 0.0 : 100.0 * (cpuNanos - lastCpuNanos) / elapsed;
+            logger.log(String.format("%s mode steady-state CPU: %.2f%% over %ds",
+                    runMode, steadyStateCpuPercent, SAMPLE_INTERVAL_SECONDS), LogLevel.HEALTH);
+        }
+        lastCpuNanos = cpuNanos;
+        lastWallNanos = wallNanos;
+    }
+
+    private static long processCpuNanos() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean sunOs) {
+            return sunOs.getProcessCpuTime();
+        }
+        return -1;
+    }
+
+    public RunMode getRunMode() {
+        return runMode;
+    }
+
+    /**
+     * @return Milliseconds from JVM start until the hub was ready, or -1 if not yet ready.
+     */
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    /**
+     * @return Process CPU usage over the last sample interval, as a percentage of all cores.
+     */
+    public double getSteadyStateCpuPercent() {
+        return steadyStateCpuPercent;
+    }
+}
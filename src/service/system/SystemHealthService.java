@@ -2,10 +2,13 @@ package service.system;
 
 import core.HubStatus;
 import core.SecurityHub;
-import devices.api.Device;
 import devices.model.DeviceStatus;
+import service.device.BatteryAnalyticsService;
+import service.device.DeviceForecast;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The `SystemHealthService` class provides a stateless service layer for monitoring
@@ -18,14 +21,17 @@ import java.time.Instant;
  */
 public class SystemHealthService {
     private final SecurityHub hub; // The core security hub instance for accessing system data
+    private final BatteryAnalyticsService batteryAnalytics; // Streaming battery forecasts
 
     /**
      * Constructs a `SystemHealthService` instance with the specified `SecurityHub`.
      *
      * @param hub The `SecurityHub` instance used to retrieve system data.
+     * @param batteryAnalytics The analytics stage that forecasts battery depletion.
      */
-    public SystemHealthService(SecurityHub hub) {
+    public SystemHealthService(SecurityHub hub, BatteryAnalyticsService batteryAnalytics) {
         this.hub = hub;
+        this.batteryAnalytics = batteryAnalytics;
     }
 
     /**
@@ -42,10 +48,21 @@ public class SystemHealthService {
                 getAlarmDensity(),
                 getSystemHealthStatus(),
                 getSystemMode(),
-                Instant.now()
+                batteryAnalytics.getAtRiskCount(),
+                Instant.now(hub.getClock())
         );
     }
 
+    /**
+     * Retrieves the devices whose batteries are forecast to run flat soonest.
+     *
+     * @param limit The maximum number of devices to return.
+     * @return Forecasts for up to `limit` draining devices, soonest first.
+     */
+    public List<DeviceForecast> getMostAtRiskDevices(int limit) {
+        return batteryAnalytics.getMostAtRisk(limit);
+    }
+
     /**
      * Retrieves the current mode of the system from the `SecurityHub`.
      *
@@ -61,7 +78,7 @@ public class SystemHealthService {
      * @return The count of active alarms.
      */
     private int getActiveAlarmCount() {
-        return hub.getActiveAlarms().size();
+        return hub.numActiveAlarms();
     }
 
     /**
@@ -71,7 +88,7 @@ public class SystemHealthService {
      * @return The alarm density as a double value.
      */
     private double getAlarmDensity() {
-        return (double)hub.getActiveAlarms().size() / 1000;
+        return (double)hub.numActiveAlarms() / 1000;
     }
 
     /**
@@ -81,19 +98,13 @@ public class SystemHealthService {
      * @return The fleet health percentage as a double value between 0.0 and 1.0.
      */
     private double getFleetHealthPercentage() {
-        double healthyDevices = 0.0;
-        double total = 0.0;
-        DeviceStatus ds;
+        Map<DeviceStatus, Integer> counts = hub.getDeviceStatusCounts();
+        double healthyDevices = counts.getOrDefault(DeviceStatus.OPERATIONAL, 0)
+                + counts.getOrDefault(DeviceStatus.AWAY, 0);
+        double total = healthyDevices
+                + counts.getOrDefault(DeviceStatus.DECOMMISSIONED, 0)
+                + counts.getOrDefault(DeviceStatus.RECOVERY_MODE, 0);
 
-        for (Device d : hub.getDevices()) {
-            ds = d.getDeviceStatus();
-            if (ds == DeviceStatus.OPERATIONAL || ds == DeviceStatus.AWAY) {
-                total++;
-                healthyDevices++;
-            } else if (ds == DeviceStatus.DECOMMISSIONED || ds == DeviceStatus.RECOVERY_MODE) {
-                total++;
-            }
-        }
         if (total == 0) return 1.0;
         return healthyDevices / total;
     }
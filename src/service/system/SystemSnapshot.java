@@ -13,6 +13,7 @@ public class SystemSnapshot {
     private final double alarmDensity;
     private final SystemHealthStatus systemHealthStatus;
     private final HubStatus systemMode;
+    private final int atRiskDeviceCount;
     private final Instant timestamp;
 
     public SystemSnapshot(double fleetHealthPercentage,
@@ -20,6 +21,7 @@ public class SystemSnapshot {
                           double alarmDensity,
                           SystemHealthStatus systemHealthStatus,
                           HubStatus systemMode,
+                          int atRiskDeviceCount,
                           Instant timestamp) {
 
         this.fleetHealthPercentage = fleetHealthPercentage;
@@ -27,6 +29,7 @@ public class SystemSnapshot {
         this.alarmDensity = alarmDensity;
         this.systemHealthStatus = systemHealthStatus;
         this.systemMode = systemMode;
+        this.atRiskDeviceCount = atRiskDeviceCount;
         this.timestamp = timestamp;
     }
 
@@ -50,6 +53,13 @@ public class SystemSnapshot {
         return systemMode;
     }
 
+    /**
+     * @return Devices forecast to run flat before the next maintenance visit.
+     */
+    public int getAtRiskDeviceCount() {
+        return atRiskDeviceCount;
+    }
+
     public Instant getTimestamp() {
         return timestamp;
     }
@@ -62,6 +72,7 @@ public class SystemSnapshot {
                 ", alarmDensity=" + alarmDensity +
                 ", systemHealthStatus=" + systemHealthStatus +
                 ", systemMode=" + systemMode +
+                ", atRiskDeviceCount=" + atRiskDeviceCount +
                 ", timestamp=" + timestamp +
                 '}';
     }
@@ -0,0 +1,291 @@
+package sim;
+
+import alarm.Alarm;
+import alarm.AlarmSeverity;
+import commands.alarmcommands.TriggerAlarmCommand;
+import core.HubChangeListener;
+import core.SecurityHub;
+import devices.api.Device;
+import devices.api.HardwareLink;
+import devices.impl.MotionDevice;
+import devices.impl.SmokeDevice;
+import devices.model.DeviceStatus;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.Logger;
+import infrastructure.repository.AlarmLogRepository;
+import infrastructure.subscribers.NotificationTopic;
+import infrastructure.subscribers.Subscriber;
+import infrastructure.subscribers.SubscriberStatus;
+import infrastructure.subscribers.SubscriberType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures how long an alarm takes from the sensor event to being registered, committed to the
+ * alarm log and received by each subscriber, along the production path: a {@link TriggerAlarmCommand}
+ * handed to {@link SecurityHub#processCommand}, as the heartbeat gateway and rule engine do, on to
+ * {@link SecurityHub#registerAlarm}, {@link AlarmLogRepository#save} and the hub's notifier.
+ *
+ * <p>Probe alarms are raised at a fixed rate from one thread, each stamped with the time it was
+ * due rather than the time it was sent, so a probe held up behind a slow one is charged the wait
+ * instead of being measured as if it had left on time. Stages are observed from outside the path:
+ * a hub listener, a timing alarm repository and a timing wrapper around each subscriber.</p>
+ *
+ * <p>Background load is a fleet of other devices reporting telemetry and raising MEDIUM alarms at
+ * the configured rates from a thread of its own; those alarms are persisted and delivered like the
+ * probes, so they compete for the shards, the database and the subscribers.</p>
+ *
+ * <p>The harness installs its own alarm repository on the hub and adds devices to it, so it
+ * should be given a hub of its own ({@link SecurityHub#createDetached(int)}). Subscribers are
+ * registered with that hub's notification broker for the run only, so they hear its alarms and
+ * no other hub's.</p>
+ */
+public class AlarmLatencyHarness {
+    private static final String PROBE_MESSAGE = "Latency probe ";
+    private static final String BACKGROUND_MESSAGE = "Background alarm";
+    private static final int PROBE_DEVICES = 16;
+    private static final long DELIVERY_TIMEOUT_MILLIS = 10_000;
+    private static final HardwareLink ALWAYS_RESPONSIVE = device -> true;
+
+    private final SecurityHub hub;
+    private final Logger logger;
+    private final int backgroundDevices;
+    private final int telemetryPerSecond;
+    private final int alarmsPerSecond;
+    private final List<String> subscriberNames = new ArrayList<>();
+    private final List<NotificationTopic> topics = new ArrayList<>();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private final Map<UUID, Probe> inFlight = new ConcurrentHashMap<>();  // By probe device
+    private final Map<String, Probe> byMessage = new ConcurrentHashMap<>();
+
+    /**
+     * @param backgroundDevices  Devices besides the probes' own; the load is spread over them.
+     * @param telemetryPerSecond Telemetry reports per second from the background fleet.
+     * @param alarmsPerSecond    Alarms per second from the background fleet.
+     */
+    public AlarmLatencyHarness(SecurityHub hub, Logger logger, int backgroundDevices,
+                               int telemetryPerSecond, int alarmsPerSecond) {
+        this.hub = hub;
+        this.logger = logger;
+        this.backgroundDevices = Math.max(1, backgroundDevices);
+        this.telemetryPerSecond = Math.max(0, telemetryPerSecond);
+        this.alarmsPerSecond = Math.max(0, alarmsPerSecond);
+    }
+
+    /**
+     * Adds a subscriber whose deliveries are timed under {@code name}. Probes are HIGH alarms, so
+     * a topic must match those to be measured.
+     */
+    public void addSubscriber(String name, NotificationTopic topic, Subscriber subscriber) {
+        subscriberNames.add(name);
+        topics.add(topic);
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Raises {@code probes} alarms at {@code probesPerSecond} under the background load, waits for
+     * their deliveries and reports the latencies.
+     */
+    public AlarmLatencyReport run(int probes, int probesPerSecond) throws InterruptedException {
+        List<Device> probeDevices = addDevices(PROBE_DEVICES);
+        List<Device> fleet = addDevices(backgroundDevices);
+        hub.armHub();
+        hub.setAlarmRepository(new TimedAlarmRepository(logger));
+        HubChangeListener registrations = new HubChangeListener() {
+            @Override
+            public void onAlarmRegistered(Alarm alarm) {
+                Probe p = inFlight.get(alarm.getDeviceId());
+                if (p != null && p.alarmId == null) {
+                    p.alarmId = alarm.getId();
+                    p.registered = System.nanoTime();
+                }
+            }
+        };
+        hub.addChangeListener(registrations);
+        List<Subscriber> timed = new ArrayList<>();
+        for (int i = 0; i < subscribers.size(); i++) {
+            Subscriber s = new TimedSubscriber(i, subscribers.get(i));
+            timed.add(s);
+            hub.getNotifications().subscribe(topics.get(i), s);
+        }
+
+        Thread load = new Thread(() -> generateLoad(fleet), "alarm-latency-load");
+        load.setDaemon(true);
+        load.start();
+        Probe[] sent = new Probe[probes];
+        try {
+            long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, probesPerSecond);
+            long start = System.nanoTime();
+            for (int i = 0; i < probes; i++) {
+                long due = start + i * interval;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Device d = probeDevices.get(i % probeDevices.size());
+                sent[i] = probe(i, d, due);
+            }
+            awaitDeliveries(sent);
+        } finally {
+            load.interrupt();
+            load.join();
+            hub.removeChangeListener(registrations);
+            for (int i = 0; i < timed.size(); i++) {
+                hub.getNotifications().unsubscribe(topics.get(i), timed.get(i));
+            }
+            byMessage.clear();
+        }
+
+        AlarmLatencyReport report = new AlarmLatencyReport(subscriberNames, sent);
+        logger.log("Alarm latency: " + probes + " probes, delivered p99 "
+                + report.getEndToEnd(AlarmLatencyStage.DELIVERED).getValueAtPercentile(99) / 1_000 + "us", LogLevel.INFO);
+        return report;
+    }
+
+    private Probe probe(int sequence, Device device, long due) {
+        String message = PROBE_MESSAGE + sequence;
+        Probe p = new Probe(due, subscribers.size());
+        byMessage.put(message, p);
+        inFlight.put(device.getId(), p);
+        hub.processCommand(new TriggerAlarmCommand(device, message, AlarmSeverity.HIGH, hub));
+        inFlight.remove(device.getId(), p);
+        return p;
+    }
+
+    /**
+     * Notifiers may deliver on other threads, e.g. after a correlation hold, so deliveries are
+     * waited for a while before the missing ones are given up on.
+     */
+    private void awaitDeliveries(Probe[] probes) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + DELIVERY_TIMEOUT_MILLIS;
+        for (Probe p : probes) {
+            while (!p.allDelivered() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+    }
+
+    private void generateLoad(List<Device> fleet) {
+        long start = System.nanoTime();
+        long telemetrySent = 0;
+        long alarmsSent = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (!Thread.currentThread().isInterrupted()) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            for (; telemetrySent < seconds * telemetryPerSecond; telemetrySent++) {
+                Device d = fleet.get(random.nextInt(fleet.size()));
+                d.setBatteryLife(random.nextInt(101));
+                d.setSignalStrength(-random.nextInt(101));
+                hub.reportTelemetry(d);
+            }
+            for (; alarmsSent < seconds * alarmsPerSecond; alarmsSent++) {
+                Device d = fleet.get(random.nextInt(fleet.size()));
+                hub.processCommand(new TriggerAlarmCommand(d, BACKGROUND_MESSAGE, AlarmSeverity.MEDIUM, hub));
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private List<Device> addDevices(int count) {
+        List<Device> devices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Device d = i % 2 == 0 ? new MotionDevice(logger, ALWAYS_RESPONSIVE) : new SmokeDevice(logger, ALWAYS_RESPONSIVE);
+            d.setDeviceStatus(DeviceStatus.OPERATIONAL);
+            hub.addDevice(d);
+            devices.add(d);
+        }
+        return devices;
+    }
+
+    /**
+     * The stage times of one probe alarm, in {@link System#nanoTime()} units; 0 until reached.
+     */
+    static final class Probe {
+        final long created;
+        volatile UUID alarmId;
+        volatile long registered;
+        volatile long persisted;
+        final AtomicLongArray delivered;
+
+        Probe(long created, int subscribers) {
+            this.created = created;
+            this.delivered = new AtomicLongArray(subscribers);
+        }
+
+        boolean allDelivered() {
+            for (int i = 0; i < delivered.length(); i++) {
+                if (delivered.get(i) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Stamps a probe as persisted once the transaction saving its alarm has committed.
+     */
+    private final class TimedAlarmRepository extends AlarmLogRepository {
+        TimedAlarmRepository(Logger logger) {
+            super(logger);
+        }
+
+        @Override
+        public void saveAll(Collection<Alarm> alarms) {
+            super.saveAll(alarms);
+            long now = System.nanoTime();
+            for (Alarm a : alarms) {
+                Probe p = inFlight.get(a.getDeviceId());
+                if (p != null && a.getId().equals(p.alarmId) && p.persisted == 0) {
+                    p.persisted = now;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stamps a probe as delivered to one subscriber once that subscriber has taken the message.
+     * Calls into the subscriber are serialized, since the load thread and the probes both reach
+     * it and the bundled subscribers are not thread-safe; the wait counts towards delivery.
+     */
+    private final class TimedSubscriber implements Subscriber {
+        private final int index;
+        private final Subscriber subscriber;
+
+        TimedSubscriber(int index, Subscriber subscriber) {
+            this.index = index;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void receiveUpdate(String update) {
+            synchronized (subscriber) {
+                subscriber.receiveUpdate(update);
+            }
+            Probe p = byMessage.get(update);
+            if (p != null) {
+                p.delivered.compareAndSet(index, 0, System.nanoTime());
+            }
+        }
+
+        @Override
+        public int getId() {
+            return subscriber.getId();
+        }
+
+        @Override
+        public SubscriberStatus getSubscriberStatus() {
+            return subscriber.getSubscriberStatus();
+        }
+
+        @Override
+        public SubscriberType getSubscriberType() {
+            return subscriber.getSubscriberType();
+        }
+    }
+}
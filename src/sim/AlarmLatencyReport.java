@@ -0,0 +1,127 @@
+package sim;
+
+import infrastructure.monitoring.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Alarm latencies from one {@link AlarmLatencyHarness} run, in nanoseconds. End-to-end latency is
+ * measured from the sensor event to a stage; stage latency from the stage before it, so for
+ * DELIVERED it is the notification time after the alarm was persisted. DELIVERED counts once the
+ * last subscriber has the alarm; each subscriber's own delivery latency is kept as well.
+ */
+public class AlarmLatencyReport {
+    private final int probes;
+    private final Map<AlarmLatencyStage, LatencyHistogram> endToEnd = new EnumMap<>(AlarmLatencyStage.class);
+    private final Map<AlarmLatencyStage, LatencyHistogram> stages = new EnumMap<>(AlarmLatencyStage.class);
+    private final List<String> subscriberNames;
+    private final List<LatencyHistogram> delivered = new ArrayList<>();
+
+    AlarmLatencyReport(List<String> subscriberNames, AlarmLatencyHarness.Probe[] probes) {
+        this.probes = probes.length;
+        this.subscriberNames = List.copyOf(subscriberNames);
+        for (AlarmLatencyStage stage : AlarmLatencyStage.values()) {
+            endToEnd.put(stage, new LatencyHistogram());
+            stages.put(stage, new LatencyHistogram());
+        }
+        for (int i = 0; i < subscriberNames.size(); i++) {
+            delivered.add(new LatencyHistogram());
+        }
+
+        for (AlarmLatencyHarness.Probe p : probes) {
+            long previous = p.created;
+            long[] reached = {p.registered, p.persisted, lastDelivery(p)};
+            for (AlarmLatencyStage stage : AlarmLatencyStage.values()) {
+                long at = reached[stage.ordinal()];
+                if (at == 0) {
+                    break; // A probe that missed a stage is not counted for the later ones either
+                }
+                endToEnd.get(stage).record(at - p.created);
+                stages.get(stage).record(at - previous);
+                previous = at;
+            }
+            for (int i = 0; i < delivered.size(); i++) {
+                long at = p.delivered.get(i);
+                if (at != 0) {
+                    delivered.get(i).record(at - p.created);
+                }
+            }
+        }
+    }
+
+    private static long lastDelivery(AlarmLatencyHarness.Probe p) {
+        long last = 0;
+        for (int i = 0; i < p.delivered.length(); i++) {
+            long at = p.delivered.get(i);
+            if (at == 0) {
+                return 0;
+            }
+            last = Math.max(last, at);
+        }
+        return last;
+    }
+
+    public int getProbes() {
+        return probes;
+    }
+
+    /**
+     * @return Latency from the sensor event to the stage.
+     */
+    public LatencyHistogram getEndToEnd(AlarmLatencyStage stage) {
+        return endToEnd.get(stage);
+    }
+
+    /**
+     * @return Latency from the previous stage, or from the sensor event for REGISTERED.
+     */
+    public LatencyHistogram getStage(AlarmLatencyStage stage) {
+        return stages.get(stage);
+    }
+
+    /**
+     * @return Latency from the sensor event to the named subscriber, or null for an unknown name.
+     */
+    public LatencyHistogram getDelivered(String subscriber) {
+        int i = subscriberNames.indexOf(subscriber);
+        return i < 0 ? null : delivered.get(i);
+    }
+
+    /**
+     * @return How many probes never reached the stage.
+     */
+    public long getMissed(AlarmLatencyStage stage) {
+        return probes - endToEnd.get(stage).getCount();
+    }
+
+    /**
+     * An SLO check: true if every probe reached the stage and the end-to-end latency at the
+     * percentile is within the bound.
+     */
+    public boolean meetsSlo(AlarmLatencyStage stage, double percentile, long maxNanos) {
+        return getMissed(stage) == 0 && endToEnd.get(stage).getValueAtPercentile(percentile) <= maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("Alarm latency over %d probes%n", probes));
+        sb.append("End to end:\n");
+        for (AlarmLatencyStage stage : AlarmLatencyStage.values()) {
+            sb.append(String.format("  %-12s %s", stage, endToEnd.get(stage).summary()));
+            long missed = getMissed(stage);
+            sb.append(missed > 0 ? String.format(" (%d missed)%n", missed) : String.format("%n"));
+        }
+        sb.append("Per stage:\n");
+        for (AlarmLatencyStage stage : AlarmLatencyStage.values()) {
+            sb.append(String.format("  %-12s %s%n", stage, stages.get(stage).summary()));
+        }
+        sb.append("Delivered to:\n");
+        for (int i = 0; i < subscriberNames.size(); i++) {
+            sb.append(String.format("  %-12s %s%n", subscriberNames.get(i), delivered.get(i).summary()));
+        }
+        return sb.toString().stripTrailing();
+    }
+}
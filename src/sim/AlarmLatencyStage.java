@@ -0,0 +1,10 @@
+package sim;
+
+/**
+ * The points an alarm passes on its way from the sensor event to the people it alerts, in order.
+ */
+public enum AlarmLatencyStage {
+    REGISTERED,    // Held by the hub as an active alarm
+    PERSISTED,     // Committed to the alarm log
+    DELIVERED      // Received by every subscriber it was routed to
+}
@@ -0,0 +1,186 @@
+package sim;
+
+import alarm.AlarmSeverity;
+import infrastructure.telemetry.TelemetryCodec;
+import infrastructure.telemetry.TelemetryHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Emulates a fleet of push-based sensors talking to a {@link infrastructure.gateway.HeartbeatGateway}.
+ * Each tick every emulated device sends a heartbeat, and a fraction also report fresh telemetry.
+ * Messages are packed into {@link TelemetryCodec} frames of up to {@link #MESSAGES_PER_FRAME},
+ * one frame per datagram, as a real bus gateway would, so tens of thousands of devices can be
+ * emulated from one thread.
+ */
+public class DeviceEmulator implements Runnable {
+    private static final int MESSAGES_PER_FRAME = 64;
+    private static final int ACK_TIMEOUT_MILLIS = 200;
+
+    private final InetSocketAddress gateway;
+    private final List<UUID> deviceIds;
+    private final long tickMillis;
+    private final double telemetryRatio;
+    private final TelemetryCodec codec = new TelemetryCodec();
+    private final ByteBuffer buf = ByteBuffer.allocateDirect(
+            TelemetryCodec.HEADER_SIZE + MESSAGES_PER_FRAME * TelemetryCodec.ALARM_EVENT_SIZE);
+    private int alarmSequence;
+
+    public DeviceEmulator(String host, int port, List<UUID> deviceIds, long tickMillis, double telemetryRatio) {
+        this.gateway = new InetSocketAddress(host, port);
+        this.deviceIds = deviceIds;
+        this.tickMillis = tickMillis;
+        this.telemetryRatio = telemetryRatio;
+    }
+
+    @Override
+    public void run() {
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.connect(gateway);
+            while (!Thread.currentThread().isInterrupted()) {
+                sendRound(channel);
+                Thread.sleep(tickMillis);
+            }
+        } catch (InterruptedException ignored) {
+        } catch (IOException e) {
+            System.err.println("Device emulator stopped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sends one heartbeat or telemetry message for every emulated device over UDP.
+     */
+    public void sendRound() throws IOException {
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.connect(gateway);
+            sendRound(channel);
+        }
+    }
+
+    /**
+     * Sends one message per device over a single TCP connection.
+     */
+    public void sendRoundOverTcp() throws IOException {
+        try (SocketChannel channel = SocketChannel.open(gateway)) {
+            buf.clear();
+            codec.beginFrame(buf);
+            int inFrame = 0;
+            for (UUID id : deviceIds) {
+                putMessage(id);
+                if (++inFrame == MESSAGES_PER_FRAME) {
+                    codec.endFrame(buf);
+                    flushTcp(channel);
+                    codec.beginFrame(buf);
+                    inFrame = 0;
+                }
+            }
+            codec.endFrame(buf);
+            flushTcp(channel);
+        }
+    }
+
+    /**
+     * Reports an alarm for one device over UDP and retransmits it until the gateway acknowledges
+     * it, as a real sensor would.
+     *
+     * @return true if the gateway acknowledged the alarm within the given number of attempts.
+     */
+    public boolean sendAlarm(UUID deviceId, AlarmSeverity severity, int attempts) throws IOException {
+        int sequence = ++alarmSequence;
+        long raisedAt = System.currentTimeMillis();
+        ByteBuffer ack = ByteBuffer.allocateDirect(TelemetryCodec.HEADER_SIZE + TelemetryCodec.ACK_SIZE * 4);
+        boolean[] acked = new boolean[1];
+        TelemetryHandler ackHandler = new TelemetryHandler() {
+            @Override
+            public void onAck(long idMsb, long idLsb, int ackedSequence) {
+                if (idMsb == deviceId.getMostSignificantBits() && idLsb == deviceId.getLeastSignificantBits()
+                        && ackedSequence == sequence) {
+                    acked[0] = true;
+                }
+            }
+        };
+
+        try (DatagramChannel channel = DatagramChannel.open(); Selector selector = Selector.open()) {
+            channel.connect(gateway);
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+            for (int attempt = 0; attempt < attempts && !acked[0]; attempt++) {
+                buf.clear();
+                codec.beginFrame(buf);
+                codec.putAlarmEvent(buf, deviceId, severity, sequence, raisedAt);
+                codec.endFrame(buf);
+                buf.flip();
+                channel.write(buf);
+
+                // Wait for the ack; on timeout the alarm is retransmitted with the same sequence and time
+                if (selector.select(ACK_TIMEOUT_MILLIS) > 0) {
+                    selector.selectedKeys().clear();
+                    ack.clear();
+                    while (channel.read(ack) > 0) {
+                        ack.flip();
+                        codec.decodeFrame(ack, ackHandler);
+                        ack.clear();
+                    }
+                }
+            }
+        }
+        return acked[0];
+    }
+
+    /**
+     * Emulates the devices rebooting: alarm sequence numbers start again from the beginning.
+     */
+    public void restart() {
+        alarmSequence = 0;
+    }
+
+    private void sendRound(DatagramChannel channel) throws IOException {
+        buf.clear();
+        codec.beginFrame(buf);
+        int inFrame = 0;
+        for (UUID id : deviceIds) {
+            putMessage(id);
+            if (++inFrame == MESSAGES_PER_FRAME) {
+                sendFrame(channel);
+                inFrame = 0;
+            }
+        }
+        if (inFrame > 0) {
+            sendFrame(channel);
+        }
+    }
+
+    private void sendFrame(DatagramChannel channel) throws IOException {
+        codec.endFrame(buf);
+        buf.flip();
+        channel.write(buf);
+        buf.clear();
+        codec.beginFrame(buf);
+    }
+
+    private void putMessage(UUID id) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < telemetryRatio) {
+            codec.putTelemetry(buf, id, random.nextInt(5, 101), -random.nextInt(30, 100));
+        } else {
+            codec.putHeartbeat(buf, id);
+        }
+    }
+
+    private void flushTcp(SocketChannel channel) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+}
@@ -8,31 +8,58 @@ import core.SecurityHub;
 import devices.api.Device;
 import devices.model.DeviceStatus;
 import devices.api.HardwareLink;
+import devices.model.DeviceReading;
+import infrastructure.clock.HubClock;
 import infrastructure.logger.*;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Stands in for hardware: every tick it drains and charges batteries, moves signal strengths and
+ * raises random alarms, and it answers pings as the {@link HardwareLink}.
+ *
+ * <p>Ticks are timed by a {@link HubClock} and every random draw comes from one seeded
+ * generator. With a {@link infrastructure.clock.VirtualClock} set on the hub, {@link #runFor}
+ * runs as fast as the hub can take the load, and two runs over the same fleet with the same seed
+ * produce the same readings and alarms, with the same timestamps. Pings answered by shard workers
+ * draw from the same generator, so only runs that keep the link to the simulator's own thread
+ * are reproducible.</p>
+ *
+ * <p>The seed comes from {@code -Dsentinel.sim.seed} when it is set.</p>
+ */
 public class SimulationEngine implements Runnable, HardwareLink {
+    public static final long TICK_MILLIS = 10_000;
+
     private final SecurityHub hub;
-    private final List<Device> devices;
     private final Logger logger;
+    private final HubClock clock;
+    private final Random random;
+    private final long seed;
+    private final AtomicLong batchPolls = new AtomicLong();
+    private final AtomicLong ticks = new AtomicLong();
 
     public SimulationEngine(SecurityHub hub, Logger logger) {
+        this(hub, logger, hub.getClock(), Long.getLong("sentinel.sim.seed", System.nanoTime()));
+    }
+
+    public SimulationEngine(SecurityHub hub, Logger logger, HubClock clock, long seed) {
         this.hub = hub;
-        devices = hub.getDevices();
         this.logger = logger;
+        this.clock = clock;
+        this.seed = seed;
+        this.random = new Random(seed);
     }
 
     @Override
     public void run() {
         while (!Thread.currentThread().isInterrupted()) {
             try {
-                Thread.sleep(10000); // The "Tick"
-                lowerBatteries();
-                changeSignalStrength();
-                chargeBatteries();
-                triggerAlarmsRandomly();
-                triggerPanicAlarmsRandomly();
+                clock.sleep(TICK_MILLIS); // The "Tick"
+                tick();
                 // Tell the UI to refresh if needed
             } catch (InterruptedException e) {
                 break;
@@ -40,10 +67,45 @@ public class SimulationEngine implements Runnable, HardwareLink {
         }
     }
 
+    /**
+     * Runs ticks until {@code duration} has passed on the clock; on a virtual clock that takes
+     * only as long as the ticks themselves.
+     *
+     * @return The number of ticks run.
+     */
+    public long runFor(Duration duration) throws InterruptedException {
+        long end = clock.nanoTime() + duration.toNanos();
+        long count = 0;
+        while (clock.nanoTime() + TICK_MILLIS * 1_000_000 <= end) {
+            clock.sleep(TICK_MILLIS);
+            tick();
+            count++;
+        }
+        return count;
+    }
+
+    public void tick() {
+        lowerBatteries();
+        changeSignalStrength();
+        chargeBatteries();
+        reportTelemetry();
+        triggerAlarmsRandomly();
+        triggerPanicAlarmsRandomly();
+        ticks.incrementAndGet();
+    }
+
+    public long getTicks() {
+        return ticks.get();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
     public void lowerBatteries() {
-        devices.forEach((d) -> {
+        hub.getDevices().forEach((d) -> {
             if (d.getBatteryLife() >= 5) {
-                d.setBatteryLife(d.getBatteryLife() - (int)(Math.random() * 5));
+                d.setBatteryLife(d.getBatteryLife() - random.nextInt(5));
             } else {
                 d.setBatteryLife(0);
             }
@@ -51,50 +113,72 @@ public class SimulationEngine implements Runnable, HardwareLink {
     }
 
     public void chargeBatteries() {
-        devices.forEach((d) -> {
+        hub.getDevices().forEach((d) -> {
             if (d.getBatteryLife() <= 95)
                 d.setBatteryLife(d.getBatteryLife()+5);
         });
     }
 
     public void changeSignalStrength() {
-        devices.forEach((d) -> {
-            if (Math.random() > 0.5 && d.getSignalStrength() > -90) {
-                d.setSignalStrength(d.getSignalStrength() - (int)(Math.random() * 10));
+        hub.getDevices().forEach((d) -> {
+            if (random.nextDouble() > 0.5 && d.getSignalStrength() > -90) {
+                d.setSignalStrength(d.getSignalStrength() - random.nextInt(10));
             } else if (d.getSignalStrength() <= -10) {
-                d.setSignalStrength(d.getSignalStrength() + (int) (Math.random() * 10));
+                d.setSignalStrength(d.getSignalStrength() + random.nextInt(10));
             }
         });
     }
 
+    public void reportTelemetry() {
+        hub.getDevices().forEach(hub::reportTelemetry);
+    }
+
     @Override
     public boolean isDeviceResponsive(Device device) {
-        if (devices.contains(device)
+        if (hub.containsDevice(device)
                 && device.getBatteryLife() > 0
                 && device.getSignalStrength() >= -100
                 && device.getDeviceStatus() == DeviceStatus.OPERATIONAL) {
-            return Math.random() > 0.05;
+            return random.nextDouble() > 0.05;
         }
         return false;
     }
 
+    /**
+     * Simulates a gateway polling a whole bus segment in one transaction: one round trip for the
+     * batch, each device answering with the same odds as a single ping.
+     */
+    @Override
+    public List<DeviceReading> pollDevices(List<Device> devices) {
+        batchPolls.incrementAndGet();
+        List<DeviceReading> readings = new ArrayList<>(devices.size());
+        for (Device d : devices) {
+            readings.add(new DeviceReading(d.getId(), isDeviceResponsive(d), d.getBatteryLife(), d.getSignalStrength()));
+        }
+        return readings;
+    }
+
+    public long getBatchPolls() {
+        return batchPolls.get();
+    }
+
     /**
      * Simulates alarms being triggered by creating and executing TriggerAlarmCommand objects randomly
      */
     public void triggerAlarmsRandomly() {
-        if (SecurityHub.getInstance().currentMode() == HubStatus.ARMED) {
-            devices.stream().filter(d -> d.getDeviceStatus() == DeviceStatus.OPERATIONAL).forEach((d) -> {
-                if (Math.random() > 0.7) {
+        if (hub.currentMode() == HubStatus.ARMED) {
+            hub.getDevices().stream().filter(d -> d.getDeviceStatus() == DeviceStatus.OPERATIONAL).forEach((d) -> {
+                if (random.nextDouble() > 0.7) {
                     AlarmSeverity severity;
-                    double random = Math.random();
-                    if (random < 0.3) {
+                    double draw = random.nextDouble();
+                    if (draw < 0.3) {
                         severity = AlarmSeverity.LOW;
-                    } else if (random > 0.6) {
+                    } else if (draw > 0.6) {
                         severity = AlarmSeverity.MEDIUM;
                     } else {
                         severity = AlarmSeverity.HIGH;
                     }
-                    TriggerAlarmCommand cmd = new TriggerAlarmCommand(d, "Alarm triggered", severity);
+                    TriggerAlarmCommand cmd = new TriggerAlarmCommand(d, "Alarm triggered", severity, hub);
                     cmd.execute();
                 }
             });
@@ -105,13 +189,13 @@ public class SimulationEngine implements Runnable, HardwareLink {
      * Simulates panic alarms being triggered by creating and executing PanicAlarmCommand objects randomly
      */
     public void triggerPanicAlarmsRandomly() {
-        if (SecurityHub.getInstance().currentMode() == HubStatus.ARMED) {
-            devices.stream()
+        if (hub.currentMode() == HubStatus.ARMED) {
+            hub.getDevices().stream()
                     .filter(d -> d.getDeviceStatus() == DeviceStatus.OPERATIONAL)
                     .forEach((d) -> {
                         // Throttle panic generation: only a small chance per tick per device
-                        if (Math.random() > 0.995) { // ~0.5% chance
-                            PanicAlarmCommand cmd = new PanicAlarmCommand(d, "Panic Alarm triggered");
+                        if (random.nextDouble() > 0.995) { // ~0.5% chance
+                            PanicAlarmCommand cmd = new PanicAlarmCommand(d, "Panic Alarm triggered", hub);
                             cmd.execute();
                         }
                     });
@@ -0,0 +1,196 @@
+package core;
+
+import devices.api.Device;
+import devices.api.HardwareLink;
+import devices.impl.MotionDevice;
+import devices.model.DeviceStatus;
+import infrastructure.scheduling.HashedWheelTimer;
+import infrastructure.scheduling.RateBudget;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Smoke test for adaptive liveness scheduling. Runs the same fleet (mostly stable devices, some
+ * with weak signal, some dead) under fixed-interval checks and under the adaptive policy with a
+ * ping budget, then compares ping volume, how often weak devices are still checked, how fast dead
+ * devices are decommissioned once their first ping fails, and the busiest 100 ms of pings. Also checks that a device whose
+ * telemetry turns bad has its next check pulled forward. Headless; prints results to stdout.
+ */
+public class SmokeAdaptiveHealthChecks {
+    private static final int DEVICES = 2_000;
+    private static final int WEAK = 100;
+    private static final int DEAD = 50;
+    private static final long BASE_MS = 100;
+    private static final long MAX_MS = 1_600;
+    private static final long RETRY_MS = 50;
+    private static final int PINGS_PER_SECOND = 4_000;
+    private static final long RUN_MS = 4_000;
+
+    public static void main(String[] args) throws Exception {
+        // Scale the ping circuit backoff down with the intervals above
+        System.setProperty("sentinel.ping.backoffMs", "100");
+
+        Run fixed = run(false);
+        Run adaptive = run(true);
+        System.out.printf("fixed:    %d pings, %.1f per weak device, dead gone %dms after failing, busiest 100ms %d%n",
+                fixed.pings(), fixed.weakPingsPerDevice(), fixed.detectionMillis(), fixed.link.busiestSlot());
+        System.out.printf("adaptive: %d pings, %.1f per weak device, dead gone %dms after failing, busiest 100ms %d, %d deferred%n",
+                adaptive.pings(), adaptive.weakPingsPerDevice(), adaptive.detectionMillis(), adaptive.link.busiestSlot(),
+                adaptive.budget.getDeferred());
+
+        check("ping volume cut by more than half", adaptive.pings() * 2 < fixed.pings());
+        check("weak devices still checked at the base rate", adaptive.weakPingsPerDevice() >= 0.8 * fixed.weakPingsPerDevice());
+        check("dead devices decommissioned", fixed.deadGoneMillis >= 0 && adaptive.deadGoneMillis >= 0);
+        check("failure detection not slower", adaptive.detectionMillis() <= fixed.detectionMillis() + 2 * BASE_MS);
+        // Checks of at-risk devices may exceed the budget; stable devices are held to it
+        long secondBudget = PINGS_PER_SECOND + (WEAK + DEAD) * 1000 / RETRY_MS;
+        check("busiest second within budget (" + adaptive.link.busiestSecond() + " <= " + secondBudget + ")",
+                adaptive.link.busiestSecond() <= secondBudget);
+        check("pings spread more evenly", adaptive.link.busiestSlot() * 2 < fixed.link.busiestSlot());
+
+        telemetryPullsCheckForward();
+    }
+
+    private static Run run(boolean adaptive) throws InterruptedException {
+        SecurityHub hub = new SecurityHub(2);
+        CountingLink link = new CountingLink();
+        List<Device> weak = new ArrayList<>();
+        List<Device> dead = new ArrayList<>();
+        for (int i = 0; i < DEVICES; i++) {
+            Device d = new MotionDevice(hub.getLogger(), link);
+            d.setDeviceStatus(DeviceStatus.OPERATIONAL);
+            d.setBatteryLife(100);
+            d.setSignalStrength(-50);
+            if (i < WEAK) {
+                d.setSignalStrength(-95);
+                weak.add(d);
+                link.weak.add(d.getId());
+            } else if (i < WEAK + DEAD) {
+                link.dead.add(d.getId());
+                dead.add(d);
+            }
+            hub.addDevice(d);
+        }
+
+        HashedWheelTimer timer = new HashedWheelTimer("smoke-health", 10, TimeUnit.MILLISECONDS, 512, hub.getLogger());
+        RateBudget budget = new RateBudget(PINGS_PER_SECOND, 100);
+        EscalationScheduler scheduler = adaptive
+                ? new EscalationScheduler(hub, timer, new HealthCheckPolicy(BASE_MS, MAX_MS, RETRY_MS), budget, 60_000)
+                : new EscalationScheduler(hub, timer, BASE_MS, RETRY_MS, 60_000);
+        long start = link.startNanos;
+        scheduler.start();
+        long deadGone = -1;
+        while (System.nanoTime() - start < RUN_MS * 1_000_000) {
+            if (deadGone < 0 && dead.stream().allMatch(d -> d.getDeviceStatus() == DeviceStatus.DECOMMISSIONED)) {
+                deadGone = (System.nanoTime() - start) / 1_000_000;
+            }
+            Thread.sleep(10);
+        }
+        scheduler.stop();
+        timer.stop();
+        return new Run(link, budget, deadGone);
+    }
+
+    private static void telemetryPullsCheckForward() throws InterruptedException {
+        SecurityHub hub = new SecurityHub(1);
+        CountingLink link = new CountingLink();
+        Device d = new MotionDevice(hub.getLogger(), link);
+        d.setDeviceStatus(DeviceStatus.OPERATIONAL);
+        d.setBatteryLife(100);
+        d.setSignalStrength(-50);
+        hub.addDevice(d);
+        HashedWheelTimer timer = new HashedWheelTimer("smoke-reassess", 10, TimeUnit.MILLISECONDS, 512, hub.getLogger());
+        EscalationScheduler scheduler = new EscalationScheduler(hub, timer,
+                new HealthCheckPolicy(BASE_MS, 60_000, RETRY_MS), null, 60_000);
+        scheduler.start();
+
+        // Let the stable device climb to long intervals
+        Thread.sleep(3_500);
+        long before = scheduler.livenessChecks();
+        Thread.sleep(500);
+        boolean quiet = scheduler.livenessChecks() == before;
+
+        d.setBatteryLife(5);
+        hub.reportTelemetry(d);
+        Thread.sleep(BASE_MS * 3);
+        check("low battery report pulls the next check forward", quiet && scheduler.livenessChecks() > before);
+        scheduler.stop();
+        timer.stop();
+    }
+
+    private static final class Run {
+        final CountingLink link;
+        final RateBudget budget;
+        final long deadGoneMillis;
+
+        Run(CountingLink link, RateBudget budget, long deadGoneMillis) {
+            this.link = link;
+            this.budget = budget;
+            this.deadGoneMillis = deadGoneMillis;
+        }
+
+        long pings() {
+            return link.pings.get();
+        }
+
+        /**
+         * From the last dead device's first failed ping to every dead device being decommissioned.
+         */
+        long detectionMillis() {
+            return deadGoneMillis - link.lastFirstFailureMillis();
+        }
+
+        double weakPingsPerDevice() {
+            return (double) link.weakPings.get() / WEAK;
+        }
+    }
+
+    private static final class CountingLink implements HardwareLink {
+        final Set<UUID> dead = ConcurrentHashMap.newKeySet();
+        final Set<UUID> weak = ConcurrentHashMap.newKeySet();
+        final AtomicLong pings = new AtomicLong();
+        final AtomicLong weakPings = new AtomicLong();
+        final Map<Long, AtomicLong> perSlot = new ConcurrentHashMap<>();
+        final Map<Long, AtomicLong> perSecond = new ConcurrentHashMap<>();
+        final Map<UUID, Long> firstFailure = new ConcurrentHashMap<>();
+        final long startNanos = System.nanoTime();
+
+        @Override
+        public boolean isDeviceResponsive(Device device) {
+            pings.incrementAndGet();
+            perSlot.computeIfAbsent(System.nanoTime() / 100_000_000, s -> new AtomicLong()).incrementAndGet();
+            perSecond.computeIfAbsent(System.nanoTime() / 1_000_000_000, s -> new AtomicLong()).incrementAndGet();
+            if (weak.contains(device.getId())) {
+                weakPings.incrementAndGet();
+            }
+            if (dead.contains(device.getId())) {
+                firstFailure.putIfAbsent(device.getId(), (System.nanoTime() - startNanos) / 1_000_000);
+                return false;
+            }
+            return true;
+        }
+
+        long lastFirstFailureMillis() {
+            return firstFailure.values().stream().mapToLong(Long::longValue).max().orElse(0);
+        }
+
+        long busiestSlot() {
+            return perSlot.values().stream().mapToLong(AtomicLong::get).max().orElse(0);
+        }
+
+        long busiestSecond() {
+            return perSecond.values().stream().mapToLong(AtomicLong::get).max().orElse(0);
+        }
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
@@ -0,0 +1,95 @@
+package alarm.correlation;
+
+import alarm.Alarm;
+import alarm.AlarmSeverity;
+import alarm.AlarmStatus;
+import commands.alarmcommands.TriggerAlarmCommand;
+import core.SecurityHub;
+import devices.api.Device;
+import devices.impl.GlassBreakSensorDevice;
+import devices.impl.MotionDevice;
+import devices.impl.SmokeDevice;
+import devices.impl.ThermalDevice;
+import devices.model.DeviceType;
+import infrastructure.scheduling.HashedWheelTimer;
+import infrastructure.subscribers.SecurityTeamPhoneAppAlarm;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Smoke test for cross-device alarm correlation. Smoke plus heat must become one FIRE incident
+ * with the two device notifications suppressed; glass break then motion must become BREAK_IN,
+ * while the reverse order must be delivered as two ordinary alarms once the hold expires.
+ * Finally measures correlation throughput. Headless; prints to stdout.
+ */
+public class SmokeAlarmCorrelation {
+    private static final long HOLD_MS = 300;
+
+    public static void main(String[] args) throws Exception {
+        SecurityHub hub = SecurityHub.getInstance();
+        hub.armHub();
+        HashedWheelTimer timer = new HashedWheelTimer("smoke-timer", 10, TimeUnit.MILLISECONDS, 256, hub.getLogger());
+        CorrelationEngine engine = new CorrelationEngine(hub, timer, hub.getLogger(), List.of(
+                CorrelationPattern.allOf("FIRE", 60_000, AlarmSeverity.CRITICAL, DeviceType.SMOKE_DEVICE, DeviceType.THERMAL_DEVICE),
+                CorrelationPattern.sequence("BREAK_IN", 120_000, AlarmSeverity.CRITICAL, DeviceType.GLASS_BREAK_SENSOR_DEVICE, DeviceType.MOTION_DEVICE)
+        ), HOLD_MS, d -> "site");
+        engine.start();
+
+        SecurityTeamPhoneAppAlarm phone = new SecurityTeamPhoneAppAlarm();
+        Device smoke = withSubscriber(new SmokeDevice(hub.getLogger(), d -> true), phone);
+        Device thermal = withSubscriber(new ThermalDevice(hub.getLogger(), d -> true), phone);
+        Device glass = withSubscriber(new GlassBreakSensorDevice(hub.getLogger(), d -> true), phone);
+        Device motion = withSubscriber(new MotionDevice(hub.getLogger(), d -> true), phone);
+
+        hub.processCommand(new TriggerAlarmCommand(smoke, "Smoke detected", AlarmSeverity.HIGH));
+        hub.processCommand(new TriggerAlarmCommand(thermal, "Heat detected", AlarmSeverity.MEDIUM));
+        Thread.sleep(HOLD_MS * 2);
+        System.out.println("FIRE: incidents=" + engine.getIncidentCount() + " suppressed=" + engine.getSuppressedNotifications()
+                + " phone got " + phone.getUpdates());
+
+        phone.getUpdates().clear();
+        hub.processCommand(new TriggerAlarmCommand(motion, "Motion", AlarmSeverity.MEDIUM));
+        hub.processCommand(new TriggerAlarmCommand(glass, "Glass broken", AlarmSeverity.HIGH));
+        Thread.sleep(HOLD_MS * 2);
+        System.out.println("Motion then glass: incidents=" + engine.getIncidentCount() + " phone got " + phone.getUpdates());
+
+        phone.getUpdates().clear();
+        hub.processCommand(new TriggerAlarmCommand(motion, "Motion", AlarmSeverity.MEDIUM));
+        Thread.sleep(HOLD_MS * 2);
+        System.out.println("Glass then motion: incidents=" + engine.getIncidentCount()
+                + " latest=" + engine.getRecentIncidents().get(0).getName() + " phone got " + phone.getUpdates());
+
+        throughput(hub, timer);
+        engine.stop();
+    }
+
+    private static void throughput(SecurityHub hub, HashedWheelTimer timer) {
+        CorrelationEngine engine = new CorrelationEngine(hub, timer, hub.getLogger(), List.of(
+                CorrelationPattern.allOf("FIRE", 10_000, AlarmSeverity.CRITICAL, DeviceType.SMOKE_DEVICE, DeviceType.THERMAL_DEVICE)
+        ), HOLD_MS, d -> "zone-" + (d.getId().hashCode() & 15));
+
+        List<Device> fleet = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            fleet.add(new SmokeDevice(hub.getLogger(), d -> true));
+            fleet.add(new ThermalDevice(hub.getLogger(), d -> true));
+        }
+
+        int alarms = 200_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < alarms; i++) {
+            Device d = fleet.get(i % fleet.size());
+            engine.notify(d, new Alarm(d.getDeviceType(), d.getId(), AlarmStatus.ACTIVE, AlarmSeverity.HIGH, LocalDateTime.now()), "alarm");
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Correlated %d alarms at %.0f alarms/s into %d incidents%n",
+                alarms, alarms / (elapsed / 1e9), engine.getIncidentCount());
+    }
+
+    private static Device withSubscriber(Device device, SecurityTeamPhoneAppAlarm subscriber) {
+        device.addSubscriber(subscriber);
+        return device;
+    }
+}
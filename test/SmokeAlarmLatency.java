@@ -0,0 +1,154 @@
+package sim;
+
+import alarm.AlarmSeverity;
+import commands.alarmcommands.TriggerAlarmCommand;
+import core.SecurityHub;
+import devices.api.Device;
+import devices.impl.MotionDevice;
+import infrastructure.monitoring.LatencyHistogram;
+import infrastructure.subscribers.NotificationTopic;
+import infrastructure.subscribers.PoliceStationLink;
+import infrastructure.subscribers.SecurityTeamPhoneAppAlarm;
+import infrastructure.subscribers.Subscriber;
+import infrastructure.subscribers.SubscriberStatus;
+import infrastructure.subscribers.SubscriberType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Smoke test for the alarm latency harness. Runs probes under background telemetry and alarm
+ * load and checks that every probe is stamped at each stage in order, that only probes are
+ * counted, that each subscriber's deliveries are reported, that subscribers hear no other hub's
+ * alarms, and that the SLO check works. Then slows a subscriber below the probe rate and checks
+ * the queueing is charged to the probes. Headless; prints results to stdout.
+ */
+public class SmokeAlarmLatency {
+    private static final int PROBES = 1_000;
+    private static final String OTHER_HUB_MESSAGE = "Other hub alarm";
+
+    public static void main(String[] args) throws Exception {
+        SecurityHub hub = SecurityHub.createDetached(4);
+        AlarmLatencyHarness harness = new AlarmLatencyHarness(hub, hub.getLogger(), 500, 5_000, 100);
+        harness.addSubscriber("police", NotificationTopic.severity(AlarmSeverity.HIGH), new PoliceStationLink());
+        harness.addSubscriber("team", NotificationTopic.all(), new SecurityTeamPhoneAppAlarm());
+        Recorder watcher = new Recorder();
+        harness.addSubscriber("watcher", NotificationTopic.all(), watcher);
+
+        // Alarms raised on other hubs meanwhile must not reach the harness's subscribers
+        SecurityHub otherHub = SecurityHub.createDetached(1);
+        Thread others = new Thread(() -> raiseElsewhere(otherHub), "other-hub-alarms");
+        others.setDaemon(true);
+        others.start();
+        AlarmLatencyReport report = harness.run(PROBES, 200);
+        others.interrupt();
+        others.join();
+        System.out.println(report);
+
+        check("every probe registered, persisted and delivered", report.getMissed(AlarmLatencyStage.REGISTERED) == 0
+                && report.getMissed(AlarmLatencyStage.PERSISTED) == 0 && report.getMissed(AlarmLatencyStage.DELIVERED) == 0);
+        check("background alarms not counted", report.getEndToEnd(AlarmLatencyStage.DELIVERED).getCount() == PROBES);
+        check("stages in order", report.getEndToEnd(AlarmLatencyStage.REGISTERED).getMean()
+                <= report.getEndToEnd(AlarmLatencyStage.PERSISTED).getMean()
+                && report.getEndToEnd(AlarmLatencyStage.PERSISTED).getMean()
+                <= report.getEndToEnd(AlarmLatencyStage.DELIVERED).getMean());
+        check("each subscriber reported", report.getDelivered("police").getCount() == PROBES
+                && report.getDelivered("team").getCount() == PROBES && report.getDelivered("nobody") == null);
+        check("subscribers hear only their hub's alarms", watcher.foreign.get() == 0 && watcher.received.get() > 0);
+        check("SLO check passes a loose bound", report.meetsSlo(AlarmLatencyStage.DELIVERED, 99, TimeUnit.SECONDS.toNanos(10)));
+        check("SLO check fails an impossible bound", !report.meetsSlo(AlarmLatencyStage.PERSISTED, 50, 0));
+
+        // Each delivery takes 2ms while probes are due every 1ms, so they fall further behind
+        SecurityHub slowHub = SecurityHub.createDetached(4);
+        AlarmLatencyHarness slow = new AlarmLatencyHarness(slowHub, slowHub.getLogger(), 10, 0, 0);
+        slow.addSubscriber("pager", NotificationTopic.all(), new SlowSubscriber());
+        AlarmLatencyReport behind = slow.run(200, 1_000);
+        LatencyHistogram delivered = behind.getEndToEnd(AlarmLatencyStage.DELIVERED);
+        System.out.println("Behind schedule: " + delivered.summary());
+        check("time behind schedule charged to the probes", delivered.getMax() >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    /**
+     * Raises alarms on another hub and on the shared one, each seen by a subscriber of everything.
+     */
+    private static void raiseElsewhere(SecurityHub otherHub) {
+        SecurityHub shared = SecurityHub.getInstance();
+        otherHub.armHub();
+        shared.armHub();
+        Device other = new MotionDevice(otherHub.getLogger(), d -> true);
+        Device sharedDevice = new MotionDevice(shared.getLogger(), d -> true);
+        otherHub.addDevice(other);
+        shared.addDevice(sharedDevice);
+        Recorder otherWatcher = new Recorder();
+        otherHub.getNotifications().subscribe(NotificationTopic.all(), otherWatcher);
+        shared.getNotifications().subscribe(NotificationTopic.all(), otherWatcher);
+        while (!Thread.currentThread().isInterrupted()) {
+            new TriggerAlarmCommand(other, OTHER_HUB_MESSAGE, AlarmSeverity.HIGH, otherHub).execute();
+            new TriggerAlarmCommand(sharedDevice, OTHER_HUB_MESSAGE, AlarmSeverity.HIGH, shared).execute();
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        check("other hubs' alarms were raised", otherWatcher.foreign.get() > 0);
+    }
+
+    private static final class Recorder implements Subscriber {
+        final AtomicInteger received = new AtomicInteger();
+        final AtomicInteger foreign = new AtomicInteger();
+
+        @Override
+        public void receiveUpdate(String update) {
+            received.incrementAndGet();
+            if (OTHER_HUB_MESSAGE.equals(update)) {
+                foreign.incrementAndGet();
+            }
+        }
+
+        @Override
+        public int getId() {
+            return 2;
+        }
+
+        @Override
+        public SubscriberStatus getSubscriberStatus() {
+            return SubscriberStatus.ACTIVE;
+        }
+
+        @Override
+        public SubscriberType getSubscriberType() {
+            return SubscriberType.SECURITY_TEAM_PHONE_APP_ALARM;
+        }
+    }
+
+    private static final class SlowSubscriber implements Subscriber {
+        @Override
+        public void receiveUpdate(String update) {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public int getId() {
+            return 1;
+        }
+
+        @Override
+        public SubscriberStatus getSubscriberStatus() {
+            return SubscriberStatus.ACTIVE;
+        }
+
+        @Override
+        public SubscriberType getSubscriberType() {
+            return SubscriberType.SECURITY_TEAM_PHONE_APP_ALARM;
+        }
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
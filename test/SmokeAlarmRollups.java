@@ -0,0 +1,132 @@
+package infrastructure.repository;
+
+import alarm.Alarm;
+import alarm.AlarmRollup;
+import alarm.AlarmRollupResolution;
+import alarm.AlarmSeverity;
+import alarm.AlarmStatus;
+import devices.model.DeviceType;
+import infrastructure.logger.ConsoleLogger;
+
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Smoke test for the alarm rollup tables. Saves a few days of alarms in batches, resolves and
+ * escalates some of them, and checks every resolution of the rollups against counts computed
+ * from the alarms themselves; then checks that a rebuild from the history and the startup
+ * backfill produce the same rollups. Times a day of hourly buckets against a full history scan.
+ * Uses sentinel.db in the working directory. Headless; prints results to stdout.
+ */
+public class SmokeAlarmRollups {
+    private static final int ALARMS = 20_000;
+    private static final int BATCH = 500;
+
+    public static void main(String[] args) throws Exception {
+        AlarmLogRepository repo = new AlarmLogRepository(new ConsoleLogger());
+        try (Statement stmt = DatabaseManager.getInstance().getConnection().createStatement()) {
+            stmt.executeUpdate("DELETE FROM alarm_logs");
+            stmt.executeUpdate("DELETE FROM alarm_rollups");
+        }
+
+        Random random = new Random(39);
+        LocalDateTime now = LocalDateTime.now();
+        List<Alarm> alarms = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < ALARMS; i += BATCH) {
+            List<Alarm> batch = new ArrayList<>();
+            for (int j = 0; j < BATCH; j++) {
+                batch.add(new Alarm(
+                        DeviceType.values()[random.nextInt(DeviceType.values().length)],
+                        UUID.randomUUID(),
+                        AlarmStatus.ACTIVE,
+                        AlarmSeverity.values()[random.nextInt(AlarmSeverity.values().length)],
+                        now.minusSeconds(random.nextInt(3 * 24 * 3600))));
+            }
+            repo.saveAll(batch);
+            alarms.addAll(batch);
+        }
+        System.out.printf("Saved %d alarms in batches of %d in %dms%n", ALARMS, BATCH, (System.nanoTime() - start) / 1_000_000);
+
+        // Resolve a third and escalate a tenth, one save each as the hub does
+        for (int i = 0; i < alarms.size(); i++) {
+            Alarm a = alarms.get(i);
+            if (i % 3 == 0) {
+                a.resolveAlarm();
+                repo.save(a);
+            } else if (i % 10 == 1 && a.getSeverity() != AlarmSeverity.CRITICAL) {
+                Alarm escalated = new Alarm(a.getId(), a.getDeviceType(), a.getDeviceId(), a.getStatus(),
+                        AlarmSeverity.values()[a.getSeverity().ordinal() + 1], a.getTimestamp());
+                repo.save(escalated);
+                alarms.set(i, escalated);
+            }
+        }
+        repo.save(alarms.get(2)); // Saving an unchanged alarm must not count it twice
+
+        LocalDateTime from = now.minusDays(4);
+        LocalDateTime to = now.plusMinutes(1);
+        for (AlarmRollupResolution resolution : AlarmRollupResolution.values()) {
+            check(resolution + " rollups match the alarms", expected(alarms, resolution).equals(actual(repo, resolution, from, to)));
+        }
+
+        Map<String, Long> before = actual(repo, AlarmRollupResolution.MINUTE, from, to);
+        repo.rebuildRollups();
+        check("rebuild from history matches incremental rollups", before.equals(actual(repo, AlarmRollupResolution.MINUTE, from, to)));
+        check("no backfill while rollups exist", !repo.backfillRollupsIfMissing());
+        try (Statement stmt = DatabaseManager.getInstance().getConnection().createStatement()) {
+            stmt.executeUpdate("DELETE FROM alarm_rollups");
+        }
+        check("backfill runs when rollups are missing", repo.backfillRollupsIfMissing());
+        check("backfilled rollups match", expected(alarms, AlarmRollupResolution.HOUR)
+                .equals(actual(repo, AlarmRollupResolution.HOUR, from, to)));
+
+        // A partial range covers just the buckets it touches
+        LocalDateTime dayFrom = now.minusHours(23);
+        long inDay = 0;
+        for (Alarm a : alarms) {
+            if (!a.getTimestamp().isBefore(dayFrom.withMinute(0).withSecond(0).withNano(0))) {
+                inDay++;
+            }
+        }
+        long rolled = 0;
+        for (AlarmRollup r : repo.loadRollups(AlarmRollupResolution.HOUR, dayFrom, now)) {
+            rolled += r.getCount();
+        }
+        check("last 24 hourly buckets hold " + inDay + " alarms", rolled == inDay);
+
+        long t0 = System.nanoTime();
+        List<AlarmRollup> day = repo.loadRollups(AlarmRollupResolution.HOUR, dayFrom, now);
+        long rollupMicros = (System.nanoTime() - t0) / 1_000;
+        t0 = System.nanoTime();
+        int scanned = repo.loadAll().size();
+        long scanMicros = (System.nanoTime() - t0) / 1_000;
+        System.out.printf("24h of hourly rollups: %d rows in %.2fms; full scan: %d alarms in %.2fms%n",
+                day.size(), rollupMicros / 1000.0, scanned, scanMicros / 1000.0);
+    }
+
+    private static Map<String, Long> expected(List<Alarm> alarms, AlarmRollupResolution resolution) {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Alarm a : alarms) {
+            counts.merge(key(resolution.bucketOf(a.getTimestamp()), a.getDeviceType(), a.getSeverity(), a.getStatus()), 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    private static Map<String, Long> actual(AlarmLogRepository repo, AlarmRollupResolution resolution,
+                                            LocalDateTime from, LocalDateTime to) {
+        Map<String, Long> counts = new TreeMap<>();
+        for (AlarmRollup r : repo.loadRollups(resolution, from, to)) {
+            counts.merge(key(r.getBucketStart(), r.getDeviceType(), r.getSeverity(), r.getStatus()), r.getCount(), Long::sum);
+        }
+        return counts;
+    }
+
+    private static String key(LocalDateTime bucket, DeviceType type, AlarmSeverity severity, AlarmStatus status) {
+        return bucket + " " + type + " " + severity + " " + status;
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
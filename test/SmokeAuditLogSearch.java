@@ -0,0 +1,121 @@
+package infrastructure.logger.search;
+
+import infrastructure.logger.LogFileArchiver;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Smoke test for audit log search. Writes a few hundred thousand entries for a fleet of devices
+ * through an archiver with a small file limit, so the history ends up in many indexed archives
+ * plus the active file, then checks field, word and time-range queries page by page against a
+ * brute-force filter of the same lines. Several entries share each timestamp, so the pagination
+ * cursor has to cope with ties. Headless; prints results and latencies to stdout.
+ */
+public class SmokeAuditLogSearch {
+    private static final int LINES = 300_000;
+    private static final int DEVICES = 200;
+    private static final int PAGE_SIZE = 50;
+    private static final String[] LEVELS = {"INFO", "HEALTH", "WARNING", "CRITICAL"};
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("audit-search-smoke");
+        LogFileArchiver archiver = new LogFileArchiver(dir.resolve("audit.log").toString(), 512 * 1024,
+                LogFileArchiver.DEFAULT_MAX_FILE_AGE_MS, Long.MAX_VALUE, 365L * 24 * 3_600_000);
+
+        List<UUID> devices = new ArrayList<>();
+        Random random = new Random(38);
+        for (int i = 0; i < DEVICES; i++) {
+            devices.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        Instant base = Instant.now().minus(Duration.ofDays(5));
+        List<String> written = new ArrayList<>(LINES);
+        long start = System.nanoTime();
+        for (int i = 0; i < LINES; i++) {
+            Instant ts = base.plusSeconds(i / 3); // Three entries per timestamp
+            String level = LEVELS[random.nextInt(LEVELS.length)];
+            UUID device = devices.get(random.nextInt(DEVICES));
+            String message = level.equals("CRITICAL")
+                    ? "Alarm triggered on device " + device + ": tamper detected"
+                    : "Device " + device + " reported battery " + random.nextInt(100);
+            String line = "[" + ts + "] [" + level + "] " + message;
+            written.add(line);
+            archiver.receiveLog(line);
+        }
+        archiver.flush();
+        long bytes = 0;
+        for (var a : archiver.getManifest()) {
+            bytes += a.getCompressedBytes();
+        }
+        System.out.printf("Wrote %d lines in %dms: %d archives, %d compressed bytes%n",
+                LINES, (System.nanoTime() - start) / 1_000_000, archiver.getManifest().size(), bytes);
+        check("history spans several archives", archiver.getManifest().size() > 5);
+
+        AuditLogSearch search = new AuditLogSearch(archiver);
+        UUID device = devices.get(7);
+        Instant from = base.plusSeconds(20_000);
+        Instant to = base.plusSeconds(30_000);
+        String[] queries = {
+                "level:CRITICAL",
+                "device:" + device,
+                device + " tamper",
+                "level:critical device:" + devices.get(3),
+                "battery from:" + from + " to:" + to,
+                "from:" + from + " to:" + to,
+                "nosuchword",
+        };
+        for (String text : queries) {
+            AuditQuery query = AuditQuery.parse(text, PAGE_SIZE);
+            List<String> expected = bruteForce(written, query);
+
+            List<String> found = new ArrayList<>();
+            AuditCursor cursor = null;
+            long firstPageMicros = -1;
+            int pages = 0;
+            do {
+                AuditSearchPage page = search.search(query, cursor);
+                if (firstPageMicros < 0) {
+                    firstPageMicros = page.getElapsedMicros();
+                }
+                found.addAll(page.getEntries());
+                cursor = page.getNext();
+                pages++;
+            } while (cursor != null && pages < 20);
+
+            List<String> window = expected.subList(0, Math.min(expected.size(), found.size()));
+            boolean complete = found.size() == Math.min(expected.size(), 20 * PAGE_SIZE);
+            System.out.printf("'%s': %d matches, first page in %.2fms%n", text, expected.size(), firstPageMicros / 1000.0);
+            check("'" + text + "' pages match brute force", complete && found.equals(window));
+        }
+    }
+
+    /**
+     * Every line that carries all the query keys and falls in its range, newest first.
+     */
+    private static List<String> bruteForce(List<String> lines, AuditQuery query) {
+        List<String> matches = new ArrayList<>();
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            String line = lines.get(i);
+            Instant ts = LogFileArchiver.timestampOf(line);
+            if (query.getFrom() != null && ts.isBefore(query.getFrom())) {
+                continue;
+            }
+            if (query.getTo() != null && !ts.isBefore(query.getTo())) {
+                continue;
+            }
+            Set<String> keys = new HashSet<>();
+            LogTokenizer.keys(line, keys::add);
+            if (keys.containsAll(query.getKeys())) {
+                matches.add(line);
+            }
+        }
+        return matches;
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
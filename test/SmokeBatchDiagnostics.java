@@ -0,0 +1,140 @@
+package core;
+
+import commands.securityhubcommands.BatchDiagnosticCommand;
+import commands.securityhubcommands.SystemDiagnosticCommand;
+import devices.api.Device;
+import devices.api.HardwareLink;
+import devices.impl.MotionDevice;
+import devices.impl.SmokeDevice;
+import devices.model.DeviceReading;
+import devices.model.DeviceStatus;
+import sim.SimulationEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Smoke test for batched diagnostics. Spreads a fleet over two gateways that charge a fixed
+ * round-trip time per call, and checks that a fleet check polls each gateway once per shard
+ * rather than once per device, that every device is covered, that only devices in armed zones
+ * are diagnosed, and that the simulator's batch path answers for every device. Compares the time against one diagnostic command per device.
+ * Headless; prints results to stdout.
+ */
+public class SmokeBatchDiagnostics {
+    private static final int DEVICES = 2_000;
+    private static final long ROUND_TRIP_NANOS = 200_000;
+    private static final int ZONED = 20;
+
+    public static void main(String[] args) {
+        // Diagnostics and resets report to the singleton hub
+        SecurityHub hub = SecurityHub.getInstance();
+        hub.armHub();
+        CountingGateway north = new CountingGateway();
+        CountingGateway south = new CountingGateway();
+        List<Device> fleet = new ArrayList<>();
+        for (int i = 0; i < DEVICES; i++) {
+            Device d = i % 2 == 0 ? new MotionDevice(hub.getLogger(), north) : new SmokeDevice(hub.getLogger(), south);
+            d.setDeviceStatus(DeviceStatus.OPERATIONAL);
+            hub.addDevice(d);
+            fleet.add(d);
+        }
+
+        long start = System.nanoTime();
+        hub.initiateFleetCheck();
+        hub.processAllCommands();
+        long batchedMillis = (System.nanoTime() - start) / 1_000_000;
+        long calls = north.calls.get() + south.calls.get();
+        long polled = north.devices.get() + south.devices.get();
+        System.out.printf("Batched fleet check: %d link calls for %d devices in %dms%n", calls, polled, batchedMillis);
+        check("at most one call per shard and link", calls <= 2L * hub.getShardCount());
+        check("every device polled", polled == DEVICES);
+
+        north.reset();
+        south.reset();
+        start = System.nanoTime();
+        for (Device d : fleet) {
+            hub.addCommand(new SystemDiagnosticCommand(d));
+        }
+        hub.processAllCommands();
+        long singleMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("Per-device diagnostics: %d link calls in %dms%n", north.calls.get() + south.calls.get(), singleMillis);
+
+        // Only the devices whose zones are armed are diagnosed, whichever comes first in the batch
+        List<Device> quiet = new ArrayList<>();
+        List<Device> mixed = new ArrayList<>();
+        for (int i = 0; i < ZONED; i++) {
+            Device d = fleet.get(2 * i); // On the north gateway
+            hub.getZones().assign(d.getId(), i < ZONED / 2 ? "quiet" : "watched");
+            (i < ZONED / 2 ? quiet : mixed).add(d);
+        }
+        mixed.addAll(0, quiet);
+        hub.disarmHub();
+        hub.armZone("watched");
+        north.reset();
+        hub.processCommand(new BatchDiagnosticCommand(north, mixed));
+        check("batch run with its armed devices only", north.devices.get() == ZONED / 2);
+        north.reset();
+        hub.processCommand(new BatchDiagnosticCommand(north, quiet));
+        check("batch of disarmed devices not run", north.calls.get() == 0);
+        north.reset();
+        hub.armZone("quiet");
+        hub.addCommand(new BatchDiagnosticCommand(north, mixed));
+        hub.disarmZone("quiet");
+        hub.processAllCommands();
+        check("queued batch loses devices disarmed meanwhile", north.devices.get() == ZONED / 2);
+        hub.armHub();
+
+        // The simulator's batch path
+        SimulationEngine simulation = new SimulationEngine(hub, hub.getLogger());
+        List<DeviceReading> readings = simulation.pollDevices(fleet);
+        int responsive = 0;
+        boolean aligned = readings.size() == fleet.size();
+        for (int i = 0; aligned && i < readings.size(); i++) {
+            aligned = readings.get(i).getDeviceId().equals(fleet.get(i).getId());
+            responsive += readings.get(i).isResponsive() ? 1 : 0;
+        }
+        System.out.println("Simulator batch: " + responsive + " of " + readings.size() + " responsive");
+        check("simulator answers every device in order", aligned && simulation.getBatchPolls() == 1);
+    }
+
+    /**
+     * A gateway whose every call, single or batched, costs one round trip.
+     */
+    private static final class CountingGateway implements HardwareLink {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong devices = new AtomicLong();
+
+        @Override
+        public boolean isDeviceResponsive(Device device) {
+            roundTrip(1);
+            return true;
+        }
+
+        @Override
+        public List<DeviceReading> pollDevices(List<Device> batch) {
+            roundTrip(batch.size());
+            List<DeviceReading> readings = new ArrayList<>(batch.size());
+            for (Device d : batch) {
+                readings.add(new DeviceReading(d.getId(), true, d.getBatteryLife(), d.getSignalStrength()));
+            }
+            return readings;
+        }
+
+        private void roundTrip(int deviceCount) {
+            calls.incrementAndGet();
+            devices.addAndGet(deviceCount);
+            LockSupport.parkNanos(ROUND_TRIP_NANOS);
+        }
+
+        void reset() {
+            calls.set(0);
+            devices.set(0);
+        }
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
@@ -0,0 +1,123 @@
+package service.device;
+
+import core.SecurityHub;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Smoke test for the streaming battery analytics. Feeds a simulated day of hourly readings for a
+ * large fleet with varied drain rates, times the per-update cost, and checks the incremental
+ * top-K against a brute-force sort of every forecast. Then repeats that with the readings coming
+ * from several threads at once. Headless; prints to stdout.
+ */
+public class SmokeBatteryAnalytics {
+    private static final int DEVICES = 100_000;
+    private static final int HOURS = 24;
+    private static final int K = 10;
+
+    public static void main(String[] args) {
+        SecurityHub hub = SecurityHub.getInstance();
+        BatteryAnalyticsService analytics = new BatteryAnalyticsService(hub, hub.getLogger(),
+                TimeUnit.HOURS.toMillis(2), TimeUnit.DAYS.toMillis(7));
+
+        Random random = new Random(42);
+        UUID[] ids = new UUID[DEVICES];
+        double[] drain = new double[DEVICES];
+        double[] level = new double[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            ids[i] = UUID.randomUUID();
+            drain[i] = random.nextDouble() < 0.01 ? 1 + random.nextDouble() * 2 : random.nextDouble() * 0.2;
+            level[i] = 50 + random.nextInt(51);
+        }
+
+        long hourNanos = TimeUnit.HOURS.toNanos(1);
+        long start = System.nanoTime();
+        for (int hour = 0; hour <= HOURS; hour++) {
+            for (int i = 0; i < DEVICES; i++) {
+                level[i] = Math.max(0, level[i] - drain[i]);
+                analytics.record(ids[i], (int) Math.round(level[i]), -60 - random.nextInt(10), hour * hourNanos);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%d updates: %.0f ns/update, tracked=%d, atRisk=%d%n",
+                (long) DEVICES * (HOURS + 1), (double) elapsed / ((long) DEVICES * (HOURS + 1)),
+                analytics.getTrackedDeviceCount(), analytics.getAtRiskCount());
+
+        List<DeviceForecast> top = analytics.getMostAtRisk(K);
+        int queries = 10_000;
+        start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            top = analytics.getMostAtRisk(K);
+        }
+        System.out.printf("top-%d query: %.0f ns%n", K, (double) (System.nanoTime() - start) / queries);
+
+        List<DeviceForecast> all = new ArrayList<>();
+        for (UUID id : ids) {
+            all.add(analytics.getForecast(id));
+        }
+        all.sort(Comparator.comparingDouble(DeviceForecast::getHoursToEmpty));
+        boolean matches = true;
+        for (int i = 0; i < K; i++) {
+            matches &= top.get(i).getHoursToEmpty() == all.get(i).getHoursToEmpty();
+        }
+        long bruteAtRisk = all.stream().filter(DeviceForecast::isAtRisk).count();
+        System.out.println("Top-K matches brute force: " + matches + ", at-risk count matches: " + (bruteAtRisk == analytics.getAtRiskCount()));
+        DeviceForecast worst = top.get(0);
+        System.out.printf("Most at risk: %.1f%% draining %.2f%%/h, empty in %.1f h%n",
+                worst.getBatteryLife(), worst.getDrainPercentPerHour(), worst.getHoursToEmpty());
+
+        // Another day of readings from several threads at once, as from the hub's shard workers
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        List<Thread> writers = new ArrayList<>(threads);
+        start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int from = DEVICES * t / threads;
+            int to = DEVICES * (t + 1) / threads;
+            Thread writer = new Thread(() -> {
+                Random signal = new Random(from);
+                for (int hour = HOURS + 1; hour <= 2 * HOURS; hour++) {
+                    for (int i = from; i < to; i++) {
+                        level[i] = Math.max(0, level[i] - drain[i]);
+                        analytics.record(ids[i], (int) Math.round(level[i]), -60 - signal.nextInt(10), hour * hourNanos);
+                    }
+                }
+            }, "analytics-writer-" + t);
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        elapsed = System.nanoTime() - start;
+        System.out.printf("%d updates from %d threads: %.0f ns/update%n",
+                (long) DEVICES * HOURS, threads, (double) elapsed / ((long) DEVICES * HOURS));
+        top = analytics.getMostAtRisk(K);
+        all.clear();
+        for (UUID id : ids) {
+            all.add(analytics.getForecast(id));
+        }
+        all.sort(Comparator.comparingDouble(DeviceForecast::getHoursToEmpty));
+        matches = top.size() == K;
+        for (int i = 0; matches && i < K; i++) {
+            matches = top.get(i).getHoursToEmpty() == all.get(i).getHoursToEmpty();
+        }
+        bruteAtRisk = all.stream().filter(DeviceForecast::isAtRisk).count();
+        System.out.println("After concurrent updates, top-K matches brute force: " + matches
+                + ", at-risk count matches: " + (bruteAtRisk == analytics.getAtRiskCount()));
+
+        for (int i = 0; i < DEVICES / 2; i++) {
+            analytics.remove(ids[i]);
+        }
+        System.out.println("After removing half: tracked=" + analytics.getTrackedDeviceCount() + " top=" + analytics.getMostAtRisk(K).size());
+    }
+}
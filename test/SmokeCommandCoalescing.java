@@ -0,0 +1,80 @@
+package core;
+
+import commands.securityhubcommands.BatchDiagnosticCommand;
+import commands.securityhubcommands.SystemDiagnosticCommand;
+import commands.securityhubcommands.SystemResetCommand;
+import devices.api.Device;
+import devices.impl.MotionDevice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Smoke test for command coalescing. Runs repeated fleet checks and checks that the queue holds
+ * one batched diagnostic per shard, that a reset supersedes a device's pending diagnostic and
+ * absorbs later ones, that a batch emptied by resets leaves the queue, that the coalesced count
+ * adds up, and that commands queue again once the pending ones ran.
+ * Headless; prints results to stdout.
+ */
+public class SmokeCommandCoalescing {
+    private static final int DEVICES = 2_000;
+    private static final int CHECKS = 50;
+    private static final int RESETS = 100;
+
+    public static void main(String[] args) {
+        // Reset commands report to the singleton hub
+        SecurityHub hub = SecurityHub.getInstance();
+        hub.armHub();
+        List<Device> fleet = new ArrayList<>();
+        for (int i = 0; i < DEVICES; i++) {
+            Device d = new MotionDevice(hub.getLogger(), x -> true);
+            hub.addDevice(d);
+            fleet.add(d);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < CHECKS; i++) {
+            hub.initiateFleetCheck();
+        }
+        System.out.printf("%d fleet checks over %d devices in %.1fms%n", CHECKS, DEVICES, (System.nanoTime() - start) / 1e6);
+        int shards = hub.getShardCount();
+        check("one batch per shard queued (" + hub.pendingCommandCount() + ")", hub.pendingCommandCount() == shards);
+        check("duplicates coalesced (" + hub.getCoalescedCommandCount() + ")",
+                hub.getCoalescedCommandCount() == (long) (CHECKS - 1) * DEVICES);
+
+        long before = hub.getCoalescedCommandCount();
+        int resetsQueued = 0;
+        for (int i = 0; i < RESETS; i++) {
+            if (hub.addCommand(new SystemResetCommand(fleet.get(i)))) {
+                resetsQueued++;
+            }
+        }
+        check("reset supersedes pending diagnostic", resetsQueued == RESETS && hub.pendingCommandCount() == shards + RESETS
+                && hub.getCoalescedCommandCount() == before + RESETS);
+        for (int i = 0; i < RESETS; i++) {
+            hub.addCommand(new SystemDiagnosticCommand(fleet.get(i)));
+            hub.addCommand(new SystemResetCommand(fleet.get(i)));
+        }
+        check("pending reset absorbs diagnostics and resets", hub.pendingCommandCount() == shards + RESETS
+                && hub.getCoalescedCommandCount() == before + 3L * RESETS);
+
+        // A reset for the only device of a pending batch leaves nothing of the batch to run
+        Device alone = new MotionDevice(hub.getLogger(), x -> true);
+        hub.addDevice(alone);
+        int pending = hub.pendingCommandCount();
+        hub.addCommand(new BatchDiagnosticCommand(alone.getHardwareLink(), List.of(alone)));
+        hub.addCommand(new SystemResetCommand(alone));
+        check("reset drops the batch it empties", hub.pendingCommandCount() == pending + 1);
+
+        hub.processAllCommands();
+        check("queue drained", hub.pendingCommandCount() == 0);
+        hub.removeDevice(alone);
+        hub.initiateFleetCheck();
+        check("commands queue again after running", hub.pendingCommandCount() == shards);
+        hub.processAllCommands();
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
@@ -0,0 +1,98 @@
+package infrastructure.repository;
+
+import core.SecurityHub;
+import devices.api.Device;
+import devices.impl.MotionDevice;
+import devices.impl.SmokeDevice;
+import devices.model.DeviceStatus;
+
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * Smoke test for the device checkpointer. Writes a fleet once, then changes a small fraction of
+ * it and checks that only those devices are written, that an idle checkpoint writes nothing,
+ * that removed devices are deleted, and that signal strength, failure counts and statuses
+ * survive a reload. Uses sentinel.db in the working directory. Headless; prints results to stdout.
+ */
+public class SmokeDeviceCheckpoint {
+    private static final int DEVICES = 5_000;
+    private static final int CHANGED = 50;
+    private static final int REMOVED = 10;
+
+    public static void main(String[] args) throws Exception {
+        SecurityHub hub = SecurityHub.getInstance();
+        try (Statement stmt = DatabaseManager.getInstance().getConnection().createStatement()) {
+            stmt.executeUpdate("DELETE FROM devices");
+        }
+        DeviceRepository repo = new DeviceRepository(hub.getLogger(), d -> true);
+        DeviceCheckpointer checkpointer = new DeviceCheckpointer(hub, repo, 60_000, hub.getLogger());
+        checkpointer.start();
+
+        List<Device> fleet = new ArrayList<>();
+        for (int i = 0; i < DEVICES; i++) {
+            Device d = i % 2 == 0 ? new MotionDevice(hub.getLogger(), x -> true) : new SmokeDevice(hub.getLogger(), x -> true);
+            hub.addDevice(d);
+            fleet.add(d);
+        }
+        long start = System.nanoTime();
+        int first = checkpointer.checkpoint();
+        System.out.printf("Initial checkpoint: %d devices in %.1fms%n", first, (System.nanoTime() - start) / 1e6);
+        check("whole fleet written once", first == DEVICES);
+
+        Random random = new Random(40);
+        Map<UUID, Device> changed = new HashMap<>();
+        while (changed.size() < CHANGED) {
+            Device d = fleet.get(random.nextInt(DEVICES));
+            d.setSignalStrength(-40 - random.nextInt(60));
+            d.setBatteryLife(random.nextInt(100));
+            d.incrementFailureCount();
+            d.incrementFailureCount();
+            d.setDeviceStatus(DeviceStatus.RECOVERY_MODE);
+            changed.put(d.getId(), d);
+        }
+        start = System.nanoTime();
+        int second = checkpointer.checkpoint();
+        System.out.printf("Churn checkpoint: %d devices in %.1fms%n", second, (System.nanoTime() - start) / 1e6);
+        check("only changed devices written", second == CHANGED);
+        check("idle checkpoint writes nothing", checkpointer.checkpoint() == 0);
+
+        Device unchanged = fleet.get(0);
+        unchanged.setBatteryLife(unchanged.getBatteryLife());
+        check("setting an equal value is not a change", checkpointer.checkpoint() == 0);
+
+        List<Device> removed = new ArrayList<>();
+        for (Device d : fleet) {
+            if (removed.size() < REMOVED && !changed.containsKey(d.getId())) {
+                hub.removeDevice(d);
+                removed.add(d);
+            }
+        }
+        check("removed devices deleted", checkpointer.checkpoint() == REMOVED);
+
+        Map<UUID, Device> stored = new HashMap<>();
+        for (Device d : repo.loadAll()) {
+            stored.put(d.getId(), d);
+        }
+        check("stored fleet size " + stored.size(), stored.size() == DEVICES - REMOVED);
+        boolean restored = true;
+        for (Device d : changed.values()) {
+            Device s = stored.get(d.getId());
+            restored &= s != null && s.getSignalStrength() == d.getSignalStrength()
+                    && s.getBatteryLife() == d.getBatteryLife()
+                    && s.getFailureCount() == d.getFailureCount()
+                    && s.getDeviceStatus() == d.getDeviceStatus();
+        }
+        check("signal, battery, failures and status restored", restored);
+
+        Device late = fleet.get(fleet.size() - 1);
+        late.setSignalStrength(-99);
+        checkpointer.stop();
+        check("stop writes the last changes", repo.findById(late.getId().toString()).getSignalStrength() == -99);
+        System.out.println("Checkpoints: " + checkpointer.getCheckpointCount() + ", device writes: " + checkpointer.getDevicesWritten());
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
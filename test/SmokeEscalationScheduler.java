@@ -0,0 +1,163 @@
+package core;
+
+import alarm.Alarm;
+import alarm.AlarmSeverity;
+import alarm.AlarmStatus;
+import devices.api.Device;
+import devices.impl.MotionDevice;
+import devices.model.DeviceStatus;
+import infrastructure.scheduling.HashedWheelTimer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Smoke test for the timing wheel and deadline-driven escalation. Schedules and cancels a million
+ * timeouts to time the O(1) paths, then runs a small fleet where some devices stop answering and
+ * checks they walk the escalation ladder to DECOMMISSIONED while an unresolved alarm escalates
+ * to CRITICAL, with none of the ladder's commands left queued. Then checks that the ladder's
+ * reset step actually runs, and that a device still not answering after it is decommissioned
+ * while one that answers again is kept. Headless; prints to stdout.
+ */
+public class SmokeEscalationScheduler {
+    private static final int TIMEOUTS = 1_000_000;
+    private static final int DEVICES = 200;
+    private static final int RESET_AT = 4; // The failure that resets a device, as in HubShard
+
+    public static void main(String[] args) throws Exception {
+        // Scale the ping circuit backoff down with the check intervals below
+        System.setProperty("sentinel.ping.backoffMs", "100");
+        timerThroughput();
+        escalation();
+        ladderReset();
+    }
+
+    private static void timerThroughput() throws InterruptedException {
+        SecurityHub hub = new SecurityHub(1);
+        HashedWheelTimer timer = new HashedWheelTimer("smoke-timer", 10, TimeUnit.MILLISECONDS, 512, hub.getLogger());
+        timer.start();
+        AtomicLong fired = new AtomicLong();
+
+        List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>(TIMEOUTS);
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMEOUTS; i++) {
+            timeouts.add(timer.schedule(fired::incrementAndGet, 3_000 + i % 1_000, TimeUnit.MILLISECONDS));
+        }
+        long scheduleNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < TIMEOUTS; i += 2) {
+            timeouts.get(i).cancel();
+        }
+        long cancelNanos = System.nanoTime() - start;
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (timer.pendingTimeouts() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        System.out.printf("schedule: %.0f ns/op  cancel: %.0f ns/op  fired=%d (expected %d) pending=%d%n",
+                (double) scheduleNanos / TIMEOUTS, (double) cancelNanos / (TIMEOUTS / 2),
+                fired.get(), TIMEOUTS / 2, timer.pendingTimeouts());
+        timer.stop();
+    }
+
+    private static void escalation() throws InterruptedException {
+        SecurityHub hub = new SecurityHub(2);
+        Set<UUID> unresponsive = ConcurrentHashMap.newKeySet();
+        List<Device> fleet = new ArrayList<>();
+        for (int i = 0; i < DEVICES; i++) {
+            Device d = new MotionDevice(hub.getLogger(), device -> !unresponsive.contains(device.getId()));
+            fleet.add(d);
+            hub.addDevice(d);
+            if (i % 10 == 0) {
+                unresponsive.add(d.getId());
+            }
+        }
+        hub.armHub();
+
+        Device alarmed = fleet.get(1);
+        hub.registerAlarm(new Alarm(alarmed.getDeviceType(), alarmed.getId(), AlarmStatus.ACTIVE, AlarmSeverity.LOW, LocalDateTime.now()));
+
+        HashedWheelTimer timer = new HashedWheelTimer("smoke-escalation", 10, TimeUnit.MILLISECONDS, 256, hub.getLogger());
+        EscalationScheduler scheduler = new EscalationScheduler(hub, timer, 200, 50, 100);
+        scheduler.start();
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (hub.deviceCount() > DEVICES - unresponsive.size() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(300);
+
+        long decommissioned = fleet.stream().filter(d -> d.getDeviceStatus() == DeviceStatus.DECOMMISSIONED).count();
+        System.out.println("Devices left=" + hub.deviceCount() + " decommissioned=" + decommissioned
+                + " (expected " + unresponsive.size() + ") tracked=" + scheduler.trackedDevices());
+        System.out.println("Alarm severity after escalation: " + hub.findActiveAlarm(alarmed.getId()).getSeverity());
+        check("ladder commands ran rather than piling up (" + hub.pendingCommandCount() + " queued)",
+                hub.pendingCommandCount() == 0);
+
+        hub.resolveAlarmsByDevice(alarmed);
+        System.out.println("Tracked alarms after resolve: " + scheduler.trackedAlarms());
+        scheduler.stop();
+        timer.stop();
+    }
+
+    private static void ladderReset() throws Exception {
+        SecurityHub hub = new SecurityHub(1);
+        AtomicBoolean answering = new AtomicBoolean();
+        Device dead = new MotionDevice(hub.getLogger(), device -> false);
+        Device flaky = new MotionDevice(hub.getLogger(), device -> answering.get());
+        hub.addDevice(dead);
+        hub.addDevice(flaky);
+        hub.armHub();
+        hub.registerAlarm(new Alarm(dead.getDeviceType(), dead.getId(), AlarmStatus.ACTIVE, AlarmSeverity.LOW, LocalDateTime.now()));
+
+        pingUntilFailures(hub, dead, RESET_AT);
+        awaitStatus(dead, DeviceStatus.OPERATIONAL);
+        check("device reset at the reset step", dead.getDeviceStatus() == DeviceStatus.OPERATIONAL
+                && hub.findActiveAlarm(dead.getId()) == null && dead.getFailureCount() == RESET_AT);
+        pingUntilFailures(hub, dead, RESET_AT + 1);
+        check("device still not answering after the reset decommissioned",
+                dead.getDeviceStatus() == DeviceStatus.DECOMMISSIONED && !hub.containsDevice(dead));
+
+        pingUntilFailures(hub, flaky, RESET_AT);
+        awaitStatus(flaky, DeviceStatus.OPERATIONAL);
+        answering.set(true);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (flaky.getFailureCount() > 0 && System.currentTimeMillis() < deadline) {
+            hub.checkDeviceLiveness(flaky).get();
+            Thread.sleep(20);
+        }
+        check("device answering after the reset kept", flaky.getFailureCount() == 0
+                && flaky.getDeviceStatus() == DeviceStatus.OPERATIONAL && hub.containsDevice(flaky));
+    }
+
+    /**
+     * Pings the device until it has failed {@code failures} times; pings the open circuit skips
+     * do not count, so this waits out the backoff.
+     */
+    private static void pingUntilFailures(SecurityHub hub, Device device, int failures) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (device.getFailureCount() < failures && System.currentTimeMillis() < deadline) {
+            hub.checkDeviceLiveness(device).get();
+            Thread.sleep(20);
+        }
+    }
+
+    private static void awaitStatus(Device device, DeviceStatus status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (device.getDeviceStatus() != status && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
@@ -0,0 +1,98 @@
+package infrastructure.gateway;
+
+import alarm.AlarmSeverity;
+import core.SecurityHub;
+import devices.api.Device;
+import devices.impl.MotionDevice;
+import sim.DeviceEmulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Smoke test for the NIO heartbeat gateway. Registers a large fleet, pushes one round of
+ * heartbeats/telemetry over UDP and one over TCP from the local device emulator, checks that
+ * every device is reported responsive, raises an acknowledged alarm, raises another after the
+ * device restarts its alarm numbering, and times the freshness check. Headless.
+ */
+public class SmokeHeartbeatGateway {
+    private static final int DEVICES = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        // A hub of its own, so the alarm must land on the gateway's hub rather than the shared one
+        SecurityHub hub = SecurityHub.createDetached(4);
+        HeartbeatGateway gateway = new HeartbeatGateway(hub, 0, 5_000, hub.getLogger());
+
+        List<Device> fleet = new ArrayList<>(DEVICES);
+        List<UUID> ids = new ArrayList<>(DEVICES);
+        for (int i = 0; i < DEVICES; i++) {
+            Device d = new MotionDevice(hub.getLogger(), gateway);
+            fleet.add(d);
+            ids.add(d.getId());
+            gateway.register(d);
+        }
+        hub.armHub();
+        gateway.start();
+
+        System.out.println("Responsive before any heartbeat: " + countResponsive(gateway, fleet));
+
+        DeviceEmulator emulator = new DeviceEmulator("localhost", gateway.getPort(), ids, 1_000, 0.25);
+        long start = System.nanoTime();
+        emulator.sendRound();
+        waitForMessages(gateway, DEVICES);
+        System.out.printf("UDP round: %d messages in %dms, responsive=%d%n", gateway.getReceivedMessages(),
+                (System.nanoTime() - start) / 1_000_000, countResponsive(gateway, fleet));
+
+        start = System.nanoTime();
+        emulator.sendRoundOverTcp();
+        waitForMessages(gateway, 2L * DEVICES);
+        System.out.printf("TCP round: %d messages total in %dms%n", gateway.getReceivedMessages(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        boolean acked = emulator.sendAlarm(ids.get(0), AlarmSeverity.HIGH, 5);
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (hub.findActiveAlarm(ids.get(0)) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        System.out.println("Alarm acknowledged=" + acked + " raised=" + (hub.findActiveAlarm(ids.get(0)) != null)
+                + " rejectedFrames=" + gateway.getRejectedFrames());
+
+        // A rebooted device numbers its alarms from the start again; its next alarm is still new
+        hub.resolveAlarm(hub.findActiveAlarm(ids.get(0)));
+        emulator.restart();
+        Thread.sleep(2);
+        boolean ackedAfterRestart = emulator.sendAlarm(ids.get(0), AlarmSeverity.HIGH, 5);
+        deadline = System.currentTimeMillis() + 2_000;
+        while (hub.findActiveAlarm(ids.get(0)) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        System.out.println("Alarm after device restart acknowledged=" + ackedAfterRestart
+                + " raised=" + (hub.findActiveAlarm(ids.get(0)) != null));
+
+        int rounds = 50;
+        long checkStart = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            countResponsive(gateway, fleet);
+        }
+        double nanosPerCheck = (double) (System.nanoTime() - checkStart) / ((long) rounds * DEVICES);
+        System.out.printf("isDeviceResponsive: %.1f ns/check%n", nanosPerCheck);
+
+        gateway.stop();
+    }
+
+    private static int countResponsive(HeartbeatGateway gateway, List<Device> fleet) {
+        int responsive = 0;
+        for (Device d : fleet) {
+            if (gateway.isDeviceResponsive(d)) responsive++;
+        }
+        return responsive;
+    }
+
+    private static void waitForMessages(HeartbeatGateway gateway, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (gateway.getReceivedMessages() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package core;
+
+import devices.api.Device;
+import devices.impl.MotionDevice;
+import infrastructure.logger.ConsoleLogger;
+import infrastructure.logger.Logger;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Smoke test for the hub event stream. Checks in-order delivery, that a subscriber gets exactly
+ * the demand it signals, that a stalled subscriber costs the publishing thread nothing and
+ * loses only its oldest events, that conflation leaves the newest state per device, that
+ * DISCONNECT and an invalid request end the subscription with onError, type filtering, and that
+ * the hub publishes its own changes. Headless; prints results to stdout.
+ */
+public class SmokeHubEventStream {
+    private static final int BURST = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        Logger logger = new ConsoleLogger();
+        Device device = new MotionDevice(logger, d -> true);
+
+        HubEventStream stream = new HubEventStream(logger);
+        Collector all = new Collector(Long.MAX_VALUE);
+        stream.subscribe(all);
+        for (int i = 0; i < 1_000; i++) {
+            stream.onTelemetryUpdated(device);
+        }
+        all.await(1_000);
+        check("all events delivered", all.events().size() == 1_000);
+        check("delivered in publish order", ascending(all.events()));
+        all.subscription.cancel();
+
+        stream = new HubEventStream(logger);
+        Collector five = new Collector(5);
+        stream.subscribe(five);
+        for (int i = 0; i < 20; i++) {
+            stream.onTelemetryUpdated(device);
+        }
+        Thread.sleep(200);
+        check("exactly the requested 5 delivered", five.events().size() == 5);
+
+        // A subscriber that asks for nothing while a burst goes by
+        stream = new HubEventStream(logger);
+        Collector stalled = new Collector(0);
+        stream.subscribe(stalled, 64, OverflowStrategy.DROP_OLDEST, EnumSet.allOf(HubEventType.class));
+        long start = System.nanoTime();
+        for (int i = 0; i < BURST; i++) {
+            stream.onTelemetryUpdated(device);
+        }
+        long publishMillis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("Published %d events past a stalled subscriber in %dms%n", BURST, publishMillis);
+        check("publishing did not wait for the subscriber", publishMillis < 2_000);
+        check("overflow counted as dropped", stream.getDropped() == BURST - 64);
+        stalled.awaitSubscribed();
+        stalled.subscription.request(Long.MAX_VALUE);
+        stalled.await(64);
+        List<HubEvent> kept = stalled.events();
+        check("newest 64 events kept", kept.size() == 64 && kept.get(63).getSequence() == BURST
+                && kept.get(0).getSequence() == BURST - 63);
+
+        stream = new HubEventStream(logger);
+        Collector conflating = new Collector(0);
+        stream.subscribe(conflating, 64, OverflowStrategy.CONFLATE, EnumSet.allOf(HubEventType.class));
+        List<Device> fleet = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            fleet.add(new MotionDevice(logger, d -> true));
+        }
+        for (int battery = 0; battery <= 100; battery++) {
+            for (Device d : fleet) {
+                d.setBatteryLife(battery);
+                stream.onTelemetryUpdated(d);
+            }
+        }
+        conflating.awaitSubscribed();
+        conflating.subscription.request(Long.MAX_VALUE);
+        conflating.await(10);
+        Thread.sleep(100);
+        boolean latest = conflating.events().size() == 10;
+        for (HubEvent e : conflating.events()) {
+            latest &= e.getDeviceState().getBatteryLife() == 100;
+        }
+        check("conflation left one event per device with its final state", latest);
+        check("nothing dropped while conflating", stream.getDropped() == 0);
+
+        stream = new HubEventStream(logger);
+        Collector disconnected = new Collector(0);
+        stream.subscribe(disconnected, 8, OverflowStrategy.DISCONNECT, EnumSet.allOf(HubEventType.class));
+        for (int i = 0; i < 9; i++) {
+            stream.onTelemetryUpdated(device);
+        }
+        check("overflow disconnects with onError", disconnected.errored.await(1, TimeUnit.SECONDS));
+        check("disconnected subscriber removed", stream.getSubscriberCount() == 0);
+
+        stream = new HubEventStream(logger);
+        Collector modes = new Collector(Long.MAX_VALUE);
+        stream.subscribe(modes, 64, OverflowStrategy.DROP_OLDEST, EnumSet.of(HubEventType.MODE_CHANGED));
+        stream.onTelemetryUpdated(device);
+        stream.onModeChanged(HubStatus.ARMED);
+        modes.await(1);
+        Thread.sleep(100);
+        check("type filter applied", modes.events().size() == 1
+                && modes.events().get(0).getMode() == HubStatus.ARMED);
+
+        stream = new HubEventStream(logger);
+        Collector invalid = new Collector(0);
+        stream.subscribe(invalid);
+        invalid.awaitSubscribed();
+        invalid.subscription.request(0);
+        check("request(0) signals onError", invalid.errored.await(1, TimeUnit.SECONDS)
+                && invalid.error instanceof IllegalArgumentException);
+
+        SecurityHub hub = new SecurityHub(2);
+        Collector hubEvents = new Collector(Long.MAX_VALUE);
+        hub.getEvents().subscribe(hubEvents);
+        hubEvents.awaitSubscribed();
+        hub.addDevice(device);
+        hub.reportTelemetry(device);
+        hubEvents.await(2);
+        List<HubEvent> seen = hubEvents.events();
+        check("hub publishes its changes", seen.size() == 2
+                && seen.get(0).getType() == HubEventType.DEVICE_ADDED
+                && seen.get(1).getType() == HubEventType.TELEMETRY_UPDATED
+                && device.getId().equals(seen.get(1).getDeviceId()));
+    }
+
+    private static boolean ascending(List<HubEvent> events) {
+        for (int i = 1; i < events.size(); i++) {
+            if (events.get(i).getSequence() != events.get(i - 1).getSequence() + 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Collector implements Flow.Subscriber<HubEvent> {
+        private final long initialDemand;
+        private final List<HubEvent> received = new ArrayList<>();
+        private final CountDownLatch subscribed = new CountDownLatch(1);
+        private final CountDownLatch errored = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        Collector(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+            subscribed.countDown();
+        }
+
+        @Override
+        public synchronized void onNext(HubEvent item) {
+            received.add(item);
+            notifyAll();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            errored.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        synchronized List<HubEvent> events() {
+            return new ArrayList<>(received);
+        }
+
+        void awaitSubscribed() throws InterruptedException {
+            subscribed.await(1, TimeUnit.SECONDS);
+        }
+
+        synchronized void await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 2_000;
+            while (received.size() < count && System.currentTimeMillis() < deadline) {
+                wait(50);
+            }
+        }
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
@@ -0,0 +1,167 @@
+package infrastructure.subscribers;
+
+import alarm.AlarmSeverity;
+import core.SecurityHub;
+import devices.api.Device;
+import devices.impl.GlassBreakSensorDevice;
+import devices.impl.MotionDevice;
+import devices.impl.SmokeDevice;
+import devices.impl.ThermalDevice;
+import devices.model.DeviceType;
+import infrastructure.logger.ConsoleLogger;
+import infrastructure.logger.Logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Smoke test for topic-based notification routing. Checks that one subscription covers a whole
+ * fleet, that type, zone and severity topics only see what they match, that a subscriber on
+ * several matching topics hears a message once, and that per-device subscriptions still work
+ * through the device API. Checks that hubs keep their subscriptions and zones apart. Measures
+ * fan-out cost on a 10k device fleet. Headless; prints results to stdout.
+ */
+public class SmokeNotificationBroker {
+    private static final int DEVICES = 10_000;
+    private static final int ROUNDS = 50;
+
+    public static void main(String[] args) {
+        Logger logger = new ConsoleLogger();
+        List<Device> fleet = new ArrayList<>();
+        for (int i = 0; i < DEVICES; i++) {
+            fleet.add(switch (i % 4) {
+                case 0 -> new MotionDevice(logger, d -> true);
+                case 1 -> new SmokeDevice(logger, d -> true);
+                case 2 -> new ThermalDevice(logger, d -> true);
+                default -> new GlassBreakSensorDevice(logger, d -> true);
+            });
+        }
+        // Every other device is in zone 1 as well as the default zone
+        UUID[] ids = fleet.stream().map(Device::getId).toArray(UUID[]::new);
+        Set<UUID> inZoneOne = new HashSet<>();
+        for (int i = 0; i < ids.length; i += 2) {
+            inZoneOne.add(ids[i]);
+        }
+
+        NotificationBroker broker = new NotificationBroker();
+        broker.setZoneResolver(id -> inZoneOne.contains(id) ? 0b11L : 0b01L);
+        Counter police = new Counter();
+        Counter smokeTeam = new Counter();
+        Counter zoneOne = new Counter();
+        Counter critical = new Counter();
+        broker.subscribe(NotificationTopic.all(), police);
+        broker.subscribe(NotificationTopic.deviceType(DeviceType.SMOKE_DEVICE), police);
+        broker.subscribe(NotificationTopic.deviceType(DeviceType.SMOKE_DEVICE), smokeTeam);
+        broker.subscribe(NotificationTopic.zone(1), zoneOne);
+        broker.subscribe(NotificationTopic.severity(AlarmSeverity.HIGH), critical);
+        check("subscriptions independent of fleet size", broker.getSubscriptionCount() == 5);
+
+        for (Device d : fleet) {
+            broker.publish(d, null, "status");
+        }
+        check("all topic reached every device once", police.count.get() == DEVICES);
+        check("type topic saw only its type", smokeTeam.count.get() == DEVICES / 4);
+        check("zone topic saw only its zone", zoneOne.count.get() == inZoneOne.size());
+        check("severity topic ignored non-alarm messages", critical.count.get() == 0);
+
+        Device smoke = fleet.get(1);
+        broker.publish(smoke, AlarmSeverity.MEDIUM, "medium alarm");
+        broker.publish(smoke, AlarmSeverity.CRITICAL, "critical alarm");
+        check("severity topic took HIGH and above only", critical.count.get() == 1);
+        check("route cache small", broker.getCachedRouteCount() <= 4 * 2 * 3);
+
+        broker.unsubscribe(NotificationTopic.all(), police);
+        police.count.set(0);
+        broker.publish(fleet.get(0), null, "motion");
+        broker.publish(smoke, null, "smoke");
+        check("unsubscribe takes effect", police.count.get() == 1);
+
+        // The device API goes through the default broker
+        Counter direct = new Counter();
+        Device motion = fleet.get(0);
+        motion.addSubscriber(direct);
+        motion.updateAllSubscribers("direct");
+        fleet.get(4).updateAllSubscribers("other device");
+        check("device subscription sees its device only", direct.count.get() == 1);
+        check("device lists its subscriber", motion.getSubscribers().contains(direct));
+        motion.removeSubscriber(direct);
+        motion.updateAllSubscribers("after removal");
+        check("device unsubscribe takes effect", direct.count.get() == 1);
+
+        // Each hub has a broker of its own, with zone topics resolved against its own zones
+        SecurityHub first = SecurityHub.createDetached(1);
+        SecurityHub second = SecurityHub.createDetached(1);
+        Counter firstAll = new Counter();
+        Counter secondAll = new Counter();
+        Counter firstZone = new Counter();
+        Counter ownSubscriber = new Counter();
+        first.getNotifications().subscribe(NotificationTopic.all(), firstAll);
+        second.getNotifications().subscribe(NotificationTopic.all(), secondAll);
+        int zone = first.getZones().defineZone("lobby");
+        first.getNotifications().subscribe(NotificationTopic.zone(zone), firstZone);
+        Device inFirst = new MotionDevice(logger, d -> true);
+        Device inSecond = new SmokeDevice(logger, d -> true);
+        inFirst.addSubscriber(ownSubscriber);
+        first.addDevice(inFirst);
+        second.addDevice(inSecond);
+        first.getZones().assign(inFirst.getId(), "lobby");
+        second.getZones().defineZone("lobby");
+        second.getZones().assign(inSecond.getId(), "lobby");
+        inFirst.updateAllSubscribers("first hub", AlarmSeverity.HIGH);
+        inSecond.updateAllSubscribers("second hub", AlarmSeverity.HIGH);
+        check("hubs do not share subscriptions", firstAll.count.get() == 1 && secondAll.count.get() == 1
+                && NotificationBroker.getDefault().recipients(inFirst, AlarmSeverity.HIGH).isEmpty());
+        check("zone topic resolved on its own hub", firstZone.count.get() == 1);
+        check("device subscription follows the device to its hub", ownSubscriber.count.get() == 1
+                && first.getNotifications().recipients(inFirst, null).contains(ownSubscriber));
+
+        NotificationBroker wide = new NotificationBroker();
+        Counter everyone = new Counter();
+        wide.subscribe(NotificationTopic.all(), everyone);
+        wide.subscribe(NotificationTopic.severity(AlarmSeverity.LOW), everyone);
+        for (DeviceType type : DeviceType.values()) {
+            wide.subscribe(NotificationTopic.deviceType(type), new Counter());
+        }
+        long start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            for (Device d : fleet) {
+                wide.publish(d, AlarmSeverity.HIGH, "alarm");
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Fan-out: %.0f ns per notification over %d devices%n", (double) elapsed / (ROUNDS * DEVICES), DEVICES);
+        check("subscriber on overlapping topics notified once", everyone.count.get() == ROUNDS * DEVICES);
+    }
+
+    private static final class Counter implements Subscriber {
+        final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void receiveUpdate(String update) {
+            count.incrementAndGet();
+        }
+
+        @Override
+        public int getId() {
+            return System.identityHashCode(this);
+        }
+
+        @Override
+        public SubscriberStatus getSubscriberStatus() {
+            return SubscriberStatus.ACTIVE;
+        }
+
+        @Override
+        public SubscriberType getSubscriberType() {
+            return SubscriberType.SECURITY_TEAM_PHONE_APP_ALARM;
+        }
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
@@ -0,0 +1,136 @@
+package core;
+
+import devices.api.Device;
+import devices.api.HardwareLink;
+import devices.impl.MotionDevice;
+import devices.impl.PingCircuitBreaker;
+import devices.model.CircuitState;
+import devices.model.DeviceStatus;
+import devices.model.PingResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Smoke test for ping circuit breakers. Checks the breaker's transitions and backoff doubling,
+ * then runs repeated health sweeps over a fleet with some dead devices and checks that the dead
+ * ones are pinged only until their circuit opens, are probed once per backoff, still walk the
+ * escalation ladder to decommissioning, and that an open circuit answers an async ping without
+ * touching the link. Headless; prints results to stdout.
+ */
+public class SmokePingCircuitBreaker {
+    private static final int DEVICES = 1_000;
+    private static final int DEAD = 100;
+    private static final int SWEEPS = 20;
+    private static final long BACKOFF_MS = 400;
+
+    public static void main(String[] args) throws Exception {
+        // Read when the first breaker is created
+        System.setProperty("sentinel.ping.backoffMs", String.valueOf(BACKOFF_MS));
+
+        checkBreakerTransitions();
+
+        SecurityHub hub = SecurityHub.getInstance();
+        CountingLink link = new CountingLink();
+        List<Device> dead = new ArrayList<>();
+        for (int i = 0; i < DEVICES; i++) {
+            Device d = new MotionDevice(hub.getLogger(), link);
+            d.setDeviceStatus(DeviceStatus.OPERATIONAL);
+            hub.addDevice(d);
+            if (i < DEAD) {
+                link.dead.add(d.getId());
+                dead.add(d);
+            }
+        }
+
+        for (int i = 0; i < SWEEPS; i++) {
+            hub.monitorAndHandleDeviceHealth();
+        }
+        System.out.printf("%d sweeps: %d pings to dead devices (%d without breakers), %d to live ones%n",
+                SWEEPS, link.deadPings.get(), (long) SWEEPS * DEAD, link.livePings.get());
+        check("dead devices pinged only until their circuit opened", link.deadPings.get() == (long) PingCircuitBreaker.FAILURE_THRESHOLD * DEAD);
+        check("live devices pinged every sweep", link.livePings.get() == (long) SWEEPS * (DEVICES - DEAD));
+        check("circuits open for dead devices", hub.getOpenCircuitCount() == DEAD);
+        check("dead devices in recovery mode", dead.stream().allMatch(d -> d.getDeviceStatus() == DeviceStatus.RECOVERY_MODE));
+
+        // First probe after the backoff: failure 4 queues a reset
+        Thread.sleep(BACKOFF_MS + 100);
+        link.deadPings.set(0);
+        hub.monitorAndHandleDeviceHealth();
+        hub.monitorAndHandleDeviceHealth();
+        check("one probe per dead device after backoff", link.deadPings.get() == DEAD);
+
+        // The failed probe doubled the backoff
+        Thread.sleep(BACKOFF_MS + 100);
+        hub.monitorAndHandleDeviceHealth();
+        check("no probe before the doubled backoff", link.deadPings.get() == DEAD);
+        Thread.sleep(BACKOFF_MS);
+        hub.monitorAndHandleDeviceHealth();
+        check("failed probes still reach decommissioning", hub.deviceCount() == DEVICES - DEAD
+                && dead.stream().allMatch(d -> d.getDeviceStatus() == DeviceStatus.DECOMMISSIONED));
+
+        // Async pings
+        Device live = hub.getDevices().get(0);
+        PingResult result = live.pingAsync().get();
+        check("async ping answers with latency", result.isResponsive() && !result.isSkipped() && result.getLatencyNanos() > 0);
+
+        Device flaky = new MotionDevice(hub.getLogger(), link);
+        flaky.setDeviceStatus(DeviceStatus.OPERATIONAL);
+        link.dead.add(flaky.getId());
+        for (int i = 0; i < PingCircuitBreaker.FAILURE_THRESHOLD; i++) {
+            flaky.pingAsync().get();
+        }
+        long before = link.deadPings.get();
+        result = flaky.pingAsync().get();
+        check("open circuit skips the link", result.isSkipped() && link.deadPings.get() == before
+                && flaky.getCircuitState() == CircuitState.OPEN);
+        flaky.resetFailureCount();
+        link.dead.remove(flaky.getId());
+        check("reset closes the circuit", flaky.getCircuitState() == CircuitState.CLOSED && flaky.ping());
+    }
+
+    private static void checkBreakerTransitions() {
+        long ms = 1_000_000;
+        PingCircuitBreaker breaker = new PingCircuitBreaker(3, 100 * ms, 300 * ms);
+        boolean opened = false;
+        for (int i = 0; i < 3; i++) {
+            opened = breaker.tryAcquire(0) && breaker.recordFailure(0);
+        }
+        check("opens on the third failure", opened && breaker.getState() == CircuitState.OPEN);
+        check("skips during backoff", !breaker.tryAcquire(99 * ms));
+        check("lets one probe through", breaker.tryAcquire(100 * ms) && breaker.getState() == CircuitState.HALF_OPEN
+                && !breaker.tryAcquire(101 * ms));
+        breaker.recordFailure(110 * ms);
+        check("failed probe doubles the backoff", breaker.getBackoffNanos() == 200 * ms
+                && !breaker.tryAcquire(309 * ms) && breaker.tryAcquire(310 * ms));
+        breaker.recordFailure(310 * ms);
+        check("backoff capped", breaker.getBackoffNanos() == 300 * ms);
+        check("lost probe given up after the backoff", breaker.tryAcquire(610 * ms) && breaker.tryAcquire(910 * ms));
+        check("successful probe closes", breaker.recordSuccess() && breaker.getState() == CircuitState.CLOSED
+                && breaker.getBackoffNanos() == 100 * ms);
+    }
+
+    private static final class CountingLink implements HardwareLink {
+        final Set<UUID> dead = ConcurrentHashMap.newKeySet();
+        final AtomicLong deadPings = new AtomicLong();
+        final AtomicLong livePings = new AtomicLong();
+
+        @Override
+        public boolean isDeviceResponsive(Device device) {
+            if (dead.contains(device.getId())) {
+                deadPings.incrementAndGet();
+                return false;
+            }
+            livePings.incrementAndGet();
+            return true;
+        }
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
@@ -0,0 +1,128 @@
+package core;
+
+import alarm.Alarm;
+import alarm.AlarmSeverity;
+import alarm.AlarmStatus;
+import devices.api.Device;
+import devices.impl.MotionDevice;
+import infrastructure.replication.ReplicationPublisher;
+import infrastructure.replication.ReplicationReceiver;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loopback smoke test for primary/standby replication with two hub instances in one JVM.
+ * Replicates a fleet snapshot, streams a burst of alarms, reports throughput and lag, checks that
+ * zone memberships and arming reach the standby so that it admits the same devices, and that alarm
+ * resolutions reach it whatever its own zones say, then stops the primary and waits for the
+ * standby to take over. Headless; prints to stdout.
+ */
+public class SmokeReplication {
+    private static final int DEVICES = 1_000;
+    private static final int ALARMS = 50_000;
+    private static final int ZONED = 10;
+
+    public static void main(String[] args) throws Exception {
+        SecurityHub primary = new SecurityHub(2);
+        SecurityHub standby = new SecurityHub(2);
+        for (int i = 0; i < DEVICES; i++) {
+            primary.addDevice(new MotionDevice(primary.getLogger(), d -> true));
+        }
+        primary.armHub();
+
+        // Zone memberships made before the standby connects travel in the snapshot, which also
+        // clears memberships the standby had that the primary does not
+        List<Device> vault = primary.getDevices().subList(1, 1 + ZONED);
+        for (Device d : vault) {
+            primary.getZones().assign(d.getId(), "vault");
+        }
+        standby.getZones().assign(vault.get(0).getId(), "stale");
+
+        ReplicationPublisher publisher = new ReplicationPublisher(primary, 0, primary.getLogger());
+        publisher.start();
+
+        CountDownLatch takeover = new CountDownLatch(1);
+        ReplicationReceiver receiver = new ReplicationReceiver(standby, d -> true, null, standby.getLogger(),
+                "localhost", publisher.getPort(), 1_500, takeover::countDown);
+        receiver.start();
+
+        waitFor(() -> standby.deviceCount() == DEVICES, 5_000);
+        System.out.println("Snapshot replicated: standby has " + standby.deviceCount() + " devices, mode " + standby.currentMode());
+        waitFor(() -> standby.getZones().getZoneNames(vault.get(ZONED - 1).getId()).equals(List.of("vault")), 5_000);
+        check("zone memberships in the snapshot", sameZones(primary, standby, vault));
+
+        List<Device> fleet = primary.getDevices();
+        long appliedBefore = receiver.getAppliedEvents();
+        long start = System.nanoTime();
+        for (int i = 0; i < ALARMS; i++) {
+            Device d = fleet.get(i % fleet.size());
+            primary.registerAlarm(new Alarm(d.getDeviceType(), d.getId(), AlarmStatus.ACTIVE, AlarmSeverity.HIGH, LocalDateTime.now()));
+        }
+        waitFor(() -> receiver.getAppliedEvents() - appliedBefore >= ALARMS, 30_000);
+        long elapsedNanos = System.nanoTime() - start;
+
+        System.out.printf("Replicated %d alarms in %dms (%.0f events/s) over %d batches%n",
+                ALARMS, elapsedNanos / 1_000_000, ALARMS / (elapsedNanos / 1e9), receiver.getReceivedBatches());
+        System.out.printf("Lag: mean=%.0fus max=%dus%n", receiver.getMeanLagMicros(), receiver.getMaxLagMicros());
+        System.out.println("Active alarms primary=" + primary.numActiveAlarms() + " standby=" + standby.numActiveAlarms());
+
+        // Memberships changed while streaming follow, so both hubs admit the same devices
+        Device lobbyDoor = vault.get(1);
+        primary.getZones().assign(lobbyDoor.getId(), "lobby");
+        primary.getZones().unassign(lobbyDoor.getId(), "vault");
+        primary.getZones().assign(fleet.get(DEVICES - 1).getId(), "lobby");
+        primary.disarmHub();
+        primary.armZone("lobby");
+        waitFor(() -> standby.isArmedFor(lobbyDoor.getId()), 5_000);
+        boolean sameAdmission = true;
+        for (Device d : fleet) {
+            sameAdmission &= primary.isArmedFor(d.getId()) == standby.isArmedFor(d.getId());
+        }
+        check("zone assignments replicated", sameZones(primary, standby, fleet));
+        check("standby admits the same devices as the primary", sameAdmission);
+
+        // The standby puts this device in a zone the primary then disarms; the primary resolves
+        // its alarm from the default zone, which stays armed
+        Device garageDoor = fleet.get(0);
+        standby.getZones().assign(garageDoor.getId(), "garage");
+        primary.getZones().defineZone("garage");
+        primary.armHub();
+        waitFor(() -> standby.getZones().getArmedZoneNames().contains("garage"), 5_000);
+        primary.disarmZone("garage");
+        waitFor(() -> !standby.getZones().getArmedZoneNames().contains("garage"), 5_000);
+        check("zone disarm replicated", standby.getZones().getArmedZoneNames().equals(primary.getZones().getArmedZoneNames())
+                && !standby.isArmedFor(garageDoor.getId()));
+        primary.resolveAlarmsByDevice(garageDoor);
+        waitFor(() -> standby.findActiveAlarm(garageDoor.getId()) == null, 5_000);
+        check("resolve applied on the standby despite its disarmed zone", standby.findActiveAlarm(garageDoor.getId()) == null);
+
+        long stoppedAt = System.nanoTime();
+        publisher.stop();
+        boolean tookOver = takeover.await(10, TimeUnit.SECONDS);
+        System.out.println("Standby took over: " + tookOver + " after "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - stoppedAt) + "ms");
+    }
+
+    private static boolean sameZones(SecurityHub primary, SecurityHub standby, List<Device> devices) {
+        for (Device d : devices) {
+            if (!primary.getZones().getZoneNames(d.getId()).equals(standby.getZones().getZoneNames(d.getId()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
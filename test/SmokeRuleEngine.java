@@ -0,0 +1,90 @@
+package rules;
+
+import core.SecurityHub;
+import devices.api.Device;
+import devices.impl.MotionDevice;
+import devices.impl.ThermalDevice;
+import devices.model.DeviceStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Smoke test for the alarm rule engine. Checks rule parsing and error reporting, that a
+ * "for N ticks" rule fires exactly once per streak and raises an alarm on the hub, and times
+ * evaluation per telemetry update as the rule count grows from 10 to 1000. Headless.
+ */
+public class SmokeRuleEngine {
+    public static void main(String[] args) throws Exception {
+        System.out.println("Compiled: " + RuleCompiler.compile("THERMAL_DEVICE signal < -95 for 3 ticks -> HIGH"));
+        for (String bad : new String[]{"THERMAL signal < -95 -> HIGH", "ANY voltage > 3 -> LOW", "ANY battery < 10 -> LOUD", "ANY battery < 10"}) {
+            try {
+                RuleCompiler.compile(bad);
+                System.out.println("Accepted invalid rule: " + bad);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Rejected: " + e.getMessage());
+            }
+        }
+
+        // A hub of its own, so the alarm must land on the engine's hub rather than the shared one
+        SecurityHub hub = SecurityHub.createDetached(4);
+        hub.armHub();
+        RuleEngine engine = new RuleEngine(hub, hub.getLogger());
+        engine.setRules(List.of(
+                RuleCompiler.compile("THERMAL_DEVICE signal < -95 for 3 ticks -> HIGH \"Thermal sensor losing signal\""),
+                RuleCompiler.compile("ANY battery <= 10 and status == OPERATIONAL -> MEDIUM")));
+
+        Device thermal = new ThermalDevice(hub.getLogger(), d -> true);
+        hub.addDevice(thermal);
+        thermal.setDeviceStatus(DeviceStatus.OPERATIONAL);
+        int[] signals = {-98, -97, -99, -99, -90, -98, -98, -98};
+        StringBuilder firedAt = new StringBuilder();
+        for (int i = 0; i < signals.length; i++) {
+            thermal.setSignalStrength(signals[i]);
+            if (engine.evaluate(thermal) > 0) firedAt.append(i).append(' ');
+        }
+        System.out.println("Streak rule fired at updates: " + firedAt.toString().trim() + " (expected 2 7)");
+
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (hub.findActiveAlarm(thermal.getId()) == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        System.out.println("Alarm raised on hub: " + hub.findActiveAlarm(thermal.getId()).getSeverity());
+
+        for (int ruleCount : new int[]{10, 100, 1000}) {
+            System.out.printf("rules=%4d  %.0f ns/update%n", ruleCount, timeEvaluation(hub, ruleCount));
+        }
+    }
+
+    /**
+     * Rules with spread-out thresholds, as an operator would write them: few match any one reading.
+     */
+    private static double timeEvaluation(SecurityHub hub, int ruleCount) {
+        Random random = new Random(7);
+        List<AlarmRule> rules = new ArrayList<>();
+        for (int i = 0; i < ruleCount; i++) {
+            String field = random.nextBoolean() ? "signal < " + (-101 - random.nextInt(200)) : "battery <= " + random.nextInt(3);
+            rules.add(RuleCompiler.compile("MOTION_DEVICE " + field + " for 3 ticks -> LOW"));
+        }
+        RuleEngine engine = new RuleEngine(hub, hub.getLogger());
+        engine.setRules(rules);
+
+        List<Device> fleet = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Device d = new MotionDevice(hub.getLogger(), x -> true);
+            d.setSignalStrength(-40 - random.nextInt(60));
+            fleet.add(d);
+        }
+
+        int updates = 2_000_000;
+        for (int i = 0; i < updates / 4; i++) {
+            engine.evaluate(fleet.get(i % fleet.size()));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            engine.evaluate(fleet.get(i % fleet.size()));
+        }
+        return (double) (System.nanoTime() - start) / updates;
+    }
+}
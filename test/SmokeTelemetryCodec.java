@@ -0,0 +1,94 @@
+package infrastructure.telemetry;
+
+import alarm.AlarmSeverity;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Smoke test for telemetry frame validation. Checks that a well-formed frame decodes, and that a
+ * frame with a valid checksum but an unknown message type, a message cut short, a bad severity
+ * or trailing bytes is rejected without any of its messages reaching the handler. Headless;
+ * prints results to stdout.
+ */
+public class SmokeTelemetryCodec {
+    private static final UUID ID = UUID.randomUUID();
+
+    public static void main(String[] args) {
+        int[] delivered = new int[1];
+        TelemetryHandler counter = new TelemetryHandler() {
+            @Override
+            public void onHeartbeat(long idMsb, long idLsb) {
+                delivered[0]++;
+            }
+
+            @Override
+            public void onTelemetry(long idMsb, long idLsb, int batteryLife, int signalStrength) {
+                delivered[0]++;
+            }
+
+            @Override
+            public void onAlarmEvent(long idMsb, long idLsb, AlarmSeverity severity, int sequence, long epochMillis) {
+                delivered[0]++;
+            }
+
+            @Override
+            public void onAck(long idMsb, long idLsb, int sequence) {
+                delivered[0]++;
+            }
+        };
+        TelemetryCodec codec = new TelemetryCodec();
+
+        ByteBuffer good = frame(codec, 0, buf -> {});
+        check("well-formed frame decodes", codec.decodeFrame(good, counter) == 4 && delivered[0] == 4
+                && !good.hasRemaining());
+
+        delivered[0] = 0;
+        ByteBuffer unknownType = frame(codec, 1, buf -> buf.put((byte) 99).putLong(1).putLong(2));
+        check("unknown type rejected before dispatch",
+                codec.decodeFrame(unknownType, counter) == TelemetryCodec.MALFORMED && delivered[0] == 0);
+
+        ByteBuffer shortMessage = frame(codec, 1, buf -> buf.put(TelemetryCodec.ACK).putLong(1).putLong(2));
+        check("short message rejected before dispatch",
+                codec.decodeFrame(shortMessage, counter) == TelemetryCodec.MALFORMED && delivered[0] == 0);
+
+        ByteBuffer badSeverity = frame(codec, 1, buf -> buf.put(TelemetryCodec.ALARM_EVENT).putLong(1).putLong(2)
+                .put((byte) 42).putInt(1).putLong(0));
+        check("bad severity rejected before dispatch",
+                codec.decodeFrame(badSeverity, counter) == TelemetryCodec.MALFORMED && delivered[0] == 0);
+
+        ByteBuffer trailing = frame(codec, 0, buf -> buf.putInt(0));
+        check("trailing bytes rejected before dispatch",
+                codec.decodeFrame(trailing, counter) == TelemetryCodec.MALFORMED && delivered[0] == 0);
+    }
+
+    /**
+     * Encodes one message of each kind, then whatever {@code extra} appends, and reseals the frame
+     * with {@code extraMessages} added to its count and a checksum over the whole payload.
+     */
+    private static ByteBuffer frame(TelemetryCodec codec, int extraMessages, Consumer<ByteBuffer> extra) {
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        codec.beginFrame(buf);
+        codec.putHeartbeat(buf, ID);
+        codec.putTelemetry(buf, ID, 80, -60);
+        codec.putAlarmEvent(buf, ID, AlarmSeverity.HIGH, 1, 1_700_000_000_000L);
+        codec.putAck(buf, ID.getMostSignificantBits(), ID.getLeastSignificantBits(), 1);
+        int count = codec.endFrame(buf);
+        extra.accept(buf);
+        buf.flip();
+
+        int payloadLength = buf.limit() - TelemetryCodec.HEADER_SIZE;
+        CRC32C crc = new CRC32C();
+        crc.update(buf.duplicate().position(TelemetryCodec.HEADER_SIZE));
+        buf.putShort(4, (short) (count + extraMessages));
+        buf.putShort(6, (short) payloadLength);
+        buf.putInt(8, (int) crc.getValue());
+        return buf;
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
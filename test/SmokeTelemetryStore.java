@@ -0,0 +1,115 @@
+package infrastructure.timeseries;
+
+import core.SecurityHub;
+import infrastructure.logger.ConsoleLogger;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Smoke test for the compressed telemetry store. Writes a day of 10-second battery and signal
+ * readings with timing jitter for a small fleet, checks that range scans return exactly what was
+ * written both before and after the blocks reach disk, checks the 1m/1h rollups, and projects
+ * the on-disk size of a year of 10k-device telemetry from the measured bytes per sample.
+ * Headless; prints results to stdout.
+ */
+public class SmokeTelemetryStore {
+    private static final int DEVICES = 200;
+    private static final long INTERVAL_MS = 10_000;
+    private static final long DAY_MS = 24 * 3_600_000L;
+    private static final long START = 1_700_000_000_000L - Math.floorMod(1_700_000_000_000L, DAY_MS);
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("telemetry-smoke");
+        TelemetryStore store = new TelemetryStore(SecurityHub.getInstance(), dir, 2 * 3_600_000L, new ConsoleLogger());
+        store.start();
+
+        Random random = new Random(42);
+        List<UUID> ids = new ArrayList<>();
+        Map<UUID, List<long[]>> written = new HashMap<>();
+        for (int i = 0; i < DEVICES; i++) {
+            ids.add(UUID.randomUUID());
+        }
+
+        long encodeStart = System.nanoTime();
+        for (UUID id : ids) {
+            List<long[]> samples = new ArrayList<>();
+            double battery = 60 + random.nextInt(40);
+            int signal = 70 + random.nextInt(30);
+            for (long t = START; t < START + DAY_MS; t += INTERVAL_MS) {
+                long ts = t + random.nextInt(400);
+                battery -= random.nextDouble() * 0.003;
+                if (random.nextInt(20) == 0) {
+                    signal = Math.max(0, Math.min(100, signal + random.nextInt(5) - 2));
+                }
+                store.append(id, ts, (int) battery, signal);
+                samples.add(new long[] {ts, (int) battery, signal});
+            }
+            written.put(id, samples);
+        }
+        long encodeNanos = System.nanoTime() - encodeStart;
+
+        UUID probe = ids.get(0);
+        check("scan before flush returns every sample", matches(store.range(probe, START, START + DAY_MS), written.get(probe)));
+        store.append(probe, START, 1, 1);
+        check("out-of-order sample dropped", store.getDroppedSamples() == 1);
+
+        store.flush();
+        long samples = store.getSampleCount();
+        double bytesPerSample = (double) store.getBytesWritten() / samples;
+        System.out.printf("Stored %d samples in %d bytes: %.2f bytes/sample, %.0f ns/append%n",
+                samples, store.getBytesWritten(), bytesPerSample, (double) encodeNanos / samples);
+        double yearGiB = bytesPerSample * 10_000 * (365 * 24 * 360.0) / (1L << 30);
+        System.out.printf("Projected year of 10k devices at 10s: %.1f GiB%n", yearGiB);
+
+        boolean allMatch = true;
+        for (UUID id : ids) {
+            allMatch &= matches(store.range(id, START, START + DAY_MS), written.get(id));
+        }
+        check("scan after flush returns every sample for every device", allMatch);
+
+        long from = START + 5 * 3_600_000L + 123_456;
+        long to = from + 90 * 60_000L;
+        List<TelemetrySample> window = store.range(probe, from, to);
+        long expected = written.get(probe).stream().filter(s -> s[0] >= from && s[0] < to).count();
+        check("partial range returns " + expected + " samples", window.size() == expected);
+
+        List<TelemetryRollup> hourly = store.rollup(probe, START, START + DAY_MS, RollupResolution.ONE_HOUR);
+        List<TelemetryRollup> minutely = store.rollup(probe, START, START + DAY_MS, RollupResolution.ONE_MINUTE);
+        int total = hourly.stream().mapToInt(TelemetryRollup::getSampleCount).sum();
+        check("24 hourly buckets covering every sample", hourly.size() == 24 && total == written.get(probe).size());
+        check("~1440 minute buckets", minutely.size() >= 1439 && minutely.size() <= 1441);
+        TelemetryRollup first = hourly.get(0);
+        System.out.printf("First hour: battery %d..%d mean %.1f, signal %d..%d mean %.1f%n",
+                first.getMinBattery(), first.getMaxBattery(), first.getMeanBattery(),
+                first.getMinSignal(), first.getMaxSignal(), first.getMeanSignal());
+
+        long scanStart = System.nanoTime();
+        for (UUID id : ids) {
+            store.scan(id, START, START + DAY_MS, (ts, b, s) -> {});
+        }
+        long scanNanos = System.nanoTime() - scanStart;
+        System.out.printf("Full-day scan: %.0f ns/sample%n", (double) scanNanos / samples);
+
+        store.stop();
+    }
+
+    private static boolean matches(List<TelemetrySample> actual, List<long[]> expected) {
+        if (actual.size() != expected.size()) {
+            return false;
+        }
+        for (int i = 0; i < actual.size(); i++) {
+            TelemetrySample a = actual.get(i);
+            long[] e = expected.get(i);
+            if (a.getTimestampMillis() != e[0] || a.getBatteryLife() != e[1] || a.getSignalStrength() != e[2]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
@@ -0,0 +1,153 @@
+package infrastructure.trace;
+
+import commands.securityhubcommands.BatchDiagnosticCommand;
+import commands.securityhubcommands.SystemResetCommand;
+import core.SecurityHub;
+import devices.api.Device;
+import devices.api.HardwareLink;
+import devices.model.DeviceStatus;
+import infrastructure.clock.VirtualClock;
+import infrastructure.factories.MotionDeviceFactory;
+import infrastructure.factories.SmokeDeviceFactory;
+import infrastructure.logger.ConsoleLogger;
+import infrastructure.monitoring.LatencyHistogram;
+import sim.SimulationEngine;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Smoke test for trace recording and replay. Records a simulated day of telemetry, alarms, pings
+ * and resets, then replays it twice on fresh hubs and checks that both replays end in the state
+ * the recording ended in, that the trace is compact, that latencies and throughput are reported,
+ * that a trace cut short still replays, and that only liveness pings count towards the failure
+ * ladder on replay. Also checks the histogram's percentiles against
+ * exact ones. Headless; prints results to stdout.
+ */
+public class SmokeTraceReplay {
+    private static final int DEVICES = 8;
+    private static final Instant START = Instant.parse("2026-01-05T00:00:00Z");
+    private static final long TICKS = Duration.ofDays(1).toMillis() / SimulationEngine.TICK_MILLIS;
+
+    public static void main(String[] args) throws Exception {
+        Path trace = Files.createTempFile("hub", ".trace");
+        trace.toFile().deleteOnExit();
+
+        SecurityHub hub = SecurityHub.createDetached(4);
+        VirtualClock clock = new VirtualClock(START);
+        hub.setClock(clock);
+        hub.armHub();
+        SimulationEngine engine = new SimulationEngine(hub, hub.getLogger(), clock, 42);
+        TraceRecorder recorder = new TraceRecorder(hub, trace, hub.getLogger());
+        recorder.start();
+        HardwareLink link = recorder.wrap(engine);
+
+        Random ids = new Random(7);
+        for (int i = 0; i < DEVICES; i++) {
+            UUID id = new UUID(ids.nextLong(), ids.nextLong());
+            Device d = (i % 2 == 0 ? new MotionDeviceFactory() : new SmokeDeviceFactory()).create(id, hub.getLogger(), link);
+            d.setDeviceStatus(DeviceStatus.OPERATIONAL);
+            hub.addDevice(d);
+        }
+        for (long t = 1; t <= TICKS; t++) {
+            clock.sleep(SimulationEngine.TICK_MILLIS);
+            engine.tick();
+            if (t % 30 == 0) {
+                for (Device d : hub.getDevices()) {
+                    hub.checkDeviceLiveness(d).join();
+                }
+            }
+            if (t % 720 == 0) {
+                hub.addCommand(new SystemResetCommand(hub.getDevices().get(0), hub));
+                hub.processAllCommands();
+            }
+            if (t % 360 == 0) {
+                hub.resolveAllAlarms();
+            }
+        }
+        recorder.stop();
+        long recorded = recorder.getEventCount();
+        long bytes = Files.size(trace);
+        System.out.printf("Recorded %d events in %d bytes (%.1f bytes/event), %d active alarms at the end%n",
+                recorded, bytes, (double) bytes / recorded, hub.numActiveAlarms());
+
+        TraceReplayer replayer = new TraceReplayer(new ConsoleLogger(), 4);
+        ReplayReport first = replayer.replay(trace);
+        ReplayReport second = replayer.replay(trace);
+        System.out.println(first);
+
+        check("recording produced a trace", recorded > TICKS * DEVICES);
+        check("trace is compact", (double) bytes / recorded < 6);
+        check("every event but END replayed", first.getEvents() == recorded - 1);
+        check("replay ends where the recording ended", first.matchesRecording());
+        check("replays agree with each other", first.getChecksum() == second.getChecksum());
+        check("throughput reported", first.getEventsPerSecond() > 0);
+        LatencyHistogram pings = first.getLatency(TraceEventType.PING);
+        check("latency per event type", pings.getCount() > 0
+                && first.getLatency(TraceEventType.TELEMETRY).getCount() > 0
+                && first.getLatency(TraceEventType.ALARM_TRIGGERED).getCount() > 0
+                && first.getLatency(TraceEventType.COMMAND).getCount() > 0);
+        check("percentiles ordered", pings.getValueAtPercentile(50) <= pings.getValueAtPercentile(99)
+                && pings.getValueAtPercentile(99) <= pings.getMax());
+
+        Path truncated = Files.createTempFile("hub-truncated", ".trace");
+        truncated.toFile().deleteOnExit();
+        byte[] whole = Files.readAllBytes(trace);
+        Files.write(truncated, Arrays.copyOf(whole, whole.length / 2));
+        ReplayReport partial = replayer.replay(truncated);
+        check("trace cut short still replays", partial.getEvents() > 0 && partial.getEvents() < first.getEvents()
+                && !partial.hasRecordedChecksum());
+
+        check("self-checks and batch polls replay without counting towards the ladder", replaysPingSources());
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[100_000];
+        Random random = new Random(1);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) Math.exp(random.nextDouble() * 20); // 1ns to half a second, log-spread
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        boolean accurate = true;
+        for (double p : List.of(50.0, 90.0, 99.0, 99.9)) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long reported = histogram.getValueAtPercentile(p);
+            accurate &= reported >= exact && reported <= exact + Math.max(1, exact / 64);
+        }
+        check("histogram percentiles within 1.6% of exact", accurate);
+        check("histogram max exact", histogram.getMax() == values[values.length - 1]);
+    }
+
+    /**
+     * Records a dead device's self-check, a batched poll of it and a liveness check, of which only
+     * the last counts as a failure, and replays them.
+     */
+    private static boolean replaysPingSources() throws Exception {
+        Path trace = Files.createTempFile("hub-pings", ".trace");
+        trace.toFile().deleteOnExit();
+        SecurityHub hub = SecurityHub.createDetached(2);
+        TraceRecorder recorder = new TraceRecorder(hub, trace, hub.getLogger());
+        recorder.start();
+        HardwareLink link = recorder.wrap(device -> false);
+        Device d = new MotionDeviceFactory().create(UUID.randomUUID(), hub.getLogger(), link);
+        d.setDeviceStatus(DeviceStatus.OPERATIONAL);
+        hub.addDevice(d);
+        d.performSelfCheck();
+        new BatchDiagnosticCommand(link, List.of(d)).execute();
+        hub.checkDeviceLiveness(d).join();
+        recorder.stop();
+
+        ReplayReport report = new TraceReplayer(new ConsoleLogger(), 2).replay(trace);
+        return d.getFailureCount() == 1 && report.getEvents() == 4 && report.matchesRecording();
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
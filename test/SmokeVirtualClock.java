@@ -0,0 +1,177 @@
+package sim;
+
+import alarm.Alarm;
+import core.HubChangeListener;
+import core.HubEvent;
+import core.SecurityHub;
+import devices.api.Device;
+import devices.impl.MotionDevice;
+import devices.impl.SmokeDevice;
+import devices.model.DeviceStatus;
+import infrastructure.clock.CoarseClock;
+import infrastructure.clock.RealClock;
+import infrastructure.clock.VirtualClock;
+import infrastructure.logger.LogLevel;
+import infrastructure.logger.TimestampLogger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Flow;
+
+/**
+ * Smoke test for simulated time. Runs a day of simulated site activity on a virtual clock twice
+ * with the same seed and once with another, and checks that the runs take seconds, that equal
+ * seeds give identical alarms, timestamps and final telemetry while different seeds do not, and
+ * that alarm, log and hub event timestamps come from the virtual clock, and that the alarms are
+ * raised on the simulated hub rather than the shared one. Also checks that the coarse clock
+ * tracks the system clock. Headless; prints results to stdout.
+ */
+public class SmokeVirtualClock {
+    private static final int DEVICES = 8;
+    private static final Instant START = Instant.parse("2026-01-05T00:00:00Z");
+    private static final Duration DAY = Duration.ofDays(1);
+
+    public static void main(String[] args) throws Exception {
+        SecurityHub shared = SecurityHub.getInstance();
+        int sharedAlarms = shared.numActiveAlarms();
+        SecurityHub hub = SecurityHub.createDetached(4);
+        hub.armHub();
+
+        long start = System.nanoTime();
+        Run first = simulate(hub, 42);
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        Run again = simulate(hub, 42);
+        Run other = simulate(hub, 43);
+        System.out.printf("Simulated %s in %dms: %d ticks, %d alarms%n", DAY, wallMillis, first.ticks, first.alarms);
+
+        check("a day simulated in under a minute", wallMillis < 60_000);
+        check("every tick of the day ran", first.ticks == DAY.toMillis() / SimulationEngine.TICK_MILLIS);
+        check("alarms were raised", first.alarms > 0);
+        check("same seed, same run", first.trace == again.trace && first.alarms == again.alarms);
+        check("different seed, different run", first.trace != other.trace);
+        check("alarm timestamps on the virtual clock", first.inWindow);
+        check("log timestamps on the virtual clock", first.logStamped);
+        check("hub event timestamps on the virtual clock", first.eventsInWindow && first.events > 0);
+        check("alarms raised on the simulated hub only", shared.numActiveAlarms() == sharedAlarms);
+
+        hub.setClock(RealClock.getInstance());
+        CoarseClock coarse = new CoarseClock(5);
+        boolean monotonic = true;
+        boolean close = true;
+        long previous = coarse.millis();
+        for (int i = 0; i < 200; i++) {
+            long now = coarse.millis();
+            monotonic &= now >= previous;
+            close &= Math.abs(System.currentTimeMillis() - now) <= 50;
+            previous = now;
+            Thread.sleep(1);
+        }
+        check("coarse clock never goes backwards", monotonic);
+        check("coarse clock within a few ticks of the system clock", close);
+    }
+
+    private static Run simulate(SecurityHub hub, long seed) throws InterruptedException {
+        hub.resolveAllAlarms();
+        hub.removeAllDevices();
+        VirtualClock clock = new VirtualClock(START);
+        hub.setClock(clock);
+
+        // Same ids each run, so the hub walks the fleet in the same order
+        Random ids = new Random(7);
+        for (int i = 0; i < DEVICES; i++) {
+            UUID id = new UUID(ids.nextLong(), ids.nextLong());
+            Device d = i % 2 == 0 ? new MotionDevice(id, hub.getLogger(), x -> true) : new SmokeDevice(id, hub.getLogger(), x -> true);
+            d.setDeviceStatus(DeviceStatus.OPERATIONAL);
+            hub.addDevice(d);
+        }
+
+        Run run = new Run();
+        LocalDateTime from = LocalDateTime.ofInstant(START, ZoneId.systemDefault());
+        LocalDateTime to = LocalDateTime.ofInstant(START.plus(DAY), ZoneId.systemDefault());
+        run.inWindow = true;
+        HubChangeListener recorder = new HubChangeListener() {
+            @Override
+            public void onAlarmRegistered(Alarm alarm) {
+                run.alarms++;
+                run.trace = run.trace * 31 + alarm.getDeviceId().hashCode();
+                run.trace = run.trace * 31 + alarm.getTimestamp().hashCode();
+                run.trace = run.trace * 31 + alarm.getSeverity().ordinal();
+                run.inWindow &= !alarm.getTimestamp().isBefore(from) && !alarm.getTimestamp().isAfter(to);
+            }
+        };
+        hub.addChangeListener(recorder);
+        EventWindowCheck events = new EventWindowCheck(START.toEpochMilli(), START.plus(DAY).toEpochMilli());
+        hub.getEvents().subscribe(events);
+        SimulationEngine engine = new SimulationEngine(hub, hub.getLogger(), clock, seed);
+        run.ticks = engine.runFor(DAY);
+        hub.removeChangeListener(recorder);
+        events.cancel();
+        run.events = events.count;
+        run.eventsInWindow = events.inWindow;
+
+        for (Device d : hub.getDevices()) {
+            run.trace = run.trace * 31 + d.getBatteryLife();
+            run.trace = run.trace * 31 + d.getSignalStrength();
+        }
+        hub.getLogger().log("Simulation finished", LogLevel.INFO);
+        List<String> logs = ((TimestampLogger) hub.getLogger()).getLogs();
+        run.logStamped = logs.get(logs.size() - 1).contains(clock.instant().toString());
+        return run;
+    }
+
+    private static final class Run {
+        long ticks;
+        long alarms;
+        long trace;
+        boolean inWindow;
+        boolean logStamped;
+        long events;
+        boolean eventsInWindow;
+    }
+
+    private static final class EventWindowCheck implements Flow.Subscriber<HubEvent> {
+        private final long from;
+        private final long to;
+        private Flow.Subscription subscription;
+        volatile long count;
+        volatile boolean inWindow = true;
+
+        EventWindowCheck(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        void cancel() {
+            subscription.cancel();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(HubEvent event) {
+            count++;
+            inWindow &= event.getTimestampMillis() >= from && event.getTimestampMillis() <= to;
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
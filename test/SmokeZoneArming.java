@@ -0,0 +1,153 @@
+package core;
+
+import alarm.Alarm;
+import alarm.AlarmSeverity;
+import alarm.AlarmStatus;
+import commands.CommandType;
+import commands.alarmcommands.TriggerAlarmCommand;
+import commands.securityhubcommands.SecurityHubCommand;
+import devices.api.Device;
+import devices.impl.MotionDevice;
+import devices.model.DeviceStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Smoke test for zone-partitioned arming. Puts a large fleet in an interior zone and a small
+ * one on the perimeter, arms the perimeter only, and checks that admission follows each device's
+ * zones, also for a command whose zone is disarmed while it is queued. Then times arming and
+ * disarming the large zone and the per-device admission check. Headless; prints results to stdout.
+ */
+public class SmokeZoneArming {
+    private static final int INTERIOR_DEVICES = 10_000;
+    private static final int PERIMETER_DEVICES = 100;
+    private static final int TOGGLES = 100_000;
+
+    public static void main(String[] args) {
+        // Alarm commands report to the singleton hub
+        SecurityHub hub = SecurityHub.getInstance();
+        ZoneRegistry zones = hub.getZones();
+        List<Device> interior = addDevices(hub, INTERIOR_DEVICES, "interior");
+        List<Device> perimeter = addDevices(hub, PERIMETER_DEVICES, "perimeter");
+        Device both = perimeter.get(0);
+        zones.assign(both.getId(), "interior");
+        Device unzoned = new MotionDevice(hub.getLogger(), d -> true);
+        hub.addDevice(unzoned);
+
+        hub.armZone("perimeter");
+        System.out.println("Mode with perimeter armed: " + hub.currentMode() + " zones " + zones.getArmedZoneNames());
+        check("perimeter device armed", hub.isArmedFor(perimeter.get(1).getId()));
+        check("interior device disarmed", !hub.isArmedFor(interior.get(0).getId()));
+        check("device in both zones armed", hub.isArmedFor(both.getId()));
+        check("unzoned device follows default zone", !hub.isArmedFor(unzoned.getId()));
+
+        hub.processCommand(new TriggerAlarmCommand(perimeter.get(1), "Perimeter motion", AlarmSeverity.HIGH));
+        hub.processCommand(new TriggerAlarmCommand(interior.get(0), "Interior motion", AlarmSeverity.HIGH));
+        check("perimeter alarm raised", hub.findActiveAlarm(perimeter.get(1).getId()) != null);
+        check("interior alarm rejected", hub.findActiveAlarm(interior.get(0).getId()) == null);
+
+        // Resolving everything leaves alarms in disarmed zones alone
+        hub.registerAlarm(new Alarm(interior.get(1).getDeviceType(), interior.get(1).getId(),
+                AlarmStatus.ACTIVE, AlarmSeverity.HIGH, LocalDateTime.now()));
+        hub.resolveAllAlarms();
+        check("perimeter alarm resolved", hub.findActiveAlarm(perimeter.get(1).getId()) == null);
+        check("interior alarm kept", hub.findActiveAlarm(interior.get(1).getId()) != null);
+
+        // A command queued while its zone was armed is dropped if the zone is disarmed before it runs
+        Device queuedInterior = interior.get(2);
+        Device queuedPerimeter = perimeter.get(2);
+        queuedInterior.setDeviceStatus(DeviceStatus.OPERATIONAL);
+        queuedPerimeter.setDeviceStatus(DeviceStatus.OPERATIONAL);
+        hub.armZone("interior");
+        RecordingCommand interiorCommand = new RecordingCommand(queuedInterior);
+        RecordingCommand perimeterCommand = new RecordingCommand(queuedPerimeter);
+        hub.addCommand(interiorCommand);
+        hub.addCommand(perimeterCommand);
+        hub.disarmZone("interior");
+        hub.processAllCommands();
+        check("queued command for a disarmed zone dropped", !interiorCommand.executed);
+        check("queued command for an armed zone executed", perimeterCommand.executed);
+
+        hub.armHub();
+        check("arm all covers unzoned", hub.isArmedFor(unzoned.getId()));
+        hub.disarmHub();
+        check("disarm all", hub.currentMode() == HubStatus.DISARMED);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < TOGGLES; i++) {
+            hub.getZones().arm(1);
+            hub.getZones().disarm(1);
+        }
+        long toggleNanos = System.nanoTime() - start;
+        System.out.printf("Arm/disarm of a %d-device zone: %.0f ns%n", INTERIOR_DEVICES, toggleNanos / (2.0 * TOGGLES));
+
+        hub.armZone("perimeter");
+        int admitted = 0;
+        start = System.nanoTime();
+        for (int round = 0; round < 10; round++) {
+            for (Device d : interior) {
+                if (hub.isArmedFor(d.getId())) {
+                    admitted++;
+                }
+            }
+        }
+        long checkNanos = System.nanoTime() - start;
+        System.out.printf("Admission check: %.0f ns per device (admitted %d)%n", checkNanos / (10.0 * INTERIOR_DEVICES), admitted / 10);
+    }
+
+    private static List<Device> addDevices(SecurityHub hub, int count, String zone) {
+        List<Device> devices = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Device d = new MotionDevice(hub.getLogger(), x -> true);
+            hub.addDevice(d);
+            hub.getZones().assign(d.getId(), zone);
+            devices.add(d);
+        }
+        return devices;
+    }
+
+    private static final class RecordingCommand implements SecurityHubCommand {
+        private final Device device;
+        volatile boolean executed;
+
+        RecordingCommand(Device device) {
+            this.device = device;
+        }
+
+        @Override
+        public void execute() {
+            executed = true;
+        }
+
+        @Override
+        public boolean validate() {
+            return true;
+        }
+
+        @Override
+        public String validationMessage() {
+            return "Recording command validated";
+        }
+
+        @Override
+        public AlarmSeverity getSeverity() {
+            return AlarmSeverity.HIGH;
+        }
+
+        @Override
+        public CommandType getCommandType() {
+            return CommandType.ALARM;
+        }
+
+        @Override
+        public Device getDevice() {
+            return device;
+        }
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
@@ -0,0 +1,179 @@
+package devices.impl;
+
+import devices.api.Device;
+import devices.model.DeviceSnapshot;
+import devices.model.DeviceStatus;
+import infrastructure.logger.ConsoleLogger;
+import infrastructure.logger.Logger;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Concurrency stress tests for the packed device state, in the style of jcstress: each test races
+ * a few actors against a fresh device many times, collects the outcome of every round, and fails
+ * if a forbidden outcome was ever observed. Outcome histograms are printed for inspection.
+ * Headless; prints results to stdout.
+ */
+public class StressDeviceState {
+    private static final int ROUNDS = 20_000;
+    private static final Logger LOGGER = new ConsoleLogger();
+
+    public static void main(String[] args) throws Exception {
+        ExecutorService actors = Executors.newFixedThreadPool(4, r -> {
+            Thread t = new Thread(r, "stress-actor");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // Two increments racing: both must land
+        Map<String, Integer> outcomes = race(actors, StressDeviceState::fresh, 2,
+                (d, actor) -> { d.incrementFailureCount(); return ""; },
+                d -> d.getFailureCount() + " failures, version " + d.getStateVersion());
+        report("increments are never lost", outcomes, "2 failures, version 2");
+
+        // Increment racing a status change: neither update may overwrite the other
+        outcomes = race(actors, StressDeviceState::fresh, 2,
+                (d, actor) -> {
+                    if (actor == 0) {
+                        d.incrementFailureCount();
+                    } else {
+                        d.setDeviceStatus(DeviceStatus.RECOVERY_MODE);
+                    }
+                    return "";
+                },
+                d -> d.getFailureCount() + " " + d.getDeviceStatus() + " v" + d.getStateVersion());
+        report("failure count and status both kept", outcomes, "1 RECOVERY_MODE v2");
+
+        // Battery and signal writers racing
+        outcomes = race(actors, StressDeviceState::fresh, 2,
+                (d, actor) -> {
+                    if (actor == 0) {
+                        d.setBatteryLife(12);
+                    } else {
+                        d.setSignalStrength(-91);
+                    }
+                    return "";
+                },
+                d -> d.getBatteryLife() + "% " + d.getSignalStrength() + "dBm v" + d.getStateVersion());
+        report("battery and signal both kept", outcomes, "12% -91dBm v2");
+
+        // Four failures racing towards the recovery step: it is reached exactly once
+        outcomes = race(actors, StressDeviceState::fresh, 4,
+                (d, actor) -> {
+                    DeviceSnapshot after = d.recordFailure(3, 5);
+                    return after.getFailureCount() == 3 && after.getStatus() == DeviceStatus.RECOVERY_MODE ? "R" : "-";
+                },
+                d -> d.getFailureCount() + " " + d.getDeviceStatus());
+        report("recovery step taken exactly once", outcomes, "4 RECOVERY_MODE [---R]");
+
+        // A reader racing three failures must never see the third failure without recovery mode,
+        // nor a version that does not account for the failures it sees
+        outcomes = race(actors, StressDeviceState::fresh, 2,
+                (d, actor) -> {
+                    if (actor == 0) {
+                        for (int i = 0; i < 3; i++) {
+                            d.recordFailure(3, 5);
+                        }
+                        return "";
+                    }
+                    String seen = "";
+                    for (int i = 0; i < 8; i++) {
+                        DeviceSnapshot s = d.getSnapshot();
+                        boolean torn = (s.getFailureCount() >= 3) != (s.getStatus() == DeviceStatus.RECOVERY_MODE)
+                                || s.getVersion() != s.getFailureCount();
+                        if (torn) {
+                            return "TORN " + s;
+                        }
+                        seen = s.getFailureCount() + "";
+                    }
+                    return "last " + seen;
+                },
+                d -> "");
+        report("snapshots are never torn", outcomes, null);
+
+        // Writing an equal value is not a change
+        Device d = fresh();
+        d.setBatteryLife(d.getBatteryLife());
+        d.setDeviceStatus(d.getDeviceStatus());
+        d.resetFailureCount();
+        check("unchanged writes do not bump the version", d.getStateVersion() == 0);
+
+        // Field bounds survive packing
+        d.setSignalStrength(-140);
+        d.setBatteryLife(100);
+        for (int i = 0; i < 10_000; i++) {
+            d.incrementFailureCount();
+        }
+        check("fields keep their values and neighbours intact", d.getSignalStrength() == -140 && d.getBatteryLife() == 100
+                && d.getFailureCount() == PackedDeviceState.MAX_FAILURES && d.getDeviceStatus() == DeviceStatus.AWAY);
+    }
+
+    private static Device fresh() {
+        return new MotionDevice(LOGGER, device -> true);
+    }
+
+    private interface Actor {
+        String act(Device device, int actor);
+    }
+
+    /**
+     * Runs {@code actorCount} actors against a fresh device per round, releasing them together.
+     *
+     * @return How often each outcome was seen. An outcome is the final state followed by the
+     * actors' results, sorted, in brackets, unless all actors returned nothing.
+     */
+    private static Map<String, Integer> race(ExecutorService pool, Supplier<Device> setup, int actorCount,
+                                             Actor actor, Function<Device, String> finalState) throws Exception {
+        Map<String, Integer> outcomes = new TreeMap<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            Device device = setup.get();
+            AtomicInteger ready = new AtomicInteger();
+            CountDownLatch go = new CountDownLatch(1);
+            Future<?>[] results = new Future<?>[actorCount];
+            for (int a = 0; a < actorCount; a++) {
+                int id = a;
+                results[a] = pool.submit(() -> {
+                    ready.incrementAndGet();
+                    go.await();
+                    return actor.act(device, id);
+                });
+            }
+            while (ready.get() < actorCount) {
+                Thread.onSpinWait();
+            }
+            go.countDown();
+            String[] returned = new String[actorCount];
+            boolean any = false;
+            for (int a = 0; a < actorCount; a++) {
+                returned[a] = (String) results[a].get();
+                any |= !returned[a].isEmpty();
+            }
+            Arrays.sort(returned);
+            String outcome = finalState.apply(device);
+            if (any) {
+                outcome = (outcome + " [" + String.join("", returned) + "]").trim();
+            }
+            outcomes.merge(outcome, 1, Integer::sum);
+        }
+        return outcomes;
+    }
+
+    /**
+     * @param required The only acceptable outcome, or null to only forbid outcomes marked TORN.
+     */
+    private static void report(String what, Map<String, Integer> outcomes, String required) {
+        boolean ok = outcomes.keySet().stream().noneMatch(o -> o.contains("TORN"))
+                && (required == null || (outcomes.size() == 1 && outcomes.containsKey(required)));
+        check(what + " " + outcomes, ok);
+    }
+
+    private static void check(String what, boolean ok) {
+        System.out.println((ok ? "OK   " : "FAIL ") + what);
+    }
+}
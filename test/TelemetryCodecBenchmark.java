@@ -0,0 +1,127 @@
+package infrastructure.telemetry;
+
+import alarm.AlarmSeverity;
+import com.google.gson.Gson;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Encode/decode micro-benchmark comparing the binary telemetry codec with Gson JSON for the same
+ * mix of heartbeat, telemetry and alarm messages. Runs a warm-up pass before measuring and reports
+ * nanoseconds and bytes per message for each format. Headless; prints to stdout.
+ */
+public class TelemetryCodecBenchmark {
+    private static final int MESSAGES_PER_FRAME = 64;
+    private static final int FRAMES = 20_000;
+    private static final int WARMUP_FRAMES = 20_000;
+
+    static volatile long sink;
+
+    public static void main(String[] args) {
+        UUID[] ids = new UUID[MESSAGES_PER_FRAME];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID();
+        }
+
+        binary(ids, WARMUP_FRAMES);
+        json(ids, WARMUP_FRAMES);
+
+        long messages = (long) FRAMES * MESSAGES_PER_FRAME;
+        long start = System.nanoTime();
+        long bytes = binary(ids, FRAMES);
+        report("binary", System.nanoTime() - start, bytes, messages);
+
+        start = System.nanoTime();
+        bytes = json(ids, FRAMES);
+        report("json  ", System.nanoTime() - start, bytes, messages);
+    }
+
+    private static long binary(UUID[] ids, int frames) {
+        TelemetryCodec codec = new TelemetryCodec();
+        ByteBuffer buf = ByteBuffer.allocateDirect(TelemetryCodec.HEADER_SIZE + MESSAGES_PER_FRAME * TelemetryCodec.ALARM_EVENT_SIZE);
+        TelemetryHandler handler = new TelemetryHandler() {
+            @Override
+            public void onHeartbeat(long idMsb, long idLsb) {
+                sink += idLsb;
+            }
+
+            @Override
+            public void onTelemetry(long idMsb, long idLsb, int batteryLife, int signalStrength) {
+                sink += batteryLife + signalStrength;
+            }
+
+            @Override
+            public void onAlarmEvent(long idMsb, long idLsb, AlarmSeverity severity, int sequence, long epochMillis) {
+                sink += sequence;
+            }
+        };
+
+        long bytes = 0;
+        for (int f = 0; f < frames; f++) {
+            buf.clear();
+            codec.beginFrame(buf);
+            for (int i = 0; i < ids.length; i++) {
+                switch (i % 4) {
+                    case 0, 1 -> codec.putHeartbeat(buf, ids[i]);
+                    case 2 -> codec.putTelemetry(buf, ids[i], 80, -60);
+                    default -> codec.putAlarmEvent(buf, ids[i], AlarmSeverity.HIGH, f, 1_700_000_000_000L);
+                }
+            }
+            codec.endFrame(buf);
+            buf.flip();
+            bytes += buf.remaining();
+            codec.decodeFrame(buf, handler);
+        }
+        return bytes;
+    }
+
+    private static long json(UUID[] ids, int frames) {
+        Gson gson = new Gson();
+        long bytes = 0;
+        for (int f = 0; f < frames; f++) {
+            for (int i = 0; i < ids.length; i++) {
+                Map<String, Object> message = new LinkedHashMap<>();
+                message.put("deviceId", ids[i].toString());
+                switch (i % 4) {
+                    case 0, 1 -> message.put("type", "HEARTBEAT");
+                    case 2 -> {
+                        message.put("type", "TELEMETRY");
+                        message.put("batteryLife", 80);
+                        message.put("signalStrength", -60);
+                    }
+                    default -> {
+                        message.put("type", "ALARM_EVENT");
+                        message.put("severity", AlarmSeverity.HIGH.name());
+                        message.put("sequence", f);
+                        message.put("epochMillis", 1_700_000_000_000L);
+                    }
+                }
+                byte[] encoded = gson.toJson(message).getBytes(StandardCharsets.UTF_8);
+                bytes += encoded.length;
+
+                JsonMessage decoded = gson.fromJson(new String(encoded, StandardCharsets.UTF_8), JsonMessage.class);
+                sink += UUID.fromString(decoded.deviceId).getLeastSignificantBits() + decoded.batteryLife + decoded.sequence;
+            }
+        }
+        return bytes;
+    }
+
+    private static void report(String format, long elapsedNanos, long bytes, long messages) {
+        System.out.printf("%s %.1f ns/msg  %.1f bytes/msg  (%d messages in %dms)%n",
+                format, (double) elapsedNanos / messages, (double) bytes / messages, messages, elapsedNanos / 1_000_000);
+    }
+
+    private static class JsonMessage {
+        String type;
+        String deviceId;
+        int batteryLife;
+        int signalStrength;
+        String severity;
+        int sequence;
+        long epochMillis;
+    }
+}